@@ -0,0 +1,391 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.spark.sql;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.MapType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import scala.collection.JavaConversions;
+
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * Converters between {@link StructuredRecord} and Spark {@link Row} that are specialized for a given
+ * {@link StructType} or {@link Schema}. The type inspection and the field paths used in error messages
+ * are done once when a converter is built, so that converting a record is only a walk through the
+ * pre-built converters of its fields. Converters are cached per type.
+ */
+final class RowConverters {
+
+  // Bound on the number of cached converters in each direction. The cache is cleared when it is reached.
+  private static final int MAX_CACHE_SIZE = 1000;
+
+  private static final ConverterCache<StructType, Function<Object, Object>> TO_ROW_CONVERTERS =
+    new ConverterCache<>(structType -> createToRowConverter(structType, ""));
+  private static final ConverterCache<Schema, Function<Object, Object>> FROM_ROW_CONVERTERS =
+    new ConverterCache<>(schema -> createFromRowConverter(schema, ""));
+
+  /**
+   * Creates a {@link Row} object that represents data in the given {@link StructuredRecord}.
+   */
+  static Row toRow(StructuredRecord record, StructType structType) {
+    return (Row) convert(record, TO_ROW_CONVERTERS.get(structType));
+  }
+
+  /**
+   * Creates a {@link StructuredRecord} from the data in the given {@link Row}.
+   */
+  static StructuredRecord fromRow(Row row, Schema schema) {
+    return (StructuredRecord) FROM_ROW_CONVERTERS.get(schema).apply(row);
+  }
+
+  /**
+   * Creates a converter from a non-null value to a value type acceptable by {@link Row}.
+   *
+   * @param dataType the target {@link DataType} of the value
+   * @param path the field path from the top. It is just for error message purpose.
+   * @return the converter, or {@code null} if the value doesn't need any conversion
+   */
+  @Nullable
+  private static Function<Object, Object> createToRowConverter(DataType dataType, String path) {
+    if (dataType.equals(DataTypes.NullType)) {
+      return value -> null;
+    }
+    if (dataType.equals(DataTypes.BooleanType) || dataType.equals(DataTypes.ByteType)
+      || dataType.equals(DataTypes.ShortType) || dataType.equals(DataTypes.IntegerType)
+      || dataType.equals(DataTypes.LongType) || dataType.equals(DataTypes.FloatType)
+      || dataType.equals(DataTypes.DoubleType) || dataType.equals(DataTypes.StringType)) {
+      return null;
+    }
+    if (dataType.equals(DataTypes.BinaryType)) {
+      return value -> value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : value;
+    }
+    if (dataType instanceof ArrayType) {
+      ArrayType arrayType = (ArrayType) dataType;
+      String elementPath = path + "[]";
+      Function<Object, Object> elementConverter = createToRowConverter(arrayType.elementType(), elementPath);
+      boolean containsNull = arrayType.containsNull();
+
+      return value -> {
+        @SuppressWarnings("unchecked")
+        Collection<Object> collection;
+        if (value instanceof Collection) {
+          collection = (Collection<Object>) value;
+        } else if (value.getClass().isArray()) {
+          collection = Arrays.asList((Object[]) value);
+        } else {
+          throw new IllegalArgumentException(
+            "Value type " + value.getClass()
+              + " is not supported as array type value. It must either be a Collection or an array");
+        }
+
+        List<Object> result = new ArrayList<>(collection.size());
+        for (Object obj : collection) {
+          Object elementValue = convert(obj, elementConverter);
+          if (elementValue == null && !containsNull) {
+            throw new IllegalArgumentException("Null value is not allowed for array element at " + elementPath);
+          }
+          result.add(elementValue);
+        }
+        return JavaConversions.asScalaBuffer(result).toSeq();
+      };
+    }
+    if (dataType instanceof MapType) {
+      MapType mapType = (MapType) dataType;
+      String mapPath = path + "<>";
+      Function<Object, Object> keyConverter = createToRowConverter(mapType.keyType(), mapPath);
+      Function<Object, Object> valueConverter = createToRowConverter(mapType.valueType(), mapPath);
+      boolean valueContainsNull = mapType.valueContainsNull();
+
+      return value -> {
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> map = (Map<Object, Object>) value;
+        Map<Object, Object> result = new LinkedHashMap<>(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          Object mapKey = convert(entry.getKey(), keyConverter);
+          if (mapKey == null) {
+            throw new IllegalArgumentException("Null key is not allowed for map at " + mapPath);
+          }
+          Object mapValue = convert(entry.getValue(), valueConverter);
+          if (mapValue == null && !valueContainsNull) {
+            throw new IllegalArgumentException("Null value is not allowed for map at " + mapPath);
+          }
+          result.put(mapKey, mapValue);
+        }
+        return JavaConversions.mapAsScalaMap(result);
+      };
+    }
+    if (dataType instanceof StructType) {
+      StructField[] fields = ((StructType) dataType).fields();
+      String[] fieldNames = new String[fields.length];
+      String[] fieldPaths = new String[fields.length];
+      boolean[] nullables = new boolean[fields.length];
+      List<Function<Object, Object>> fieldConverters = new ArrayList<>(fields.length);
+      for (int i = 0; i < fields.length; i++) {
+        fieldNames[i] = fields[i].name();
+        fieldPaths[i] = path + "/" + fieldNames[i];
+        nullables[i] = fields[i].nullable();
+        fieldConverters.add(createToRowConverter(fields[i].dataType(), fieldPaths[i]));
+      }
+
+      return value -> {
+        StructuredRecord record = (StructuredRecord) value;
+        Object[] fieldValues = new Object[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+          Object fieldValue = convert(record.get(fieldNames[i]), fieldConverters.get(i));
+          if (fieldValue == null && !nullables[i]) {
+            throw new IllegalArgumentException("Null value is not allowed for row field at " + fieldPaths[i]);
+          }
+          fieldValues[i] = fieldValue;
+        }
+        return RowFactory.create(fieldValues);
+      };
+    }
+
+    // Some special types in Spark SQL
+    if (dataType.equals(DataTypes.TimestampType)) {
+      return value -> new Timestamp((long) value);
+    }
+    if (dataType.equals(DataTypes.DateType)) {
+      return value -> new Date((long) value);
+    }
+
+    // Not support the CalendarInterval type for now, as there is no equivalent in Schema
+    return value -> {
+      throw new IllegalArgumentException("Unsupported data type: " + dataType.typeName());
+    };
+  }
+
+  /**
+   * Creates a converter from a non-null value in a Spark {@link Row} into a value acceptable for
+   * {@link StructuredRecord}.
+   *
+   * @param schema the target {@link Schema} of the value
+   * @param path the field path from the top. It is just for error message purpose.
+   * @return the converter, or {@code null} if the value doesn't need any conversion
+   */
+  @Nullable
+  private static Function<Object, Object> createFromRowConverter(Schema schema, String path) {
+    switch (schema.getType()) {
+      case NULL:
+        return value -> null;
+      // For all simple types, return as is.
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+      case BYTES:
+        return null;
+      case ARRAY: {
+        Schema componentSchema = schema.getComponentSchema();
+        boolean nullable = componentSchema.isNullable();
+        String elementPath = path + "[]";
+        Function<Object, Object> elementConverter = createFromRowConverter(getNonNullIfNullable(componentSchema),
+                                                                           elementPath);
+
+        // Value must be a collection
+        return value -> {
+          @SuppressWarnings("unchecked")
+          Collection<Object> collection = (Collection<Object>) value;
+          List<Object> result = new ArrayList<>(collection.size());
+          for (Object element : collection) {
+            if (element == null && !nullable) {
+              throw new IllegalArgumentException("Null value is not allowed for array element at " + elementPath);
+            }
+            result.add(convert(element, elementConverter));
+          }
+          return result;
+        };
+      }
+      case MAP: {
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        boolean valueNullable = mapSchema.getValue().isNullable();
+        String mapPath = path + "<>";
+        // Map in Row object won't have null key, as StructType doesn't support it.
+        Function<Object, Object> keyConverter = createFromRowConverter(getNonNullIfNullable(mapSchema.getKey()),
+                                                                       mapPath);
+        Function<Object, Object> valueConverter = createFromRowConverter(getNonNullIfNullable(mapSchema.getValue()),
+                                                                         mapPath);
+
+        // Value must be a Map
+        return value -> {
+          Map<?, ?> map = (Map<?, ?>) value;
+          Map<Object, Object> result = new LinkedHashMap<>(map.size());
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null && !valueNullable) {
+              throw new IllegalArgumentException("Null value is not allowed for map at " + mapPath);
+            }
+            result.put(convert(entry.getKey(), keyConverter), convert(entry.getValue(), valueConverter));
+          }
+          return result;
+        };
+      }
+      case RECORD: {
+        List<Schema.Field> fields = schema.getFields();
+        String[] fieldNames = new String[fields.size()];
+        String[] fieldPaths = new String[fields.size()];
+        boolean[] nullables = new boolean[fields.size()];
+        List<FieldReader> fieldReaders = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+          Schema.Field field = fields.get(i);
+          fieldNames[i] = field.getName();
+          fieldPaths[i] = path + "/" + field.getName();
+          nullables[i] = field.getSchema().isNullable();
+          fieldReaders.add(createFieldReader(getNonNullIfNullable(field.getSchema()), fieldPaths[i]));
+        }
+
+        // Value must be a Row
+        return value -> {
+          Row row = (Row) value;
+          StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+          for (int i = 0; i < fieldNames.length; i++) {
+            // If the value is null for the field, just continue without setting anything to the StructuredRecord
+            if (row.isNullAt(i)) {
+              if (!nullables[i]) {
+                throw new NullPointerException("Null value is not allowed in record field at " + fieldPaths[i]);
+              }
+              continue;
+            }
+            builder.set(fieldNames[i], fieldReaders.get(i).read(row, i));
+          }
+          return builder.build();
+        };
+      }
+    }
+
+    return value -> {
+      throw new IllegalArgumentException("Unsupported schema: " + schema);
+    };
+  }
+
+  /**
+   * Creates a {@link FieldReader} that reads a non-null field of the given non-nullable schema from a {@link Row}.
+   */
+  private static FieldReader createFieldReader(Schema fieldSchema, String fieldPath) {
+    Function<Object, Object> converter = createFromRowConverter(fieldSchema, fieldPath);
+
+    // Special case handling for ARRAY and MAP in order to get the Java type
+    if (fieldSchema.getType() == Schema.Type.ARRAY) {
+      return (row, idx) -> convert(row.getList(idx), converter);
+    }
+    if (fieldSchema.getType() == Schema.Type.MAP) {
+      return (row, idx) -> convert(row.getJavaMap(idx), converter);
+    }
+    return (row, idx) -> {
+      Object fieldValue = row.get(idx);
+
+      // Date and timestamp special return type handling
+      if (fieldValue instanceof Date) {
+        fieldValue = ((Date) fieldValue).getTime();
+      } else if (fieldValue instanceof Timestamp) {
+        fieldValue = ((Timestamp) fieldValue).getTime();
+      }
+      return convert(fieldValue, converter);
+    };
+  }
+
+  /**
+   * Converts the given value with the given converter, where a {@code null} converter means no conversion.
+   */
+  @Nullable
+  private static Object convert(@Nullable Object value, @Nullable Function<Object, Object> converter) {
+    return value == null || converter == null ? value : converter.apply(value);
+  }
+
+  /**
+   * Returns the non-nullable part of the given {@link Schema} if it is nullable; otherwise return it as is.
+   */
+  private static Schema getNonNullIfNullable(Schema schema) {
+    return schema.isNullable() ? schema.getNonNullable() : schema;
+  }
+
+  /**
+   * Reads and converts a non-null field from a {@link Row}.
+   */
+  private interface FieldReader {
+    Object read(Row row, int idx);
+  }
+
+  /**
+   * A bounded cache of converters. Since the same type instance is usually used for all records of a
+   * partition, the last converter is also remembered by identity to avoid hashing the type for every record.
+   */
+  private static final class ConverterCache<K, V> {
+
+    private final Map<K, V> converters = new ConcurrentHashMap<>();
+    private final Function<K, V> factory;
+    private volatile CacheEntry<K, V> lastEntry;
+
+    ConverterCache(Function<K, V> factory) {
+      this.factory = factory;
+    }
+
+    V get(K key) {
+      CacheEntry<K, V> entry = lastEntry;
+      if (entry != null && entry.key == key) {
+        return entry.value;
+      }
+      V value = converters.get(key);
+      if (value == null) {
+        if (converters.size() >= MAX_CACHE_SIZE) {
+          converters.clear();
+        }
+        value = factory.apply(key);
+        converters.put(key, value);
+      }
+      lastEntry = new CacheEntry<>(key, value);
+      return value;
+    }
+  }
+
+  /**
+   * An immutable key and value pair.
+   */
+  private static final class CacheEntry<K, V> {
+    private final K key;
+    private final V value;
+
+    CacheEntry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private RowConverters() {
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.metrics;
+
+/**
+ * A gauge metric bound to a metric name. It is obtained through {@link Metrics#gauge(String)}
+ * and should be kept by the caller to avoid resolving the metric on every update.
+ */
+public interface Gauge {
+
+  /**
+   * Sets the value of the gauge.
+   *
+   * @param value the new value
+   */
+  void set(long value);
+}
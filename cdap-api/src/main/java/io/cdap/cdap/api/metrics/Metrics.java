@@ -54,6 +54,30 @@ public interface Metrics {
    */
   void gauge(String metricName, long value);
 
+  /**
+   * Returns a {@link Counter} for the specific metric. Updating through the returned {@link
+   * Counter} is the same as calling {@link #countLong(String, long)}, but implementations may
+   * resolve the metric once, which is cheaper for metrics that are updated frequently.
+   *
+   * @param metricName Name of the counter. Use alphanumeric characters in metric names.
+   * @return a {@link Counter} bound to the metric
+   */
+  default Counter counter(String metricName) {
+    return delta -> countLong(metricName, delta);
+  }
+
+  /**
+   * Returns a {@link Gauge} for the specific metric. Updating through the returned {@link Gauge}
+   * is the same as calling {@link #gauge(String, long)}, but implementations may resolve the
+   * metric once, which is cheaper for metrics that are updated frequently.
+   *
+   * @param metricName Name of the gauge. Use alphanumeric characters in metric names.
+   * @return a {@link Gauge} bound to the metric
+   */
+  default Gauge gauge(String metricName) {
+    return value -> gauge(metricName, value);
+  }
+
   /**
    * Get the child {@link Metrics} by adding specified tags to the current metrics context.
    *
@@ -33,6 +33,9 @@ public class ConcurrencyConstraint extends ProtoConstraint.ConcurrencyConstraint
 
   private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyConstraint.class);
 
+  // The constraint checker is woken up when a run of the program ends, so this is only a fallback
+  private static final long RECHECK_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
   public ConcurrencyConstraint(int maxConcurrency) {
     super(maxConcurrency);
   }
@@ -43,16 +46,16 @@ public class ConcurrencyConstraint extends ProtoConstraint.ConcurrencyConstraint
     if (activeRuns.size() >= maxConcurrency) {
       LOG.debug("Skipping run of program {} from schedule {} because there are {} active runs.",
           schedule.getProgramId(), schedule.getName(), activeRuns.size());
-      return notSatisfied(context);
+      return notSatisfied(schedule, context);
     }
     return ConstraintResult.SATISFIED;
   }
 
-  private ConstraintResult notSatisfied(ConstraintContext context) {
+  private ConstraintResult notSatisfied(ProgramSchedule schedule, ConstraintContext context) {
     if (!waitUntilMet) {
       return ConstraintResult.NEVER_SATISFIED;
     }
     return new ConstraintResult(ConstraintResult.SatisfiedState.NOT_SATISFIED,
-        context.getCheckTimeMillis() + TimeUnit.SECONDS.toMillis(10));
+        context.getCheckTimeMillis() + RECHECK_DELAY_MILLIS, schedule.getProgramId());
   }
 }
@@ -17,11 +17,13 @@
 package io.cdap.cdap.internal.app.runtime.schedule.constraint;
 
 import com.google.common.base.Preconditions;
+import io.cdap.cdap.proto.id.ProgramId;
 import javax.annotation.Nullable;
 
 /**
  * The result of a Constraint check. Indicates whether it was satisfied or not, and if not, the
- * duration that the constraint will likely not be satisfied for.
+ * duration that the constraint will likely not be satisfied for, and optionally the program whose
+ * runs are blocking it.
  */
 public class ConstraintResult {
 
@@ -38,18 +40,25 @@ public class ConstraintResult {
 
   private final SatisfiedState satisfiedState;
   private final Long nextCheckTime;
+  private final ProgramId blockingProgramId;
 
   ConstraintResult(SatisfiedState satisfiedState) {
     this(satisfiedState, null);
   }
 
   ConstraintResult(SatisfiedState satisfiedState, Long nextCheckTime) {
+    this(satisfiedState, nextCheckTime, null);
+  }
+
+  ConstraintResult(SatisfiedState satisfiedState, Long nextCheckTime,
+      @Nullable ProgramId blockingProgramId) {
     if (satisfiedState == SatisfiedState.NOT_SATISFIED) {
       // if a constraint is NOT_SATISFIED, there must be a duration specified for the next retry
       Preconditions.checkNotNull(nextCheckTime);
     }
     this.satisfiedState = satisfiedState;
     this.nextCheckTime = nextCheckTime;
+    this.blockingProgramId = blockingProgramId;
   }
 
   public SatisfiedState getSatisfiedState() {
@@ -60,4 +69,15 @@ public class ConstraintResult {
   public Long getNextCheckTime() {
     return nextCheckTime;
   }
+
+  /**
+   * Returns the program whose active runs prevent the constraint from being satisfied. The end of a
+   * run of that program may satisfy the constraint before the next check time.
+   *
+   * @return the program id, or {@code null} if the constraint only depends on time
+   */
+  @Nullable
+  public ProgramId getBlockingProgramId() {
+    return blockingProgramId;
+  }
 }
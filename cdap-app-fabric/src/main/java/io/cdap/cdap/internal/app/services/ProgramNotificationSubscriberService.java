@@ -51,6 +51,7 @@ import io.cdap.cdap.internal.app.runtime.ProgramRunners;
 import io.cdap.cdap.internal.app.runtime.SimpleProgramOptions;
 import io.cdap.cdap.internal.app.runtime.SystemArguments;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
+import io.cdap.cdap.internal.app.store.ApplicationMetaCache;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.internal.app.store.RunRecordDetailWithExistingStatus;
 import io.cdap.cdap.internal.provision.ProvisionRequest;
@@ -110,6 +111,7 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
   private final TransactionRunner transactionRunner;
   private final Store store;
   private final RunRecordMonitorService runRecordMonitorService;
+  private final ApplicationMetaCache appMetaCache;
   private Service delegate;
   private Set<ProgramCompletionNotifier> programCompletionNotifiers;
 
@@ -124,7 +126,8 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
       ProgramStateWriter programStateWriter,
       TransactionRunner transactionRunner,
       Store store,
-      RunRecordMonitorService runRecordMonitorService) {
+      RunRecordMonitorService runRecordMonitorService,
+      ApplicationMetaCache appMetaCache) {
 
     this.messagingService = messagingService;
     this.cConf = cConf;
@@ -136,6 +139,7 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
     this.transactionRunner = transactionRunner;
     this.store = store;
     this.runRecordMonitorService = runRecordMonitorService;
+    this.appMetaCache = appMetaCache;
     this.programCompletionNotifiers = Collections.emptySet();
   }
 
@@ -179,6 +183,7 @@ public class ProgramNotificationSubscriberService extends AbstractIdleService {
         transactionRunner,
         store,
         runRecordMonitorService,
+        appMetaCache,
         name,
         topicName,
         programCompletionNotifiers);
@@ -222,6 +227,7 @@ class ProgramNotificationSingleTopicSubscriberService
   private final CConfiguration cConf;
   private final Store store;
   private final RunRecordMonitorService runRecordMonitorService;
+  private final ApplicationMetaCache appMetaCache;
   private final boolean checkTxSeparation;
 
   ProgramNotificationSingleTopicSubscriberService(
@@ -235,6 +241,7 @@ class ProgramNotificationSingleTopicSubscriberService
       TransactionRunner transactionRunner,
       Store store,
       RunRecordMonitorService runRecordMonitorService,
+      ApplicationMetaCache appMetaCache,
       String name,
       String topicName,
       Set<ProgramCompletionNotifier> programCompletionNotifiers) {
@@ -258,6 +265,7 @@ class ProgramNotificationSingleTopicSubscriberService
     this.metricsCollectionService = metricsCollectionService;
     this.programCompletionNotifiers = programCompletionNotifiers;
     this.runRecordMonitorService = runRecordMonitorService;
+    this.appMetaCache = appMetaCache;
     this.cConf = cConf;
     this.store = store;
 
@@ -399,7 +407,7 @@ class ProgramNotificationSingleTopicSubscriberService
       Notification notification,
       StructuredTableContext context)
       throws Exception {
-    AppMetadataStore appMetadataStore = AppMetadataStore.create(context);
+    AppMetadataStore appMetadataStore = getAppMetadataStore(context);
     Map<String, String> properties = notification.getProperties();
     // Required parameters
     String programRun = properties.get(ProgramOptionConstants.PROGRAM_RUN_ID);
@@ -1183,7 +1191,7 @@ class ProgramNotificationSingleTopicSubscriberService
 
   /** Returns an instance of {@link AppMetadataStore}. */
   private AppMetadataStore getAppMetadataStore(StructuredTableContext context) {
-    return AppMetadataStore.create(context);
+    return AppMetadataStore.create(context, appMetaCache);
   }
 
   private Map<String, String> getAdditionalTagsForProgramMetrics(
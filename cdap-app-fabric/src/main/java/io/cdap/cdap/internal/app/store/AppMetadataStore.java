@@ -85,7 +85,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -150,6 +149,7 @@ public class AppMetadataStore {
       .build();
 
   private final StructuredTableContext context;
+  private final ApplicationMetaCache appMetaCache;
   private StructuredTable applicationSpecificationTable;
   private StructuredTable applicationEditTable;
   private StructuredTable workflowNodeStateTable;
@@ -162,11 +162,21 @@ public class AppMetadataStore {
    * Static method for creating an instance of {@link AppMetadataStore}.
    */
   public static AppMetadataStore create(StructuredTableContext context) {
-    return new AppMetadataStore(context);
+    return new AppMetadataStore(context, ApplicationMetaCache.DISABLED);
   }
 
-  private AppMetadataStore(StructuredTableContext context) {
+  /**
+   * Static method for creating an instance of {@link AppMetadataStore} that uses the given
+   * {@link ApplicationMetaCache} for caching decoded {@link ApplicationMeta}.
+   */
+  public static AppMetadataStore create(StructuredTableContext context,
+      ApplicationMetaCache appMetaCache) {
+    return new AppMetadataStore(context, appMetaCache);
+  }
+
+  private AppMetadataStore(StructuredTableContext context, ApplicationMetaCache appMetaCache) {
     this.context = context;
+    this.appMetaCache = appMetaCache;
   }
 
   private StructuredTable getApplicationSpecificationTable() {
@@ -347,7 +357,7 @@ public class AppMetadataStore {
       boolean keepScanning = true;
       while (iterator.hasNext() && keepScanning && limit > 0) {
         StructuredRow row = iterator.next();
-        AppScanEntry scanEntry = new AppScanEntry(row);
+        AppScanEntry scanEntry = new AppScanEntry(row, appMetaCache);
         if (scanEntryPredicate.test(scanEntry)) {
           keepScanning = func.apply(scanEntry);
           limit--;
@@ -675,16 +685,19 @@ public class AppMetadataStore {
       throws IOException {
     List<Field<?>> fields = getApplicationPrimaryKeys(namespaceId, appId, versionId);
     getApplicationSpecificationTable().delete(fields);
+    appMetaCache.invalidate(new NamespaceId(namespaceId).app(appId, versionId));
   }
 
   public void deleteApplication(ApplicationReference appRef) throws IOException {
     getApplicationEditTable().delete(getNamespaceApplicationKeys(appRef));
     getApplicationSpecificationTable().deleteAll(getNamespaceAndApplicationRange(appRef));
+    appMetaCache.invalidate(appId -> appId.getAppReference().equals(appRef));
   }
 
   public void deleteApplications(String namespaceId)
       throws IOException {
     getApplicationSpecificationTable().deleteAll(getNamespaceRange(namespaceId));
+    appMetaCache.invalidate(appId -> appId.getNamespace().equals(namespaceId));
   }
 
   public void updateAppSpec(ApplicationId appId, ApplicationSpecification spec) throws IOException {
@@ -1513,15 +1526,22 @@ public class AppMetadataStore {
    * @param limit count at most that many runs, stop if there are more.
    */
   public int countActiveRuns(@Nullable Integer limit) throws IOException {
-    AtomicInteger count = new AtomicInteger(0);
-    try (CloseableIterator<RunRecordDetail> iterator = queryProgramRuns(
-        Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, null)),
-        key -> !NamespaceId.SYSTEM.getNamespace()
-            .equals(key.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD)),
-        null, limit != null ? limit : Integer.MAX_VALUE)) {
-      iterator.forEachRemaining(m -> count.getAndIncrement());
+    int maxCount = limit != null ? limit : Integer.MAX_VALUE;
+    int count = 0;
+    // Only the keys are needed for counting, hence no need to read and decode the run records
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().multiScan(
+        Collections.singleton(
+            Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, null))),
+        Integer.MAX_VALUE, Collections.emptyList())) {
+      while (count < maxCount && iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        if (!NamespaceId.SYSTEM.getNamespace()
+            .equals(row.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD))) {
+          count++;
+        }
+      }
     }
-    return count.get();
+    return count;
   }
 
   /**
@@ -2231,7 +2251,7 @@ public class AppMetadataStore {
         }).collect(Collectors.toList());
 
     try (CloseableIterator<StructuredRow> iterator = getProgramCountsTable().multiScan(multiRanges,
-        Integer.MAX_VALUE)) {
+        Integer.MAX_VALUE, Collections.singleton(StoreDefinition.AppMetadataStore.COUNTS))) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         ProgramReference programRef = getApplicationIdFromRow(row)
@@ -2317,6 +2337,7 @@ public class AppMetadataStore {
     deleteTable(getProgramCountsTable(), StoreDefinition.AppMetadataStore.COUNT_TYPE);
     deleteTable(getSubscriberStateTable(), StoreDefinition.AppMetadataStore.SUBSCRIBER_TOPIC);
     deleteTable(getApplicationEditTable(), StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
+    appMetaCache.invalidateAll();
   }
 
   private void deleteTable(StructuredTable table, String firstKey) throws IOException {
@@ -2430,6 +2451,7 @@ public class AppMetadataStore {
           GSON.toJson(sourceControlMeta)));
     }
     getApplicationSpecificationTable().upsert(fields);
+    appMetaCache.invalidate(new NamespaceId(namespaceId).app(appId, versionId));
   }
 
   private void updateApplicationEdit(String namespaceId, String appId)
@@ -2450,6 +2472,7 @@ public class AppMetadataStore {
     fields.add(
         Fields.stringField(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD, serialized));
     getApplicationSpecificationTable().upsert(fields);
+    appMetaCache.invalidate(new NamespaceId(namespaceId).app(appId, versionId));
   }
 
   private List<Field<?>> getCountTypePrefix(String countType) {
@@ -2503,9 +2526,8 @@ public class AppMetadataStore {
     String changeSummary = row.getString(StoreDefinition.AppMetadataStore.CHANGE_SUMMARY_FIELD);
     Long creationTimeMillis = row.getLong(StoreDefinition.AppMetadataStore.CREATION_TIME_FIELD);
     Boolean latest = row.getBoolean(StoreDefinition.AppMetadataStore.LATEST_FIELD);
-    ApplicationMeta meta = GSON.fromJson(
-        row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD),
-        ApplicationMeta.class);
+    ApplicationMeta meta = decodeApplicationMeta(appMetaCache, getApplicationIdFromRow(row),
+        row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD));
     SourceControlMeta sourceControl = GSON.fromJson(
         row.getString(StoreDefinition.AppMetadataStore.SOURCE_CONTROL_META),
         SourceControlMeta.class);
@@ -2521,6 +2543,16 @@ public class AppMetadataStore {
     return new ApplicationMeta(id, spec, changeDetail, sourceControl);
   }
 
+  /**
+   * Decodes the serialized {@link ApplicationMeta} stored in the application specification table,
+   * reusing the previously decoded instance if the serialized form is unchanged.
+   */
+  private static ApplicationMeta decodeApplicationMeta(ApplicationMetaCache appMetaCache,
+      ApplicationId appId, String serialized) {
+    return appMetaCache.get(appId, serialized,
+        json -> GSON.fromJson(json, ApplicationMeta.class));
+  }
+
   private void writeToStructuredTableWithPrimaryKeys(
       List<Field<?>> keys, Object data, StructuredTable table, String field) throws IOException {
     keys.add(Fields.stringField(field, GSON.toJson(data)));
@@ -2735,15 +2767,17 @@ public class AppMetadataStore {
 
     private final ApplicationId appId;
     private final String rawAppMeta;
+    private final ApplicationMetaCache appMetaCache;
     private volatile ApplicationMeta appMeta;
     @Nullable
     private final ChangeDetail changeDetail;
     @Nullable
     private final SourceControlMeta sourceControlMeta;
 
-    private AppScanEntry(StructuredRow row) {
+    private AppScanEntry(StructuredRow row, ApplicationMetaCache appMetaCache) {
       this.appId = getApplicationIdFromRow(row);
       this.rawAppMeta = row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD);
+      this.appMetaCache = appMetaCache;
       String author = row.getString(StoreDefinition.AppMetadataStore.AUTHOR_FIELD);
       String changeSummary = row.getString(StoreDefinition.AppMetadataStore.CHANGE_SUMMARY_FIELD);
       Long creationTimeMillis = row.getLong(StoreDefinition.AppMetadataStore.CREATION_TIME_FIELD);
@@ -2771,7 +2805,7 @@ public class AppMetadataStore {
       if (meta != null) {
         return meta;
       }
-      ApplicationMeta tempMeta = GSON.fromJson(rawAppMeta, ApplicationMeta.class);
+      ApplicationMeta tempMeta = decodeApplicationMeta(appMetaCache, appId, rawAppMeta);
       appMeta = meta = new ApplicationMeta(tempMeta.getId(), tempMeta.getSpec(), changeDetail,
           sourceControlMeta);
       return meta;
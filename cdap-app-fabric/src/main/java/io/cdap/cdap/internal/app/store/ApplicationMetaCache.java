@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.proto.id.ApplicationId;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache of decoded {@link ApplicationMeta}, keyed by {@link ApplicationId}. Decoding
+ * the application specification json is expensive for large applications, while the same
+ * application versions are read repeatedly, e.g. on program start and schedule evaluation.
+ *
+ * Each entry keeps the serialized form that it was decoded from. A cached entry is only returned
+ * if the serialized form read from the table is the same, hence an entry never goes stale even if
+ * the application is modified by another process or by a transaction that is rolled back. The
+ * cache weight is an estimate of the heap used by an entry, which is the serialized form plus the
+ * decoded {@link ApplicationMeta}.
+ *
+ * There is one instance per injector, shared by all {@link AppMetadataStore} created with it.
+ */
+@Singleton
+public final class ApplicationMetaCache {
+
+  /**
+   * An instance that caches nothing.
+   */
+  static final ApplicationMetaCache DISABLED = new ApplicationMetaCache(0L);
+
+  // A String takes two bytes per char. The decoded object graph holds copies of most of the
+  // strings in the serialized form, along with the objects and maps holding them, which is
+  // estimated as twice the size of the serialized form.
+  private static final int BYTES_PER_SERIALIZED_CHAR = 2 + 4;
+
+  private static final String METRICS_HITS = "appfabric.app.spec.cache.hits";
+  private static final String METRICS_MISSES = "appfabric.app.spec.cache.misses";
+  private static final String METRICS_WEIGHT = "appfabric.app.spec.cache.weight";
+
+  private final Cache<ApplicationId, Entry> cache;
+  private final AtomicLong weight;
+  private final boolean enabled;
+  private volatile MetricsContext metricsContext;
+
+  @Inject
+  ApplicationMetaCache(CConfiguration cConf) {
+    this(cConf.getLong(Constants.AppFabric.APP_SPEC_CACHE_MAX_WEIGHT_MB) * 1024 * 1024);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxWeight the maximum estimated number of bytes used by the cached application metas.
+   *     If it is not positive, nothing will be cached.
+   */
+  public ApplicationMetaCache(long maxWeight) {
+    this.weight = new AtomicLong();
+    this.enabled = maxWeight > 0;
+    this.metricsContext = new NoopMetricsContext();
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(Math.max(0L, maxWeight))
+        .weigher(new Weigher<ApplicationId, Entry>() {
+          @Override
+          public int weigh(ApplicationId key, Entry entry) {
+            return entry.getWeight();
+          }
+        })
+        .removalListener(new RemovalListener<ApplicationId, Entry>() {
+          @Override
+          public void onRemoval(RemovalNotification<ApplicationId, Entry> notification) {
+            Entry entry = notification.getValue();
+            if (entry != null) {
+              weight.addAndGet(-entry.getWeight());
+            }
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Sets the {@link MetricsContext} for emitting cache hits, misses and weight.
+   */
+  public void setMetricsContext(MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
+  }
+
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    setMetricsContext(metricsCollectionService.getContext(Collections.emptyMap()));
+  }
+
+  /**
+   * Returns the decoded {@link ApplicationMeta} of the given serialized form, using the cached
+   * value if it was decoded from the same serialized form. Each call returns a new
+   * {@link ApplicationMeta} instance.
+   *
+   * @param appId the application id
+   * @param serialized the serialized {@link ApplicationMeta}
+   * @param decoder the {@link Function} to decode the serialized form on cache miss
+   * @return the decoded {@link ApplicationMeta}
+   */
+  public ApplicationMeta get(ApplicationId appId, String serialized,
+      Function<String, ApplicationMeta> decoder) {
+    if (!enabled) {
+      return decoder.apply(serialized);
+    }
+
+    MetricsContext metricsContext = this.metricsContext;
+    Entry entry = cache.getIfPresent(appId);
+    if (entry != null && entry.matches(serialized)) {
+      metricsContext.increment(METRICS_HITS, 1L);
+      return copy(entry.getMeta());
+    }
+
+    metricsContext.increment(METRICS_MISSES, 1L);
+    ApplicationMeta meta = decoder.apply(serialized);
+    Entry newEntry = new Entry(serialized, meta);
+    weight.addAndGet(newEntry.getWeight());
+    cache.put(appId, newEntry);
+    metricsContext.gauge(METRICS_WEIGHT, weight.get());
+    return copy(meta);
+  }
+
+  /**
+   * Copies a cached {@link ApplicationMeta}, so that callers never share the cached instance. The
+   * specification, change detail and source control meta are immutable, hence they are shared.
+   */
+  private static ApplicationMeta copy(ApplicationMeta meta) {
+    return new ApplicationMeta(meta.getId(), meta.getSpec(), meta.getChange(),
+        meta.getSourceControlMeta());
+  }
+
+  /**
+   * Removes the cached entry of the given application version.
+   */
+  public void invalidate(ApplicationId appId) {
+    if (enabled) {
+      cache.invalidate(appId);
+      metricsContext.gauge(METRICS_WEIGHT, weight.get());
+    }
+  }
+
+  /**
+   * Removes all cached entries with application id that matches the given {@link Predicate}.
+   */
+  public void invalidate(Predicate<ApplicationId> predicate) {
+    if (!enabled) {
+      return;
+    }
+    Iterator<ApplicationId> iterator = cache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (predicate.test(iterator.next())) {
+        iterator.remove();
+      }
+    }
+    metricsContext.gauge(METRICS_WEIGHT, weight.get());
+  }
+
+  /**
+   * Removes all cached entries.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+    metricsContext.gauge(METRICS_WEIGHT, weight.get());
+  }
+
+  @VisibleForTesting
+  long getWeight() {
+    cache.cleanUp();
+    return weight.get();
+  }
+
+  /**
+   * A cache entry holding the decoded {@link ApplicationMeta} and the serialized form it is
+   * decoded from.
+   */
+  private static final class Entry {
+
+    private final String serialized;
+    private final ApplicationMeta meta;
+
+    private Entry(String serialized, ApplicationMeta meta) {
+      this.serialized = serialized;
+      this.meta = meta;
+    }
+
+    boolean matches(String serialized) {
+      // Most of the time the lengths are different if the application was updated
+      return this.serialized == serialized || this.serialized.equals(serialized);
+    }
+
+    ApplicationMeta getMeta() {
+      return meta;
+    }
+
+    int getWeight() {
+      return (int) Math.min(Integer.MAX_VALUE,
+          (long) serialized.length() * BYTES_PER_SERIALIZED_CHAR);
+    }
+  }
+}
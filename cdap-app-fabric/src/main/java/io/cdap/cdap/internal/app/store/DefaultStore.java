@@ -113,16 +113,27 @@ public class DefaultStore implements Store {
   private static final int MAX_REORDER_BATCH = 1000;
 
   private final TransactionRunner transactionRunner;
+  private final ApplicationMetaCache appMetaCache;
   private final int maxReorderBatch;
 
-  @Inject
   public DefaultStore(TransactionRunner transactionRunner) {
-    this(transactionRunner, MAX_REORDER_BATCH);
+    this(transactionRunner, ApplicationMetaCache.DISABLED);
+  }
+
+  @Inject
+  public DefaultStore(TransactionRunner transactionRunner, ApplicationMetaCache appMetaCache) {
+    this(transactionRunner, appMetaCache, MAX_REORDER_BATCH);
   }
 
   @VisibleForTesting
   DefaultStore(TransactionRunner transactionRunner, int maxReorderBatch) {
+    this(transactionRunner, ApplicationMetaCache.DISABLED, maxReorderBatch);
+  }
+
+  private DefaultStore(TransactionRunner transactionRunner, ApplicationMetaCache appMetaCache,
+      int maxReorderBatch) {
     this.transactionRunner = transactionRunner;
+    this.appMetaCache = appMetaCache;
     this.maxReorderBatch = maxReorderBatch;
   }
 
@@ -140,7 +151,7 @@ public class DefaultStore implements Store {
   }
 
   private AppMetadataStore getAppMetadataStore(StructuredTableContext context) {
-    return AppMetadataStore.create(context);
+    return AppMetadataStore.create(context, appMetaCache);
   }
 
   private WorkflowTable getWorkflowTable(StructuredTableContext context)
@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.worker;
+
+import io.cdap.cdap.api.artifact.CloseableClassLoader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A least recently used cache of artifact classloaders, keyed by the directory of the unpacked
+ * artifact. Since that directory changes whenever the artifact is updated, a cached classloader
+ * never serves stale classes.
+ *
+ * <p>The classloaders returned by {@link #get(File, Callable)} must be closed by the caller, which
+ * only releases them. A classloader evicted from the cache is closed once it is released by all
+ * the tasks that use it.</p>
+ */
+final class ArtifactClassLoaderCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactClassLoaderCache.class);
+
+  private final int maxSize;
+  // guarded by this
+  private final Map<File, Entry> entries;
+
+  ArtifactClassLoaderCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the classloader of the given unpacked artifact, creating it if it is not cached.
+   *
+   * @param artifactDir the directory of the unpacked artifact
+   * @param loader creates the classloader
+   * @return a classloader that delegates to the cached one, and releases it when closed
+   * @throws Exception if failed to create the classloader
+   */
+  CloseableClassLoader get(File artifactDir, Callable<CloseableClassLoader> loader)
+      throws Exception {
+    Entry entry;
+    List<Entry> evicted;
+    synchronized (this) {
+      entry = entries.get(artifactDir);
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(artifactDir, entry);
+      }
+      entry.references++;
+      evicted = evict();
+    }
+    closeAll(evicted);
+
+    CloseableClassLoader classLoader;
+    try {
+      classLoader = entry.getClassLoader(loader);
+    } catch (Exception e) {
+      synchronized (this) {
+        entries.remove(artifactDir, entry);
+        entry.evicted = true;
+      }
+      release(entry);
+      throw e;
+    }
+
+    Entry acquired = entry;
+    return new CloseableClassLoader(classLoader, new Closeable() {
+      private boolean closed;
+
+      @Override
+      public void close() {
+        if (!closed) {
+          closed = true;
+          release(acquired);
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the number of classloaders in the cache.
+   */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes the least recently used entries over the maximum size, and returns the ones that can
+   * be closed now.
+   */
+  private List<Entry> evict() {
+    List<Entry> closeable = new ArrayList<>();
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (entries.size() > maxSize && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      iterator.remove();
+      entry.evicted = true;
+      if (entry.references == 0) {
+        closeable.add(entry);
+      }
+    }
+    return closeable;
+  }
+
+  private void release(Entry entry) {
+    boolean close;
+    synchronized (this) {
+      entry.references--;
+      close = entry.evicted && entry.references == 0;
+    }
+    if (close) {
+      entry.close();
+    }
+  }
+
+  private void closeAll(List<Entry> entries) {
+    for (Entry entry : entries) {
+      entry.close();
+    }
+  }
+
+  /**
+   * A cached classloader, with the number of tasks using it.
+   */
+  private static final class Entry {
+
+    // guarded by the cache
+    private int references;
+    private boolean evicted;
+
+    // guarded by this entry
+    private CloseableClassLoader classLoader;
+
+    synchronized CloseableClassLoader getClassLoader(Callable<CloseableClassLoader> loader)
+        throws Exception {
+      if (classLoader == null) {
+        classLoader = loader.call();
+      }
+      return classLoader;
+    }
+
+    synchronized void close() {
+      if (classLoader == null) {
+        return;
+      }
+      try {
+        classLoader.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close artifact classloader", e);
+      }
+      classLoader = null;
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.artifact.ArtifactId;
 import io.cdap.cdap.api.artifact.CloseableClassLoader;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
@@ -54,6 +55,8 @@ import io.cdap.cdap.security.impersonation.EntityImpersonator;
 import io.cdap.cdap.security.impersonation.Impersonator;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 import org.apache.twill.discovery.DiscoveryService;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.slf4j.Logger;
@@ -62,7 +65,12 @@ import org.slf4j.LoggerFactory;
 /**
  * SystemAppTask launches a task created by system app with application
  * classloader.
+ *
+ * <p>If the task worker runs tasks concurrently, the application classloaders are kept in an
+ * {@link ArtifactClassLoaderCache} and shared by the tasks of the same artifact. The guice injector
+ * is still created for each task, so that it does not keep references to evicted classloaders.</p>
  */
+@Singleton
 public class SystemAppTask implements RunnableTask {
 
   private static final Logger LOG = LoggerFactory.getLogger(
@@ -72,6 +80,8 @@ public class SystemAppTask implements RunnableTask {
   private final DiscoveryService discoveryService;
   private final DiscoveryServiceClient discoveryServiceClient;
   private final MetricsCollectionService metricsCollectionService;
+  @Nullable
+  private final ArtifactClassLoaderCache classLoaderCache;
 
   @Inject
   SystemAppTask(CConfiguration cConf, DiscoveryService discoveryService,
@@ -81,6 +91,10 @@ public class SystemAppTask implements RunnableTask {
     this.discoveryService = discoveryService;
     this.discoveryServiceClient = discoveryServiceClient;
     this.metricsCollectionService = metricsCollectionService;
+    int cacheSize = cConf.getInt(Constants.TaskWorker.ARTIFACT_CLASSLOADER_CACHE_SIZE);
+    this.classLoaderCache =
+        cConf.getInt(Constants.TaskWorker.MAX_CONCURRENT_REQUESTS, 1) > 1 && cacheSize > 0
+            ? new ArtifactClassLoaderCache(cacheSize) : null;
   }
 
   @Override
@@ -112,10 +126,15 @@ public class SystemAppTask implements RunnableTask {
     EntityImpersonator classLoaderImpersonator = new EntityImpersonator(
         artifactId.toEntityId(), impersonator);
 
-    try (CloseableClassLoader artifactClassLoader = artifactRepository.createArtifactClassLoader(
-        new ArtifactDescriptor(artifactId.getNamespace().getId(),
-            artifactId.toArtifactId(), Locations.toLocation(artifactLocation)),
-        classLoaderImpersonator); SystemAppTaskContext systemAppTaskContext = buildTaskSystemAppContext(
+    Callable<CloseableClassLoader> classLoaderLoader =
+        () -> artifactRepository.createArtifactClassLoader(
+            new ArtifactDescriptor(artifactId.getNamespace().getId(),
+                artifactId.toArtifactId(), Locations.toLocation(artifactLocation)),
+            classLoaderImpersonator);
+    try (CloseableClassLoader artifactClassLoader = classLoaderCache == null
+        ? classLoaderLoader.call()
+        : classLoaderCache.get(artifactLocation, classLoaderLoader);
+        SystemAppTaskContext systemAppTaskContext = buildTaskSystemAppContext(
         injector, systemAppNamespace, systemAppArtifactId,
         artifactClassLoader)) {
       RunnableTaskRequest taskRequest = context.getEmbeddedRequest();
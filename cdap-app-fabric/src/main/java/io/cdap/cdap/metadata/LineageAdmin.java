@@ -43,6 +43,7 @@ import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.proto.id.WorkflowId;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -144,46 +145,55 @@ public class LineageAdmin {
     for (int i = 0; i < levels; ++i) {
       LOG.trace("Level {}", i);
       toVisitPrograms.clear();
+      // Fetch the relations of all the unvisited datasets in the frontier at once
+      toVisitDatasets.removeAll(visitedDatasets);
+      visitedDatasets.addAll(toVisitDatasets);
+      Map<DatasetId, Set<Relation>> programRelationsMap = toVisitDatasets.isEmpty()
+          ? Collections.emptyMap()
+          : lineageStoreReader.getDatasetRelations(toVisitDatasets, scanRange.getStart(),
+              scanRange.getEnd(), scanRange.getFilter());
       for (DatasetId d : toVisitDatasets) {
-        if (visitedDatasets.add(d)) {
-          LOG.trace("Visiting dataset {}", d);
-          // Fetch related programs, the programs will be the inner programs which access the datasets. For example,
-          // mapreduce or spark program in a workflow
-          Set<Relation> programRelations = lineageStoreReader.getRelations(d, scanRange.getStart(),
-              scanRange.getEnd(),
-              scanRange.getFilter());
-          LOG.trace("Got program relations {}", programRelations);
-
-          // if we want to roll up lineage for workflow, we need to figure out what workflow these programs are related
-          // to and find out all the inner programs of that workflow, the workflow run id can also be used to
-          // determine if a dataset is local dataset. The local dataset always ends with the workflow run id
-          if (rollUpWorkflow) {
-            computeWorkflowInnerPrograms(toVisitPrograms, programWorkflowMap, programRelations);
-          }
-
-          // add to the relations, replace the inner program with the workflow using the map, ignore the
-          // local datasets relations, the local dataset always ends with the run id of the workflow
-          filterAndAddRelations(rollUpWorkflow, relations, programWorkflowMap, programRelations);
-          toVisitPrograms.addAll(
-              programRelations.stream().map(Relation::getProgram).collect(Collectors.toSet()));
+        LOG.trace("Visiting dataset {}", d);
+        // Fetch related programs, the programs will be the inner programs which access the datasets. For example,
+        // mapreduce or spark program in a workflow
+        Set<Relation> programRelations = programRelationsMap.getOrDefault(d,
+            Collections.emptySet());
+        LOG.trace("Got program relations {}", programRelations);
+
+        // if we want to roll up lineage for workflow, we need to figure out what workflow these programs are related
+        // to and find out all the inner programs of that workflow, the workflow run id can also be used to
+        // determine if a dataset is local dataset. The local dataset always ends with the workflow run id
+        if (rollUpWorkflow) {
+          computeWorkflowInnerPrograms(toVisitPrograms, programWorkflowMap, programRelations);
         }
+
+        // add to the relations, replace the inner program with the workflow using the map, ignore the
+        // local datasets relations, the local dataset always ends with the run id of the workflow
+        filterAndAddRelations(rollUpWorkflow, relations, programWorkflowMap, programRelations);
+        toVisitPrograms.addAll(
+            programRelations.stream().map(Relation::getProgram).collect(Collectors.toSet()));
       }
 
       toVisitDatasets.clear();
-      for (ProgramId p : toVisitPrograms) {
-        if (visitedPrograms.add(p)) {
-          LOG.trace("Visiting program {}", p);
-          // Fetch related datasets
-          Set<Relation> datasetRelations = lineageStoreReader.getRelations(p, scanRange.getStart(),
+      // Fetch the relations of all the unvisited programs in the frontier at once
+      toVisitPrograms.removeAll(visitedPrograms);
+      visitedPrograms.addAll(toVisitPrograms);
+      Map<ProgramId, Set<Relation>> datasetRelationsMap = toVisitPrograms.isEmpty()
+          ? Collections.emptyMap()
+          : lineageStoreReader.getProgramRelations(toVisitPrograms, scanRange.getStart(),
               scanRange.getEnd(), scanRange.getFilter());
-          LOG.trace("Got data relations {}", datasetRelations);
-          Set<DatasetId> localDatasets = filterAndAddRelations(rollUpWorkflow, relations,
-              programWorkflowMap, datasetRelations);
-          toVisitDatasets.addAll(
-              datasetRelations.stream().map(relation -> (DatasetId) relation.getData())
-                  .filter(datasetId -> !localDatasets.contains(datasetId))
-                  .collect(Collectors.toSet()));
-        }
+      for (ProgramId p : toVisitPrograms) {
+        LOG.trace("Visiting program {}", p);
+        // Fetch related datasets
+        Set<Relation> datasetRelations = datasetRelationsMap.getOrDefault(p,
+            Collections.emptySet());
+        LOG.trace("Got data relations {}", datasetRelations);
+        Set<DatasetId> localDatasets = filterAndAddRelations(rollUpWorkflow, relations,
+            programWorkflowMap, datasetRelations);
+        toVisitDatasets.addAll(
+            datasetRelations.stream().map(relation -> (DatasetId) relation.getData())
+                .filter(datasetId -> !localDatasets.contains(datasetId))
+                .collect(Collectors.toSet()));
       }
     }
 
@@ -17,12 +17,15 @@
 package io.cdap.cdap.scheduler;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
@@ -37,6 +40,7 @@ import io.cdap.cdap.internal.app.runtime.schedule.constraint.CheckableConstraint
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintContext;
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintResult;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobKey;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueue;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
@@ -44,22 +48,45 @@ import io.cdap.cdap.internal.app.services.ProgramLifecycleService;
 import io.cdap.cdap.internal.app.services.PropertiesResolver;
 import io.cdap.cdap.internal.schedule.constraint.Constraint;
 import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProgramId;
+import io.cdap.cdap.proto.id.ScheduleId;
 import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Checks the jobs in the JobQueue for constraint satisfaction, and launches them.
+ *
+ * <p>Each partition of the JobQueue is handled by one thread, which keeps an in-memory index of
+ * the jobs that are waiting, keyed by what can change their state: the next time any of their
+ * constraints should be checked, and the programs whose runs are blocking them. The threads only
+ * read the jobs of a schedule when they are notified through {@link #jobsChanged(Collection)}, the
+ * jobs that are blocked by a program when they are notified through
+ * {@link #programRunsEnded(Collection)}, and the jobs whose check time is reached. A full scan of
+ * the partition is done when a thread starts, and then periodically to pick up jobs that changed
+ * without notification, such as the jobs marked for deletion.</p>
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
@@ -70,8 +97,14 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final CConfiguration cConf;
   private final TransactionRunner transactionRunner;
+  private final int numPartitions;
+  private final long fullScanIntervalMillis;
+  // incremented for every batch of program run ends, to detect run ends that happen while a job
+  // is being checked
+  private final AtomicLong programRunEndCount;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
+  private volatile List<ConstraintCheckerThread> checkerThreads;
   private volatile boolean stopping;
   private MetricsCollectionService metricsCollectionService;
 
@@ -89,6 +122,11 @@ class ConstraintCheckerService extends AbstractIdleService {
     this.cConf = cConf;
     this.transactionRunner = transactionRunner;
     this.metricsCollectionService = metricsCollectionService;
+    this.numPartitions = cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS);
+    this.fullScanIntervalMillis =
+        cConf.getLong(Constants.Scheduler.JOB_QUEUE_FULL_SCAN_INTERVAL_MILLIS);
+    this.programRunEndCount = new AtomicLong();
+    this.checkerThreads = Collections.emptyList();
   }
 
   @Override
@@ -100,9 +138,13 @@ class ConstraintCheckerService extends AbstractIdleService {
     taskRunner = new ScheduleTaskRunner(store, lifecycleService, propertiesResolver,
         namespaceQueryAdmin, cConf);
 
-    int numPartitions = cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS);
+    List<ConstraintCheckerThread> threads = new ArrayList<>(numPartitions);
     for (int partition = 0; partition < numPartitions; partition++) {
-      taskExecutorService.submit(new ConstraintCheckerThread(partition));
+      threads.add(new ConstraintCheckerThread(partition));
+    }
+    checkerThreads = threads;
+    for (ConstraintCheckerThread thread : threads) {
+      taskExecutorService.submit(thread);
     }
     LOG.info("Started ConstraintCheckerService. state: " + state());
   }
@@ -111,6 +153,9 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.wakeUp();
+    }
     try {
       // Shutdown the executor and wait for all pending task to be completed for max of 5 seconds
       taskExecutorService.shutdown();
@@ -125,13 +170,93 @@ class ConstraintCheckerService extends AbstractIdleService {
     LOG.info("Stopped ConstraintCheckerService.");
   }
 
+  /**
+   * Notifies that the jobs of the given schedules were added or updated. This must be called after
+   * the changes are committed.
+   *
+   * @param scheduleIds the schedules whose jobs changed
+   */
+  void jobsChanged(Collection<ScheduleId> scheduleIds) {
+    List<ConstraintCheckerThread> threads = checkerThreads;
+    if (threads.isEmpty()) {
+      // not started yet, the threads will scan all jobs when they start
+      return;
+    }
+    for (ScheduleId scheduleId : scheduleIds) {
+      int partition = JobQueueTable.getPartition(scheduleId, numPartitions);
+      threads.get(partition).scheduleChanged(scheduleId);
+    }
+  }
+
+  /**
+   * Notifies that a run of each of the given programs has ended. The jobs that are waiting for
+   * the runs of these programs are checked again.
+   *
+   * @param programIds the programs that had a run end
+   */
+  void programRunsEnded(Collection<ProgramId> programIds) {
+    if (programIds.isEmpty()) {
+      return;
+    }
+    long count = programRunEndCount.incrementAndGet();
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.programRunsEnded(programIds, count);
+    }
+  }
+
+  /**
+   * A job that is waiting in the job queue, with the time it needs to be checked next.
+   */
+  private static final class WaitingJob {
+
+    private static final Comparator<WaitingJob> CHECK_TIME_ORDER =
+        Comparator.comparingLong((WaitingJob waitingJob) -> waitingJob.checkTime)
+            .thenComparingLong(waitingJob -> waitingJob.sequence);
+
+    private final Job job;
+    private final long checkTime;
+    private final long sequence;
+    private final Set<ProgramId> blockingProgramIds;
+
+    WaitingJob(Job job, long checkTime, long sequence, Set<ProgramId> blockingProgramIds) {
+      this.job = job;
+      this.checkTime = checkTime;
+      this.sequence = sequence;
+      this.blockingProgramIds = blockingProgramIds;
+    }
+
+    /**
+     * Returns whether the given job, as read from the job queue, is unchanged since it was
+     * indexed.
+     */
+    boolean isSameAs(Job other) {
+      return job.getState() == other.getState()
+          && job.isToBeDeleted() == other.isToBeDeleted()
+          && job.getCreationTime() == other.getCreationTime();
+    }
+  }
+
   private class ConstraintCheckerThread implements Runnable {
 
     private final RetryStrategy scheduleStrategy;
     private final int partition;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+
+    // The index of waiting jobs, only accessed by the checker thread
+    private final Map<JobKey, WaitingJob> waitingJobs = new HashMap<>();
+    private final NavigableSet<WaitingJob> checkTimes = new TreeSet<>(WaitingJob.CHECK_TIME_ORDER);
+    private long sequence;
+
+    // Notifications from other threads, guarded by this object
+    private final Set<ScheduleId> changedSchedules = new HashSet<>();
+    private final Set<JobKey> wokenJobs = new HashSet<>();
+    private final SetMultimap<ProgramId, JobKey> blockedJobs = HashMultimap.create();
+    private final Map<ProgramId, Long> endedPrograms = new HashMap<>();
+
     private Job lastConsumed;
     private int failureCount;
+    private long nextFullScanTime;
+    private long checkRunEndCount;
 
     ConstraintCheckerThread(int partition) {
       // TODO: [CDAP-11370] Need to be configured in cdap-default.xml. Retry with delay ranging from 0.1s to 30s
@@ -150,7 +275,7 @@ class ConstraintCheckerService extends AbstractIdleService {
           long sleepTime = checkJobQueue();
           // Don't sleep if sleepTime returned is 0
           if (sleepTime > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepTime);
+            awaitWakeUp(sleepTime);
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -158,16 +283,78 @@ class ConstraintCheckerService extends AbstractIdleService {
       }
     }
 
+    synchronized void wakeUp() {
+      notifyAll();
+    }
+
+    synchronized void scheduleChanged(ScheduleId scheduleId) {
+      if (changedSchedules.add(scheduleId)) {
+        notifyAll();
+      }
+    }
+
+    synchronized void programRunsEnded(Collection<ProgramId> programIds, long count) {
+      boolean woken = false;
+      for (ProgramId programId : programIds) {
+        endedPrograms.put(programId, count);
+        woken |= wokenJobs.addAll(blockedJobs.removeAll(programId));
+      }
+      if (woken) {
+        notifyAll();
+      }
+    }
+
+    /**
+     * Waits until there are jobs to check, or the given time elapsed.
+     */
+    private synchronized void awaitWakeUp(long timeoutMillis) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      while (!stopping && changedSchedules.isEmpty() && wokenJobs.isEmpty()) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          return;
+        }
+        wait(remaining);
+      }
+    }
+
     /**
      * Check jobs in job queue for constraint satisfaction.
      *
-     * @return sleep time in milliseconds before next fetch
+     * @return sleep time in milliseconds before next check
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
+      long now = System.currentTimeMillis();
+      boolean fullScan = now >= nextFullScanTime;
+      Set<ScheduleId> scheduleIds;
+      Set<JobKey> jobKeys;
+      synchronized (this) {
+        scheduleIds = new HashSet<>(changedSchedules);
+        changedSchedules.clear();
+        jobKeys = new HashSet<>(wokenJobs);
+        wokenJobs.clear();
+        // Runs that ended before this point are visible to the checks below
+        checkRunEndCount = programRunEndCount.get();
+        endedPrograms.values().removeIf(count -> count <= checkRunEndCount);
+      }
+      // add the jobs whose check time is reached
+      Iterator<WaitingJob> dueJobs = checkTimes.iterator();
+      while (dueJobs.hasNext()) {
+        WaitingJob waitingJob = dueJobs.next();
+        if (waitingJob.checkTime > now) {
+          break;
+        }
+        jobKeys.add(waitingJob.job.getJobKey());
+      }
+
+      boolean fullScanDone = false;
       try {
-        emptyFetch = TransactionRunners.run(transactionRunner, context -> {
-          return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
+        fullScanDone = TransactionRunners.run(transactionRunner, context -> {
+          JobQueue jobQueue = JobQueueTable.getJobQueue(context, cConf);
+          Set<JobKey> checked = new HashSet<>();
+          boolean done = !fullScan || checkJobConstraints(jobQueue, jobKeys, checked);
+          checkJobs(jobQueue, scheduleIds, jobKeys, checked);
+          return done;
         });
 
         // run any ready jobs
@@ -176,6 +363,8 @@ class ConstraintCheckerService extends AbstractIdleService {
       } catch (Exception e) {
         LOG.warn("Failed to check Job constraints. Will retry in next run", e);
         failureCount++;
+        // The index may not match the jobs after the failure. Rebuild it with a full scan.
+        resetIndex();
       }
 
       // If there is any failure, delay the next fetch based on the strategy
@@ -183,29 +372,85 @@ class ConstraintCheckerService extends AbstractIdleService {
         // Exponential strategy doesn't use the time component, so doesn't matter what we passed in as startTime
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
+      if (fullScan && !fullScanDone) {
+        // continue the full scan right away
+        return 0L;
+      }
+      if (fullScanDone) {
+        nextFullScanTime = now + fullScanIntervalMillis;
+      }
 
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      // Sleep until the next check time of a waiting job, or the next full scan
+      long nextCheckTime = nextFullScanTime;
+      if (!checkTimes.isEmpty()) {
+        nextCheckTime = Math.min(nextCheckTime, checkTimes.first().checkTime);
+      }
+      return Math.max(0L, nextCheckTime - System.currentTimeMillis());
     }
 
-    private boolean checkJobConstraints(JobQueue jobQueue) throws IOException {
-      boolean emptyScan = true;
-
+    /**
+     * Scans the partition, starting after the last job consumed by the previous scan, and checks
+     * the jobs that are not already known to be waiting.
+     *
+     * @return {@code true} if the end of the partition was reached
+     */
+    private boolean checkJobConstraints(JobQueue jobQueue, Set<JobKey> jobKeys,
+        Set<JobKey> checked) throws IOException {
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
         // limit the batches of the scan to 1000ms
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
+          checked.add(job.getJobKey());
+          if (jobKeys.contains(job.getJobKey()) || needsCheck(job)) {
+            checkAndUpdateJob(jobQueue, job);
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Checks the jobs of the given schedules, and the given jobs, that were not checked already.
+     */
+    private void checkJobs(JobQueue jobQueue, Set<ScheduleId> scheduleIds, Set<JobKey> jobKeys,
+        Set<JobKey> checked) throws IOException {
+      for (ScheduleId scheduleId : scheduleIds) {
+        try (CloseableIterator<Job> jobs = jobQueue.getJobsForSchedule(scheduleId)) {
+          while (jobs.hasNext()) {
+            Job job = jobs.next();
+            if (checked.add(job.getJobKey())
+                && (jobKeys.contains(job.getJobKey()) || needsCheck(job))) {
+              checkAndUpdateJob(jobQueue, job);
+            }
+          }
+        }
+      }
+      for (JobKey jobKey : jobKeys) {
+        if (!checked.add(jobKey)) {
+          continue;
+        }
+        Job job = jobQueue.getJob(jobKey);
+        if (job == null) {
+          unindex(jobKey);
+        } else {
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+    }
+
+    /**
+     * Returns whether the given job is not known to be waiting, or has changed since it was last
+     * checked.
+     */
+    private boolean needsCheck(Job job) {
+      WaitingJob waitingJob = waitingJobs.get(job.getJobKey());
+      return waitingJob == null || !waitingJob.isSameAs(job);
     }
 
     private void checkAndUpdateJob(JobQueue jobQueue, Job job) throws IOException {
@@ -223,6 +468,12 @@ class ConstraintCheckerService extends AbstractIdleService {
                 && now - job.getDeleteTimeMillis()
                 > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+          unindex(job.getJobKey());
+        } else if (job.getState() == Job.State.PENDING_TRIGGER) {
+          index(job, job.getDeleteTimeMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS + 1,
+              Collections.emptySet());
+        } else {
+          unindex(job.getJobKey());
         }
         return;
       }
@@ -231,15 +482,37 @@ class ConstraintCheckerService extends AbstractIdleService {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(),
             job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
+        unindex(job.getJobKey());
         return;
       }
+      long timeoutTime = saturatedAdd(job.getCreationTime(),
+          job.getSchedule().getTimeoutMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS);
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
+        if (job.getState() == Job.State.PENDING_TRIGGER) {
+          // a job pending trigger is only changed by the subscriber, which notifies of the change
+          index(job, timeoutTime, Collections.emptySet());
+        } else {
+          unindex(job.getJobKey());
+        }
         return;
       }
-      ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now);
+      List<ConstraintResult> notSatisfied = new ArrayList<>();
+      ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now,
+          notSatisfied);
       if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+        long checkTime = timeoutTime;
+        Set<ProgramId> blockingProgramIds = new HashSet<>();
+        for (ConstraintResult result : notSatisfied) {
+          //noinspection ConstantConditions
+          checkTime = Math.min(checkTime, result.getNextCheckTime());
+          if (result.getBlockingProgramId() != null) {
+            blockingProgramIds.add(result.getBlockingProgramId());
+          }
+        }
+        index(job, checkTime, blockingProgramIds);
         return;
       }
+      unindex(job.getJobKey());
       if (satisfiedState == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
         jobQueue.deleteJob(job);
         return;
@@ -248,6 +521,56 @@ class ConstraintCheckerService extends AbstractIdleService {
       readyJobs.add(job);
     }
 
+    /**
+     * Adds a job to the index of waiting jobs, replacing the previous entry of the job.
+     */
+    private void index(Job job, long checkTime, Set<ProgramId> blockingProgramIds) {
+      unindex(job.getJobKey());
+      WaitingJob waitingJob = new WaitingJob(job, checkTime, sequence++, blockingProgramIds);
+      waitingJobs.put(job.getJobKey(), waitingJob);
+      checkTimes.add(waitingJob);
+      if (blockingProgramIds.isEmpty()) {
+        return;
+      }
+      synchronized (this) {
+        for (ProgramId programId : blockingProgramIds) {
+          Long count = endedPrograms.get(programId);
+          if (count != null && count > checkRunEndCount) {
+            // a run ended after the job was checked
+            wokenJobs.add(job.getJobKey());
+          } else {
+            blockedJobs.put(programId, job.getJobKey());
+          }
+        }
+      }
+    }
+
+    private void unindex(JobKey jobKey) {
+      WaitingJob waitingJob = waitingJobs.remove(jobKey);
+      if (waitingJob == null) {
+        return;
+      }
+      checkTimes.remove(waitingJob);
+      if (waitingJob.blockingProgramIds.isEmpty()) {
+        return;
+      }
+      synchronized (this) {
+        for (ProgramId programId : waitingJob.blockingProgramIds) {
+          blockedJobs.remove(programId, jobKey);
+        }
+      }
+    }
+
+    private void resetIndex() {
+      waitingJobs.clear();
+      checkTimes.clear();
+      synchronized (this) {
+        blockedJobs.clear();
+      }
+      lastConsumed = null;
+      nextFullScanTime = 0L;
+    }
+
     private void runReadyJobs() {
       final Iterator<Job> readyJobsIter = readyJobs.iterator();
       while (readyJobsIter.hasNext() && !stopping) {
@@ -306,7 +629,16 @@ class ConstraintCheckerService extends AbstractIdleService {
       return true;
     }
 
-    private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now) {
+    /**
+     * Checks the constraints of a job.
+     *
+     * @param job the job to check
+     * @param now the current time
+     * @param notSatisfied the results of the constraints that are not satisfied are added to it
+     * @return whether all constraints are satisfied
+     */
+    private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now,
+        Collection<ConstraintResult> notSatisfied) {
       ConstraintResult.SatisfiedState satisfiedState = ConstraintResult.SatisfiedState.SATISFIED;
 
       ConstraintContext constraintContext = new ConstraintContext(job, now, store);
@@ -326,11 +658,16 @@ class ConstraintCheckerService extends AbstractIdleService {
         }
         if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
           satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+          notSatisfied.add(result);
         }
       }
       return satisfiedState;
     }
 
+    private long saturatedAdd(long time, long duration) {
+      return time > Long.MAX_VALUE - duration ? Long.MAX_VALUE : time + duration;
+    }
+
     private void emitScheduleJobSuccessAndLatencyMetric(String application, String schedule,
         long jobCreationTime) {
       MetricsContext collector = metricsCollectionService.getContext(
@@ -48,9 +48,11 @@ import io.cdap.cdap.spi.data.StructuredTableContext;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -72,16 +74,19 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final MetricsCollectionService metricsCollectionService;
+  private final ConstraintCheckerService constraintCheckerService;
   private final List<Service> subscriberServices;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
       MetricsCollectionService metricsCollectionService,
+      ConstraintCheckerService constraintCheckerService,
       TransactionRunner transactionRunner) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.metricsCollectionService = metricsCollectionService;
+    this.constraintCheckerService = constraintCheckerService;
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(transactionRunner),
         new DataEventSubscriberService(transactionRunner),
         new ProgramStatusEventSubscriberService(transactionRunner));
@@ -128,6 +133,11 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private abstract class AbstractSchedulerSubscriberService extends
       AbstractNotificationSubscriberService {
 
+    // schedules whose jobs were changed, and programs that had runs ended, since the last
+    // notification to the constraint checker
+    private final Set<ScheduleId> changedSchedules = new HashSet<>();
+    private final Set<ProgramId> endedPrograms = new HashSet<>();
+
     AbstractSchedulerSubscriberService(String name, String topic, int fetchSize,
         TransactionRunner transactionRunner) {
       super(name, cConf, topic, fetchSize,
@@ -158,6 +168,19 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       }
     }
 
+    @Override
+    protected void postProcess() {
+      // the job changes are committed, let the constraint checker check them
+      if (!changedSchedules.isEmpty()) {
+        constraintCheckerService.jobsChanged(changedSchedules);
+        changedSchedules.clear();
+      }
+      if (!endedPrograms.isEmpty()) {
+        constraintCheckerService.programRunsEnded(endedPrograms);
+        endedPrograms.clear();
+      }
+    }
+
     @Override
     protected ScheduledExecutorService executor() {
       return subscriberExecutor;
@@ -169,6 +192,23 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
     protected abstract void processNotification(ProgramScheduleStoreDataset scheduleStore,
         JobQueueTable jobQueue, Notification notification) throws IOException;
 
+    /**
+     * Adds a {@link Notification} to the job of a schedule.
+     */
+    protected void addNotification(JobQueueTable jobQueue, ProgramScheduleRecord record,
+        Notification notification) throws IOException {
+      jobQueue.addNotification(record, notification);
+      changedSchedules.add(record.getSchedule().getScheduleId());
+    }
+
+    /**
+     * Records that a run of the given program has ended, which may unblock the jobs waiting for
+     * it.
+     */
+    protected void programRunEnded(ProgramId programId) {
+      endedPrograms.add(programId);
+    }
+
     private JobQueueTable getJobQueue(StructuredTableContext context) {
       return JobQueueTable.getJobQueue(context, cConf);
     }
@@ -217,7 +257,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         return;
       }
       try {
-        jobQueue.addNotification(record, notification);
+        addNotification(jobQueue, record, notification);
       } catch (Exception e) {
         emitScheduleJobNotificationFailureMetrics(
             record.getSchedule().getScheduleId().getApplication(),
@@ -258,7 +298,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       DatasetId datasetId = DatasetId.fromString(datasetIdString);
       for (ProgramScheduleRecord schedule :
           scheduleStore.findSchedules(Schedulers.triggerKeyForPartition(datasetId))) {
-        jobQueue.addNotification(schedule, notification);
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
@@ -284,6 +324,10 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       String programRunStatusString = notification.getProperties()
           .get(ProgramOptionConstants.PROGRAM_STATUS);
 
+      if (programRunIdString != null && ProgramRunStatus.isEndState(programRunStatusString)) {
+        programRunEnded(GSON.fromJson(programRunIdString, ProgramRunId.class).getParent());
+      }
+
       ProgramStatus programStatus;
       try {
         programStatus = ProgramRunStatus.toProgramStatus(
@@ -305,7 +349,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
 
       for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(
           triggerKeyForProgramStatus)) {
-        jobQueue.addNotification(schedule, notification);
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
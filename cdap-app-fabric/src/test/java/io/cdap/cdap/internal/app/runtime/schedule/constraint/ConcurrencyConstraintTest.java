@@ -111,7 +111,10 @@ public class ConcurrencyConstraintTest {
       // workflow (regardless of the schedule name), the constraint is not met
       systemArgs = ImmutableMap.of(ProgramOptionConstants.SCHEDULE_NAME, "not" + schedule.getName());
       setStartAndRunning(store, pid2, EMPTY_MAP, systemArgs);
-      assertSatisfied(false, concurrencyConstraint.check(schedule, constraintContext));
+      ConstraintResult result = concurrencyConstraint.check(schedule, constraintContext);
+      assertSatisfied(false, result);
+      // the constraint is blocked by the runs of the workflow
+      Assert.assertEquals(WORKFLOW_ID, result.getBlockingProgramId());
 
       // add a run for the program that wasn't from a schedule
       // there are now three concurrent runs, so the constraint will not be met
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ApplicationMetaCache}.
+ */
+public class ApplicationMetaCacheTest {
+
+  @Test
+  public void testCache() {
+    AtomicInteger decodeCount = new AtomicInteger();
+    Function<String, ApplicationMeta> decoder = json -> {
+      decodeCount.incrementAndGet();
+      return new ApplicationMeta(json, null, null);
+    };
+
+    // each entry weighs 6 bytes per char of the serialized form
+    ApplicationMetaCache cache = new ApplicationMetaCache(1000);
+    ApplicationId appV1 = NamespaceId.DEFAULT.app("app", "v1");
+    ApplicationId appV2 = NamespaceId.DEFAULT.app("app", "v2");
+    ApplicationId otherApp = new NamespaceId("ns").app("app", "v1");
+
+    // Same serialized form is only decoded once, but every caller gets its own instance
+    ApplicationMeta meta = cache.get(appV1, "spec1", decoder);
+    ApplicationMeta cached = cache.get(appV1, new String("spec1"), decoder);
+    Assert.assertNotSame(meta, cached);
+    Assert.assertEquals("spec1", cached.getId());
+    Assert.assertEquals(1, decodeCount.get());
+    Assert.assertEquals(30, cache.getWeight());
+
+    // A different serialized form for the same version is decoded again
+    Assert.assertEquals("spec1-updated", cache.get(appV1, "spec1-updated", decoder).getId());
+    Assert.assertEquals(2, decodeCount.get());
+    Assert.assertEquals(78, cache.getWeight());
+
+    cache.get(appV2, "spec2", decoder);
+    cache.get(otherApp, "spec3", decoder);
+    Assert.assertEquals(138, cache.getWeight());
+
+    // Invalidate by version, by application and by namespace
+    cache.invalidate(appV2);
+    Assert.assertEquals(108, cache.getWeight());
+    cache.get(appV2, "spec2", decoder);
+    Assert.assertEquals(5, decodeCount.get());
+
+    cache.invalidate(appId -> appId.getAppReference().equals(appV1.getAppReference()));
+    Assert.assertEquals(30, cache.getWeight());
+    cache.invalidate(appId -> appId.getNamespace().equals("ns"));
+    Assert.assertEquals(0, cache.getWeight());
+  }
+
+  @Test
+  public void testBounded() {
+    AtomicInteger decodeCount = new AtomicInteger();
+    Function<String, ApplicationMeta> decoder = json -> {
+      decodeCount.incrementAndGet();
+      return new ApplicationMeta(json, null, null);
+    };
+
+    ApplicationMetaCache cache = new ApplicationMetaCache(100);
+    for (int i = 0; i < 10; i++) {
+      cache.get(NamespaceId.DEFAULT.app("app" + i), "spec" + i, decoder);
+    }
+    Assert.assertTrue(cache.getWeight() <= 100);
+
+    // Disabled cache always decodes
+    cache = new ApplicationMetaCache(0);
+    decodeCount.set(0);
+    cache.get(NamespaceId.DEFAULT.app("app"), "spec", decoder);
+    cache.get(NamespaceId.DEFAULT.app("app"), "spec", decoder);
+    Assert.assertEquals(2, decodeCount.get());
+    Assert.assertEquals(0, cache.getWeight());
+  }
+}
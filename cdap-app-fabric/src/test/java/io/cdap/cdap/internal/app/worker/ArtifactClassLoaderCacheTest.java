@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.worker;
+
+import io.cdap.cdap.api.artifact.CloseableClassLoader;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ArtifactClassLoaderCache}.
+ */
+public class ArtifactClassLoaderCacheTest {
+
+  @Test
+  public void testReuseAndEviction() throws Exception {
+    ArtifactClassLoaderCache cache = new ArtifactClassLoaderCache(2);
+    AtomicInteger created = new AtomicInteger();
+    AtomicInteger closed = new AtomicInteger();
+    Callable<CloseableClassLoader> loader = () -> {
+      created.incrementAndGet();
+      return new CloseableClassLoader(getClass().getClassLoader(), closed::incrementAndGet);
+    };
+
+    File dir1 = new File("artifact1");
+    File dir2 = new File("artifact2");
+    File dir3 = new File("artifact3");
+
+    // the classloader of an artifact is only created once
+    CloseableClassLoader classLoader1 = cache.get(dir1, loader);
+    cache.get(dir1, loader).close();
+    Assert.assertEquals(1, created.get());
+
+    cache.get(dir2, loader).close();
+    Assert.assertEquals(2, created.get());
+
+    // artifact1 is the least recently used, but it is still in use, so it is not closed yet
+    cache.get(dir2, loader).close();
+    cache.get(dir3, loader).close();
+    Assert.assertEquals(3, created.get());
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(0, closed.get());
+    Assert.assertNotNull(classLoader1.loadClass(ArtifactClassLoaderCacheTest.class.getName()));
+
+    // it is closed once it is released. Closing again has no effect.
+    classLoader1.close();
+    classLoader1.close();
+    Assert.assertEquals(1, closed.get());
+
+    // evicting artifact2, which is not in use, closes it right away
+    cache.get(dir1, loader).close();
+    Assert.assertEquals(4, created.get());
+    Assert.assertEquals(2, closed.get());
+  }
+
+  @Test
+  public void testLoaderFailure() throws Exception {
+    ArtifactClassLoaderCache cache = new ArtifactClassLoaderCache(2);
+    File dir = new File("artifact");
+    try {
+      cache.get(dir, () -> {
+        throw new IOException("failed");
+      });
+      Assert.fail("Expected the loader failure");
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertEquals(0, cache.size());
+
+    // the next call creates the classloader again
+    AtomicInteger closed = new AtomicInteger();
+    cache.get(dir, () -> new CloseableClassLoader(getClass().getClassLoader(),
+        closed::incrementAndGet)).close();
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(0, closed.get());
+  }
+}
@@ -274,6 +274,76 @@ public class TaskWorkerServiceTest {
     Assert.assertEquals(Service.State.TERMINATED, taskWorkerService.state());
   }
 
+  @Test
+  public void testConcurrentRequestsWithoutRestart() throws Exception {
+    CConfiguration cConf = createCConf();
+    SConfiguration sConf = createSConf();
+    int concurrentRequests = 3;
+    cConf.setInt(Constants.TaskWorker.MAX_CONCURRENT_REQUESTS, concurrentRequests);
+    // the request count is ignored when running tasks concurrently
+    cConf.setInt(Constants.TaskWorker.CONTAINER_KILL_AFTER_REQUEST_COUNT, 1);
+    cConf.setDouble(Constants.TaskWorker.CONTAINER_KILL_AFTER_HEAP_USAGE_RATIO, 1.1d);
+
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    TaskWorkerService taskWorkerService = new TaskWorkerService(
+      cConf, sConf, discoveryService, discoveryService, metricsCollectionService,
+      new CommonNettyHttpServiceFactory(cConf, metricsCollectionService), null);
+    taskWorkerService.startAndWait();
+    try {
+      InetSocketAddress addr = taskWorkerService.getBindAddress();
+      URI uri = URI.create(String.format("http://%s:%s", addr.getHostName(), addr.getPort()));
+      String reqBody = GSON.toJson(RunnableTaskRequest.getBuilder(TestRunnableClass.class.getName())
+                                     .withParam("1000").build());
+      List<Callable<HttpResponse>> calls = new ArrayList<>();
+      for (int i = 0; i < concurrentRequests; i++) {
+        calls.add(
+          () -> HttpRequests.execute(
+            HttpRequest.post(uri.resolve("/v3Internal/worker/run").toURL())
+              .withBody(reqBody).build(),
+            new DefaultHttpRequestConfig(false))
+        );
+      }
+
+      // all requests run concurrently, and the worker keeps running after them
+      for (Future<HttpResponse> response
+        : Executors.newFixedThreadPool(concurrentRequests).invokeAll(calls)) {
+        Assert.assertEquals(HttpResponseStatus.OK.code(), response.get().getResponseCode());
+      }
+      Assert.assertEquals(Service.State.RUNNING, taskWorkerService.state());
+    } finally {
+      taskWorkerService.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testConcurrentRequestsRestartOnMemoryPressure() throws IOException {
+    CConfiguration cConf = createCConf();
+    SConfiguration sConf = createSConf();
+    cConf.setInt(Constants.TaskWorker.MAX_CONCURRENT_REQUESTS, 2);
+    cConf.setDouble(Constants.TaskWorker.CONTAINER_KILL_AFTER_HEAP_USAGE_RATIO, 0.0d);
+
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    TaskWorkerService taskWorkerService = new TaskWorkerService(
+      cConf, sConf, discoveryService, discoveryService, metricsCollectionService,
+      new CommonNettyHttpServiceFactory(cConf, metricsCollectionService), null);
+    serviceCompletionFuture = TaskWorkerTestUtil.getServiceCompletionFuture(taskWorkerService);
+    taskWorkerService.startAndWait();
+
+    InetSocketAddress addr = taskWorkerService.getBindAddress();
+    URI uri = URI.create(String.format("http://%s:%s", addr.getHostName(), addr.getPort()));
+    String reqBody = GSON.toJson(RunnableTaskRequest.getBuilder(TestRunnableClass.class.getName())
+                                   .withParam("100").build());
+    HttpResponse response = HttpRequests.execute(
+      HttpRequest.post(uri.resolve("/v3Internal/worker/run").toURL())
+        .withBody(reqBody).build(),
+      new DefaultHttpRequestConfig(false));
+    Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+
+    // any heap usage is above the ratio, so the worker restarts after the request
+    TaskWorkerTestUtil.waitForServiceCompletion(serviceCompletionFuture);
+    Assert.assertEquals(Service.State.TERMINATED, taskWorkerService.state());
+  }
+
   public static class TestRunnableClass implements RunnableTask {
     @Override
     public void run(RunnableTaskContext context) throws Exception {
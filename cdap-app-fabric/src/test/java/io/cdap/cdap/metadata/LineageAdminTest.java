@@ -54,20 +54,29 @@ import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.twill.api.RunId;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Tests lineage computation.
  */
 public class LineageAdminTest extends AppFabricTestBase {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LineageAdminTest.class);
+
   // Define data
   private final DatasetId dataset1 = new DatasetId("default", "dataset1");
   private final DatasetId dataset2 = new DatasetId("default", "dataset2");
@@ -611,6 +620,68 @@ public class LineageAdminTest extends AppFabricTestBase {
                                                     System.currentTimeMillis() + 10000, 100));
   }
 
+  @Test
+  public void testDeepLineageOnLayeredGraph() {
+    // Every level of the lineage has several programs and datasets to read in one batch
+    testDeepLineage(6, 4, 3, 3);
+  }
+
+  @Ignore
+  // Benchmark of 5 levels of lineage over about 10k datasets, run manually
+  @Test
+  public void testDeepLineageOnLargeGraph() {
+    testDeepLineage(10, 100, 10, 5);
+  }
+
+  /**
+   * Computes lineage over a layered graph: the programs in layer i read {@code datasetsPerProgram} datasets each of
+   * dataset layer i and write {@code datasetsPerProgram} datasets each of dataset layer i + 1. All programs of layer 0
+   * also read a hub dataset, from which the lineage is computed.
+   */
+  private void testDeepLineage(int datasetLayers, int programsPerLayer, int datasetsPerProgram, int levels) {
+    TransactionRunner transactionRunner = getInjector().getInstance(TransactionRunner.class);
+    Store store = getInjector().getInstance(Store.class);
+    LineageAdmin lineageAdmin = new LineageAdmin(new DefaultLineageStoreReader(transactionRunner), store);
+
+    DatasetId hub = new DatasetId("default", "hub");
+    Set<Relation> expected = new HashSet<>();
+    for (int layer = 0; layer < datasetLayers - 1; layer++) {
+      List<Relation> layerRelations = new ArrayList<>();
+      for (int p = 0; p < programsPerLayer; p++) {
+        ProgramId program = new ProgramId("default", "app" + layer, ProgramType.SPARK, "spark" + p);
+        ProgramRunId run = program.run(RunIds.generate(System.currentTimeMillis()).getId());
+        addRuns(store, run);
+        if (layer == 0) {
+          layerRelations.add(new Relation(hub, program, AccessType.READ, twillRunId(run)));
+        }
+        for (int d = 0; d < datasetsPerProgram; d++) {
+          int index = p * datasetsPerProgram + d;
+          layerRelations.add(new Relation(new DatasetId("default", "ds_" + layer + "_" + index), program,
+                                          AccessType.READ, twillRunId(run)));
+          layerRelations.add(new Relation(new DatasetId("default", "ds_" + (layer + 1) + "_" + index), program,
+                                          AccessType.WRITE, twillRunId(run)));
+        }
+      }
+      TransactionRunners.run(transactionRunner, context -> {
+        LineageTable lineageTable = LineageTable.create(context);
+        for (Relation relation : layerRelations) {
+          lineageTable.addAccess(relation.getProgramRunId(), (DatasetId) relation.getData(), relation.getAccess(),
+                                 System.currentTimeMillis());
+        }
+      });
+      // the levels of lineage starting from the hub cover all the programs of the same number of layers
+      if (layer < levels) {
+        expected.addAll(layerRelations);
+      }
+    }
+
+    long startTime = System.nanoTime();
+    Lineage lineage = lineageAdmin.computeLineage(hub, 500, System.currentTimeMillis() + 10000, levels);
+    LOG.info("Computed {} levels of lineage with {} relations in {} ms", levels, lineage.getRelations().size(),
+             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    Assert.assertEquals(expected, lineage.getRelations());
+  }
+
   @Test
   public void testScanRange() {
     Set<RunId> runIds = ImmutableSet.of(
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import io.cdap.cdap.api.app.ApplicationSpecification;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.app.store.Store;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.LocalLocationModule;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.namespace.InMemoryNamespaceAdmin;
+import io.cdap.cdap.common.namespace.NamespaceQueryAdmin;
+import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
+import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.DatasetFramework;
+import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.InMemoryDatasetFramework;
+import io.cdap.cdap.internal.app.runtime.ProgramOptionConstants;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleMeta;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
+import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConcurrencyConstraint;
+import io.cdap.cdap.internal.app.runtime.schedule.constraint.DelayConstraint;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
+import io.cdap.cdap.internal.app.runtime.schedule.trigger.TimeTrigger;
+import io.cdap.cdap.internal.app.services.ProgramLifecycleService;
+import io.cdap.cdap.internal.app.services.PropertiesResolver;
+import io.cdap.cdap.internal.app.store.ApplicationMeta;
+import io.cdap.cdap.internal.app.store.RunRecordDetail;
+import io.cdap.cdap.internal.schedule.constraint.Constraint;
+import io.cdap.cdap.proto.NamespaceMeta;
+import io.cdap.cdap.proto.Notification;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.proto.id.WorkflowId;
+import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * Tests for {@link ConstraintCheckerService}. The periodic full scan of the job queue is disabled
+ * by the configuration, so the jobs can only be launched through the notifications and timers of
+ * the service.
+ */
+public class ConstraintCheckerServiceTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Gson GSON = new Gson();
+  private static final NamespaceId TEST_NS = new NamespaceId("checkerTest");
+  private static final ApplicationId APP_ID = TEST_NS.app("app");
+  private static final WorkflowId WORKFLOW_ID = APP_ID.workflow("wf");
+  private static final String CRON_EXPRESSION = "* * * * *";
+
+  private static TransactionManager txManager;
+  private static CConfiguration cConf;
+  private static TransactionRunner transactionRunner;
+
+  private final Map<ProgramRunId, RunRecordDetail> activeRuns = new ConcurrentHashMap<>();
+  private ProgramLifecycleService lifecycleService;
+  private ConstraintCheckerService checkerService;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.set(Constants.Dataset.DATA_STORAGE_IMPLEMENTATION, Constants.Dataset.DATA_STORAGE_NOSQL);
+    cConf.setInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS, 2);
+    cConf.setLong(Constants.Scheduler.JOB_QUEUE_FULL_SCAN_INTERVAL_MILLIS, TimeUnit.HOURS.toMillis(1));
+
+    txManager = new TransactionManager(new Configuration());
+    txManager.startAndWait();
+
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new LocalLocationModule(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new StorageModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(DatasetDefinitionRegistryFactory.class)
+            .to(DefaultDatasetDefinitionRegistryFactory.class).in(Scopes.SINGLETON);
+          bind(DatasetFramework.class).to(InMemoryDatasetFramework.class);
+          bind(NamespaceQueryAdmin.class).to(InMemoryNamespaceAdmin.class).in(Scopes.SINGLETON);
+          bind(TransactionSystemClient.class).toInstance(new InMemoryTxSystemClient(txManager));
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
+        }
+      }
+    );
+
+    StructuredTableAdmin tableAdmin = injector.getInstance(StructuredTableAdmin.class);
+    transactionRunner = injector.getInstance(TransactionRunner.class);
+
+    StoreDefinition.JobQueueStore.create(tableAdmin);
+    StoreDefinition.AppMetadataStore.create(tableAdmin);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    txManager.stopAndWait();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    ApplicationSpecification appSpec = Mockito.mock(ApplicationSpecification.class);
+    Mockito.when(appSpec.getAppVersion()).thenReturn(APP_ID.getVersion());
+    Store store = Mockito.mock(Store.class);
+    Mockito.when(store.getLatest(APP_ID.getAppReference()))
+      .thenReturn(new ApplicationMeta(APP_ID.getApplication(), appSpec, null));
+    Mockito.when(store.getActiveRuns(WORKFLOW_ID)).thenReturn(activeRuns);
+
+    NamespaceQueryAdmin namespaceQueryAdmin = Mockito.mock(NamespaceQueryAdmin.class);
+    Mockito.when(namespaceQueryAdmin.get(TEST_NS))
+      .thenReturn(new NamespaceMeta.Builder().setName(TEST_NS).build());
+
+    lifecycleService = Mockito.mock(ProgramLifecycleService.class);
+    checkerService = new ConstraintCheckerService(store, lifecycleService,
+                                                  Mockito.mock(PropertiesResolver.class),
+                                                  namespaceQueryAdmin, cConf, transactionRunner,
+                                                  new NoOpMetricsCollectionService());
+    checkerService.startAndWait();
+  }
+
+  @After
+  public void tearDown() {
+    checkerService.stopAndWait();
+    TransactionRunners.run(transactionRunner, context -> {
+      JobQueueTable jobQueue = JobQueueTable.getJobQueue(context, cConf);
+      List<Job> jobs = new ArrayList<>();
+      try (CloseableIterator<Job> iterator = jobQueue.fullScan()) {
+        iterator.forEachRemaining(jobs::add);
+      }
+      for (Job job : jobs) {
+        jobQueue.deleteJob(job);
+      }
+    });
+  }
+
+  @Test
+  public void testJobPickedUpOnNotification() throws Exception {
+    ProgramSchedule schedule = createSchedule("noConstraint", Collections.emptyList());
+    addJob(schedule);
+
+    checkerService.jobsChanged(Collections.singleton(schedule.getScheduleId()));
+    verifyLaunched(5000);
+  }
+
+  @Test
+  public void testBlockedJobRunsAfterRunEnds() throws Exception {
+    activeRuns.put(WORKFLOW_ID.run("run1"), Mockito.mock(RunRecordDetail.class));
+    ConcurrencyConstraint concurrencyConstraint = new ConcurrencyConstraint(1);
+    concurrencyConstraint.setWaitUntilMet(true);
+    ProgramSchedule schedule = createSchedule("concurrency",
+                                              Collections.singletonList(concurrencyConstraint));
+    addJob(schedule);
+    checkerService.jobsChanged(Collections.singleton(schedule.getScheduleId()));
+
+    // the job waits while the run is active
+    Mockito.verify(lifecycleService, Mockito.after(1000).never())
+      .runInternal(Matchers.any(), Matchers.anyMap(), Matchers.anyMap(), Matchers.anyBoolean());
+
+    // once the run ends, the job runs right away rather than at the recheck of the constraint
+    activeRuns.clear();
+    checkerService.programRunsEnded(Collections.singleton(WORKFLOW_ID));
+    verifyLaunched(5000);
+  }
+
+  @Test
+  public void testDelayedJobRunsAtCheckTime() throws Exception {
+    ProgramSchedule schedule = createSchedule(
+      "delay", Collections.singletonList(new DelayConstraint(3, TimeUnit.SECONDS)));
+    addJob(schedule);
+    checkerService.jobsChanged(Collections.singleton(schedule.getScheduleId()));
+
+    // the job is not launched before its delay, and is launched once the delay passed without any
+    // further notification
+    Mockito.verify(lifecycleService, Mockito.after(1000).never())
+      .runInternal(Matchers.any(), Matchers.anyMap(), Matchers.anyMap(), Matchers.anyBoolean());
+    verifyLaunched(10000);
+  }
+
+  private ProgramSchedule createSchedule(String name, Iterable<? extends Constraint> constraints) {
+    return new ProgramSchedule(name, "test schedule", WORKFLOW_ID, Collections.emptyMap(),
+                               new TimeTrigger(CRON_EXPRESSION), ImmutableList.copyOf(constraints));
+  }
+
+  /**
+   * Adds a job for the given schedule, with a notification that satisfies its trigger.
+   */
+  private void addJob(ProgramSchedule schedule) {
+    Map<String, String> systemOverrides =
+      ImmutableMap.of(ProgramOptionConstants.CRON_EXPRESSION, CRON_EXPRESSION);
+    Map<String, String> userOverrides = ImmutableMap.of(
+      ProgramOptionConstants.LOGICAL_START_TIME, Long.toString(System.currentTimeMillis()));
+    Notification notification = new Notification(Notification.Type.TIME, ImmutableMap.of(
+      ProgramOptionConstants.SYSTEM_OVERRIDES, GSON.toJson(systemOverrides),
+      ProgramOptionConstants.USER_OVERRIDES, GSON.toJson(userOverrides)));
+    ProgramScheduleRecord record = new ProgramScheduleRecord(
+      schedule, new ProgramScheduleMeta(ProgramScheduleStatus.SCHEDULED, 0L));
+    TransactionRunners.run(transactionRunner, context -> {
+      JobQueueTable.getJobQueue(context, cConf).addNotification(record, notification);
+    });
+  }
+
+  private void verifyLaunched(long timeoutMillis) throws Exception {
+    Mockito.verify(lifecycleService, Mockito.timeout(timeoutMillis))
+      .runInternal(Matchers.eq(WORKFLOW_ID), Matchers.anyMap(), Matchers.anyMap(),
+                   Matchers.eq(false));
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.datastreams;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
@@ -88,6 +89,7 @@ public class SparkStreamingPipelineDriver implements JavaSparkMain {
   // Overhead in milliseconds that Spark needs for graceful shutdown besides the job processing.
   // This helps to calculate a more accurate timeout for Spark gracefulStopTimeout
   private static final long GRACEFUL_SHUTDOWN_OVERHEAD = TimeUnit.MINUTES.toMillis(3L);
+  private static final long TRIGGER_POLL_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1L);
 
   private static final Gson GSON = new GsonBuilder()
     .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
@@ -180,7 +182,15 @@ public class SparkStreamingPipelineDriver implements JavaSparkMain {
       }
     }
 
+    StreamingTriggerListener.Trigger trigger = StreamingTriggerListener.Trigger.parse(
+      sec.getRuntimeArguments().get(Constants.CDAP_STREAMING_TRIGGER));
     JavaStreamingContext jssc = run(pipelineSpec, pipelinePhase, sec, checkpointDir, context);
+    // Listeners are not part of the checkpoint, they have to be added to recovered contexts too
+    StreamingTriggerListener triggerListener = null;
+    if (trigger != StreamingTriggerListener.Trigger.PROCESSING_TIME) {
+      triggerListener = new StreamingTriggerListener(trigger);
+      jssc.addStreamingListener(triggerListener);
+    }
     jssc.start();
 
     boolean stopped = false;
@@ -188,38 +198,21 @@ public class SparkStreamingPipelineDriver implements JavaSparkMain {
       // most programs will just keep running forever.
       // however, when CDAP stops the program, we get an interrupted exception.
       // at that point, we need to call stop on jssc, otherwise the program will hang and never stop.
-      stopped = jssc.awaitTerminationOrTimeout(Long.MAX_VALUE);
+      stopped = awaitTermination(jssc, triggerListener);
     } catch (InterruptedException e) {
       // Catch the interrupted exception to clear the interrupted flag on the thread.
       // Interrupt is issued to break the await so that we can shutdown the program gracefully.
     } finally {
       if (!stopped) {
-        long terminationTimeout = 0L;
-        try {
-          long terminationTime = sec.getTerminationTime();
-
-          // By default, Spark set graceful stop timeout to be 10 * batch_interval.
-          // However, time required for graceful shutdown should be closer to a batch_interval plus overhead,
-          // assuming unprocessed data can be processed in an interval.
-          terminationTimeout = terminationTime - System.currentTimeMillis() - GRACEFUL_SHUTDOWN_OVERHEAD;
-          if (terminationTimeout >= pipelineSpec.getBatchIntervalMillis()) {
-            LOG.debug("Setting spark stop timeout to {} ms", terminationTimeout);
-            jssc.ssc().conf().set(SPARK_GRACEFUL_STOP_TIMEOUT, terminationTimeout + "ms");
-          } else {
-            // Skip graceful shutdown as there won't be enough time
-            terminationTimeout = 0L;
-          }
-
-        } catch (IllegalStateException e) {
-          // This shouldn't happen, but catch it in case there is future bug introduced.
-          LOG.warn("Unexpected exception due to termination timeout is unavailable", e);
-        }
-
-        if (terminationTimeout <= 0 || !pipelineSpec.isStopGracefully()) {
+        boolean triggerCompleted = triggerListener != null && triggerListener.isCompleted();
+        long terminationTimeout = getGracefulStopTimeout(pipelineSpec, sec, triggerCompleted);
+        if (terminationTimeout <= 0) {
           LOG.info("Terminate the streaming job immediately due to {}.",
                    pipelineSpec.isStopGracefully() ? "not enough time till termination" : "configuration");
           jssc.stop(true, false);
         } else {
+          LOG.debug("Setting spark stop timeout to {} ms", terminationTimeout);
+          jssc.ssc().conf().set(SPARK_GRACEFUL_STOP_TIMEOUT, terminationTimeout + "ms");
           jssc.stop(true, true);
 
           // After stopping the streaming context, checks if all received data has been processed.
@@ -247,6 +240,40 @@ public class SparkStreamingPipelineDriver implements JavaSparkMain {
     }
   }
 
+  /**
+   * Returns the timeout for stopping the streaming context gracefully, or {@code 0} if it should be stopped
+   * immediately.
+   *
+   * @param triggerCompleted {@code true} if the pipeline is stopping itself because it processed the data of its
+   *   trigger, rather than being stopped by CDAP
+   */
+  @VisibleForTesting
+  static long getGracefulStopTimeout(DataStreamsPipelineSpec pipelineSpec, JavaSparkExecutionContext sec,
+                                     boolean triggerCompleted) {
+    if (triggerCompleted) {
+      // There is no termination time when the pipeline stops itself. All the data of the trigger is processed,
+      // so the graceful stop only has to wait for the batch in progress.
+      return pipelineSpec.getBatchIntervalMillis() + GRACEFUL_SHUTDOWN_OVERHEAD;
+    }
+    if (!pipelineSpec.isStopGracefully()) {
+      return 0L;
+    }
+    try {
+      long terminationTime = sec.getTerminationTime();
+
+      // By default, Spark set graceful stop timeout to be 10 * batch_interval.
+      // However, time required for graceful shutdown should be closer to a batch_interval plus overhead,
+      // assuming unprocessed data can be processed in an interval.
+      long terminationTimeout = terminationTime - System.currentTimeMillis() - GRACEFUL_SHUTDOWN_OVERHEAD;
+      // Skip graceful shutdown if there won't be enough time
+      return terminationTimeout >= pipelineSpec.getBatchIntervalMillis() ? terminationTimeout : 0L;
+    } catch (IllegalStateException e) {
+      // This shouldn't happen, but catch it in case there is future bug introduced.
+      LOG.warn("Unexpected exception due to termination timeout is unavailable", e);
+      return 0L;
+    }
+  }
+
   private JavaStreamingContext run(DataStreamsPipelineSpec pipelineSpec,
                                    PipelinePhase pipelinePhase,
                                    JavaSparkExecutionContext sec,
@@ -307,6 +334,27 @@ public class SparkStreamingPipelineDriver implements JavaSparkMain {
       : JavaStreamingContext.getOrCreate(checkpointDir, contextFunction, context.hadoopConfiguration());
   }
 
+  /**
+   * Waits for the streaming context to terminate, or for the pipeline to complete its trigger, in which case the
+   * caller is expected to stop the streaming context.
+   *
+   * @return {@code true} if the streaming context is stopped
+   */
+  private boolean awaitTermination(JavaStreamingContext jssc,
+                                   @Nullable StreamingTriggerListener triggerListener) throws InterruptedException {
+    if (triggerListener == null) {
+      return jssc.awaitTerminationOrTimeout(Long.MAX_VALUE);
+    }
+    while (!jssc.awaitTerminationOrTimeout(TRIGGER_POLL_INTERVAL_MILLIS)) {
+      // The streaming context cannot be stopped from the listener, which runs in the Spark listener bus thread
+      if (triggerListener.isCompleted()) {
+        LOG.info("Stopping the streaming pipeline since it processed the data of its trigger.");
+        return false;
+      }
+    }
+    return true;
+  }
+
   private boolean ensureDirExists(FileSystem fileSystem, Path dir) throws IOException {
     return fileSystem.isDirectory(dir) || fileSystem.mkdirs(dir) || fileSystem.isDirectory(dir);
   }
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.datastreams;
+
+import org.apache.spark.streaming.scheduler.BatchInfo;
+import org.apache.spark.streaming.scheduler.OutputOperationInfo;
+import org.apache.spark.streaming.scheduler.StreamingListener;
+import org.apache.spark.streaming.scheduler.StreamingListenerBatchCompleted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.collection.JavaConverters;
+
+import java.util.Locale;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link StreamingListener} that tells when a streaming pipeline started with a bounded {@link Trigger} has
+ * processed the data it should process, so that it can be stopped.
+ */
+final class StreamingTriggerListener implements StreamingListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StreamingTriggerListener.class);
+
+  /**
+   * When the micro batches of a streaming pipeline run.
+   */
+  enum Trigger {
+    // Runs a micro batch every batch interval until the pipeline is stopped
+    PROCESSING_TIME,
+    // Runs a single micro batch, then stops the pipeline
+    ONCE,
+    // Runs micro batches every batch interval until one of them has no input, then stops the pipeline.
+    // The input of a micro batch is the number of records its sources report to Spark. Sources that don't report
+    // it, such as direct DStreams that don't track their input, always have no input, so with them this trigger
+    // stops after the first micro batch, like ONCE.
+    AVAILABLE_NOW;
+
+    /**
+     * Returns the trigger for the given runtime argument value, ignoring case, dashes and underscores.
+     *
+     * @throws IllegalArgumentException if the value is not a valid trigger
+     */
+    static Trigger parse(@Nullable String value) {
+      if (value == null || value.isEmpty()) {
+        return PROCESSING_TIME;
+      }
+      String name = value.replaceAll("[-_]", "").toLowerCase(Locale.ROOT);
+      for (Trigger trigger : values()) {
+        if (trigger.name().replace("_", "").toLowerCase(Locale.ROOT).equals(name)) {
+          return trigger;
+        }
+      }
+      throw new IllegalArgumentException(String.format("Invalid streaming trigger '%s'. Must be one of %s.",
+                                                       value, "processingTime, once, availableNow"));
+    }
+  }
+
+  private final Trigger trigger;
+  private volatile boolean completed;
+  // Only accessed from the listener bus thread
+  private int batchesCompleted;
+
+  StreamingTriggerListener(Trigger trigger) {
+    this.trigger = trigger;
+  }
+
+  /**
+   * Returns whether the pipeline has processed the data of its trigger and can be stopped.
+   */
+  boolean isCompleted() {
+    return completed;
+  }
+
+  @Override
+  public void onBatchCompleted(StreamingListenerBatchCompleted batchCompleted) {
+    BatchInfo batchInfo = batchCompleted.batchInfo();
+    for (OutputOperationInfo outputInfo : JavaConverters.asJavaCollection(batchInfo.outputOperationInfos().values())) {
+      if (outputInfo.failureReason().isDefined()) {
+        // A failed batch doesn't count, the pipeline retries or fails it
+        return;
+      }
+    }
+    batchesCompleted++;
+    // Sources that don't report their number of records are treated as if they have no more input,
+    // see Trigger.AVAILABLE_NOW
+    if (trigger == Trigger.ONCE || (trigger == Trigger.AVAILABLE_NOW && batchInfo.numRecords() == 0)) {
+      if (trigger == Trigger.AVAILABLE_NOW && batchesCompleted == 1) {
+        LOG.warn("The first batch of the streaming pipeline with trigger {} has no input records. "
+                   + "If the sources don't report their input records to Spark, the pipeline stops after one batch, "
+                   + "like with trigger {}.", trigger, Trigger.ONCE);
+      }
+      LOG.info("Batch {} completed the streaming pipeline with trigger {}.", batchInfo.batchTime(), trigger);
+      completed = true;
+    }
+  }
+}
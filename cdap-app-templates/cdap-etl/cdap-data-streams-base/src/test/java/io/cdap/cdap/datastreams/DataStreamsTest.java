@@ -1500,6 +1500,34 @@ public class DataStreamsTest extends HydratorTestBase {
     return getMetricsManager().getTotalMetric(tags, "user." + metric);
   }
 
+  @Test
+  public void testTriggerOnce() throws Exception {
+    Schema schema = Schema.recordOf("item", Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+    StructuredRecord item0 = StructuredRecord.builder(schema).set("id", 0).build();
+    StructuredRecord item1 = StructuredRecord.builder(schema).set("id", 1).build();
+
+    String output = new File(TMP_FOLDER.newFolder(), "output").getAbsolutePath();
+    DataStreamsConfig config = DataStreamsConfig.builder()
+      .addStage(new ETLStage("items", MockStreamingEventSource.getPlugin(schema, Arrays.asList(item0, item1))))
+      .addStage(new ETLStage("sink", MockExternalSink.getPlugin(UUID.randomUUID().toString(), "s", output)))
+      .addConnection("items", "sink")
+      .setBatchInterval("1s")
+      .build();
+
+    AppRequest<DataStreamsConfig> appRequest = new AppRequest<>(APP_ARTIFACT, config);
+    ApplicationId appId = NamespaceId.DEFAULT.app("TriggerOnceTest");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    // the pipeline completes by itself after processing a micro batch
+    SparkManager sparkManager = appManager.getSparkManager(DataStreamsSparkLauncher.NAME);
+    sparkManager.start(Collections.singletonMap(io.cdap.cdap.etl.common.Constants.CDAP_STREAMING_TRIGGER, "once"));
+    sparkManager.waitForRun(ProgramRunStatus.COMPLETED, 3, TimeUnit.MINUTES);
+
+    // the source emits all of its records in the first micro batch
+    Set<StructuredRecord> expected = new HashSet<>(Arrays.asList(item0, item1));
+    Assert.assertEquals(expected, new HashSet<>(MockExternalSink.readOutput(output, schema)));
+  }
+
   /**
    * Uses {@link RecoveringTransform} plugin to test retry. Default retry settings are used.
    */
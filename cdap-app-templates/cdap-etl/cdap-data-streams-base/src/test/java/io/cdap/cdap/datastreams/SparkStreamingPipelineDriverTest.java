@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.datastreams;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.cdap.cdap.api.spark.JavaSparkExecutionContext;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the graceful stop of {@link SparkStreamingPipelineDriver}.
+ */
+public class SparkStreamingPipelineDriverTest {
+
+  private static final long BATCH_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+  @Test
+  public void testTriggerCompletedStopsGracefully() {
+    // When the pipeline stops itself, there is no termination time
+    JavaSparkExecutionContext sec = mock(JavaSparkExecutionContext.class);
+    when(sec.getTerminationTime()).thenThrow(new IllegalStateException("Termination time is not set"));
+
+    for (boolean stopGracefully : new boolean[] { true, false }) {
+      DataStreamsPipelineSpec spec = DataStreamsPipelineSpec.builder(BATCH_INTERVAL)
+        .setStopGracefully(stopGracefully)
+        .build();
+      Assert.assertTrue(SparkStreamingPipelineDriver.getGracefulStopTimeout(spec, sec, true) > BATCH_INTERVAL);
+    }
+  }
+
+  @Test
+  public void testStoppedByCDAP() {
+    JavaSparkExecutionContext sec = mock(JavaSparkExecutionContext.class);
+    DataStreamsPipelineSpec spec = DataStreamsPipelineSpec.builder(BATCH_INTERVAL).setStopGracefully(true).build();
+
+    // Enough time until the termination time
+    when(sec.getTerminationTime()).thenReturn(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+    Assert.assertTrue(SparkStreamingPipelineDriver.getGracefulStopTimeout(spec, sec, false) > BATCH_INTERVAL);
+
+    // Not enough time until the termination time
+    when(sec.getTerminationTime()).thenReturn(System.currentTimeMillis() + BATCH_INTERVAL);
+    Assert.assertEquals(0L, SparkStreamingPipelineDriver.getGracefulStopTimeout(spec, sec, false));
+
+    // Graceful stop is disabled
+    when(sec.getTerminationTime()).thenReturn(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+    spec = DataStreamsPipelineSpec.builder(BATCH_INTERVAL).setStopGracefully(false).build();
+    Assert.assertEquals(0L, SparkStreamingPipelineDriver.getGracefulStopTimeout(spec, sec, false));
+  }
+}
@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.etl.api;
 
+import io.cdap.cdap.api.metrics.Counter;
+import io.cdap.cdap.api.metrics.Gauge;
 import io.cdap.cdap.api.metrics.Metrics;
 
 /**
@@ -59,6 +61,32 @@ public interface StageMetrics extends Metrics {
   @Override
   void gauge(String metricName, long value);
 
+  /**
+   * Returns a {@link Counter} for the specific metric. Metrics name will be prefixed by the stage
+   * id, hence it will be aggregated for the current stage. The returned {@link Counter} should be
+   * kept by the caller for metrics that are updated frequently, such as for every record.
+   *
+   * @param metricName Name of the counter. Use alphanumeric characters in metric names.
+   * @return a {@link Counter} bound to the metric
+   */
+  @Override
+  default Counter counter(String metricName) {
+    return Metrics.super.counter(metricName);
+  }
+
+  /**
+   * Returns a {@link Gauge} for the specific metric. Metrics name will be prefixed by the stage id,
+   * hence it will be aggregated for the current stage. The returned {@link Gauge} should be kept by
+   * the caller for metrics that are updated frequently.
+   *
+   * @param metricName Name of the gauge. Use alphanumeric characters in metric names.
+   * @return a {@link Gauge} bound to the metric
+   */
+  @Override
+  default Gauge gauge(String metricName) {
+    return Metrics.super.gauge(metricName);
+  }
+
   /**
    * Increases the value of the specific metric by delta. Metrics emitted will be aggregated for the
    * whole ETL pipeline.
@@ -42,6 +42,15 @@ public final class Constants {
   public static final String DISABLE_ELT_PUSHDOWN = "cdap.pipeline.pushdown.disable";
   public static final String DATASET_AGGREGATE_IGNORE_PARTITIONS =
       "spark.cdap.pipeline.aggregate.dataset.partitions.ignore";
+  // Comma separated names of the aggregator stages, or '*' for all of them, that group the records of a key by
+  // sorting them instead of collecting them in memory
+  public static final String AGGREGATE_SORT_STAGES = "spark.cdap.pipeline.aggregate.sort.stages";
+  // If positive, aggregator stages group records by sorting when a group is estimated to have more records than this
+  public static final String AGGREGATE_SORT_GROUP_SIZE_THRESHOLD =
+      "spark.cdap.pipeline.aggregate.sort.group.size.threshold";
+  // Json array of the record schemas that the Spark Kryo serializer writes as small ids instead of in full.
+  // Must match StructuredRecordSerializer.SCHEMAS_CONF_KEY in the Spark runtime.
+  public static final String SPARK_STRUCTURED_RECORD_SCHEMAS = "spark.cdap.structured.record.schemas";
   public static final String DEFAULT_CACHING_STORAGE_LEVEL = "DISK_ONLY";
   // Can be used as a runtime argument for streaming pipeline to disable at least once processing.
   public static final String CDAP_STREAMING_ATLEASTONCE_ENABLED = "cdap.streaming.atleastonce.enabled";
@@ -54,6 +63,10 @@ public final class Constants {
   // Can be used as a runtime argument for streaming pipelines to allow macros in the source,
   // even when using spark checkpointing.
   public static final String CDAP_STREAMING_ALLOW_SOURCE_MACROS = "cdap.streaming.allow.source.macros";
+  // Can be used as a runtime argument for streaming pipelines to set when micro batches run. One of 'processingTime'
+  // (default), 'once' or 'availableNow'. 'availableNow' stops after the first micro batch without input records,
+  // so it behaves like 'once' with sources that don't report their number of input records to Spark.
+  public static final String CDAP_STREAMING_TRIGGER = "cdap.streaming.trigger";
 
   private Constants() {
     throw new AssertionError("Suppress default constructor for noninstantiability");
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import io.cdap.cdap.api.metrics.Counter;
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.etl.api.StageMetrics;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the records that go through a stage in its metrics and statistics. Counts are either
+ * emitted for each record, or accumulated locally and emitted in bulk when {@link #flush()} is
+ * called, which saves the cost of emitting a metric for every record at every stage. When counts
+ * are emitted for each record, the {@link Counter} of each metric is resolved once and reused.
+ * When counts are accumulated, whether the {@link DataTracer} is enabled is also only checked
+ * once per flush.
+ *
+ * <p>This class is not thread safe.</p>
+ */
+final class StageRecordCounter {
+
+  private final StageMetrics metrics;
+  private final StageStatisticsCollector collector;
+  private final DataTracer dataTracer;
+  private final boolean buffered;
+  private final Map<String, long[]> metricCounts;
+  private final Map<String, Counter> counters;
+  private long inputRecords;
+  private long outputRecords;
+  private long errorRecords;
+  private boolean tracing;
+
+  StageRecordCounter(StageMetrics metrics, StageStatisticsCollector collector,
+      DataTracer dataTracer, boolean buffered) {
+    this.metrics = metrics;
+    this.collector = collector;
+    this.dataTracer = dataTracer;
+    this.buffered = buffered;
+    this.metricCounts = buffered ? new HashMap<>() : null;
+    this.counters = buffered ? null : new HashMap<>();
+    this.tracing = buffered && dataTracer.isEnabled();
+  }
+
+  /**
+   * Returns whether the records should be given to the {@link DataTracer}.
+   */
+  boolean isTracing() {
+    return buffered ? tracing : dataTracer.isEnabled();
+  }
+
+  /**
+   * Increments a stage metric by one.
+   */
+  void countMetric(String metricName) {
+    if (buffered) {
+      metricCounts.computeIfAbsent(metricName, name -> new long[1])[0]++;
+    } else {
+      counters.computeIfAbsent(metricName, metrics::counter).increment(1);
+    }
+  }
+
+  void countInputRecord() {
+    if (buffered) {
+      inputRecords++;
+    } else {
+      collector.incrementInputRecordCount();
+    }
+  }
+
+  void countOutputRecord() {
+    if (buffered) {
+      outputRecords++;
+    } else {
+      collector.incrementOutputRecordCount();
+    }
+  }
+
+  void countErrorRecord() {
+    if (buffered) {
+      errorRecords++;
+    } else {
+      collector.incrementErrorRecordCount();
+    }
+  }
+
+  /**
+   * Emits the counts accumulated since the last flush.
+   */
+  void flush() {
+    if (!buffered) {
+      return;
+    }
+    tracing = dataTracer.isEnabled();
+    for (Map.Entry<String, long[]> entry : metricCounts.entrySet()) {
+      long count = entry.getValue()[0];
+      if (count > 0) {
+        metrics.countLong(entry.getKey(), count);
+        entry.getValue()[0] = 0;
+      }
+    }
+    if (inputRecords > 0) {
+      collector.incrementInputRecordCount(inputRecords);
+      inputRecords = 0;
+    }
+    if (outputRecords > 0) {
+      collector.incrementOutputRecordCount(outputRecords);
+      outputRecords = 0;
+    }
+    if (errorRecords > 0) {
+      collector.incrementErrorRecordCount(errorRecords);
+      errorRecords = 0;
+    }
+  }
+}
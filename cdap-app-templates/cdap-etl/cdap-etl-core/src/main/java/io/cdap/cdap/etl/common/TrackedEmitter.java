@@ -30,28 +30,34 @@ import java.util.Map;
 public class TrackedEmitter<T> implements Emitter<T> {
 
   private final Emitter<T> delegate;
-  private final StageMetrics stageMetrics;
   private final String emitMetricName;
+  private final boolean countOutputRecords;
   private final DataTracer dataTracer;
-  private final StageStatisticsCollector collector;
+  private final StageRecordCounter counter;
 
   public TrackedEmitter(Emitter<T> delegate, StageMetrics stageMetrics, String emitMetricName,
       DataTracer dataTracer,
       StageStatisticsCollector collector) {
+    this(delegate, emitMetricName, dataTracer,
+        new StageRecordCounter(stageMetrics, collector, dataTracer, false));
+  }
+
+  TrackedEmitter(Emitter<T> delegate, String emitMetricName, DataTracer dataTracer,
+      StageRecordCounter counter) {
     this.delegate = delegate;
-    this.stageMetrics = stageMetrics;
     this.emitMetricName = emitMetricName;
+    this.countOutputRecords = emitMetricName.equals(Constants.Metrics.RECORDS_OUT);
     this.dataTracer = dataTracer;
-    this.collector = collector;
+    this.counter = counter;
   }
 
   @Override
   public void emit(T value) {
-    stageMetrics.count(emitMetricName, 1);
-    if (emitMetricName.equals(Constants.Metrics.RECORDS_OUT)) {
-      collector.incrementOutputRecordCount();
+    counter.countMetric(emitMetricName);
+    if (countOutputRecords) {
+      counter.countOutputRecord();
     }
-    if (dataTracer.isEnabled()) {
+    if (counter.isTracing()) {
       dataTracer.info(emitMetricName, value);
     }
     delegate.emit(value);
@@ -59,9 +65,9 @@ public class TrackedEmitter<T> implements Emitter<T> {
 
   @Override
   public void emitError(InvalidEntry<T> value) {
-    stageMetrics.count(Constants.Metrics.RECORDS_ERROR, 1);
-    collector.incrementErrorRecordCount();
-    if (dataTracer.isEnabled()) {
+    counter.countMetric(Constants.Metrics.RECORDS_ERROR);
+    counter.countErrorRecord();
+    if (counter.isTracing()) {
       dataTracer.info(Constants.Metrics.RECORDS_ERROR, value);
     }
     delegate.emitError(value);
@@ -69,10 +75,14 @@ public class TrackedEmitter<T> implements Emitter<T> {
 
   @Override
   public void emitAlert(Map<String, String> payload) {
-    stageMetrics.count(Constants.Metrics.RECORDS_ALERT, 1);
-    if (dataTracer.isEnabled()) {
+    counter.countMetric(Constants.Metrics.RECORDS_ALERT);
+    if (counter.isTracing()) {
       dataTracer.info(Constants.Metrics.RECORDS_ALERT, payload);
     }
     delegate.emitAlert(payload);
   }
+
+  Emitter<T> getDelegate() {
+    return delegate;
+  }
 }
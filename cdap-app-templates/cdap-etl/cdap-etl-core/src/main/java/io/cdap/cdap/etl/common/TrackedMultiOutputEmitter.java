@@ -20,6 +20,7 @@ import io.cdap.cdap.api.preview.DataTracer;
 import io.cdap.cdap.etl.api.InvalidEntry;
 import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.StageMetrics;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -31,25 +32,32 @@ import java.util.Map;
 public class TrackedMultiOutputEmitter<E> implements MultiOutputEmitter<E> {
 
   private final MultiOutputEmitter<E> delegate;
-  private final StageMetrics stageMetrics;
   private final DataTracer dataTracer;
-  private final StageStatisticsCollector collector;
+  private final StageRecordCounter counter;
+  // port -> metric name, to avoid building the metric name for every record
+  private final Map<String, String> portMetricNames;
 
   public TrackedMultiOutputEmitter(MultiOutputEmitter<E> delegate, StageMetrics stageMetrics,
       DataTracer dataTracer,
       StageStatisticsCollector collector) {
+    this(delegate, dataTracer, new StageRecordCounter(stageMetrics, collector, dataTracer, false));
+  }
+
+  TrackedMultiOutputEmitter(MultiOutputEmitter<E> delegate, DataTracer dataTracer,
+      StageRecordCounter counter) {
     this.delegate = delegate;
-    this.stageMetrics = stageMetrics;
     this.dataTracer = dataTracer;
-    this.collector = collector;
+    this.counter = counter;
+    this.portMetricNames = new HashMap<>();
   }
 
   @Override
   public void emit(String port, Object value) {
-    String metricName = Constants.Metrics.RECORDS_OUT + "." + port;
-    stageMetrics.count(metricName, 1);
-    collector.incrementOutputRecordCount();
-    if (dataTracer.isEnabled()) {
+    String metricName = portMetricNames.computeIfAbsent(
+        port, p -> Constants.Metrics.RECORDS_OUT + "." + p);
+    counter.countMetric(metricName);
+    counter.countOutputRecord();
+    if (counter.isTracing()) {
       dataTracer.info(metricName, value);
     }
     delegate.emit(port, value);
@@ -57,9 +65,9 @@ public class TrackedMultiOutputEmitter<E> implements MultiOutputEmitter<E> {
 
   @Override
   public void emitError(InvalidEntry<E> value) {
-    stageMetrics.count(Constants.Metrics.RECORDS_ERROR, 1);
-    collector.incrementErrorRecordCount();
-    if (dataTracer.isEnabled()) {
+    counter.countMetric(Constants.Metrics.RECORDS_ERROR);
+    counter.countErrorRecord();
+    if (counter.isTracing()) {
       dataTracer.info(Constants.Metrics.RECORDS_ERROR, value);
     }
     delegate.emitError(value);
@@ -67,10 +75,14 @@ public class TrackedMultiOutputEmitter<E> implements MultiOutputEmitter<E> {
 
   @Override
   public void emitAlert(Map<String, String> payload) {
-    stageMetrics.count(Constants.Metrics.RECORDS_ALERT, 1);
-    if (dataTracer.isEnabled()) {
+    counter.countMetric(Constants.Metrics.RECORDS_ALERT);
+    if (counter.isTracing()) {
       dataTracer.info(Constants.Metrics.RECORDS_ALERT, payload);
     }
     delegate.emitAlert(payload);
   }
+
+  MultiOutputEmitter<E> getDelegate() {
+    return delegate;
+  }
 }
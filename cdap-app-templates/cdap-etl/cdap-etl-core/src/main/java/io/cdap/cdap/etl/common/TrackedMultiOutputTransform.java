@@ -35,9 +35,9 @@ public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransf
     Destroyable {
 
   private final MultiOutputTransformation<IN, ERROR> transform;
-  private final StageMetrics metrics;
   private final DataTracer dataTracer;
-  private final StageStatisticsCollector collector;
+  private final StageRecordCounter counter;
+  private TrackedMultiOutputEmitter<ERROR> trackedEmitter;
 
   public TrackedMultiOutputTransform(MultiOutputTransformation<IN, ERROR> transform,
       StageMetrics metrics,
@@ -48,18 +48,39 @@ public class TrackedMultiOutputTransform<IN, ERROR> implements MultiOutputTransf
   public TrackedMultiOutputTransform(MultiOutputTransformation<IN, ERROR> transform,
       StageMetrics metrics,
       DataTracer dataTracer, StageStatisticsCollector collector) {
+    this(transform, metrics, dataTracer, collector, false);
+  }
+
+  /**
+   * Creates a tracked transform.
+   *
+   * @param bufferMetrics whether to accumulate the record counts locally until {@link #flush()}
+   *     is called, instead of emitting them for each record
+   */
+  public TrackedMultiOutputTransform(MultiOutputTransformation<IN, ERROR> transform,
+      StageMetrics metrics,
+      DataTracer dataTracer, StageStatisticsCollector collector, boolean bufferMetrics) {
     this.transform = transform;
-    this.metrics = metrics;
     this.dataTracer = dataTracer;
-    this.collector = collector;
+    this.counter = new StageRecordCounter(metrics, collector, dataTracer, bufferMetrics);
   }
 
   @Override
   public void transform(IN input, MultiOutputEmitter<ERROR> emitter) throws Exception {
-    metrics.count(Constants.Metrics.RECORDS_IN, 1);
-    collector.incrementInputRecordCount();
-    transform.transform(input,
-        new TrackedMultiOutputEmitter<>(emitter, metrics, dataTracer, collector));
+    counter.countMetric(Constants.Metrics.RECORDS_IN);
+    counter.countInputRecord();
+    // stages are usually given the same emitter for every record, only wrap it once
+    if (trackedEmitter == null || trackedEmitter.getDelegate() != emitter) {
+      trackedEmitter = new TrackedMultiOutputEmitter<>(emitter, dataTracer, counter);
+    }
+    transform.transform(input, trackedEmitter);
+  }
+
+  /**
+   * Emits the record counts accumulated since the last flush, if metrics are buffered.
+   */
+  public void flush() {
+    counter.flush();
   }
 
   @Override
@@ -33,11 +33,12 @@ import javax.annotation.Nullable;
 public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destroyable {
 
   private final Transformation<IN, OUT> transform;
-  private final StageMetrics metrics;
   private final String metricInName;
   private final String metricOutName;
+  private final boolean countInputRecords;
   private final DataTracer dataTracer;
-  private final StageStatisticsCollector collector;
+  private final StageRecordCounter counter;
+  private TrackedEmitter<OUT> trackedEmitter;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics,
       DataTracer dataTracer) {
@@ -61,24 +62,43 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics,
       @Nullable String metricInName,
       @Nullable String metricOutName, DataTracer dataTracer, StageStatisticsCollector collector) {
+    this(transform, metrics, metricInName, metricOutName, dataTracer, collector, false);
+  }
+
+  /**
+   * Creates a tracked transform.
+   *
+   * @param bufferMetrics whether to accumulate the record counts locally until {@link #flush()}
+   *     is called, instead of emitting them for each record
+   */
+  public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics,
+      @Nullable String metricInName,
+      @Nullable String metricOutName, DataTracer dataTracer, StageStatisticsCollector collector,
+      boolean bufferMetrics) {
     this.transform = transform;
-    this.metrics = metrics;
     this.metricInName = metricInName;
     this.metricOutName = metricOutName;
+    this.countInputRecords = Constants.Metrics.RECORDS_IN.equals(metricInName);
     this.dataTracer = dataTracer;
-    this.collector = collector;
+    this.counter = new StageRecordCounter(metrics, collector, dataTracer, bufferMetrics);
   }
 
   @Override
   public void transform(IN input, Emitter<OUT> emitter) throws Exception {
     if (metricInName != null) {
-      metrics.count(metricInName, 1);
-      if (metricInName.equals(Constants.Metrics.RECORDS_IN)) {
-        collector.incrementInputRecordCount();
+      counter.countMetric(metricInName);
+      if (countInputRecords) {
+        counter.countInputRecord();
       }
     }
-    transform.transform(input, metricOutName == null ? emitter :
-        new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer, collector));
+    transform.transform(input, metricOutName == null ? emitter : getTrackedEmitter(emitter));
+  }
+
+  /**
+   * Emits the record counts accumulated since the last flush, if metrics are buffered.
+   */
+  public void flush() {
+    counter.flush();
   }
 
   @Override
@@ -87,4 +107,12 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
       ((Destroyable) transform).destroy();
     }
   }
+
+  private TrackedEmitter<OUT> getTrackedEmitter(Emitter<OUT> emitter) {
+    // stages are usually given the same emitter for every record, only wrap it once
+    if (trackedEmitter == null || trackedEmitter.getDelegate() != emitter) {
+      trackedEmitter = new TrackedEmitter<>(emitter, metricOutName, dataTracer, counter);
+    }
+    return trackedEmitter;
+  }
 }
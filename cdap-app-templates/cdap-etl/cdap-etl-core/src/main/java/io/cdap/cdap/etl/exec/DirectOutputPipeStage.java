@@ -21,6 +21,7 @@ import io.cdap.cdap.etl.api.Emitter;
 import io.cdap.cdap.etl.api.Transformation;
 import io.cdap.cdap.etl.common.Destroyables;
 import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.common.TrackedTransform;
 
 
 /**
@@ -46,6 +47,13 @@ public class DirectOutputPipeStage<T> extends PipeStage<RecordInfo<T>> {
     transform.transform(input, emitter);
   }
 
+  @Override
+  public void flush() {
+    if (transform instanceof TrackedTransform) {
+      ((TrackedTransform) transform).flush();
+    }
+  }
+
   @Override
   public void destroy() {
     if (transform instanceof Destroyable) {
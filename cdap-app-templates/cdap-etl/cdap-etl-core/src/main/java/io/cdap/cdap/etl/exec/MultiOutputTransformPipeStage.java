@@ -21,6 +21,7 @@ import io.cdap.cdap.etl.api.MultiOutputEmitter;
 import io.cdap.cdap.etl.api.MultiOutputTransformation;
 import io.cdap.cdap.etl.common.Destroyables;
 import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.common.TrackedMultiOutputTransform;
 
 
 /**
@@ -46,6 +47,13 @@ public class MultiOutputTransformPipeStage<T> extends PipeStage<RecordInfo<T>> {
     transform.transform(input.getValue(), emitter);
   }
 
+  @Override
+  public void flush() {
+    if (transform instanceof TrackedMultiOutputTransform) {
+      ((TrackedMultiOutputTransform) transform).flush();
+    }
+  }
+
   @Override
   public void destroy() {
     if (transform instanceof Destroyable) {
@@ -66,4 +66,11 @@ public abstract class PipeStage<T> implements Destroyable {
    * @throws Exception if there was a failure processing the input
    */
   protected abstract void consumeInput(T input) throws Exception;
+
+  /**
+   * Emits the metrics that the stage accumulated locally, if any.
+   */
+  public void flush() {
+    // no-op by default
+  }
 }
@@ -44,8 +44,34 @@ public class PipeTransformExecutor<IN> implements Destroyable {
     }
   }
 
+  /**
+   * Runs a batch of inputs through the stages, then emits the metrics the stages accumulated
+   * for the batch.
+   *
+   * @param inputs the inputs to run
+   */
+  public void runBatch(Iterable<? extends IN> inputs) {
+    try {
+      for (IN input : inputs) {
+        runOneIteration(input);
+      }
+    } finally {
+      flush();
+    }
+  }
+
+  /**
+   * Emits the metrics that the stages accumulated locally, if any.
+   */
+  public void flush() {
+    for (PipeStage stage : pipeStages.values()) {
+      stage.flush();
+    }
+  }
+
   @Override
   public void destroy() {
+    flush();
     for (PipeStage stage : pipeStages.values()) {
       stage.destroy();
     }
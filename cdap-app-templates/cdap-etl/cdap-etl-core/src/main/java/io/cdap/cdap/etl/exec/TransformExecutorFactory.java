@@ -58,6 +58,7 @@ public abstract class TransformExecutorFactory<T> {
   protected final PipelinePluginInstantiator pluginInstantiator;
   protected final Metrics metrics;
   protected final boolean collectStageStatistics;
+  protected boolean bufferMetrics;
 
   protected TransformExecutorFactory(PipelinePluginInstantiator pluginInstantiator,
       MacroEvaluator macroEvaluator,
@@ -70,6 +71,15 @@ public abstract class TransformExecutorFactory<T> {
     this.collectStageStatistics = collectStageStatistics;
   }
 
+  /**
+   * Sets whether the stages of the executors created afterwards accumulate their record counts
+   * locally, and only emit them when {@link PipeTransformExecutor#flush()} is called, or at the end
+   * of {@link PipeTransformExecutor#runBatch(Iterable)}. Defaults to {@code false}.
+   */
+  public void setBufferMetrics(boolean bufferMetrics) {
+    this.bufferMetrics = bufferMetrics;
+  }
+
   protected abstract DataTracer getDataTracer(String stageName);
 
   protected abstract StageStatisticsCollector getStatisticsCollector(String stageName);
@@ -91,7 +101,7 @@ public abstract class TransformExecutorFactory<T> {
     StageStatisticsCollector collector = collectStageStatistics
         ? getStatisticsCollector(stageName) : NoopStageStatisticsCollector.INSTANCE;
     return new TrackedMultiOutputTransform<>(splitterTransform, stageMetrics,
-        getDataTracer(stageName), collector);
+        getDataTracer(stageName), collector, bufferMetrics);
   }
 
   @SuppressWarnings("unchecked")
@@ -111,7 +121,7 @@ public abstract class TransformExecutorFactory<T> {
         AlertPublisher.PLUGIN_TYPE.equals(pluginType) ? null : Constants.Metrics.RECORDS_IN;
     return new TrackedTransform<>(transformation, stageMetrics, recordsInMetric,
         Constants.Metrics.RECORDS_OUT,
-        getDataTracer(stageName), collector);
+        getDataTracer(stageName), collector, bufferMetrics);
   }
 
   /**
@@ -17,6 +17,7 @@
 package io.cdap.cdap.etl.common;
 
 import com.google.common.collect.Maps;
+import io.cdap.cdap.api.metrics.Counter;
 import io.cdap.cdap.api.metrics.Metrics;
 import java.util.Collections;
 import java.util.Map;
@@ -27,6 +28,7 @@ import java.util.Map;
 public class MockMetrics implements Metrics {
   private final Map<String, Long> gauges = Maps.newHashMap();
   private final Map<String, Long> counts = Maps.newHashMap();
+  private final Map<String, Integer> resolvedCounters = Maps.newHashMap();
 
   @Override
   public void count(String s, int i) {
@@ -51,6 +53,12 @@ public class MockMetrics implements Metrics {
     gauges.put(s, l);
   }
 
+  @Override
+  public Counter counter(String s) {
+    resolvedCounters.merge(s, 1, Integer::sum);
+    return l -> countLong(s, l);
+  }
+
   @Override
   public Metrics child(Map<String, String> tags) {
     return this;
@@ -66,6 +74,10 @@ public class MockMetrics implements Metrics {
     return count == null ? 0 : count;
   }
 
+  public int getResolvedCounters(String metric) {
+    return resolvedCounters.getOrDefault(metric, 0);
+  }
+
   public long getGauge(String metric) {
     Long val = gauges.get(metric);
     return val == null ? 0 : val;
@@ -73,6 +85,7 @@ public class MockMetrics implements Metrics {
 
   public void clearMetrics() {
     counts.clear();
+    resolvedCounters.clear();
     gauges.clear();
   }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.common;
+
+import io.cdap.cdap.api.preview.DataTracer;
+import io.cdap.cdap.etl.api.InvalidEntry;
+import io.cdap.cdap.etl.api.MultiOutputEmitter;
+import io.cdap.cdap.internal.app.preview.NoopDataTracerFactory;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TrackedTransform} and {@link TrackedMultiOutputTransform}.
+ */
+public class TrackedTransformTest {
+
+  private final DataTracer dataTracer = new NoopDataTracerFactory().getDataTracer(null, "stage");
+
+  @Test
+  public void testUnbufferedMetrics() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    TrackedTransform<Integer, Integer> transform = new TrackedTransform<>(
+        (input, emitter) -> {
+          emitter.emit(input);
+          emitter.emit(input);
+        }, new DefaultStageMetrics(mockMetrics, "stage"), dataTracer);
+
+    DefaultEmitter<Integer> emitter = new DefaultEmitter<>();
+    transform.transform(1, emitter);
+    Assert.assertEquals(1L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(2L, mockMetrics.getCount("stage.records.out"));
+
+    transform.transform(2, emitter);
+    Assert.assertEquals(2L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(4L, mockMetrics.getCount("stage.records.out"));
+    Assert.assertEquals(4, emitter.getEntries().size());
+
+    // the counters are resolved once and reused for every record
+    Assert.assertEquals(1, mockMetrics.getResolvedCounters("stage.records.in"));
+    Assert.assertEquals(1, mockMetrics.getResolvedCounters("stage.records.out"));
+  }
+
+  @Test
+  public void testBufferedMetrics() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    CountingStatisticsCollector collector = new CountingStatisticsCollector();
+    TrackedTransform<Integer, Integer> transform = new TrackedTransform<>(
+        (input, emitter) -> {
+          if (input < 0) {
+            emitter.emitError(new InvalidEntry<>(1, "negative", input));
+          } else {
+            emitter.emit(input);
+          }
+        }, new DefaultStageMetrics(mockMetrics, "stage"), Constants.Metrics.RECORDS_IN,
+        Constants.Metrics.RECORDS_OUT, dataTracer, collector, true);
+
+    DefaultEmitter<Integer> emitter = new DefaultEmitter<>();
+    transform.transform(1, emitter);
+    transform.transform(2, emitter);
+    transform.transform(-1, emitter);
+
+    // nothing is emitted until the transform is flushed
+    Assert.assertEquals(0L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(0L, collector.inputRecords);
+    Assert.assertEquals(2, emitter.getEntries().size());
+    Assert.assertEquals(1, emitter.getErrors().size());
+
+    transform.flush();
+    Assert.assertEquals(3L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(2L, mockMetrics.getCount("stage.records.out"));
+    Assert.assertEquals(1L, mockMetrics.getCount("stage.records.error"));
+    Assert.assertEquals(3L, collector.inputRecords);
+    Assert.assertEquals(2L, collector.outputRecords);
+    Assert.assertEquals(1L, collector.errorRecords);
+
+    // counts are reset after a flush
+    transform.transform(3, emitter);
+    transform.flush();
+    transform.flush();
+    Assert.assertEquals(4L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(3L, mockMetrics.getCount("stage.records.out"));
+    Assert.assertEquals(4L, collector.inputRecords);
+  }
+
+  @Test
+  public void testBufferedMultiOutputMetrics() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    TrackedMultiOutputTransform<Integer, Integer> transform = new TrackedMultiOutputTransform<>(
+        (input, emitter) -> emitter.emit(input % 2 == 0 ? "even" : "odd", input),
+        new DefaultStageMetrics(mockMetrics, "stage"), dataTracer,
+        NoopStageStatisticsCollector.INSTANCE, true);
+
+    NoopMultiOutputEmitter emitter = new NoopMultiOutputEmitter();
+    for (int i = 0; i < 5; i++) {
+      transform.transform(i, emitter);
+    }
+    Assert.assertEquals(0L, mockMetrics.getCount("stage.records.out.even"));
+
+    transform.flush();
+    Assert.assertEquals(5L, mockMetrics.getCount("stage.records.in"));
+    Assert.assertEquals(3L, mockMetrics.getCount("stage.records.out.even"));
+    Assert.assertEquals(2L, mockMetrics.getCount("stage.records.out.odd"));
+  }
+
+  @Test
+  public void testBufferedTracing() throws Exception {
+    RecordingDataTracer tracer = new RecordingDataTracer();
+    TrackedTransform<Integer, Integer> transform = new TrackedTransform<>(
+        (input, emitter) -> emitter.emit(input), new DefaultStageMetrics(new MockMetrics(), "stage"),
+        Constants.Metrics.RECORDS_IN, Constants.Metrics.RECORDS_OUT, tracer,
+        NoopStageStatisticsCollector.INSTANCE, true);
+
+    // whether tracing is enabled is only checked on a flush
+    DefaultEmitter<Integer> emitter = new DefaultEmitter<>();
+    for (int i = 0; i < 5; i++) {
+      transform.transform(i, emitter);
+    }
+    Assert.assertEquals(1, tracer.enabledChecks);
+    Assert.assertEquals(0, tracer.traced);
+
+    tracer.enabled = true;
+    transform.transform(5, emitter);
+    Assert.assertEquals(0, tracer.traced);
+    transform.flush();
+    Assert.assertEquals(2, tracer.enabledChecks);
+    transform.transform(6, emitter);
+    transform.transform(7, emitter);
+    Assert.assertEquals(2, tracer.enabledChecks);
+    Assert.assertEquals(2, tracer.traced);
+  }
+
+  /**
+   * A {@link DataTracer} that counts how often it is checked and how many records it traced.
+   */
+  private static final class RecordingDataTracer implements DataTracer {
+
+    private boolean enabled;
+    private int enabledChecks;
+    private int traced;
+
+    @Override
+    public void info(String propertyName, Object propertyValue) {
+      traced++;
+    }
+
+    @Override
+    public String getName() {
+      return "stage";
+    }
+
+    @Override
+    public boolean isEnabled() {
+      enabledChecks++;
+      return enabled;
+    }
+
+    @Override
+    public int getMaximumTracedRecords() {
+      return Integer.MAX_VALUE;
+    }
+  }
+
+  /**
+   * A {@link MultiOutputEmitter} that drops everything.
+   */
+  private static final class NoopMultiOutputEmitter implements MultiOutputEmitter<Integer> {
+
+    @Override
+    public void emit(String port, Object value) {
+      // no-op
+    }
+
+    @Override
+    public void emitError(InvalidEntry<Integer> invalidEntry) {
+      // no-op
+    }
+
+    @Override
+    public void emitAlert(Map<String, String> payload) {
+      // no-op
+    }
+  }
+
+  /**
+   * A {@link StageStatisticsCollector} that counts records.
+   */
+  private static final class CountingStatisticsCollector implements StageStatisticsCollector {
+
+    private long inputRecords;
+    private long outputRecords;
+    private long errorRecords;
+
+    @Override
+    public void incrementInputRecordCount() {
+      inputRecords++;
+    }
+
+    @Override
+    public void incrementOutputRecordCount() {
+      outputRecords++;
+    }
+
+    @Override
+    public void incrementErrorRecordCount() {
+      errorRecords++;
+    }
+
+    @Override
+    public void incrementInputRecordCount(long n) {
+      inputRecords += n;
+    }
+
+    @Override
+    public void incrementOutputRecordCount(long n) {
+      outputRecords += n;
+    }
+
+    @Override
+    public void incrementErrorRecordCount(long n) {
+      errorRecords += n;
+    }
+  }
+}
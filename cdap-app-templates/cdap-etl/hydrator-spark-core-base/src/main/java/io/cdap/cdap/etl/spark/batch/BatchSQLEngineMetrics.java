@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.etl.spark.batch;
 
+import io.cdap.cdap.api.metrics.Counter;
+import io.cdap.cdap.api.metrics.Gauge;
 import io.cdap.cdap.api.metrics.Metrics;
 
 import java.util.Map;
@@ -47,6 +49,16 @@ public abstract class BatchSQLEngineMetrics implements Metrics {
     metrics.gauge(getMetricName(metricName), value);
   }
 
+  @Override
+  public Counter counter(String metricName) {
+    return metrics.counter(getMetricName(metricName));
+  }
+
+  @Override
+  public Gauge gauge(String metricName) {
+    return metrics.gauge(getMetricName(metricName));
+  }
+
   @Override
   public abstract Metrics child(Map<String, String> tags);
 
@@ -33,18 +33,24 @@ import io.cdap.cdap.etl.batch.BatchPhaseSpec;
 import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.common.DefaultMacroEvaluator;
 import io.cdap.cdap.etl.common.FieldOperationTypeAdapter;
+import io.cdap.cdap.etl.common.PipelinePhase;
 import io.cdap.cdap.etl.common.PipelineRuntime;
 import io.cdap.cdap.etl.common.SetMultimapCodec;
 import io.cdap.cdap.etl.common.submit.CompositeFinisher;
 import io.cdap.cdap.etl.common.submit.Finisher;
+import io.cdap.cdap.etl.proto.v2.spec.StageSpec;
 import io.cdap.cdap.internal.io.SchemaTypeAdapter;
 import org.apache.spark.SparkConf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 
 /**
@@ -116,6 +122,7 @@ public class ETLSpark extends AbstractSpark {
 
     Map<String, String> properties = context.getSpecification().getProperties();
     BatchPhaseSpec phaseSpec = GSON.fromJson(properties.get(Constants.PIPELINEID), BatchPhaseSpec.class);
+    sparkConf.set(Constants.SPARK_STRUCTURED_RECORD_SCHEMAS, GSON.toJson(getRecordSchemas(phaseSpec.getPhase())));
 
     for (Map.Entry<String, String> pipelineProperty : phaseSpec.getPipelineProperties().entrySet()) {
       sparkConf.set(pipelineProperty.getKey(), pipelineProperty.getValue());
@@ -130,6 +137,34 @@ public class ETLSpark extends AbstractSpark {
     finisher = new CompositeFinisher(finishers);
   }
 
+  /**
+   * Returns the json of all record schemas that flow between the stages of the given phase, ordered by stage name.
+   */
+  private static Set<String> getRecordSchemas(PipelinePhase phase) {
+    Map<String, StageSpec> stages = new TreeMap<>();
+    for (StageSpec stageSpec : phase) {
+      stages.put(stageSpec.getName(), stageSpec);
+    }
+
+    List<Schema> schemas = new ArrayList<>();
+    for (StageSpec stageSpec : stages.values()) {
+      schemas.addAll(new TreeMap<>(stageSpec.getInputSchemas()).values());
+      schemas.add(stageSpec.getOutputSchema());
+      schemas.add(stageSpec.getErrorSchema());
+      for (StageSpec.Port port : new TreeMap<>(stageSpec.getOutputPorts()).values()) {
+        schemas.add(port.getSchema());
+      }
+    }
+
+    Set<String> schemaJsons = new LinkedHashSet<>();
+    for (Schema schema : schemas) {
+      if (schema != null && schema.getType() == Schema.Type.RECORD) {
+        schemaJsons.add(schema.toString());
+      }
+    }
+    return schemaJsons;
+  }
+
   @Override
   @TransactionPolicy(TransactionControl.EXPLICIT)
   public void destroy() {
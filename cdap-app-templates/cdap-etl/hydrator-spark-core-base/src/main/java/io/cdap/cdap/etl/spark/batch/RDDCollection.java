@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.etl.spark.batch;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
 import com.google.gson.Gson;
 import io.cdap.cdap.api.data.DatasetContext;
@@ -50,6 +51,7 @@ import io.cdap.cdap.etl.spark.SparkPipelineRuntime;
 import io.cdap.cdap.etl.spark.function.AggregatorAggregateFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorFinalizeFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorGroupByFunction;
+import io.cdap.cdap.etl.spark.function.AggregatorGroupKeyFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorInitializeFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorMergePartitionFunction;
 import io.cdap.cdap.etl.spark.function.AggregatorMergeValueFunction;
@@ -59,9 +61,11 @@ import io.cdap.cdap.etl.spark.function.FunctionCache;
 import io.cdap.cdap.etl.spark.function.MultiOutputTransformFunction;
 import io.cdap.cdap.etl.spark.function.MultiSinkFunction;
 import io.cdap.cdap.etl.spark.function.PluginFunctionContext;
+import io.cdap.cdap.etl.spark.function.SortedGroupsFunction;
 import io.cdap.cdap.etl.spark.function.TransformFunction;
 import io.cdap.cdap.etl.spark.join.JoinExpressionRequest;
 import io.cdap.cdap.etl.spark.join.JoinRequest;
+import org.apache.spark.HashPartitioner;
 import org.apache.spark.SparkConf;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
@@ -79,6 +83,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.Tuple2;
 
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -92,6 +98,7 @@ import javax.annotation.Nullable;
 public class RDDCollection<T> implements BatchCollection<T> {
   private static final Logger LOG = LoggerFactory.getLogger(RDDCollection.class);
   private static final Gson GSON = new Gson();
+  private static final double GROUP_SIZE_SAMPLE_FRACTION = 0.01d;
   protected final JavaSparkExecutionContext sec;
   protected final JavaSparkContext jsc;
   protected final SQLContext sqlContext;
@@ -100,6 +107,8 @@ public class RDDCollection<T> implements BatchCollection<T> {
   protected final JavaRDD<T> rdd;
   protected final FunctionCache.Factory functionCacheFactory;
   protected final boolean useDatasetAggregation;
+  private final Set<String> sortAggregateStages;
+  private final long groupSizeThreshold;
 
   public RDDCollection(JavaSparkExecutionContext sec, FunctionCache.Factory functionCacheFactory,
                               JavaSparkContext jsc, SQLContext sqlContext,
@@ -114,6 +123,10 @@ public class RDDCollection<T> implements BatchCollection<T> {
     this.rdd = rdd;
     this.useDatasetAggregation = Boolean.parseBoolean(
       sec.getRuntimeArguments().getOrDefault(Constants.DATASET_AGGREGATE_ENABLED, Boolean.TRUE.toString()));
+    this.sortAggregateStages = new HashSet<>(Splitter.on(',').trimResults().omitEmptyStrings().splitToList(
+      sec.getRuntimeArguments().getOrDefault(Constants.AGGREGATE_SORT_STAGES, "")));
+    this.groupSizeThreshold = Long.parseLong(
+      sec.getRuntimeArguments().getOrDefault(Constants.AGGREGATE_SORT_GROUP_SIZE_THRESHOLD, "0"));
   }
 
   @SuppressWarnings("unchecked")
@@ -144,7 +157,7 @@ public class RDDCollection<T> implements BatchCollection<T> {
   @Override
   public SparkCollection<RecordInfo<Object>> transform(StageSpec stageSpec, StageStatisticsCollector collector) {
     PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec, collector);
-    return wrap(rdd.flatMap(new TransformFunction<T>(
+    return wrap(rdd.mapPartitions(new TransformFunction<T>(
       pluginFunctionContext, functionCacheFactory.newCache())));
   }
 
@@ -152,7 +165,7 @@ public class RDDCollection<T> implements BatchCollection<T> {
   public SparkCollection<RecordInfo<Object>> multiOutputTransform(StageSpec stageSpec,
                                                                   StageStatisticsCollector collector) {
     PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec, collector);
-    return wrap(rdd.flatMap(new MultiOutputTransformFunction<T>(
+    return wrap(rdd.mapPartitions(new MultiOutputTransformFunction<T>(
       pluginFunctionContext, functionCacheFactory.newCache())));
   }
 
@@ -173,17 +186,65 @@ public class RDDCollection<T> implements BatchCollection<T> {
     PairFlatMapFunction<T, Object, T> groupByFunction = new AggregatorGroupByFunction<>(
       pluginFunctionContext, functionCacheFactory.newCache());
 
-    JavaPairRDD<Object, T> keyedCollection = rdd.flatMapToPair(groupByFunction);
+    JavaRDD<T> input = rdd;
+    boolean sortGroups = isSortAggregateStage(stageSpec.getName());
+    if (!sortGroups && groupSizeThreshold > 0) {
+      // Estimating the group size runs a separate job on the input, cache it so that it is only computed once
+      if (input.getStorageLevel().equals(StorageLevel.NONE())) {
+        input = cache().getUnderlying();
+      }
+      long groupSize = estimateMaxGroupSize(input, pluginFunctionContext);
+      sortGroups = groupSize > groupSizeThreshold;
+      LOG.debug("Estimated the largest group of stage {} to have {} records, grouping by {}.",
+                stageSpec.getName(), groupSize, sortGroups ? "sorting" : "hashing");
+    }
 
-    JavaPairRDD<Object, Iterable<T>> groupedCollection = partitions == null
-      ? keyedCollection.groupByKey() : keyedCollection.groupByKey(partitions);
+    JavaPairRDD<Object, T> keyedCollection = input.flatMapToPair(groupByFunction);
 
     FlatMapFunction<Tuple2<Object, Iterable<T>>, RecordInfo<Object>> sparkAggregateFunction =
       new AggregatorAggregateFunction<>(pluginFunctionContext, functionCacheFactory.newCache());
 
+    if (sortGroups) {
+      // The sort shuffle spills to disk and streams the sorted records, so that the values of a group are read
+      // lazily instead of being collected in memory like groupByKey does
+      // Same number of partitions as groupByKey would use
+      int numPartitions = keyedCollection.getNumPartitions();
+      if (partitions != null) {
+        numPartitions = partitions;
+      } else if (jsc.getConf().contains("spark.default.parallelism")) {
+        numPartitions = jsc.defaultParallelism();
+      }
+      JavaRDD<Tuple2<Object, Iterable<T>>> sortedGroups = keyedCollection
+        .repartitionAndSortWithinPartitions(new HashPartitioner(numPartitions), new SortedGroupsFunction.KeyOrdering())
+        .mapPartitions(new SortedGroupsFunction<>());
+      return wrap(sortedGroups.flatMap(sparkAggregateFunction));
+    }
+
+    JavaPairRDD<Object, Iterable<T>> groupedCollection = partitions == null
+      ? keyedCollection.groupByKey() : keyedCollection.groupByKey(partitions);
+
     return wrap(groupedCollection.flatMap(sparkAggregateFunction));
   }
 
+  private boolean isSortAggregateStage(String stageName) {
+    return sortAggregateStages.contains("*") || sortAggregateStages.contains(stageName);
+  }
+
+  /**
+   * Estimates the number of records in the largest group of an aggregator from a sample of its input.
+   */
+  private long estimateMaxGroupSize(JavaRDD<T> input, PluginFunctionContext pluginFunctionContext) {
+    FlatMapFunction<T, Object> groupKeyFunction =
+      new AggregatorGroupKeyFunction<>(pluginFunctionContext, functionCacheFactory.newCache());
+    long sampleMax = input.sample(false, GROUP_SIZE_SAMPLE_FRACTION)
+      .flatMap(groupKeyFunction)
+      .mapToPair(key -> new Tuple2<>(key, 1L))
+      .reduceByKey(Long::sum)
+      .values()
+      .fold(0L, Math::max);
+    return (long) (sampleMax / GROUP_SIZE_SAMPLE_FRACTION);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public SparkCollection<T> join(JoinRequest joinRequest) {
@@ -284,10 +345,10 @@ public class RDDCollection<T> implements BatchCollection<T> {
     return new Runnable() {
       @Override
       public void run() {
-        PairFlatMapFunction<T, String, KeyValue<Object, Object>> multiSinkFunction =
-          (PairFlatMapFunction<T, String, KeyValue<Object, Object>>)
+        PairFlatMapFunction<Iterator<T>, String, KeyValue<Object, Object>> multiSinkFunction =
+          (PairFlatMapFunction<Iterator<T>, String, KeyValue<Object, Object>>)
             new MultiSinkFunction(sec, phaseSpec, group, collectors);
-        JavaPairRDD<String, KeyValue<Object, Object>> taggedOutput = rdd.flatMapToPair(multiSinkFunction);
+        JavaPairRDD<String, KeyValue<Object, Object>> taggedOutput = rdd.mapPartitionsToPair(multiSinkFunction);
         for (String outputName : sinkFactory.writeCombinedRDD(taggedOutput, sec, sinks)) {
           recordLineage(outputName);
         }
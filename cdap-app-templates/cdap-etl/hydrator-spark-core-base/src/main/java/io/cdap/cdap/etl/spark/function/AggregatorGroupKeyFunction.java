@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import io.cdap.cdap.etl.api.batch.BatchAggregator;
+import io.cdap.cdap.etl.api.batch.BatchReducibleAggregator;
+import io.cdap.cdap.etl.common.NoErrorEmitter;
+import io.cdap.cdap.etl.common.plugin.AggregatorBridge;
+import org.apache.spark.api.java.function.FlatMapFunction;
+
+import java.util.Iterator;
+
+/**
+ * Function that uses a BatchAggregator or a AggregatorBridge depending on the type of the aggregator
+ * to compute the group keys of a record, without emitting any metric or tracing data.
+ * It is used to sample the input of an aggregator before the actual aggregation.
+ * Non-serializable fields are lazily created since this is used in a Spark closure.
+ *
+ * @param <GROUP_KEY> type of group key
+ * @param <GROUP_VAL> type of group val
+ */
+public class AggregatorGroupKeyFunction<GROUP_KEY, GROUP_VAL> implements FlatMapFunction<GROUP_VAL, GROUP_KEY> {
+  private final PluginFunctionContext pluginFunctionContext;
+  private final FunctionCache functionCache;
+  private transient BatchAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator;
+  private transient NoErrorEmitter<GROUP_KEY> keyEmitter;
+
+  public AggregatorGroupKeyFunction(PluginFunctionContext pluginFunctionContext, FunctionCache functionCache) {
+    this.pluginFunctionContext = pluginFunctionContext;
+    this.functionCache = functionCache;
+  }
+
+  @Override
+  public Iterator<GROUP_KEY> call(GROUP_VAL input) throws Exception {
+    if (aggregator == null) {
+      Object plugin = pluginFunctionContext.createAndInitializePlugin(functionCache);
+      if (plugin instanceof BatchReducibleAggregator) {
+        BatchReducibleAggregator<GROUP_KEY, GROUP_VAL, ?, ?> reducibleAggregator =
+          (BatchReducibleAggregator<GROUP_KEY, GROUP_VAL, ?, ?>) plugin;
+        aggregator = new AggregatorBridge<>(reducibleAggregator);
+      } else {
+        aggregator = (BatchAggregator<GROUP_KEY, GROUP_VAL, ?>) plugin;
+      }
+      keyEmitter =
+        new NoErrorEmitter<>("Errors and Alerts cannot be emitted from the groupBy method of an aggregator");
+    }
+    keyEmitter.reset();
+    aggregator.groupBy(input, keyEmitter);
+    return keyEmitter.getEntries().iterator();
+  }
+}
@@ -17,6 +17,7 @@
 package io.cdap.cdap.etl.spark.function;
 
 import io.cdap.cdap.etl.api.SplitterTransform;
+import io.cdap.cdap.etl.common.NoopStageStatisticsCollector;
 import io.cdap.cdap.etl.common.RecordInfo;
 import io.cdap.cdap.etl.common.TrackedMultiOutputTransform;
 import io.cdap.cdap.etl.spark.CombinedEmitter;
@@ -25,12 +26,13 @@ import org.apache.spark.api.java.function.FlatMapFunction;
 import java.util.Iterator;
 
 /**
- * Function that uses a MultiOutputTransform to perform a flatmap.
+ * Function that uses a MultiOutputTransform to perform a flatmap on each partition.
  * Non-serializable fields are lazily created since this is used in a Spark closure.
+ * Records are transformed in batches, see {@link TransformBatchIterator}.
  *
  * @param <T> type of input object
  */
-public class MultiOutputTransformFunction<T> implements FlatMapFunction<T, RecordInfo<Object>> {
+public class MultiOutputTransformFunction<T> implements FlatMapFunction<Iterator<T>, RecordInfo<Object>> {
   private final PluginFunctionContext pluginFunctionContext;
   private final FunctionCache functionCache;
   private transient TrackedMultiOutputTransform<T, Object> transform;
@@ -42,15 +44,15 @@ public class MultiOutputTransformFunction<T> implements FlatMapFunction<T, Recor
   }
 
   @Override
-  public Iterator<RecordInfo<Object>> call(T input) throws Exception {
+  public Iterator<RecordInfo<Object>> call(Iterator<T> input) throws Exception {
     if (transform == null) {
       SplitterTransform<T, Object> plugin = pluginFunctionContext.createAndInitializePlugin(functionCache);
       transform = new TrackedMultiOutputTransform<>(plugin, pluginFunctionContext.createStageMetrics(),
-                                                    pluginFunctionContext.getDataTracer());
+                                                    pluginFunctionContext.getDataTracer(),
+                                                    NoopStageStatisticsCollector.INSTANCE, true);
       emitter = new CombinedEmitter<>(pluginFunctionContext.getStageName());
     }
-    emitter.reset();
-    transform.transform(input, emitter);
-    return emitter.getEmitted().iterator();
+    return new TransformBatchIterator<>(input, emitter, record -> transform.transform(record, emitter),
+                                        transform::flush);
   }
 }
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.etl.spark.function;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Sets;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.api.macro.MacroEvaluator;
@@ -40,10 +41,12 @@ import io.cdap.cdap.etl.spark.SparkTransformExecutorFactory;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
 import scala.Tuple2;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -69,10 +72,13 @@ import javax.annotation.Nullable;
  * k2 and not to t1. Thus, every input record must be tagged with the stage that it came from, so that they can
  * be sent to the right underlying stages. This is why the input is a RecordInfo.
  *
- * This function is meant to be executed right before saving the Spark collection using a Multi OutputFormat that
- * delegates to underlying output formats.
+ * This function is meant to be executed on each partition right before saving the Spark collection using a Multi
+ * OutputFormat that delegates to underlying output formats.
  */
-public class MultiSinkFunction implements PairFlatMapFunction<RecordInfo<Object>, String, KeyValue<Object, Object>> {
+public class MultiSinkFunction
+  implements PairFlatMapFunction<Iterator<RecordInfo<Object>>, String, KeyValue<Object, Object>> {
+  // Number of input records that are run through the branches before emitting the stage metrics
+  private static final int BATCH_SIZE = 1000;
   private final PipelineRuntime pipelineRuntime;
   private final PhaseSpec phaseSpec;
   private final Set<String> group;
@@ -101,7 +107,7 @@ public class MultiSinkFunction implements PairFlatMapFunction<RecordInfo<Object>
   }
 
   @Override
-  public Iterator<Tuple2<String, KeyValue<Object, Object>>> call(RecordInfo<Object> input) throws Exception {
+  public Iterator<Tuple2<String, KeyValue<Object, Object>>> call(Iterator<RecordInfo<Object>> input) {
     if (branchExecutors == null) {
       // branch executors must be created lazily here instead of passed into the constructor to ensure that
       // they are not serialized in the function. This ensures that macros are evaluated each run instead of just for
@@ -109,38 +115,66 @@ public class MultiSinkFunction implements PairFlatMapFunction<RecordInfo<Object>
       initializeBranchExecutors();
     }
 
-    /*
-       Input records are a union of RecordInfo<Object> from all possible inputs to the group.
-       For example, suppose the pipeline looks like:
+    // Records are run through the branches in batches, so that the stages emit their metrics once per batch instead
+    // of once per record. The output of a batch is returned before the next batch is run. It is held in memory, and
+    // can have several records for each input record and branch.
+    return new AbstractIterator<Tuple2<String, KeyValue<Object, Object>>>() {
+      private Iterator<Tuple2<String, KeyValue<Object, Object>>> batchOutput = Collections.emptyIterator();
 
-                              |port A --> agg --> k1
-            s1 --> splitter --|
-                      |       |port B --> k2
-                      |
-                      |--> error collector --> k3
+      @Override
+      protected Tuple2<String, KeyValue<Object, Object>> computeNext() {
+        while (!batchOutput.hasNext()) {
+          if (!input.hasNext()) {
+            return endOfData();
+          }
+          batchOutput = runBatch(input);
+        }
+        return batchOutput.next();
+      }
+    };
+  }
 
-       In this scenario, k2, error collector, and k3 are grouped together.
-       However, the input will contain all records output by the splitter.
-       More specifically, it contains outputs for portA, outputs for portB, and errors.
-       Records from portB need to be sent to the k2 branch, errors need to be sent to the error collector branch,
-       and portA records need to be dropped.
-     */
-    InputInfo inputInfo = new InputInfo(input.getFromStage(), input.getType(), input.getFromPort());
-    Object record = input.getValue();
-    emitter.reset();
+  /**
+   * Runs the next batch of input records through the branches and returns their output.
+   */
+  private Iterator<Tuple2<String, KeyValue<Object, Object>>> runBatch(Iterator<RecordInfo<Object>> input) {
+    Map<String, List<Object>> branchInputs = new HashMap<>();
+    for (int i = 0; i < BATCH_SIZE && input.hasNext(); i++) {
+      RecordInfo<Object> record = input.next();
+      /*
+         Input records are a union of RecordInfo<Object> from all possible inputs to the group.
+         For example, suppose the pipeline looks like:
 
-    /*
-        inputConnections contains a map from input source to the branch that should receive it.
-        With the example pipeline above, it will look like:
-          { stageName: splitter, port: B, type: output } -> [k2]
-          { stageName: splitter, type: error } -> [error collector]
-     */
-    Set<String> groupSources = inputConnections.getOrDefault(inputInfo, Collections.emptySet());
-    for (String groupSource : groupSources) {
-      branchExecutors.get(groupSource).runOneIteration(record);
+                                |port A --> agg --> k1
+              s1 --> splitter --|
+                        |       |port B --> k2
+                        |
+                        |--> error collector --> k3
+
+         In this scenario, k2, error collector, and k3 are grouped together.
+         However, the input will contain all records output by the splitter.
+         More specifically, it contains outputs for portA, outputs for portB, and errors.
+         Records from portB need to be sent to the k2 branch, errors need to be sent to the error collector branch,
+         and portA records need to be dropped.
+       */
+      InputInfo inputInfo = new InputInfo(record.getFromStage(), record.getType(), record.getFromPort());
+
+      /*
+          inputConnections contains a map from input source to the branch that should receive it.
+          With the example pipeline above, it will look like:
+            { stageName: splitter, port: B, type: output } -> [k2]
+            { stageName: splitter, type: error } -> [error collector]
+       */
+      for (String groupSource : inputConnections.getOrDefault(inputInfo, Collections.emptySet())) {
+        branchInputs.computeIfAbsent(groupSource, key -> new ArrayList<>()).add(record.getValue());
+      }
     }
 
-    return emitter.getEntries().iterator();
+    emitter.reset();
+    for (Map.Entry<String, List<Object>> entry : branchInputs.entrySet()) {
+      branchExecutors.get(entry.getKey()).runBatch(entry.getValue());
+    }
+    return new ArrayList<>(emitter.getEntries()).iterator();
   }
 
   private void initializeBranchExecutors() {
@@ -153,6 +187,7 @@ public class MultiSinkFunction implements PairFlatMapFunction<RecordInfo<Object>
       pipelineRuntime.getServiceDiscoverer(), pipelineRuntime.getNamespace());
     executorFactory = new SparkTransformExecutorFactory(pluginInstantiator, macroEvaluator, null,
                                                         collectors, dataTracers, pipelineRuntime, emitter);
+    executorFactory.setBufferMetrics(true);
 
     /*
        If the dag is:
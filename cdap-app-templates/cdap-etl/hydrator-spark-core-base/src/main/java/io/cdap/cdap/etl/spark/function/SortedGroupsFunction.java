@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Function that turns a partition of key value pairs sorted by {@link KeyOrdering} into groups of values per key,
+ * without loading the values of a group in memory. The values of a group are read lazily from the partition
+ * iterator, which Spark backs by the sorted shuffle output that is spilled to disk as needed.
+ *
+ * <p>Each group can only be iterated once, and must be consumed before asking for the next group. Values that are
+ * not consumed are skipped. Since keys are sorted by hash code, distinct keys that are neither ordered by
+ * {@link KeyOrdering} nor equal can be interleaved. The values of such colliding keys that show up while iterating
+ * a group are buffered in memory, and returned as groups after it.</p>
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ */
+public class SortedGroupsFunction<K, V> implements FlatMapFunction<Iterator<Tuple2<K, V>>, Tuple2<K, Iterable<V>>> {
+
+  @Override
+  public Iterator<Tuple2<K, Iterable<V>>> call(Iterator<Tuple2<K, V>> input) {
+    return new GroupsIterator<>(Iterators.peekingIterator(input));
+  }
+
+  /**
+   * Orders keys by hash code, then by class name, and then by natural order for {@link Comparable} keys of the
+   * same class. Keys that compare equal are not necessarily equal.
+   */
+  public static final class KeyOrdering implements Comparator<Object>, Serializable {
+
+    private static final long serialVersionUID = -3160289735312458375L;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int compare(Object key1, Object key2) {
+      int cmp = Integer.compare(Objects.hashCode(key1), Objects.hashCode(key2));
+      if (cmp != 0 || key1 == null || key2 == null) {
+        // null keys have the hash code 0 and sort before the non-null keys with the same hash code
+        return cmp != 0 ? cmp : Boolean.compare(key1 != null, key2 != null);
+      }
+      Class<?> keyClass = key1.getClass();
+      if (keyClass != key2.getClass()) {
+        return keyClass.getName().compareTo(key2.getClass().getName());
+      }
+      return key1 instanceof Comparable ? ((Comparable<Object>) key1).compareTo(key2) : 0;
+    }
+  }
+
+  /**
+   * Iterator over the groups of a sorted partition.
+   */
+  private static final class GroupsIterator<K, V> implements Iterator<Tuple2<K, Iterable<V>>> {
+
+    private static final KeyOrdering ORDERING = new KeyOrdering();
+
+    private final PeekingIterator<Tuple2<K, V>> input;
+    private final Deque<Map.Entry<K, List<V>>> collidingGroups;
+    private GroupIterator currentGroup;
+
+    GroupsIterator(PeekingIterator<Tuple2<K, V>> input) {
+      this.input = input;
+      this.collidingGroups = new ArrayDeque<>();
+    }
+
+    @Override
+    public boolean hasNext() {
+      skipCurrentGroup();
+      return !collidingGroups.isEmpty() || input.hasNext();
+    }
+
+    @Override
+    public Tuple2<K, Iterable<V>> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (!collidingGroups.isEmpty()) {
+        Map.Entry<K, List<V>> group = collidingGroups.poll();
+        return new Tuple2<>(group.getKey(), group.getValue());
+      }
+      Tuple2<K, V> first = input.next();
+      GroupIterator group = new GroupIterator(first._1(), first._2());
+      currentGroup = group;
+      return new Tuple2<>(first._1(), new OnceIterable<>(group));
+    }
+
+    /**
+     * Reads the rest of the current group, so that the input is positioned at the start of the next one, and the
+     * colliding groups are complete.
+     */
+    private void skipCurrentGroup() {
+      if (currentGroup == null) {
+        return;
+      }
+      while (currentGroup.hasNext()) {
+        currentGroup.next();
+      }
+      collidingGroups.addAll(currentGroup.collidingValues.entrySet());
+      currentGroup = null;
+    }
+
+    /**
+     * Iterator over the values of one key.
+     */
+    private final class GroupIterator implements Iterator<V> {
+
+      private final K key;
+      private final Map<K, List<V>> collidingValues;
+      private V firstValue;
+      private boolean hasFirstValue;
+
+      GroupIterator(K key, V firstValue) {
+        this.key = key;
+        this.collidingValues = new LinkedHashMap<>();
+        this.firstValue = firstValue;
+        this.hasFirstValue = true;
+      }
+
+      @Override
+      public boolean hasNext() {
+        if (hasFirstValue) {
+          return true;
+        }
+        while (input.hasNext()) {
+          K nextKey = input.peek()._1();
+          if (ORDERING.compare(key, nextKey) != 0) {
+            // The input is sorted, so there is no more value for the key
+            return false;
+          }
+          if (Objects.equals(key, nextKey)) {
+            return true;
+          }
+          // A different key that is not ordered with this one, the key can still show up after it.
+          collidingValues.computeIfAbsent(nextKey, k -> new ArrayList<>()).add(input.next()._2());
+        }
+        return false;
+      }
+
+      @Override
+      public V next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (hasFirstValue) {
+          V value = firstValue;
+          firstValue = null;
+          hasFirstValue = false;
+          return value;
+        }
+        return input.next()._2();
+      }
+    }
+  }
+
+  /**
+   * An {@link Iterable} that can only be iterated once.
+   */
+  private static final class OnceIterable<T> implements Iterable<T> {
+
+    private Iterator<T> iterator;
+
+    OnceIterable(Iterator<T> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      if (iterator == null) {
+        throw new IllegalStateException("The values of a sorted group can only be iterated once");
+      }
+      Iterator<T> result = iterator;
+      iterator = null;
+      return result;
+    }
+  }
+}
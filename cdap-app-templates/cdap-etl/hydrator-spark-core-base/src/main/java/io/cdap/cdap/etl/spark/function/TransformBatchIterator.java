@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import io.cdap.cdap.etl.common.RecordInfo;
+import io.cdap.cdap.etl.spark.CombinedEmitter;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Iterator over the output of a transform stage on a partition. Input records are run through the stage in batches,
+ * and the stage is flushed after each batch, so that it emits its metrics once per batch instead of once per record.
+ * The output of a batch, which can be several records for each input record, is held in memory and returned before
+ * the next batch is run.
+ *
+ * @param <T> type of input object
+ */
+final class TransformBatchIterator<T> extends AbstractIterator<RecordInfo<Object>> {
+  // Number of input records that are run through the stage before emitting the stage metrics
+  private static final int BATCH_SIZE = 1000;
+  private final Iterator<T> input;
+  private final CombinedEmitter<Object> emitter;
+  private final RecordTransformer<T> transformer;
+  private final Runnable flusher;
+  private Iterator<RecordInfo<Object>> batchOutput;
+
+  /**
+   * Creates an iterator over the output of a stage.
+   *
+   * @param input the input records of the partition
+   * @param emitter the emitter that the stage emits to
+   * @param transformer runs one record through the stage
+   * @param flusher emits the metrics buffered by the stage
+   */
+  TransformBatchIterator(Iterator<T> input, CombinedEmitter<Object> emitter, RecordTransformer<T> transformer,
+                         Runnable flusher) {
+    this.input = input;
+    this.emitter = emitter;
+    this.transformer = transformer;
+    this.flusher = flusher;
+    this.batchOutput = Collections.emptyIterator();
+  }
+
+  @Override
+  protected RecordInfo<Object> computeNext() {
+    while (!batchOutput.hasNext()) {
+      if (!input.hasNext()) {
+        return endOfData();
+      }
+      batchOutput = runBatch();
+    }
+    return batchOutput.next();
+  }
+
+  private Iterator<RecordInfo<Object>> runBatch() {
+    emitter.reset();
+    try {
+      for (int i = 0; i < BATCH_SIZE && input.hasNext(); i++) {
+        transformer.transform(input.next());
+      }
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    } finally {
+      flusher.run();
+    }
+    // the emitter is only reset for the next batch, after this output has been read
+    return emitter.getEmitted().iterator();
+  }
+
+  /**
+   * Runs a record through a stage.
+   *
+   * @param <T> type of input object
+   */
+  interface RecordTransformer<T> {
+
+    void transform(T input) throws Exception;
+  }
+}
@@ -17,6 +17,7 @@
 package io.cdap.cdap.etl.spark.function;
 
 import io.cdap.cdap.etl.api.Transform;
+import io.cdap.cdap.etl.common.Constants;
 import io.cdap.cdap.etl.common.RecordInfo;
 import io.cdap.cdap.etl.common.TrackedTransform;
 import io.cdap.cdap.etl.spark.CombinedEmitter;
@@ -25,12 +26,13 @@ import org.apache.spark.api.java.function.FlatMapFunction;
 import java.util.Iterator;
 
 /**
- * Function that uses a Transform to perform a flatmap.
+ * Function that uses a Transform to perform a flatmap on each partition.
  * Non-serializable fields are lazily created since this is used in a Spark closure.
+ * Records are transformed in batches, see {@link TransformBatchIterator}.
  *
  * @param <T> type of input object
  */
-public class TransformFunction<T> implements FlatMapFunction<T, RecordInfo<Object>> {
+public class TransformFunction<T> implements FlatMapFunction<Iterator<T>, RecordInfo<Object>> {
   private final PluginFunctionContext pluginFunctionContext;
   private final FunctionCache functionCache;
   private transient TrackedTransform<T, Object> transform;
@@ -42,16 +44,16 @@ public class TransformFunction<T> implements FlatMapFunction<T, RecordInfo<Objec
   }
 
   @Override
-  public Iterator<RecordInfo<Object>> call(T input) throws Exception {
+  public Iterator<RecordInfo<Object>> call(Iterator<T> input) throws Exception {
     if (transform == null) {
       Transform<T, Object> plugin = pluginFunctionContext.createAndInitializePlugin(functionCache);
       transform = new TrackedTransform<>(plugin, pluginFunctionContext.createStageMetrics(),
+                                         Constants.Metrics.RECORDS_IN, Constants.Metrics.RECORDS_OUT,
                                          pluginFunctionContext.getDataTracer(),
-                                         pluginFunctionContext.getStageStatisticsCollector());
+                                         pluginFunctionContext.getStageStatisticsCollector(), true);
       emitter = new CombinedEmitter<>(pluginFunctionContext.getStageName());
     }
-    emitter.reset();
-    transform.transform(input, emitter);
-    return emitter.getEmitted().iterator();
+    return new TransformBatchIterator<>(input, emitter, record -> transform.transform(record, emitter),
+                                        transform::flush);
   }
 }
@@ -26,6 +26,8 @@ import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function2;
 import org.apache.spark.streaming.Time;
 
+import java.util.Iterator;
+
 /**
  * Serializable function that can be used to perform a flat map on a DStream. Dynamically instantiates
  * the Transform plugin used to perform the flat map to ensure that code changes are picked up and to ensure
@@ -37,7 +39,7 @@ public class DynamicTransform<T> implements Function2<JavaRDD<T>, Time, JavaRDD<
   private final DynamicDriverContext dynamicDriverContext;
   private final FunctionCache functionCache;
   private final boolean isMultiOutput;
-  private transient FlatMapFunction<T, RecordInfo<Object>> function;
+  private transient FlatMapFunction<Iterator<T>, RecordInfo<Object>> function;
 
   public DynamicTransform(DynamicDriverContext dynamicDriverContext,
                           FunctionCache functionCache,
@@ -54,6 +56,6 @@ public class DynamicTransform<T> implements Function2<JavaRDD<T>, Time, JavaRDD<
         ? new MultiOutputTransformFunction<T>(dynamicDriverContext.getPluginFunctionContext(), functionCache) :
         new TransformFunction<T>(dynamicDriverContext.getPluginFunctionContext(), functionCache);
     }
-    return input.flatMap(function);
+    return input.mapPartitions(function);
   }
 }
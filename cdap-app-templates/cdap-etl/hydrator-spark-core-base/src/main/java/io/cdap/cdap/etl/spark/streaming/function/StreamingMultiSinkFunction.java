@@ -123,7 +123,7 @@ public class StreamingMultiSinkFunction extends AbstractStreamingSinkFunction<Ja
     boolean ranSuccessfully = true;
     try {
       MultiSinkFunction multiSinkFunction = new MultiSinkFunction(sec, phaseSpec, group, collectors);
-      Set<String> outputNames = sinkFactory.writeCombinedRDD(data.flatMapToPair(multiSinkFunction),
+      Set<String> outputNames = sinkFactory.writeCombinedRDD(data.mapPartitionsToPair(multiSinkFunction),
                                                              sec, sinkNames);
       sec.execute(new TxRunnable() {
         @Override
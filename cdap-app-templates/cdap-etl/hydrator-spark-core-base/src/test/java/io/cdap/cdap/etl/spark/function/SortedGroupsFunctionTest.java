@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.etl.spark.function;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link SortedGroupsFunction}
+ */
+public class SortedGroupsFunctionTest {
+
+  @Test
+  public void testGroups() {
+    List<Tuple2<Object, Integer>> input = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      input.add(new Tuple2<>("key" + (i % 7), i));
+    }
+    input.add(new Tuple2<>(null, 100));
+    input.add(new Tuple2<>(7L, 101));
+    input.add(new Tuple2<>(7, 102));
+    input.sort((t1, t2) -> new SortedGroupsFunction.KeyOrdering().compare(t1._1(), t2._1()));
+
+    Map<Object, List<Integer>> expected = new LinkedHashMap<>();
+    for (Tuple2<Object, Integer> tuple : input) {
+      expected.computeIfAbsent(tuple._1(), k -> new ArrayList<>()).add(tuple._2());
+    }
+    Assert.assertEquals(expected, group(input));
+  }
+
+  @Test
+  public void testCollidingKeys() {
+    // keys with the same hash code that are not ordered are interleaved
+    Key key1 = new Key("a");
+    Key key2 = new Key("b");
+    Key key3 = new Key("c");
+    List<Tuple2<Object, Integer>> input = ImmutableList.of(
+      new Tuple2<>(key1, 1), new Tuple2<>(key2, 2), new Tuple2<>(key1, 3), new Tuple2<>(key3, 4),
+      new Tuple2<>(key2, 5), new Tuple2<>(key1, 6), new Tuple2<>("z", 7));
+
+    Assert.assertEquals(ImmutableMap.of(key1, ImmutableList.of(1, 3, 6),
+                                        key2, ImmutableList.of(2, 5),
+                                        key3, ImmutableList.of(4),
+                                        "z", ImmutableList.of(7)),
+                        group(input));
+  }
+
+  @Test
+  public void testSkipUnconsumedValues() {
+    List<Tuple2<Object, Integer>> input = ImmutableList.of(
+      new Tuple2<>(1, 1), new Tuple2<>(1, 2), new Tuple2<>(2, 3), new Tuple2<>(2, 4));
+
+    Iterator<Tuple2<Object, Iterable<Integer>>> groups = new SortedGroupsFunction<Object, Integer>()
+      .call(input.iterator());
+    Tuple2<Object, Iterable<Integer>> group = groups.next();
+    Assert.assertEquals(1, group._1());
+    Assert.assertEquals(1, (int) group._2().iterator().next());
+
+    group = groups.next();
+    Assert.assertEquals(2, group._1());
+    Assert.assertEquals(ImmutableList.of(3, 4), ImmutableList.copyOf(group._2()));
+    Assert.assertFalse(groups.hasNext());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIterateOnce() {
+    Iterator<Tuple2<Object, Iterable<Integer>>> groups = new SortedGroupsFunction<Object, Integer>()
+      .call(ImmutableList.<Tuple2<Object, Integer>>of(new Tuple2<>(1, 1)).iterator());
+    Iterable<Integer> values = groups.next()._2();
+    values.iterator();
+    values.iterator();
+  }
+
+  private Map<Object, List<Integer>> group(List<Tuple2<Object, Integer>> input) {
+    Map<Object, List<Integer>> result = new LinkedHashMap<>();
+    Iterator<Tuple2<Object, Iterable<Integer>>> groups = new SortedGroupsFunction<Object, Integer>()
+      .call(input.iterator());
+    while (groups.hasNext()) {
+      Tuple2<Object, Iterable<Integer>> group = groups.next();
+      Assert.assertFalse("Duplicate group for key " + group._1(), result.containsKey(group._1()));
+      result.put(group._1(), ImmutableList.copyOf(group._2()));
+    }
+    return result;
+  }
+
+  /**
+   * A key that is not comparable, with a constant hash code.
+   */
+  private static final class Key {
+    private final String name;
+
+    Key(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && name.equals(((Key) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
@@ -289,6 +289,7 @@ public final class Constants {
         "app.run.records.ttl.frequency.hours";
     public static final String RUN_DATA_CLEANUP_TTL_INITIAL_DELAY_MINUTES =
         "app.run.records.ttl.initial.delay.minutes";
+    public static final String APP_SPEC_CACHE_MAX_WEIGHT_MB = "app.spec.cache.max.weight.mb";
 
     // A boolean value cConf entry to tell whether a ProgramRunner is running remotely (i.e. not inside app-fabric)
     // This config is not present in the cdap-default.xml as it is only set internally by CDAP.
@@ -512,6 +513,8 @@ public final class Constants {
         "task.worker.container.kill.after.request.count";
     public static final String CONTAINER_KILL_AFTER_DURATION_SECOND =
         "task.worker.container.kill.after.duration.second";
+    public static final String CONTAINER_KILL_AFTER_HEAP_USAGE_RATIO =
+        "task.worker.container.kill.after.heap.usage.ratio";
     public static final String CONTAINER_RUN_AS_USER = "task.worker.container.run.as.user";
     public static final String CONTAINER_RUN_AS_GROUP = "task.worker.container.run.as.group";
     public static final String CONTAINER_DISK_READONLY = "task.worker.container.disk.readonly";
@@ -539,6 +542,9 @@ public final class Constants {
     public static final String BOSS_THREADS = "task.worker.boss.threads";
     public static final String WORKER_THREADS = "task.worker.worker.threads";
     public static final String METADATA_SERVICE_END_POINT = "task.worker.metadata.service.endpoint";
+    public static final String MAX_CONCURRENT_REQUESTS = "task.worker.max.concurrent.requests";
+    public static final String ARTIFACT_CLASSLOADER_CACHE_SIZE =
+        "task.worker.artifact.classloader.cache.size";
     public static final String METRIC_PREFIX = "task.worker.";
 
     /**
@@ -640,6 +646,8 @@ public final class Constants {
     public static final String PROGRAM_STATUS_EVENT_FETCH_SIZE = "scheduler.program.status.event.fetch.size";
 
     public static final String JOB_QUEUE_NUM_PARTITIONS = "scheduler.job.queue.num.partitions";
+    public static final String JOB_QUEUE_FULL_SCAN_INTERVAL_MILLIS =
+        "scheduler.job.queue.full.scan.interval.millis";
   }
 
   /**
@@ -754,6 +762,8 @@ public final class Constants {
         "data.storage.sql.jdbc.connection.pool.idle.millis";
     public static final String DATA_STORAGE_SQL_CONNECTION_IDLE_EVICTION_MILLIS =
         "data.storage.sql.jdbc.connection.pool.idle.eviction.millis";
+    public static final String DATA_STORAGE_SQL_STATEMENT_CACHE_SIZE =
+        "data.storage.sql.jdbc.statement.cache.size";
     public static final String DATA_STORAGE_SQL_SCAN_FETCH_SIZE_ROWS = "data.storage.sql.scan.size.rows";
     public static final String DATA_STORAGE_SQL_TRANSACTION_RUNNER_MAX_RETRIES =
         "data.storage.sql.tx.runner.max.retries";
@@ -1287,6 +1297,17 @@ public final class Constants {
       public static final String EXTENSION_VISIBILITY_MILLIS = "authorization.extension.visibility.millis";
     }
 
+    /**
+     * Authentication metrics.
+     */
+    public static final class Authentication {
+
+      public static final String TOKEN_VALIDATION_CACHE_HIT_COUNT =
+          "authentication.token.validation.cache.hit.count";
+      public static final String TOKEN_VALIDATION_CACHE_MISS_COUNT =
+          "authentication.token.validation.cache.miss.count";
+    }
+
     /**
      * Scheduled job metrics.
      */
@@ -1547,6 +1568,15 @@ public final class Constants {
      * Time duration in milliseconds after which an active secret key should be retired.
      */
     public static final String TOKEN_DIGEST_KEY_EXPIRATION = "security.token.digest.key.expiration.ms";
+    /**
+     * Maximum number of access tokens kept in the cache of tokens that passed validation.
+     */
+    public static final String TOKEN_VALIDATION_CACHE_SIZE = "security.token.validation.cache.size";
+    /**
+     * Time in seconds a validated access token stays cached, capped by the token expiration.
+     */
+    public static final String TOKEN_VALIDATION_CACHE_EXPIRATION_SECS =
+        "security.token.validation.cache.expiration.seconds";
     /**
      * Parent znode used for secret key distribution in ZooKeeper.
      */
@@ -2013,6 +2043,7 @@ public final class Constants {
     public static final String SERVICE_EXEC_THREADS = "metadata.service.exec.threads";
     public static final String HANDLERS_NAME = "metadata.handlers";
     public static final String MAX_CHARS_ALLOWED = "metadata.max.allowed.chars";
+    public static final String SEARCH_PARALLELISM = "metadata.search.parallelism";
 
     public static final String MESSAGING_TOPIC = "metadata.messaging.topic";
     public static final String MESSAGING_FETCH_SIZE = "metadata.messaging.fetch.size";
@@ -2023,6 +2054,11 @@ public final class Constants {
     public static final String STORAGE_PROVIDER_IMPLEMENTATION = "metadata.storage.implementation";
     public static final String STORAGE_PROVIDER_NOSQL = "nosql";
     public static final String STORAGE_PROVIDER_ELASTICSEARCH = "elastic";
+    public static final String STORAGE_PROVIDER_EMBEDDED = "embedded";
+
+    public static final String STORAGE_EMBEDDED_DIR = "metadata.storage.embedded.dir";
+    public static final String STORAGE_EMBEDDED_MERGE_FACTOR = "metadata.storage.embedded.merge.factor";
+    public static final String STORAGE_EMBEDDED_FLUSH_SIZE = "metadata.storage.embedded.flush.size";
 
     public static final String METADATA_WRITER_SUBSCRIBER = "metadata.writer";
   }
@@ -2049,6 +2085,8 @@ public final class Constants {
     public static final String LOCAL_DATA_PARTITION_SECONDS = "messaging.local.data.partition.secs";
 
     public static final String CACHE_SIZE_MB = "messaging.cache.size.mb";
+    public static final String CACHE_RING_BUFFER_ENABLED = "messaging.cache.ring.buffer.enabled";
+    public static final String CACHE_RING_BUFFER_CAPACITY = "messaging.cache.ring.buffer.capacity";
 
     public static final String HBASE_MAX_SCAN_THREADS = "messaging.hbase.max.scan.threads";
     public static final String HBASE_SCAN_CACHE_ROWS = "messaging.hbase.scan.cache.rows";
@@ -2068,8 +2106,13 @@ public final class Constants {
     public static final String HTTP_SERVER_EXECUTOR_THREADS = "messaging.http.server.executor.threads";
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
+    public static final String HTTP_SERVER_CONSUME_MAX_WAIT_MS = "messaging.http.server.consume.max.wait.ms";
+    public static final String HTTP_SERVER_CONSUME_WAIT_THREADS = "messaging.http.server.consume.wait.threads";
     public static final String HTTP_COMPRESS_PAYLOAD = "messaging.http.compress.payload";
 
+    public static final String WRITE_GROUP_COMMIT_ENABLED = "messaging.write.group.commit.enabled";
+    public static final String WRITE_GROUP_COMMIT_MAX_BATCH_SIZE = "messaging.write.group.commit.max.batch.size";
+
     // Distributed mode related configurations
     public static final String HA_FENCING_DELAY_SECONDS = "messaging.ha.fencing.delay.seconds";
     public static final String CONTAINER_VIRTUAL_CORES = "messaging.container.num.cores";
@@ -39,6 +39,10 @@ import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Random;
@@ -62,6 +66,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Internal {@link HttpHandler} for Task worker.
+ *
+ * <p>By default, the task worker runs one task at a time, and restarts after a number of tasks
+ * that requested it. If {@link Constants.TaskWorker#MAX_CONCURRENT_REQUESTS} is more than one,
+ * it runs up to that many tasks concurrently, and only restarts when the heap that remains used
+ * after garbage collection goes above {@link
+ * Constants.TaskWorker#CONTAINER_KILL_AFTER_HEAP_USAGE_RATIO}. In both cases, no new task is
+ * accepted once a restart is decided, and the restart happens when the running tasks finish.</p>
  */
 @Singleton
 @Path(Constants.Gateway.INTERNAL_API_VERSION_3 + "/worker")
@@ -79,8 +90,19 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
 
   private final RunnableTaskLauncher runnableTaskLauncher;
   private final BiConsumer<Boolean, TaskDetails> taskCompletionConsumer;
+  private final int maxConcurrentRequests;
+  private final double restartHeapUsageRatio;
+
+  /**
+   * Guards the number of inflight requests and the draining flag.
+   */
+  private final Object requestLock = new Object();
+  private int inflightRequests;
 
-  private final AtomicBoolean hasInflightRequest = new AtomicBoolean(false);
+  /**
+   * If true, no new request is accepted, and the pod restarts once the inflight requests finish.
+   */
+  private boolean draining;
 
   /**
    * Holds the total number of requests that have been executed by this handler
@@ -103,6 +125,10 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
       MetricsCollectionService metricsCollectionService, Consumer<Double> autoscalerMetricsCollector) {
     final int killAfterRequestCount = cConf.getInt(
         Constants.TaskWorker.CONTAINER_KILL_AFTER_REQUEST_COUNT, 0);
+    this.maxConcurrentRequests = Math.max(1,
+        cConf.getInt(Constants.TaskWorker.MAX_CONCURRENT_REQUESTS, 1));
+    this.restartHeapUsageRatio = cConf.getDouble(
+        Constants.TaskWorker.CONTAINER_KILL_AFTER_HEAP_USAGE_RATIO, 1.0d);
     this.runnableTaskLauncher = new RunnableTaskLauncher(cConf,
         discoveryService,
         discoveryServiceClient, metricsCollectionService);
@@ -115,23 +141,27 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
 
       String className = taskDetails.getClassName();
 
+      boolean restart;
       if (mustRestart.get()) {
-        stopper.accept(className);
-        return;
-      }
-
-      if (!taskDetails.isTerminateOnComplete() || className == null
+        restart = true;
+      } else if (maxConcurrentRequests > 1) {
+        // Tasks are isolated by their classloaders, only restart if they leaked memory
+        restart = getRetainedHeapRatio() >= restartHeapUsageRatio;
+        if (restart) {
+          LOG.info("Restarting task worker due to memory pressure after running task {}",
+              className);
+        }
+      } else if (!taskDetails.isTerminateOnComplete() || className == null
           || killAfterRequestCount <= 0) {
         // No need to restart.
         requestProcessedCount.decrementAndGet();
-        hasInflightRequest.set(false);
-        return;
+        restart = false;
+      } else {
+        restart = requestProcessedCount.get() >= killAfterRequestCount;
       }
 
-      if (requestProcessedCount.get() >= killAfterRequestCount) {
+      if (finishRequest(restart)) {
         stopper.accept(className);
-      } else {
-        hasInflightRequest.set(false);
       }
     };
 
@@ -159,18 +189,88 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
               Threads.createDaemonThreadFactory("task-worker-restart"))
           .schedule(
               () -> {
-                if (hasInflightRequest.compareAndSet(false, true)) {
+                // we restart once the ongoing requests finish.
+                mustRestart.set(true);
+                boolean idle;
+                synchronized (requestLock) {
+                  idle = !draining && inflightRequests == 0;
+                  draining = true;
+                }
+                if (idle) {
                   // there is no ongoing request. pod gets restarted.
                   stopper.accept("");
                 }
-                // we restart once a request finishes.
-                // TODO: this might delay the pod restart to after executing a new request if the
-                // ongoing request is already in the stopper.
-                mustRestart.set(true);
               }, waitTime, TimeUnit.SECONDS);
     }
   }
 
+  /**
+   * Starts a request if the maximum number of concurrent requests is not reached and the pod is not
+   * going to restart.
+   *
+   * @return {@code true} if the request can be run
+   */
+  private boolean startRequest() {
+    synchronized (requestLock) {
+      if (draining || inflightRequests >= maxConcurrentRequests) {
+        return false;
+      }
+      inflightRequests++;
+      return true;
+    }
+  }
+
+  /**
+   * Finishes a request.
+   *
+   * @param restart whether the pod should restart
+   * @return {@code true} if the pod should be stopped now, because it needs to restart and there
+   *     is no other ongoing request
+   */
+  private boolean finishRequest(boolean restart) {
+    synchronized (requestLock) {
+      inflightRequests--;
+      if (restart) {
+        draining = true;
+      }
+      return draining && inflightRequests == 0;
+    }
+  }
+
+  /**
+   * Returns the metric used by the autoscaler, which is the number of requests counting toward the
+   * restart in single request mode, and the number of inflight requests otherwise.
+   */
+  private double getAutoscalerMetricValue() {
+    if (maxConcurrentRequests > 1) {
+      synchronized (requestLock) {
+        return inflightRequests;
+      }
+    }
+    return requestProcessedCount.get();
+  }
+
+  /**
+   * Returns the highest ratio of used memory after the last garbage collection to the maximum size,
+   * over the heap memory pools that hold long-lived objects.
+   */
+  private static double getRetainedHeapRatio() {
+    double ratio = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      // Only the tenured pools support both usage thresholds
+      if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()
+          || !pool.isCollectionUsageThresholdSupported()) {
+        continue;
+      }
+      MemoryUsage collectionUsage = pool.getCollectionUsage();
+      long max = pool.getUsage().getMax();
+      if (collectionUsage != null && max > 0) {
+        ratio = Math.max(ratio, (double) collectionUsage.getUsed() / max);
+      }
+    }
+    return ratio;
+  }
+
   /**
    * Run a new {@link io.cdap.cdap.api.service.worker.RunnableTask}.
    *
@@ -180,13 +280,13 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
   @POST
   @Path("/run")
   public void run(FullHttpRequest request, HttpResponder responder) {
-    if (!hasInflightRequest.compareAndSet(false, true)) {
+    if (!startRequest()) {
       responder.sendStatus(HttpResponseStatus.TOO_MANY_REQUESTS);
       return;
     }
     requestProcessedCount.incrementAndGet();
 
-    double metricValue = requestProcessedCount.get();
+    double metricValue = getAutoscalerMetricValue();
     autoscalerMetricsCollector.accept(metricValue);
     long startTime = System.currentTimeMillis();
     try {
@@ -226,7 +326,7 @@ public class TaskWorkerHttpHandlerInternal extends AbstractHttpHandler {
       taskCompletionConsumer.accept(false,
           new TaskDetails(metricsCollectionService, startTime, true, null));
     }
-    metricValue = requestProcessedCount.get();
+    metricValue = getAutoscalerMetricValue();
     autoscalerMetricsCollector.accept(metricValue);
     LOG.debug("Metrics sent");
   }
@@ -82,7 +82,7 @@ public class LevelDBMetricsTable implements MetricsTable {
   }
 
   @Override
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
     try {
       return core.swap(row, column, oldValue, newValue);
     } catch (IOException e) {
@@ -24,19 +24,20 @@ import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 import org.apache.tephra.Transaction;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
-import org.iq80.leveldb.ReadOptions;
-import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 import org.iq80.leveldb.WriteOptions;
 import org.slf4j.Logger;
@@ -84,51 +85,59 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue)
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue)
       throws IOException {
-    byte[] existing = getRow(row, new byte[][]{column}, null, null, -1, null).get(column);
-    // verify
-    if (oldValue == null && existing != null) {
-      return false;
-    }
-    if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
-      return false;
-    }
-    // write
-    if (newValue == null) {
-      // to-do
-      deleteColumn(row, column);
-    } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)),
-          Long.MAX_VALUE);
+    Lock lock = getRowLock(row);
+    lock.lock();
+    try {
+      byte[] existing = getRow(row, new byte[][]{column}, null, null, -1, null).get(column);
+      // verify
+      if (oldValue == null && existing != null) {
+        return false;
+      }
+      if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
+        return false;
+      }
+      // write
+      if (newValue == null) {
+        // to-do
+        deleteColumn(row, column);
+      } else {
+        persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)),
+            Long.MAX_VALUE);
+      }
+      return true;
+    } finally {
+      lock.unlock();
     }
-    return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments)
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments)
       throws IOException {
     Map<byte[], Long> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
+    Lock lock = getRowLock(row);
+    lock.lock();
+    try {
       for (Map.Entry<byte[], Long> entry : increments.entrySet()) {
         byte[] rowKey = createPutKey(row, entry.getKey(), Long.MAX_VALUE);
-        byte[] existingValue = db.get(rowKey, readOptions);
+        byte[] existingValue = db.get(rowKey);
         long newValue = incrementValue(entry.getValue(), existingValue, row, entry.getKey());
         result.put(entry.getKey(), newValue);
         writeBatch.put(rowKey, Bytes.toBytes(newValue));
       }
       db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      lock.unlock();
     }
 
     return result;
   }
 
 
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates)
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates)
       throws IOException {
     if (updates.isEmpty()) {
       return;
@@ -136,20 +145,44 @@ public class LevelDBTableCore {
 
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
-    try (Snapshot snapshot = db.getSnapshot()) {
-      ReadOptions readOptions = new ReadOptions().snapshot(snapshot);
-
+    // Locks of all the rows are acquired in the stripe order to avoid deadlock
+    Iterable<Lock> locks = getRowLocks(updates.keySet());
+    locks.forEach(Lock::lock);
+    try {
       for (Map.Entry<byte[], NavigableMap<byte[], Long>> updateEntry : updates.entrySet()) {
         for (Map.Entry<byte[], Long> entry : updateEntry.getValue().entrySet()) {
           byte[] rowKey = createPutKey(updateEntry.getKey(), entry.getKey(), Long.MAX_VALUE);
-          byte[] existingValue = db.get(rowKey, readOptions);
+          byte[] existingValue = db.get(rowKey);
           long newValue = incrementValue(entry.getValue(), existingValue, updateEntry.getKey(),
               entry.getKey());
           writeBatch.put(rowKey, Bytes.toBytes(newValue));
         }
       }
       db.write(writeBatch, service.getWriteOptions());
+    } finally {
+      locks.forEach(Lock::unlock);
+    }
+  }
+
+  /**
+   * Returns the lock for read-modify-write operations on the given row.
+   */
+  private Lock getRowLock(byte[] row) {
+    return service.getRowLocks().get(LevelDBTableService.getRowLockKey(tableName, row));
+  }
+
+  /**
+   * Returns the locks for read-modify-write operations on the given rows, in the order that they
+   * should be acquired.
+   */
+  private Iterable<Lock> getRowLocks(Collection<byte[]> rows) {
+    List<Integer> keys = new ArrayList<>(rows.size());
+    for (byte[] row : rows) {
+      keys.add(LevelDBTableService.getRowLockKey(tableName, row));
     }
+    // Striped.bulkGet returns the locks in the stripe order.
+    // Rows in the same stripe get the same lock multiple times, which is fine since it is reentrant.
+    return service.getRowLocks().bulkGet(keys);
   }
 
   private long incrementValue(long value, @Nullable byte[] existingValue, byte[] row, byte[] col) {
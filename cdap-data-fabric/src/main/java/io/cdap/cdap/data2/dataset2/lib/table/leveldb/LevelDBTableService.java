@@ -25,8 +25,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.data2.util.TableId;
@@ -44,6 +46,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import org.apache.twill.common.Threads;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
@@ -64,6 +67,7 @@ import org.slf4j.LoggerFactory;
 public class LevelDBTableService implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(LevelDBTableService.class);
+  private static final int ROW_LOCK_STRIPES = 1024;
 
   private boolean compressionEnabled;
   private int blockSize;
@@ -77,6 +81,8 @@ public class LevelDBTableService implements AutoCloseable {
   private boolean isClosed;
 
   private final ConcurrentMap<String, DB> tables = Maps.newConcurrentMap();
+  // Locks for read-modify-write operations, striped by table name and row
+  private final Striped<Lock> rowLocks = Striped.lock(ROW_LOCK_STRIPES);
 
   private final ScheduledExecutorService executor;
   private ScheduledFuture<?> scheduledFuture;
@@ -287,6 +293,23 @@ public class LevelDBTableService implements AutoCloseable {
     return writeOptions;
   }
 
+  /**
+   * Returns the {@link Striped} locks for guarding read-modify-write operations on table rows. A
+   * lock is obtained with the key returned by {@link #getRowLockKey(String, byte[])}. Since it is
+   * shared by all table instances, operations on the same row from different instances are
+   * serialized, while operations on different rows can run concurrently.
+   */
+  public Striped<Lock> getRowLocks() {
+    return rowLocks;
+  }
+
+  /**
+   * Returns the key for obtaining the lock of the given row from {@link #getRowLocks()}.
+   */
+  public static Integer getRowLockKey(String tableName, byte[] row) {
+    return 31 * tableName.hashCode() + Bytes.hashCode(row);
+  }
+
   public DB getTable(String tableName) throws IOException {
     ensureOpen();
     DB db = tables.get(tableName);
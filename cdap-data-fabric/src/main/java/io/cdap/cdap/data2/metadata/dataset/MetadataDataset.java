@@ -717,17 +717,7 @@ public class MetadataDataset extends AbstractDataset {
         ? DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
 
     for (SearchTerm searchTerm : getSearchTerms(request)) {
-      Scanner scanner;
-      if (searchTerm.isPrefix()) {
-        // if prefixed search get start and stop key
-        byte[] startKey = Bytes.toBytes(searchTerm.getTerm());
-        @SuppressWarnings("ConstantConditions")
-        byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
-        scanner = indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey);
-      } else {
-        byte[] value = Bytes.toBytes(searchTerm.getTerm());
-        scanner = indexedTable.readByIndex(Bytes.toBytes(column), value);
-      }
+      Scanner scanner = scanDefaultIndex(column, searchTerm);
       try {
         Row next;
         while ((next = scanner.next()) != null) {
@@ -744,6 +734,61 @@ public class MetadataDataset extends AbstractDataset {
     return new SearchResults(results, Collections.emptyList());
   }
 
+  /**
+   * Scores the entities that match the specified search query in the default index, the same way
+   * as a {@link #search(SearchRequest)} with {@link SortInfo#DEFAULT} sorting. The score of an
+   * entity is the number of index entries that match the search terms. As in search, index entries
+   * are skipped if their metadata no longer exists, but the metadata value of each matching key is
+   * only read once.
+   *
+   * @param request the search request
+   * @param scores the map to add the score of each matching {@link MetadataEntity} to
+   */
+  public void scoreByDefaultIndex(SearchRequest request, Map<MetadataEntity, Integer> scores) {
+    String column = request.isNamespaced()
+        ? DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
+
+    Map<ImmutablePair<MetadataEntity, String>, Boolean> existing = new HashMap<>();
+    for (SearchTerm searchTerm : getSearchTerms(request)) {
+      try (Scanner scanner = scanDefaultIndex(column, searchTerm)) {
+        Row next;
+        while ((next = scanner.next()) != null) {
+          Optional<MetadataEntity> metadataEntity = parseEntity(next, column, request.getTypes(),
+              request.shouldShowHidden());
+          if (!metadataEntity.isPresent()) {
+            continue;
+          }
+          String key = MetadataKey.extractMetadataKey(next.getRow());
+          // the index can still have entries for metadata that was removed
+          boolean exists = existing.computeIfAbsent(ImmutablePair.of(metadataEntity.get(), key),
+              entityKey -> getMetadata(entityKey.getFirst(), entityKey.getSecond()) != null);
+          if (exists) {
+            scores.merge(metadataEntity.get(), 1, Integer::sum);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits a search query into the raw search terms that are searched independently.
+   */
+  public static List<String> splitQuery(String query) {
+    return ImmutableList.copyOf(
+        Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults().split(query));
+  }
+
+  private Scanner scanDefaultIndex(String column, SearchTerm searchTerm) {
+    if (searchTerm.isPrefix()) {
+      // if prefixed search get start and stop key
+      byte[] startKey = Bytes.toBytes(searchTerm.getTerm());
+      @SuppressWarnings("ConstantConditions")
+      byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
+      return indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey);
+    }
+    return indexedTable.readByIndex(Bytes.toBytes(column), Bytes.toBytes(searchTerm.getTerm()));
+  }
+
   private SearchResults searchByCustomIndex(SearchRequest request) throws BadRequestException {
     SortInfo sortInfo = request.getSortInfo();
     int offset = request.getOffset();
@@ -815,6 +860,19 @@ public class MetadataDataset extends AbstractDataset {
   // so return an Optional
   private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
       Set<String> entityFilter, boolean showHidden) {
+    Optional<MetadataEntity> metadataEntity = parseEntity(rowToProcess, indexColumn, entityFilter,
+        showHidden);
+    if (!metadataEntity.isPresent()) {
+      return Optional.empty();
+    }
+    String key = MetadataKey.extractMetadataKey(rowToProcess.getRow());
+    MetadataEntry entry = getMetadata(metadataEntity.get(), key);
+    return Optional.ofNullable(entry);
+  }
+
+  // returns the MetadataEntity of an index row, unless it is filtered by the target type or hidden
+  private Optional<MetadataEntity> parseEntity(Row rowToProcess, String indexColumn,
+      Set<String> entityFilter, boolean showHidden) {
     String rowValue = rowToProcess.getString(indexColumn);
     if (rowValue == null) {
       return Optional.empty();
@@ -840,10 +898,7 @@ public class MetadataDataset extends AbstractDataset {
     } catch (IllegalArgumentException e) {
       // ignore. For custom entities we don't really want to hide them if they start with _
     }
-
-    String key = MetadataKey.extractMetadataKey(rowKey);
-    MetadataEntry entry = getMetadata(metadataEntity, key);
-    return Optional.ofNullable(entry);
+    return Optional.of(metadataEntity);
   }
 
   /**
@@ -860,8 +915,7 @@ public class MetadataDataset extends AbstractDataset {
     List<SearchTerm> searchTerms = new LinkedList<>();
     Consumer<String> termAdder = determineSearchFields(namespace, entityScopes, searchTerms);
     String searchQuery = searchRequest.getQuery();
-    for (String term : Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults()
-        .split(searchQuery)) {
+    for (String term : splitQuery(searchQuery)) {
       termAdder.accept(term);
     }
     return searchTerms;
@@ -24,6 +24,7 @@ import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 import org.apache.tephra.TransactionExecutor;
@@ -81,6 +82,36 @@ public class DefaultLineageStoreReader implements LineageStoreReader {
     return execute(input -> input.getRelations(program, start, end, filter));
   }
 
+  /**
+   * Fetch program-dataset access information for a set of datasets for a given period.
+   *
+   * @param datasetInstances datasets for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of each of the given datasets
+   */
+  @Override
+  public Map<DatasetId, Set<Relation>> getDatasetRelations(final Set<DatasetId> datasetInstances,
+      final long start, final long end, final Predicate<Relation> filter) {
+    return execute(input -> input.getDatasetRelations(datasetInstances, start, end, filter));
+  }
+
+  /**
+   * Fetch program-dataset access information for a set of programs for a given period.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of each of the given programs
+   */
+  @Override
+  public Map<ProgramId, Set<Relation>> getProgramRelations(final Set<ProgramId> programs,
+      final long start, final long end, final Predicate<Relation> filter) {
+    return execute(input -> input.getProgramRelations(programs, start, end, filter));
+  }
+
   private <T> T execute(TransactionExecutor.Function<LineageTable, T> func) {
     return TransactionRunners.run(transactionRunner, context -> {
       LineageTable lineageTable = LineageTable.create(context);
@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.metadata.lineage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Helpers for the time-bucketed field lineage summary rollups maintained by
+ * {@link io.cdap.cdap.data2.metadata.lineage.field.FieldLineageTable}.
+ *
+ * <p>Every summary record is also added to one day, one week and one month bucket (in UTC),
+ * based on the start time of the program run. A time range query is then split by
+ * {@link #cover(long, long, long, long)} into the coarsest buckets that fit in the range, and the
+ * remaining partial days at either end, which are read from the per-run records.</p>
+ *
+ * <p>Rollups only exist for records written since they were introduced. For each entity, a
+ * rollup start time is kept, before which the rollups may be incomplete. It is maintained with
+ * {@link #getRollupStart(long, Long, Long)} whenever a record is added.</p>
+ */
+public final class LineageRollup {
+
+  private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private LineageRollup() {
+    // prevent instantiation
+  }
+
+  /**
+   * Granularity of a rollup bucket.
+   */
+  public enum Granularity {
+    DAY("d"),
+    WEEK("w"),
+    MONTH("m");
+
+    private final String id;
+
+    Granularity(String id) {
+      this.id = id;
+    }
+
+    /**
+     * @return the identifier of this granularity that is stored in the rollup tables
+     */
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * @return the start time of the bucket that contains the given time
+     */
+    public long getStart(long time) {
+      long day = Math.floorDiv(time, DAY_MILLIS);
+      switch (this) {
+        case DAY:
+          return day * DAY_MILLIS;
+        case WEEK:
+          // weeks start on Monday. 1970-01-01 was a Thursday.
+          return (Math.floorDiv(day + 3, 7) * 7 - 3) * DAY_MILLIS;
+        default:
+          return LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay() * DAY_MILLIS;
+      }
+    }
+
+    /**
+     * @return the end time (exclusive) of the bucket that starts at the given time
+     */
+    public long getEnd(long bucketStart) {
+      switch (this) {
+        case DAY:
+          return bucketStart + DAY_MILLIS;
+        case WEEK:
+          return bucketStart + 7 * DAY_MILLIS;
+        default:
+          return LocalDate.ofEpochDay(bucketStart / DAY_MILLIS).plusMonths(1).toEpochDay()
+              * DAY_MILLIS;
+      }
+    }
+  }
+
+  /**
+   * A part of a time range, which is either answered from a rollup bucket, or from the per-run
+   * records.
+   */
+  public static final class Span {
+
+    private final long start;
+    private final long end;
+    private final Granularity granularity;
+
+    private Span(long start, long end, @Nullable Granularity granularity) {
+      this.start = start;
+      this.end = end;
+      this.granularity = granularity;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    /**
+     * @return the granularity of the rollup bucket for this span, or {@code null} if the span
+     *     needs to be read from the per-run records
+     */
+    @Nullable
+    public Granularity getGranularity() {
+      return granularity;
+    }
+  }
+
+  /**
+   * Splits the time range {@code [start, end)} into the coarsest rollup buckets that cover it, and
+   * the remaining parts at either end that are not covered by any bucket.
+   *
+   * @param start start time (inclusive) in milliseconds
+   * @param end end time (exclusive) in milliseconds
+   * @param rollupStart the time from which the rollups are complete
+   * @param now the current time. Buckets that end after the current day are not used, so that
+   *     open ended ranges do not get split into buckets that cannot have any records.
+   * @return the list of spans in ascending time order
+   */
+  public static List<Span> cover(long start, long end, long rollupStart, long now) {
+    long rangeStart = Math.max(start, rollupStart);
+    long rangeEnd = Math.min(end, Granularity.DAY.getEnd(Granularity.DAY.getStart(now)));
+    if (rangeStart >= rangeEnd) {
+      return Collections.singletonList(new Span(start, end, null));
+    }
+
+    long first = Granularity.DAY.getStart(rangeStart);
+    if (first < rangeStart) {
+      first = Granularity.DAY.getEnd(first);
+    }
+    List<Span> buckets = new ArrayList<>();
+    long time = first;
+    while (true) {
+      Granularity granularity = getCoarsestBucket(time, rangeEnd);
+      if (granularity == null) {
+        break;
+      }
+      long bucketEnd = granularity.getEnd(time);
+      buckets.add(new Span(time, bucketEnd, granularity));
+      time = bucketEnd;
+    }
+    if (buckets.isEmpty()) {
+      return Collections.singletonList(new Span(start, end, null));
+    }
+
+    List<Span> spans = new ArrayList<>(buckets.size() + 2);
+    if (start < first) {
+      spans.add(new Span(start, first, null));
+    }
+    spans.addAll(buckets);
+    if (time < end) {
+      spans.add(new Span(time, end, null));
+    }
+    return spans;
+  }
+
+  /**
+   * Computes the new rollup start time of an entity when a record is added for it.
+   *
+   * @param time the start time of the program run of the record being added
+   * @param rollupStart the current rollup start time of the entity, or {@code null} if no
+   *     record was added since the rollups were introduced
+   * @param latestBefore the start time of the latest per-run record of the entity before
+   *     {@code rollupStart}, or {@code null} if there is no such record. This must be read before
+   *     the new record is written.
+   * @return the new rollup start time, which is never after the current one
+   */
+  public static long getRollupStart(long time, @Nullable Long rollupStart,
+      @Nullable Long latestBefore) {
+    long start = Granularity.DAY.getStart(time);
+    if (latestBefore != null) {
+      // records at or before latestBefore may not be in the rollups
+      start = Math.max(start, Granularity.DAY.getEnd(Granularity.DAY.getStart(latestBefore)));
+    }
+    return rollupStart == null ? start : Math.min(start, rollupStart);
+  }
+
+  /**
+   * Returns the coarsest bucket that starts at the given time and ends no later than the given
+   * end time. A week is not used if it overlaps with a month that can be used instead.
+   */
+  @Nullable
+  private static Granularity getCoarsestBucket(long time, long end) {
+    if (Granularity.MONTH.getStart(time) == time && Granularity.MONTH.getEnd(time) <= end) {
+      return Granularity.MONTH;
+    }
+    if (Granularity.WEEK.getStart(time) == time && Granularity.WEEK.getEnd(time) <= end) {
+      long nextMonth = Granularity.MONTH.getEnd(Granularity.MONTH.getStart(time));
+      if (nextMonth >= Granularity.WEEK.getEnd(time)
+          || Granularity.MONTH.getEnd(nextMonth) > end) {
+        return Granularity.WEEK;
+      }
+    }
+    if (Granularity.DAY.getEnd(time) <= end) {
+      return Granularity.DAY;
+    }
+    return null;
+  }
+}
@@ -20,6 +20,7 @@ import io.cdap.cdap.proto.id.DatasetId;
 import io.cdap.cdap.proto.id.NamespacedEntityId;
 import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -56,4 +57,28 @@ public interface LineageStoreReader {
    * @return program-dataset access information
    */
   Set<Relation> getRelations(ProgramId program, long start, long end, Predicate<Relation> filter);
+
+  /**
+   * Fetch program-dataset access information for a set of datasets for a given period.
+   *
+   * @param datasetInstances datasets for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of each of the given datasets
+   */
+  Map<DatasetId, Set<Relation>> getDatasetRelations(Set<DatasetId> datasetInstances, long start,
+      long end, Predicate<Relation> filter);
+
+  /**
+   * Fetch program-dataset access information for a set of programs for a given period.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of each of the given programs
+   */
+  Map<ProgramId, Set<Relation>> getProgramRelations(Set<ProgramId> programs, long start, long end,
+      Predicate<Relation> filter);
 }
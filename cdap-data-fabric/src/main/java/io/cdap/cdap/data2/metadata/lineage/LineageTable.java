@@ -19,10 +19,12 @@ package io.cdap.cdap.data2.metadata.lineage;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.id.DatasetId;
+import io.cdap.cdap.proto.id.EntityId;
 import io.cdap.cdap.proto.id.NamespacedEntityId;
 import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
@@ -36,9 +38,15 @@ import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.store.StoreDefinition;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import org.apache.twill.api.RunId;
 import org.slf4j.Logger;
@@ -50,6 +58,8 @@ import org.slf4j.LoggerFactory;
 public class LineageTable {
 
   private static final Logger LOG = LoggerFactory.getLogger(LineageTable.class);
+  // maximum number of key ranges in a single multi-range scan
+  private static final int MAX_SCAN_RANGES = 1000;
 
   private final StructuredTableContext structuredTableContext;
   private StructuredTable datasetTable;
@@ -153,10 +163,26 @@ public class LineageTable {
   public Set<Relation> getRelations(DatasetId datasetInstance, long start, long end,
       Predicate<Relation> filter)
       throws IOException {
-    return scanRelations(getDatasetTable(),
-        getDatasetScanStartKey(datasetInstance, end),
-        getDatasetScanEndKey(datasetInstance, start),
-        filter);
+    return getDatasetRelations(Collections.singleton(datasetInstance), start, end, filter)
+        .get(datasetInstance);
+  }
+
+  /**
+   * Fetch program-dataset access information for a set of datasets for a given period. The records
+   * of all the datasets are read with one multi-range scan per table.
+   *
+   * @param datasetInstances datasets for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of each of the given datasets
+   */
+  public Map<DatasetId, Set<Relation>> getDatasetRelations(Collection<DatasetId> datasetInstances,
+      long start, long end, Predicate<Relation> filter) throws IOException {
+    return getRelations(datasetInstances, filter, Relation::getData,
+        getDatasetTable(), datasetInstance -> Range.create(
+            getDatasetScanStartKey(datasetInstance, end), Range.Bound.INCLUSIVE,
+            getDatasetScanEndKey(datasetInstance, start), Range.Bound.INCLUSIVE));
   }
 
   /**
@@ -171,10 +197,25 @@ public class LineageTable {
   public Set<Relation> getRelations(ProgramId program, long start, long end,
       Predicate<Relation> filter)
       throws IOException {
-    return scanRelations(getProgramTable(),
-        getProgramScanStartKey(program, end),
-        getProgramScanEndKey(program, start),
-        filter);
+    return getProgramRelations(Collections.singleton(program), start, end, filter).get(program);
+  }
+
+  /**
+   * Fetch program-dataset access information for a set of programs for a given period. The records
+   * of all the programs are read with one multi-range scan per table.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of each of the given programs
+   */
+  public Map<ProgramId, Set<Relation>> getProgramRelations(Collection<ProgramId> programs,
+      long start, long end, Predicate<Relation> filter) throws IOException {
+    return getRelations(programs, filter, Relation::getProgram,
+        getProgramTable(), program -> Range.create(
+            getProgramScanStartKey(program, end), Range.Bound.INCLUSIVE,
+            getProgramScanEndKey(program, start), Range.Bound.INCLUSIVE));
   }
 
   /**
@@ -197,22 +238,51 @@ public class LineageTable {
     return builder.build();
   }
 
-  private Set<Relation> scanRelations(StructuredTable table, List<Field<?>> startKey,
-      List<Field<?>> endKey,
-      Predicate<Relation> filter) throws IOException {
-    ImmutableSet.Builder<Relation> builder = ImmutableSet.builder();
-    try (CloseableIterator<StructuredRow> iterator =
-        table.scan(Range.create(startKey, Range.Bound.INCLUSIVE, endKey, Range.Bound.INCLUSIVE),
-            Integer.MAX_VALUE)) {
-      while (iterator.hasNext()) {
-        StructuredRow row = iterator.next();
-        Relation relation = toRelation(row);
-        if (filter.test(relation)) {
-          builder.add(relation);
-        }
+  /**
+   * Reads the relations of a set of entities with multi-range scans.
+   *
+   * @param entities the datasets or programs to read the relations of
+   * @param keyFunction returns the entity that a relation belongs to
+   * @param table the table with the per-run records
+   * @param rangeFunction returns the range of per-run records of an entity in the time period
+   */
+  private <T extends EntityId> Map<T, Set<Relation>> getRelations(Collection<T> entities,
+      Predicate<Relation> filter, Function<Relation, EntityId> keyFunction,
+      StructuredTable table, Function<T, Range> rangeFunction) throws IOException {
+    List<Range> ranges = new ArrayList<>();
+    for (T entity : entities) {
+      ranges.add(rangeFunction.apply(entity));
+    }
+
+    Map<EntityId, ImmutableSet.Builder<Relation>> builders = new LinkedHashMap<>();
+    for (T entity : entities) {
+      builders.put(entity, ImmutableSet.builder());
+    }
+    Consumer<Relation> collector = relation -> {
+      ImmutableSet.Builder<Relation> builder = builders.get(keyFunction.apply(relation));
+      if (builder != null && filter.test(relation)) {
+        builder.add(relation);
+      }
+    };
+    multiScan(table, ranges, row -> collector.accept(toRelation(row)));
+
+    Map<T, Set<Relation>> result = new LinkedHashMap<>();
+    for (T entity : entities) {
+      result.put(entity, builders.get(entity).build());
+    }
+    return result;
+  }
+
+  /**
+   * Scans the given ranges of a table, in batches of at most {@link #MAX_SCAN_RANGES} ranges.
+   */
+  private void multiScan(StructuredTable table, List<Range> ranges,
+      Consumer<StructuredRow> consumer) throws IOException {
+    for (List<Range> batch : Lists.partition(ranges, MAX_SCAN_RANGES)) {
+      try (CloseableIterator<StructuredRow> iterator = table.multiScan(batch, Integer.MAX_VALUE)) {
+        iterator.forEachRemaining(consumer);
       }
     }
-    return builder.build();
   }
 
   private List<Field<?>> getDatasetKey(DatasetId datasetInstance, ProgramRunId run,
@@ -28,6 +28,9 @@ import io.cdap.cdap.api.lineage.field.Operation;
 import io.cdap.cdap.api.lineage.field.ReadOperation;
 import io.cdap.cdap.api.lineage.field.WriteOperation;
 import io.cdap.cdap.common.app.RunIds;
+import io.cdap.cdap.data2.metadata.lineage.LineageRollup;
+import io.cdap.cdap.data2.metadata.lineage.LineageRollup.Granularity;
+import io.cdap.cdap.data2.metadata.lineage.LineageRollup.Span;
 import io.cdap.cdap.proto.codec.OperationTypeAdapter;
 import io.cdap.cdap.proto.id.ProgramReference;
 import io.cdap.cdap.proto.id.ProgramRunId;
@@ -58,6 +61,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Dataset to store/retrieve field level lineage information.
+ *
+ * <p>The incoming and outgoing summaries of each endpoint field are also rolled up into day, week
+ * and month buckets, so that summaries over long time ranges can be read from a few buckets
+ * instead of the summaries of every checksum in the range. See {@link LineageRollup}.</p>
  */
 public class FieldLineageTable {
 
@@ -83,6 +90,8 @@ public class FieldLineageTable {
   private StructuredTable operationsTable;
   private StructuredTable destinationFieldsTable;
   private StructuredTable summaryFieldsTable;
+  private StructuredTable summaryRollupTable;
+  private StructuredTable summaryRollupStartTable;
 
   private FieldLineageTable(StructuredTableContext structuredTableContext) {
     this.structuredTableContext = structuredTableContext;
@@ -133,6 +142,23 @@ public class FieldLineageTable {
     return summaryFieldsTable;
   }
 
+  private StructuredTable getSummaryRollupTable() {
+    if (summaryRollupTable == null) {
+      summaryRollupTable =
+          structuredTableContext.getTable(StoreDefinition.FieldLineageStore.SUMMARY_ROLLUP_TABLE);
+    }
+    return summaryRollupTable;
+  }
+
+  private StructuredTable getSummaryRollupStartTable() {
+    if (summaryRollupStartTable == null) {
+      summaryRollupStartTable =
+          structuredTableContext.getTable(
+              StoreDefinition.FieldLineageStore.SUMMARY_ROLLUP_START_TABLE);
+    }
+    return summaryRollupStartTable;
+  }
+
   /**
    * Store the field lineage information.
    *
@@ -153,6 +179,20 @@ public class FieldLineageTable {
       addSummary(checksum, OUTGOING_DIRECTION_MARKER, info.getOutgoingSummary());
     }
 
+    // The rollup start times need to be updated before the reference records are written,
+    // since they are computed from the records that existed before.
+    long startTime = getStartTime(programRunId);
+    for (EndPoint destination : info.getDestinations()) {
+      updateRollupStart(INCOMING_DIRECTION_MARKER, destination, startTime);
+    }
+    for (EndPoint source : info.getSources()) {
+      updateRollupStart(OUTGOING_DIRECTION_MARKER, source, startTime);
+    }
+    addSummaryRollups(INCOMING_DIRECTION_MARKER, info.getDestinations(),
+        info.getIncomingSummary(), startTime);
+    addSummaryRollups(OUTGOING_DIRECTION_MARKER, info.getSources(), info.getOutgoingSummary(),
+        startTime);
+
     addFieldLineageInfoReferenceRecords(programRunId, info);
   }
 
@@ -162,6 +202,8 @@ public class FieldLineageTable {
     getDestinationFieldsTable().deleteAll(Range.all());
     getOperationsTable().deleteAll(Range.all());
     getSummaryFieldsTable().deleteAll(Range.all());
+    getSummaryRollupTable().deleteAll(Range.all());
+    getSummaryRollupStartTable().deleteAll(Range.all());
   }
 
   @Nullable
@@ -191,6 +233,92 @@ public class FieldLineageTable {
     }
   }
 
+  /**
+   * Adds the summary entries of the given endpoints to the day, week and month buckets of the
+   * given run start time. Only endpoints that have reference records are rolled up, since the
+   * summary of other endpoints cannot be read from the checksum records either.
+   */
+  private void addSummaryRollups(String direction, Set<EndPoint> endPoints,
+      Map<EndPointField, Set<EndPointField>> summary, long startTime) throws IOException {
+    Set<List<String>> names = new HashSet<>();
+    for (EndPoint endPoint : endPoints) {
+      names.add(ImmutableList.of(endPoint.getNamespace(), endPoint.getName()));
+    }
+    for (Map.Entry<EndPointField, Set<EndPointField>> entry : summary.entrySet()) {
+      EndPoint endPoint = entry.getKey().getEndPoint();
+      if (!names.contains(ImmutableList.of(endPoint.getNamespace(), endPoint.getName()))) {
+        continue;
+      }
+      for (Granularity granularity : Granularity.values()) {
+        for (EndPointField endPointField : entry.getValue()) {
+          List<Field<?>> fields = getSummaryRollupKey(direction, entry.getKey(), granularity,
+              granularity.getStart(startTime));
+          fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DESTINATION_DATA_FIELD,
+              GSON.toJson(endPointField)));
+          fields.add(Fields.longField(StoreDefinition.FieldLineageStore.START_TIME_FIELD,
+              startTime));
+          getSummaryRollupTable().upsert(fields);
+        }
+      }
+    }
+  }
+
+  private Set<EndPointField> readSummaryRollup(List<Field<?>> prefix) throws IOException {
+    Set<EndPointField> endPointFields = new HashSet<>();
+    try (CloseableIterator<StructuredRow> iterator =
+        getSummaryRollupTable().scan(Range.singleton(prefix), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        String value = iterator.next()
+            .getString(StoreDefinition.FieldLineageStore.DESTINATION_DATA_FIELD);
+        try {
+          endPointFields.add(GSON.fromJson(value, EndPointField.class));
+        } catch (JsonSyntaxException e) {
+          LOG.warn("Failed to parse json of summary rollup entry {} of {}.", value, prefix);
+        }
+      }
+    }
+    return endPointFields;
+  }
+
+  @Nullable
+  private Long getRollupStart(String direction, EndPoint endPoint) throws IOException {
+    Optional<StructuredRow> row =
+        getSummaryRollupStartTable().read(getRollupStartKey(direction, endPoint));
+    return row.map(r -> r.getLong(StoreDefinition.FieldLineageStore.ROLLUP_START_FIELD))
+        .orElse(null);
+  }
+
+  private void updateRollupStart(String direction, EndPoint endPoint, long startTime)
+      throws IOException {
+    Long rollupStart = getRollupStart(direction, endPoint);
+    if (rollupStart != null && startTime >= rollupStart) {
+      return;
+    }
+
+    // find the latest reference record before the current rollup start time
+    Long latestBefore = null;
+    List<Field<?>> scanStartKey = getScanKey(direction, endPoint,
+        rollupStart == null ? Long.MAX_VALUE : rollupStart);
+    List<Field<?>> scanEndKey = getScanKey(direction, endPoint, 0);
+    try (CloseableIterator<StructuredRow> iterator =
+        getEndpointChecksumTable().scan(
+            Range.create(scanStartKey, Range.Bound.INCLUSIVE, scanEndKey, Range.Bound.INCLUSIVE),
+            1)) {
+      if (iterator.hasNext()) {
+        latestBefore = invertTime(
+            iterator.next().getLong(StoreDefinition.FieldLineageStore.START_TIME_FIELD));
+      }
+    }
+
+    long newRollupStart = LineageRollup.getRollupStart(startTime, rollupStart, latestBefore);
+    if (rollupStart == null || newRollupStart < rollupStart) {
+      List<Field<?>> fields = getRollupStartKey(direction, endPoint);
+      fields.add(Fields.longField(StoreDefinition.FieldLineageStore.ROLLUP_START_FIELD,
+          newRollupStart));
+      getSummaryRollupStartTable().upsert(fields);
+    }
+  }
+
   /**
    * Add records referring to the common operation record having the given checksum. Operations
    * represent transformations from source endpoints to the destination endpoints. From source
@@ -336,6 +464,25 @@ public class FieldLineageTable {
   private Set<EndPointField> getSummary(String direction, EndPointField endPointField, long start,
       long end)
       throws IOException {
+    Long rollupStart = getRollupStart(direction, endPointField.getEndPoint());
+    List<Span> spans = LineageRollup.cover(start, end,
+        rollupStart == null ? Long.MAX_VALUE : rollupStart, System.currentTimeMillis());
+
+    Set<EndPointField> result = new HashSet<>();
+    for (Span span : spans) {
+      if (span.getGranularity() == null) {
+        result.addAll(getSummaryFromChecksums(direction, endPointField, span.getStart(),
+            span.getEnd()));
+      } else {
+        result.addAll(readSummaryRollup(getSummaryRollupKey(direction, endPointField,
+            span.getGranularity(), span.getStart())));
+      }
+    }
+    return result;
+  }
+
+  private Set<EndPointField> getSummaryFromChecksums(String direction, EndPointField endPointField,
+      long start, long end) throws IOException {
     Set<Long> checksums = getChecksumsWithProgramRunsInRange(direction, endPointField.getEndPoint(),
         start, end).keySet();
     Set<EndPointField> result = new HashSet<>();
@@ -495,9 +642,12 @@ public class FieldLineageTable {
     return Long.MAX_VALUE - time;
   }
 
+  private long getStartTime(ProgramRunId run) {
+    return RunIds.getTime(RunIds.fromString(run.getEntityName()), TimeUnit.MILLISECONDS);
+  }
+
   private long getInvertedStartTime(ProgramRunId run) {
-    return invertTime(
-        RunIds.getTime(RunIds.fromString(run.getEntityName()), TimeUnit.MILLISECONDS));
+    return invertTime(getStartTime(run));
   }
 
   private void addEndPoint(List<Field<?>> fields, EndPoint endPoint) {
@@ -518,6 +668,27 @@ public class FieldLineageTable {
     return fields;
   }
 
+  private List<Field<?>> getSummaryRollupKey(String direction, EndPointField endPointField,
+      Granularity granularity, long bucketStart) {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DIRECTION_FIELD, direction));
+    addEndPoint(fields, endPointField.getEndPoint());
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.GRANULARITY_FIELD,
+        granularity.getId()));
+    fields.add(Fields.longField(StoreDefinition.FieldLineageStore.BUCKET_START_FIELD,
+        bucketStart));
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.ENDPOINT_FIELD,
+        endPointField.getField()));
+    return fields;
+  }
+
+  private List<Field<?>> getRollupStartKey(String direction, EndPoint endPoint) {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DIRECTION_FIELD, direction));
+    addEndPoint(fields, endPoint);
+    return fields;
+  }
+
   private List<Field<?>> getOperationsKey(long checksum) {
     List<Field<?>> fields = new ArrayList<>();
     fields.add(Fields.longField(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD, checksum));
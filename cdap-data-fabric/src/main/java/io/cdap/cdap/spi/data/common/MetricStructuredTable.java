@@ -67,6 +67,25 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException, IOException {
+    try {
+      if (!emitTimeMetrics) {
+        structuredTable.multiUpsert(multiFields);
+      } else {
+        long curTime = System.nanoTime();
+        structuredTable.multiUpsert(multiFields);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multi.upsert.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multi.upsert.count", 1L);
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multi.upsert.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     try {
@@ -239,6 +258,12 @@ public class MetricStructuredTable implements StructuredTable {
     return multiScan(() -> structuredTable.multiScan(keyRanges, limit), "multi.scan.");
   }
 
+  @Override
+  public CloseableIterator<StructuredRow> multiScan(Collection<Range> keyRanges, int limit,
+      Collection<String> columns) throws InvalidFieldException, IOException {
+    return multiScan(() -> structuredTable.multiScan(keyRanges, limit, columns), "multi.scan.");
+  }
+
   @Override
   public boolean compareAndSwap(Collection<Field<?>> keys, Field<?> oldValue, Field<?> newValue)
       throws InvalidFieldException, IOException, IllegalArgumentException {
@@ -297,6 +322,25 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException, IOException {
+    try {
+      if (!emitTimeMetrics) {
+        structuredTable.multiDelete(multiKeys);
+      } else {
+        long curTime = System.nanoTime();
+        structuredTable.multiDelete(multiKeys);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multi.delete.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multi.delete.count", 1L);
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multi.delete.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     try {
@@ -339,6 +339,19 @@ public final class NoSqlStructuredTable implements StructuredTable {
     return new LimitIterator(filterIterator, limit);
   }
 
+  @Override
+  public CloseableIterator<StructuredRow> multiScan(Collection<Range> keyRanges, int limit,
+      Collection<String> columns) throws InvalidFieldException, IOException {
+    for (String column : columns) {
+      if (schema.getType(column) == null) {
+        throw new InvalidFieldException(schema.getTableId(), column);
+      }
+    }
+    // The columns are not projected in the Table scan, since it would skip the rows that have none
+    // of the columns. Column values are decoded only when they are read from the returned rows.
+    return multiScan(keyRanges, limit);
+  }
+
   /*
    * Merge the longest prefix ranges and scan one by one
    * */
@@ -479,7 +492,8 @@ public final class NoSqlStructuredTable implements StructuredTable {
     LOG.trace("Table {}: count with ranges {}", schema.getTableId(), keyRanges);
     long count = 0;
     // Instead of scanning ranges one by one, we call multiScan,
-    // which can deduplicate and sort the result
+    // which can deduplicate and sort the result.
+    // The rows are read from the Table, but only their keys are decoded.
     try (CloseableIterator<StructuredRow> iterator = multiScan(keyRanges, Integer.MAX_VALUE)) {
       while (iterator.hasNext()) {
         iterator.next();
@@ -129,6 +129,14 @@ public class PostgreSqlStorageProvider implements StorageProvider {
     ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(jdbcUrl, properties);
     PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(
         connectionFactory, null);
+    int statementCacheSize =
+        cConf.getInt(Constants.Dataset.DATA_STORAGE_SQL_STATEMENT_CACHE_SIZE);
+    if (statementCacheSize > 0) {
+      // Pool the prepared statements of each connection, keyed by the sql query.
+      // Closing a statement returns it to the pool of the connection it was created from.
+      poolableConnectionFactory.setPoolStatements(true);
+      poolableConnectionFactory.setMaxOpenPreparedStatements(statementCacheSize);
+    }
     // The GenericObjectPool is thread safe according to the javadoc,
     // the PoolingDataSource will be thread safe as long as the connectin pool is thread-safe
     GenericObjectPool<PoolableConnection> connectionPool = new GenericObjectPool<>(
@@ -33,20 +33,20 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -76,24 +76,24 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Write fields {}", tableSchema.getTableId(), fields);
-    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
-    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
-      throw new InvalidFieldException(tableSchema.getTableId(), fields,
-          String.format("Given fields %s do not contain all the "
-              + "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
-    }
+    checkPrimaryKeys(fields);
     upsertInternal(fields);
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple rows {}", tableSchema.getTableId(), multiFields);
+    for (Collection<Field<?>> fields : multiFields) {
+      checkPrimaryKeys(fields);
+    }
+    executeBatch(multiFields, fields -> getWriteSqlQuery(fields, null), "write to");
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Update fields {}", tableSchema.getTableId(), fields);
-    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
-    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
-      throw new InvalidFieldException(tableSchema.getTableId(), fields,
-          String.format("Given fields %s do not contain all the "
-              + "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
-    }
+    checkPrimaryKeys(fields);
     updateInternal(fields);
   }
 
@@ -133,8 +133,10 @@ public class PostgreSqlStructuredTable implements StructuredTable {
       LOG.trace("SQL statement: {}", statement);
       Collection<StructuredRow> result = new ArrayList<>();
       try (ResultSet resultSet = statement.executeQuery()) {
+        SqlStructuredRow.ColumnIndex columnIndex =
+            SqlStructuredRow.ColumnIndex.fromMetaData(resultSet.getMetaData());
         while (resultSet.next()) {
-          result.add(resultSetToRow(resultSet));
+          result.add(SqlStructuredRow.fromResultSet(tableSchema, columnIndex, resultSet));
         }
         return result;
       }
@@ -177,23 +179,6 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     return preparedStatement;
   }
 
-  /**
-   * Creates a {@link StructuredRow} from the given {@link ResultSet}.
-   *
-   * @param resultSet the result set containing query result of a row
-   * @return a {@link StructuredRow}
-   * @throws SQLException if failed to get row from the given {@link ResultSet}
-   */
-  private StructuredRow resultSetToRow(ResultSet resultSet) throws SQLException {
-    ResultSetMetaData metaData = resultSet.getMetaData();
-    int numCols = metaData.getColumnCount();
-    Map<String, Object> row = new HashMap<>();
-    for (int i = 1; i <= numCols; i++) {
-      row.put(metaData.getColumnName(i), resultSet.getObject(i));
-    }
-    return new SqlStructuredRow(tableSchema, row);
-  }
-
   @Override
   public CloseableIterator<StructuredRow> scan(Range keyRange, int limit)
       throws InvalidFieldException, IOException {
@@ -227,8 +212,14 @@ public class PostgreSqlStructuredTable implements StructuredTable {
   @Override
   public CloseableIterator<StructuredRow> multiScan(Collection<Range> keyRanges,
       int limit) throws InvalidFieldException, IOException {
-    LOG.trace("Table {}: MultiScan ranges {} with limit {}", tableSchema.getTableId(), keyRanges,
-        limit);
+    return multiScan(keyRanges, limit, null);
+  }
+
+  @Override
+  public CloseableIterator<StructuredRow> multiScan(Collection<Range> keyRanges, int limit,
+      @Nullable Collection<String> columns) throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: MultiScan ranges {} with limit {} and columns {}",
+        tableSchema.getTableId(), keyRanges, limit, columns);
 
     if (keyRanges.isEmpty()) {
       return CloseableIterator.empty();
@@ -251,13 +242,23 @@ public class PostgreSqlStructuredTable implements StructuredTable {
         rangeScans.add(range);
       }
     }
-    if (scanAll) {
-      return scan(Range.all(), limit);
+    Set<String> selectColumns = null;
+    if (columns != null) {
+      // always have the primary key fields included in the columns
+      selectColumns = new LinkedHashSet<>(tableSchema.getPrimaryKeys());
+      for (String column : columns) {
+        if (tableSchema.getType(column) == null) {
+          throw new InvalidFieldException(tableSchema.getTableId(), column);
+        }
+        selectColumns.add(column);
+      }
     }
 
     try {
       // Don't close the statement. Leave it to the ResultSetIterator.close() to close it.
-      PreparedStatement statement = prepareMultiScanQuery(singletonScans, rangeScans, limit);
+      PreparedStatement statement = scanAll
+          ? prepareScanAllQuery(limit, selectColumns)
+          : prepareMultiScanQuery(singletonScans, rangeScans, limit, selectColumns);
       LOG.trace("MultiScan SQL statement: {}", statement);
 
       ResultSet resultSet = statement.executeQuery();
@@ -279,14 +280,18 @@ public class PostgreSqlStructuredTable implements StructuredTable {
    * @param singletonRanges the list of singleton ranges to scan
    * @param ranges the list of ranges to scan
    * @param limit number of result
+   * @param columns the columns to select, or {@code null} to select all columns
    * @return a select query
    */
   private PreparedStatement prepareMultiScanQuery(Collection<Range> singletonRanges,
-      Collection<Range> ranges, int limit) throws SQLException {
+      Collection<Range> ranges, int limit, @Nullable Collection<String> columns)
+      throws SQLException {
     // TODO: CDAP-19734, refactor cases like
     //  (namespace >= 'default' and namespace <= 'default' and app >='a' and app <= 'b')
     //  to (namespace = 'default' and app >='a' and app <= 'b')
-    StringBuilder query = new StringBuilder("SELECT * FROM ")
+    StringBuilder query = new StringBuilder("SELECT ")
+        .append(columns == null ? "*" : Joiner.on(",").join(columns))
+        .append(" FROM ")
         .append(tableSchema.getTableId().getName()).append(" WHERE ");
 
     // Generates "(key1 = ? AND key2 = ?) OR (key1 = ? AND key2 = ?)..." clause
@@ -326,6 +331,24 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     return statement;
   }
 
+  /**
+   * Prepares a SELECT statement that scans the whole table, ordered by the primary keys.
+   *
+   * @param limit number of result
+   * @param columns the columns to select, or {@code null} to select all columns
+   * @return a prepared statement
+   */
+  private PreparedStatement prepareScanAllQuery(int limit, @Nullable Collection<String> columns)
+      throws SQLException {
+    String query = "SELECT " + (columns == null ? "*" : Joiner.on(",").join(columns))
+        + " FROM " + tableSchema.getTableId().getName()
+        + getOrderByClause(tableSchema.getPrimaryKeys())
+        + " LIMIT " + limit + ";";
+    PreparedStatement statement = connection.prepareStatement(query);
+    statement.setFetchSize(fetchSize);
+    return statement;
+  }
+
   @Override
   public CloseableIterator<StructuredRow> scan(Field<?> index)
       throws InvalidFieldException, IOException {
@@ -543,6 +566,16 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete multiple rows with keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+    executeBatch(multiKeys, this::getDeleteQuery, "delete from");
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
@@ -603,6 +636,20 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Checks that the given fields contain all the primary keys of the table.
+   *
+   * @throws InvalidFieldException if any of the primary keys is missing
+   */
+  private void checkPrimaryKeys(Collection<Field<?>> fields) throws InvalidFieldException {
+    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+      throw new InvalidFieldException(tableSchema.getTableId(), fields,
+          String.format("Given fields %s do not contain all the "
+              + "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+    }
+  }
+
   private void upsertInternal(Collection<Field<?>> fields) throws IOException {
     String sqlQuery = getWriteSqlQuery(fields, null);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
@@ -619,6 +666,49 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Executes a statement for each of the given rows with JDBC batching. Consecutive rows that
+   * produce the same SQL are sent to the database in one batch, so that the order of the writes is
+   * preserved.
+   *
+   * @param rows the fields of each row, which are set into the statement in order
+   * @param sqlFunction the function to create the SQL for a row
+   * @param operation the name of the operation, for the error message
+   */
+  private void executeBatch(Collection<? extends Collection<Field<?>>> rows,
+      Function<Collection<Field<?>>, String> sqlFunction, String operation) throws IOException {
+    PreparedStatement statement = null;
+    String batchSql = null;
+    try {
+      try {
+        for (Collection<Field<?>> fields : rows) {
+          String sql = sqlFunction.apply(fields);
+          if (!sql.equals(batchSql)) {
+            if (statement != null) {
+              statement.executeBatch();
+              statement.close();
+            }
+            statement = connection.prepareStatement(sql);
+            batchSql = sql;
+          }
+          setFields(statement, fields, 1);
+          LOG.trace("SQL statement: {}", statement);
+          statement.addBatch();
+        }
+        if (statement != null) {
+          statement.executeBatch();
+        }
+      } finally {
+        if (statement != null) {
+          statement.close();
+        }
+      }
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to %s table %s with %d rows", operation,
+          tableSchema.getTableId().getName(), rows.size()), e);
+    }
+  }
+
   private void updateRangeInternal(Range keyRange, Collection<Field<?>> fields) throws IOException {
     String sqlQuery = getUpdateRangeSqlQuery(keyRange, fields);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
@@ -688,7 +778,9 @@ public class PostgreSqlStructuredTable implements StructuredTable {
         if (!resultSet.next()) {
           return Optional.empty();
         }
-        return Optional.of(resultSetToRow(resultSet));
+        return Optional.of(SqlStructuredRow.fromResultSet(
+            tableSchema, SqlStructuredRow.ColumnIndex.fromMetaData(resultSet.getMetaData()),
+            resultSet));
       }
     } catch (SQLException e) {
       throw new IOException(String.format("Failed to read from table %s with keys %s",
@@ -1066,7 +1158,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
 
     private final Statement statement;
     private final ResultSet resultSet;
-    private final Set<String> columnNames;
+    private final SqlStructuredRow.ColumnIndex columnIndex;
     private final StructuredTableSchema schema;
 
 
@@ -1074,7 +1166,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
         throws SQLException {
       this.statement = statement;
       this.resultSet = resultSet;
-      this.columnNames = createColNames(resultSet.getMetaData());
+      this.columnIndex = SqlStructuredRow.ColumnIndex.fromMetaData(resultSet.getMetaData());
       this.schema = schema;
     }
 
@@ -1084,12 +1176,7 @@ public class PostgreSqlStructuredTable implements StructuredTable {
         if (!resultSet.next()) {
           return endOfData();
         }
-
-        Map<String, Object> row = new HashMap<>();
-        for (String colName : columnNames) {
-          row.put(colName, resultSet.getObject(colName));
-        }
-        return new SqlStructuredRow(schema, row);
+        return SqlStructuredRow.fromResultSet(schema, columnIndex, resultSet);
       } catch (SQLException e) {
         throw new RuntimeException("Failed to get the next value from the sql result set", e);
       }
@@ -1098,20 +1185,11 @@ public class PostgreSqlStructuredTable implements StructuredTable {
     @Override
     public void close() {
       try {
-        statement.close();
         resultSet.close();
+        statement.close();
       } catch (SQLException e) {
         LOG.warn("Failed to close the result set", e);
       }
     }
-
-    private static Set<String> createColNames(ResultSetMetaData metaData) throws SQLException {
-      Set<String> columns = new HashSet<>();
-      int numCols = metaData.getColumnCount();
-      for (int i = 1; i <= numCols; i++) {
-        columns.add(metaData.getColumnName(i));
-      }
-      return columns;
-    }
   }
 }
@@ -22,6 +22,9 @@ import io.cdap.cdap.spi.data.table.StructuredTableSchema;
 import io.cdap.cdap.spi.data.table.field.Field;
 import io.cdap.cdap.spi.data.table.field.FieldType;
 import io.cdap.cdap.spi.data.table.field.Fields;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,72 +37,115 @@ import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
- * The SqlStructuredRow represents one row in the sql table.
+ * The SqlStructuredRow represents one row in the sql table. Column values are stored in an array
+ * and looked up through a {@link ColumnIndex}, which is shared by all rows of the same result set.
  */
 public class SqlStructuredRow implements StructuredRow {
 
-  private final Map<String, Object> columns;
-  private final Collection<Field<?>> keys;
+  private final ColumnIndex columnIndex;
+  private final Object[] values;
   private final StructuredTableSchema tableSchema;
+  private volatile Collection<Field<?>> keys;
 
   public SqlStructuredRow(StructuredTableSchema tableSchema, Map<String, Object> columns) {
     this.tableSchema = tableSchema;
-    this.columns = Collections.unmodifiableMap(new HashMap<>(columns));
-    this.keys = extractKeys();
+    this.columnIndex = new ColumnIndex(new ArrayList<>(columns.keySet()));
+    this.values = new Object[columnIndex.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = columns.get(columnIndex.names.get(i));
+    }
+  }
+
+  private SqlStructuredRow(StructuredTableSchema tableSchema, ColumnIndex columnIndex,
+      Object[] values) {
+    this.tableSchema = tableSchema;
+    this.columnIndex = columnIndex;
+    this.values = values;
+  }
+
+  /**
+   * Creates a {@link SqlStructuredRow} from the current row of the given {@link ResultSet}. The
+   * column values are read by index, hence no column name resolution is done per row.
+   *
+   * @param tableSchema the schema of the table
+   * @param columnIndex the {@link ColumnIndex} created from the metadata of the result set
+   * @param resultSet the result set positioned at the row to read
+   * @return a new {@link SqlStructuredRow}
+   * @throws SQLException if failed to read the column values
+   */
+  static SqlStructuredRow fromResultSet(StructuredTableSchema tableSchema, ColumnIndex columnIndex,
+      ResultSet resultSet) throws SQLException {
+    Object[] values = new Object[columnIndex.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = resultSet.getObject(i + 1);
+    }
+    return new SqlStructuredRow(tableSchema, columnIndex, values);
   }
 
   @Nullable
   @Override
   public Integer getInteger(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.INTEGER));
-    return (Integer) columns.get(fieldName);
+    return (Integer) getValue(fieldName);
   }
 
   @Nullable
   @Override
   public Long getLong(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.INTEGER, FieldType.Type.LONG));
-    return (Long) columns.get(fieldName);
+    return (Long) getValue(fieldName);
   }
 
   @Nullable
   @Override
   public Boolean getBoolean(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.BOOLEAN));
-    return (Boolean) columns.get(fieldName);
+    return (Boolean) getValue(fieldName);
   }
 
   @Nullable
   @Override
   public String getString(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.STRING));
-    return (String) columns.get(fieldName);
+    return (String) getValue(fieldName);
   }
 
   @Nullable
   @Override
   public Float getFloat(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.FLOAT));
-    return (Float) columns.get(fieldName);
+    return (Float) getValue(fieldName);
   }
 
   @Nullable
   @Override
   public Double getDouble(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.FLOAT, FieldType.Type.DOUBLE));
-    return (Double) columns.get(fieldName);
+    return (Double) getValue(fieldName);
   }
 
   @Nullable
   @Override
   public byte[] getBytes(String fieldName) throws InvalidFieldException {
     validateField(fieldName, EnumSet.of(FieldType.Type.BYTES));
-    return (byte[]) columns.get(fieldName);
+    return (byte[]) getValue(fieldName);
   }
 
   @Override
   public Collection<Field<?>> getPrimaryKeys() {
-    return keys;
+    // The keys are only extracted on demand since most readers only access the column values
+    Collection<Field<?>> result = keys;
+    if (result == null) {
+      result = Collections.unmodifiableList(extractKeys());
+      keys = result;
+    }
+    return result;
+  }
+
+  @Nullable
+  private Object getValue(String fieldName) {
+    int index = columnIndex.indexOf(fieldName);
+    return index < 0 ? null : values[index];
   }
 
   private List<Field<?>> extractKeys() {
@@ -109,16 +155,16 @@ public class SqlStructuredRow implements StructuredRow {
       FieldType.Type type = tableSchema.getType(key);
       switch (Objects.requireNonNull(type)) {
         case INTEGER:
-          result.add(Fields.intField(key, (int) columns.get(key)));
+          result.add(Fields.intField(key, (int) getValue(key)));
           break;
         case LONG:
-          result.add(Fields.longField(key, (long) columns.get(key)));
+          result.add(Fields.longField(key, (long) getValue(key)));
           break;
         case STRING:
-          result.add(Fields.stringField(key, (String) columns.get(key)));
+          result.add(Fields.stringField(key, (String) getValue(key)));
           break;
         case BYTES:
-          result.add(Fields.bytesField(key, (byte[]) columns.get(key)));
+          result.add(Fields.bytesField(key, (byte[]) getValue(key)));
           break;
         default:
           // this should never happen since all the keys are from the table schema and should never contain other types
@@ -137,4 +183,43 @@ public class SqlStructuredRow implements StructuredRow {
       throw new InvalidFieldException(tableSchema.getTableId(), fieldName);
     }
   }
+
+  /**
+   * Maps column names to their positions in a row. It is created once per {@link ResultSet} and
+   * shared by all rows created from it.
+   */
+  static final class ColumnIndex {
+
+    private final List<String> names;
+    private final Map<String, Integer> indexes;
+
+    private ColumnIndex(List<String> names) {
+      this.names = names;
+      this.indexes = new HashMap<>();
+      for (int i = 0; i < names.size(); i++) {
+        indexes.put(names.get(i), i);
+      }
+    }
+
+    /**
+     * Creates a {@link ColumnIndex} from the given {@link ResultSetMetaData}.
+     */
+    static ColumnIndex fromMetaData(ResultSetMetaData metaData) throws SQLException {
+      int numCols = metaData.getColumnCount();
+      List<String> names = new ArrayList<>(numCols);
+      for (int i = 1; i <= numCols; i++) {
+        names.add(metaData.getColumnName(i));
+      }
+      return new ColumnIndex(names);
+    }
+
+    int size() {
+      return names.size();
+    }
+
+    int indexOf(String name) {
+      Integer index = indexes.get(name);
+      return index == null ? -1 : index;
+    }
+  }
 }
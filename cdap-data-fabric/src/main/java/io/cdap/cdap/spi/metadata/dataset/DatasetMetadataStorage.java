@@ -30,6 +30,7 @@ import com.google.inject.name.Named;
 import io.cdap.cdap.api.dataset.DatasetDefinition;
 import io.cdap.cdap.api.metadata.MetadataEntity;
 import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.metadata.Cursor;
 import io.cdap.cdap.common.utils.ImmutablePair;
@@ -69,9 +70,9 @@ import org.apache.tephra.TransactionSystemClient;
 public class DatasetMetadataStorage extends SearchHelper implements MetadataStorage {
 
   @Inject
-  DatasetMetadataStorage(TransactionSystemClient txClient,
+  DatasetMetadataStorage(CConfiguration cConf, TransactionSystemClient txClient,
       @Named(Constants.Dataset.TABLE_TYPE) DatasetDefinition tableDefinition) {
-    super(txClient, tableDefinition);
+    super(cConf, txClient, tableDefinition);
   }
 
   @Override
@@ -525,11 +526,6 @@ public class DatasetMetadataStorage extends SearchHelper implements MetadataStor
             .putAll(other.getProperties()).build());
   }
 
-  @Override
-  public void close() {
-    // nop-op
-  }
-
   /**
    * Helper class to represent adjustments made to the search request parameters before delegating
    * to the MetadataDataset, based on whether the request has a cursor and whether it requests a
@@ -38,6 +38,7 @@ import io.cdap.cdap.api.dataset.lib.IndexedTableDefinition;
 import io.cdap.cdap.api.metadata.Metadata;
 import io.cdap.cdap.api.metadata.MetadataEntity;
 import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.data2.metadata.dataset.MetadataDataset;
 import io.cdap.cdap.data2.metadata.dataset.MetadataDatasetDefinition;
@@ -51,7 +52,9 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.metadata.MetadataSearchResponse;
 import io.cdap.cdap.proto.metadata.MetadataSearchResultRecord;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -60,13 +63,22 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.tephra.RetryStrategies;
 import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.TransactionSystemClient;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -85,16 +97,16 @@ public class SearchHelper {
   private static final DatasetContext SYSTEM_CONTEXT = DatasetContext.from(
       NamespaceId.SYSTEM.getNamespace());
 
-  private static final Comparator<Map.Entry<MetadataEntity, Integer>> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
-      // sort in descending order
-      (o1, o2) -> o2.getValue() - o1.getValue();
+  // separates the score and the encoded entity in a cursor of a weighted search
+  private static final char WEIGHTED_CURSOR_SEPARATOR = '.';
 
   private final DatasetDefinition<MetadataDataset, DatasetAdmin> metaDatasetDefinition;
   private final Map<String, DatasetSpecification> datasetSpecs;
+  private final ExecutorService searchExecutor;
   protected final Transactional transactional;
 
   @Inject
-  public SearchHelper(TransactionSystemClient txClient,
+  public SearchHelper(CConfiguration cConf, TransactionSystemClient txClient,
       @Named(Constants.Dataset.TABLE_TYPE) DatasetDefinition tableDefinition) {
     //noinspection unchecked
     this.metaDatasetDefinition = new MetadataDatasetDefinition(MetadataDataset.TYPE,
@@ -105,6 +117,19 @@ public class SearchHelper {
         MetadataScope.USER.name(), createDatasetSpec(metaDatasetDefinition, USER));
     this.transactional = Transactions.createTransactionalWithRetry(
         createTransactional(txClient), RetryStrategies.retryOnConflict(20, 100));
+    int parallelism = Math.max(1, cConf.getInt(Constants.Metadata.SEARCH_PARALLELISM));
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        Threads.createDaemonThreadFactory("metadata-search-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.searchExecutor = executor;
+  }
+
+  /**
+   * Stops the threads that run the parallel searches. Searches that are in progress are completed.
+   */
+  public void close() {
+    searchExecutor.shutdown();
   }
 
   void createDatasets() throws IOException {
@@ -283,6 +308,10 @@ public class SearchHelper {
   }
 
   private MetadataSearchResponse search(Set<MetadataScope> scopes, SearchRequest request) {
+    if (SortInfo.DEFAULT.equals(request.getSortInfo())) {
+      return searchWeighted(scopes, request);
+    }
+
     List<MetadataEntry> results = new LinkedList<>();
     List<String> cursors = new LinkedList<>();
     for (MetadataScope scope : scopes) {
@@ -291,27 +320,144 @@ public class SearchHelper {
       cursors.addAll(searchResults.getCursors());
     }
 
+    // the backing storage is expected to return results in the expected order
+    Set<MetadataEntity> sortedEntities = new LinkedHashSet<>(results.size());
+    for (MetadataEntry metadataEntry : results) {
+      sortedEntities.add(metadataEntry.getMetadataEntity());
+    }
+
+    // pagination is not performed at the dataset level, because we need to remove elements from the
+    // beginning to the offset and the cursors at the end
+    // TODO: Figure out how all of this can be done server (HBase) side
+    return createResponse(request, ImmutableList.copyOf(sortedEntities), sortedEntities.size(),
+        cursors);
+  }
+
+  /**
+   * Performs a search with {@link SortInfo#DEFAULT} sorting, which ranks entities by the number of
+   * index entries that match the search terms. The index scans of each search term and scope are
+   * independent, hence they are run concurrently, each in its own transaction. Only the top ranked
+   * entities that are needed for the requested page and cursors are kept in a bounded heap.
+   *
+   * Entities with the same score are ranked by their string representation, so that the ranking is
+   * deterministic. A cursor of a weighted search encodes the score and the entity of the first
+   * entity of a page. A search with a cursor returns entities ranked at or after the cursor.
+   */
+  private MetadataSearchResponse searchWeighted(Set<MetadataScope> scopes, SearchRequest request) {
+    List<Callable<Map<MetadataEntity, Integer>>> tasks = new ArrayList<>();
+    for (MetadataScope scope : scopes) {
+      for (String term : MetadataDataset.splitQuery(request.getQuery())) {
+        SearchRequest termRequest = new SearchRequest(request.getNamespaceId().orElse(null), term,
+            request.getTypes(), request.getSortInfo(), request.getOffset(), request.getLimit(),
+            request.getNumCursors(), request.getCursor(), request.shouldShowHidden(),
+            request.getEntityScopes());
+        tasks.add(() -> execute(context -> {
+          Map<MetadataEntity, Integer> scores = new HashMap<>();
+          context.getDataset(scope).scoreByDefaultIndex(termRequest, scores);
+          return scores;
+        }));
+      }
+    }
+
+    // Merge the scores of all the terms
+    Map<MetadataEntity, Integer> scores = new HashMap<>();
+    for (Map<MetadataEntity, Integer> termScores : executeAll(tasks)) {
+      if (scores.isEmpty()) {
+        scores = termScores;
+        continue;
+      }
+      for (Map.Entry<MetadataEntity, Integer> entry : termScores.entrySet()) {
+        scores.merge(entry.getKey(), entry.getValue(), Integer::sum);
+      }
+    }
+
+    int offset = request.getOffset();
+    int limit = request.getLimit();
+    int numCursors = limit == 0 ? 0 : request.getNumCursors();
+    // Keep the entities needed for the requested page and the pages of the cursors
+    int topSize = (int) Math.min(offset + (numCursors + 1) * (long) limit, Integer.MAX_VALUE);
+    ScoredEntity cursor = request.getCursor() == null || request.getCursor().isEmpty()
+        ? null : ScoredEntity.fromCursor(request.getCursor());
+
+    // The head of the heap is the lowest ranked entity among the top entities
+    PriorityQueue<ScoredEntity> topEntities = new PriorityQueue<>(
+        Math.max(1, Math.min(topSize, scores.size())), Comparator.reverseOrder());
+    int total = 0;
+    for (Map.Entry<MetadataEntity, Integer> entry : scores.entrySet()) {
+      ScoredEntity scored = new ScoredEntity(entry.getKey(), entry.getValue());
+      if (cursor != null && scored.compareTo(cursor) < 0) {
+        continue;
+      }
+      total++;
+      if (topEntities.size() < topSize) {
+        topEntities.add(scored);
+      } else if (topSize > 0 && scored.compareTo(topEntities.peek()) < 0) {
+        topEntities.poll();
+        topEntities.add(scored);
+      }
+    }
+
+    List<ScoredEntity> ranked = new ArrayList<>(topEntities);
+    Collections.sort(ranked);
+
+    // A cursor is the first entity of each page after the requested page
+    List<String> cursors = new ArrayList<>(numCursors);
+    for (int i = 1; i <= numCursors; i++) {
+      long index = offset + (long) i * limit;
+      if (index >= ranked.size()) {
+        break;
+      }
+      cursors.add(ranked.get((int) index).toCursor());
+    }
+
+    List<MetadataEntity> rankedEntities = new ArrayList<>(ranked.size());
+    for (ScoredEntity scored : ranked) {
+      rankedEntities.add(scored.getEntity());
+    }
+    return createResponse(request, rankedEntities, total, cursors);
+  }
+
+  /**
+   * Executes the given tasks using the search executor, or in the current thread if there is only
+   * one task, and returns their results.
+   */
+  private <T> List<T> executeAll(List<Callable<T>> tasks) {
+    try {
+      if (tasks.size() == 1) {
+        return Collections.singletonList(tasks.get(0).call());
+      }
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : searchExecutor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Creates the search response for the given sorted entities, which starts from the offset of the
+   * request.
+   */
+  private MetadataSearchResponse createResponse(SearchRequest request,
+      List<MetadataEntity> sortedEntities, int total, List<String> cursors) {
     int offset = request.getOffset();
     int limit = request.getLimit();
     SortInfo sortInfo = request.getSortInfo();
-    // sort if required
-    Set<MetadataEntity> sortedEntities = getSortedEntities(results, sortInfo);
-    int total = sortedEntities.size();
-
-    // pagination is not performed at the dataset level, because:
-    // 1. scoring is needed for DEFAULT sort info. So perform it here for now.
-    // 2. Even when using custom sorting, we need to remove elements from the beginning to the offset and the cursors
-    //    at the end
-    // TODO: Figure out how all of this can be done server (HBase) side
-    int startIndex = Math.min(request.getOffset(), sortedEntities.size());
+
+    int startIndex = Math.min(offset, sortedEntities.size());
     // Account for overflow
     int endIndex = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
     endIndex = Math.min(endIndex, sortedEntities.size());
 
-    // add 1 to maxIndex because end index is exclusive
     Set<MetadataEntity> subSortedEntities = new LinkedHashSet<>(
-        ImmutableList.copyOf(sortedEntities).subList(startIndex, endIndex)
-    );
+        sortedEntities.subList(startIndex, endIndex));
 
     // Fetch metadata for entities in the result list
     // Note: since the fetch is happening in a different transaction, the metadata for entities may have been
@@ -327,35 +473,6 @@ public class SearchHelper {
         finalResults, cursors, request.shouldShowHidden(), request.getEntityScopes());
   }
 
-  private Set<MetadataEntity> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
-    // if sort order is not weighted, return entities in the order received.
-    // in this case, the backing storage is expected to return results in the expected order.
-    if (SortInfo.SortOrder.WEIGHTED != sortInfo.getSortOrder()) {
-      Set<MetadataEntity> entities = new LinkedHashSet<>(results.size());
-      for (MetadataEntry metadataEntry : results) {
-        entities.add(metadataEntry.getMetadataEntity());
-      }
-      return entities;
-    }
-    // if sort order is weighted, score results by weight, and return in descending order of weights
-    // Score results
-    final Map<MetadataEntity, Integer> weightedResults = new HashMap<>();
-    for (MetadataEntry metadataEntry : results) {
-      weightedResults.put(metadataEntry.getMetadataEntity(),
-          weightedResults.getOrDefault(metadataEntry.getMetadataEntity(), 0) + 1);
-    }
-
-    // Sort the results by score
-    List<Map.Entry<MetadataEntity, Integer>> resultList = new ArrayList<>(
-        weightedResults.entrySet());
-    resultList.sort(SEARCH_RESULT_DESC_SCORE_COMPARATOR);
-    Set<MetadataEntity> result = new LinkedHashSet<>(resultList.size());
-    for (Map.Entry<MetadataEntity, Integer> entry : resultList) {
-      result.add(entry.getKey());
-    }
-    return result;
-  }
-
   private Map<MetadataEntity, MetadataDataset.Record> fetchMetadata(MetadataDataset mds,
       final Set<MetadataEntity> metadataEntities) {
     Set<MetadataDataset.Record> metadataSet = mds.getMetadata(metadataEntities);
@@ -390,4 +507,63 @@ public class SearchHelper {
     }
     return result;
   }
+
+  /**
+   * A {@link MetadataEntity} with its search score. The natural ordering is the ranking order, which
+   * is descending by score, then ascending by the string representation of the entity.
+   */
+  private static final class ScoredEntity implements Comparable<ScoredEntity> {
+
+    private final MetadataEntity entity;
+    private final int score;
+    private String key;
+
+    ScoredEntity(@Nullable MetadataEntity entity, int score) {
+      this.entity = entity;
+      this.score = score;
+    }
+
+    private ScoredEntity(int score, String key) {
+      this(null, score);
+      this.key = key;
+    }
+
+    static ScoredEntity fromCursor(String cursor) {
+      int idx = cursor.indexOf(WEIGHTED_CURSOR_SEPARATOR);
+      if (idx < 0) {
+        throw new IllegalArgumentException("Invalid cursor for weighted search: " + cursor);
+      }
+      try {
+        return new ScoredEntity(Integer.parseInt(cursor.substring(0, idx)),
+            new String(Base64.getUrlDecoder().decode(cursor.substring(idx + 1)),
+                StandardCharsets.UTF_8));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor for weighted search: " + cursor, e);
+      }
+    }
+
+    MetadataEntity getEntity() {
+      return entity;
+    }
+
+    String toCursor() {
+      // The cursor must not contain ':', which is used as separator in the cursor of the response
+      return score + String.valueOf(WEIGHTED_CURSOR_SEPARATOR)
+          + Base64.getUrlEncoder().encodeToString(getKey().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String getKey() {
+      // Only computed when needed to break a tie in score
+      if (key == null) {
+        key = entity.toString();
+      }
+      return key;
+    }
+
+    @Override
+    public int compareTo(ScoredEntity other) {
+      int cmp = Integer.compare(other.score, score);
+      return cmp != 0 ? cmp : getKey().compareTo(other.getKey());
+    }
+  }
 }
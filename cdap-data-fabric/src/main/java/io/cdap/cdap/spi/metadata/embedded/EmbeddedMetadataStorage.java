@@ -0,0 +1,628 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.metadata.embedded;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import io.cdap.cdap.api.metadata.MetadataEntity;
+import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.metadata.Cursor;
+import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.MetadataChange;
+import io.cdap.cdap.spi.metadata.MetadataConstants;
+import io.cdap.cdap.spi.metadata.MetadataDirective;
+import io.cdap.cdap.spi.metadata.MetadataKind;
+import io.cdap.cdap.spi.metadata.MetadataMutation;
+import io.cdap.cdap.spi.metadata.MetadataRecord;
+import io.cdap.cdap.spi.metadata.MetadataStorage;
+import io.cdap.cdap.spi.metadata.MutationOptions;
+import io.cdap.cdap.spi.metadata.Read;
+import io.cdap.cdap.spi.metadata.ScopedName;
+import io.cdap.cdap.spi.metadata.ScopedNameOfKind;
+import io.cdap.cdap.spi.metadata.SearchRequest;
+import io.cdap.cdap.spi.metadata.SearchResponse;
+import io.cdap.cdap.spi.metadata.Sorting;
+import io.cdap.cdap.spi.metadata.embedded.InvertedIndex.LiveSegment;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the Metadata SPI that is backed by a local, on-disk inverted index. It is
+ * meant for deployments that run in a single process, where neither Elasticsearch nor the
+ * dataset-based implementation are desirable.
+ *
+ * The indexed documents and the supported queries follow the Elasticsearch implementation. All
+ * mutations are serialized, hence there are never conflicts between concurrent mutations. Searches
+ * run without locking on a snapshot of the index. Cursors do not hold any state: a cursor
+ * remembers the sort key of the last result returned, and the next page starts after that key.
+ */
+public class EmbeddedMetadataStorage implements MetadataStorage {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EmbeddedMetadataStorage.class);
+
+  private static final boolean KEEP = true;
+  private static final boolean DISCARD = false;
+
+  private static final Pattern SPACE_SEPARATOR_PATTERN = Pattern.compile("\\s+");
+  private static final String SUPPORTED_SORT_KEYS = String.join(", ",
+      MetadataConstants.ENTITY_NAME_KEY, MetadataConstants.CREATION_TIME_KEY);
+
+  private final InvertedIndex index;
+  private final Object mutationLock = new Object();
+  private volatile boolean opened;
+
+  @Inject
+  EmbeddedMetadataStorage(CConfiguration cConf) {
+    this(new File(cConf.get(Constants.Metadata.STORAGE_EMBEDDED_DIR)),
+        cConf.getInt(Constants.Metadata.STORAGE_EMBEDDED_MERGE_FACTOR),
+        cConf.getInt(Constants.Metadata.STORAGE_EMBEDDED_FLUSH_SIZE));
+  }
+
+  @VisibleForTesting
+  EmbeddedMetadataStorage(File dir, int mergeFactor, int flushSize) {
+    this.index = new InvertedIndex(dir, mergeFactor, flushSize);
+  }
+
+  @Override
+  public void createIndex() throws IOException {
+    ensureOpen();
+  }
+
+  @Override
+  public void dropIndex() throws IOException {
+    synchronized (mutationLock) {
+      opened = false;
+      index.drop();
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (mutationLock) {
+      opened = false;
+      try {
+        // commit the changes of asynchronous mutations, so that the log need not be replayed
+        index.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to commit the metadata index when closing", e);
+      }
+    }
+  }
+
+  @Override
+  public MetadataChange apply(MetadataMutation mutation, MutationOptions options)
+      throws IOException {
+    return batch(Collections.singletonList(mutation), options).get(0);
+  }
+
+  @Override
+  public List<MetadataChange> batch(List<? extends MetadataMutation> mutations,
+      MutationOptions options) throws IOException {
+    if (mutations.isEmpty()) {
+      return Collections.emptyList();
+    }
+    ensureOpen();
+    synchronized (mutationLock) {
+      // the metadata after each mutation, by document id. Null means the entity was dropped.
+      // This makes sure that multiple mutations of the same entity are applied in sequence.
+      Map<String, Metadata> pending = new LinkedHashMap<>();
+      Map<String, MetadataEntity> entities = new HashMap<>();
+      List<MetadataChange> changes = new ArrayList<>(mutations.size());
+      for (MetadataMutation mutation : mutations) {
+        String id = IndexDocument.toDocumentId(mutation.getEntity());
+        Metadata before = pending.containsKey(id) ? pending.get(id) : readFromIndex(id);
+        MetadataChange change = applyMutation(before, mutation);
+        boolean dropped = mutation.getType() == MetadataMutation.Type.DROP;
+        pending.put(id, dropped ? null : change.getAfter());
+        entities.put(id, mutation.getEntity());
+        changes.add(change);
+      }
+      List<IndexDocument> documents = new ArrayList<>(pending.size());
+      for (Map.Entry<String, Metadata> entry : pending.entrySet()) {
+        if (entry.getValue() != null) {
+          documents.add(IndexDocument.of(entities.get(entry.getKey()), entry.getValue()));
+        }
+      }
+      index.update(pending.keySet(), documents, !options.isAsynchronous());
+      return changes;
+    }
+  }
+
+  @Override
+  public Metadata read(Read read) throws IOException {
+    ensureOpen();
+    Metadata metadata = readFromIndex(IndexDocument.toDocumentId(read.getEntity()));
+    return filterMetadata(metadata == null ? Metadata.EMPTY : metadata, KEEP,
+        read.getKinds(), read.getScopes(), read.getSelection());
+  }
+
+  @Override
+  public SearchResponse search(SearchRequest request) throws IOException {
+    ensureOpen();
+    if (request.getCursor() == null || request.getCursor().isEmpty()) {
+      return doSearch(request, request, null, request.getOffset(), request.getLimit());
+    }
+    // the cursor determines the query, offset and page size
+    Cursor cursor = Cursor.fromString(request.getCursor());
+    return doSearch(request, createRequestFromCursor(request, cursor), cursor, cursor.getOffset(),
+        cursor.getLimit());
+  }
+
+  private void ensureOpen() throws IOException {
+    if (!opened) {
+      index.open();
+      opened = true;
+    }
+  }
+
+  /**
+   * Applies a mutation to the existing metadata of an entity.
+   *
+   * @param before the existing metadata, or null if the entity does not exist
+   * @return the change caused by the mutation
+   */
+  private MetadataChange applyMutation(@Nullable Metadata before, MetadataMutation mutation) {
+    LOG.trace("Applying mutation {} to entity {} with metadata {}",
+        mutation, mutation.getEntity(), before);
+    MetadataEntity entity = mutation.getEntity();
+    Metadata existing = before == null ? Metadata.EMPTY : before;
+    switch (mutation.getType()) {
+      case CREATE:
+        MetadataMutation.Create create = (MetadataMutation.Create) mutation;
+        // if the entity did not exist before, none of the directives apply
+        Metadata created = before == null ? update(existing, create.getMetadata())
+            : create(existing, create);
+        return new MetadataChange(entity, existing, created);
+      case DROP:
+        return new MetadataChange(entity, existing, Metadata.EMPTY);
+      case UPDATE:
+        return new MetadataChange(entity, existing,
+            update(existing, ((MetadataMutation.Update) mutation).getUpdates()));
+      case REMOVE:
+        MetadataMutation.Remove remove = (MetadataMutation.Remove) mutation;
+        return new MetadataChange(entity, existing, filterMetadata(existing, DISCARD,
+            remove.getKinds(), remove.getScopes(), remove.getRemovals()));
+      default:
+        throw new IllegalStateException(
+            String.format("Unknown mutation type '%s' for %s", mutation.getType(), mutation));
+    }
+  }
+
+  /**
+   * Computes the metadata after an entity creation. See {@link MetadataMutation.Create} for
+   * detailed semantics.
+   */
+  private static Metadata create(Metadata before, MetadataMutation.Create create) {
+    Metadata meta = create.getMetadata();
+    Map<ScopedNameOfKind, MetadataDirective> directives = create.getDirectives();
+    // determine the scopes that this mutation applies to (scopes that do not occur in the metadata are no changed)
+    Set<MetadataScope> scopes = Stream.concat(meta.getTags().stream(),
+            meta.getProperties().keySet().stream())
+        .map(ScopedName::getScope).collect(Collectors.toSet());
+    // compute what previously existing tags and properties have to be preserved (all others are replaced)
+    Set<ScopedName> existingTagsToKeep = new HashSet<>();
+    Map<ScopedName, String> existingPropertiesToKeep = new HashMap<>();
+    // all tags and properties that are in a scope not affected by this mutation
+    Sets.difference(MetadataScope.ALL, scopes).forEach(
+        scope -> {
+          before.getTags().stream()
+              .filter(tag -> tag.getScope().equals(scope))
+              .forEach(existingTagsToKeep::add);
+          before.getProperties().entrySet().stream()
+              .filter(entry -> entry.getKey().getScope().equals(scope))
+              .forEach(entry -> existingPropertiesToKeep.put(entry.getKey(), entry.getValue()));
+        });
+    // tags and properties in affected scopes that must be kept or preserved
+    directives.entrySet().stream()
+        .filter(entry -> scopes.contains(entry.getKey().getScope()))
+        .forEach(entry -> {
+          ScopedNameOfKind key = entry.getKey();
+          if (key.getKind() == MetadataKind.TAG
+              && (entry.getValue() == MetadataDirective.PRESERVE
+              || entry.getValue() == MetadataDirective.KEEP)) {
+            ScopedName tag = new ScopedName(key.getScope(), key.getName());
+            if (!meta.getTags().contains(tag) && before.getTags().contains(tag)) {
+              existingTagsToKeep.add(tag);
+            }
+          } else if (key.getKind() == MetadataKind.PROPERTY) {
+            ScopedName property = new ScopedName(key.getScope(), key.getName());
+            String existingValue = before.getProperties().get(property);
+            String newValue = meta.getProperties().get(property);
+            if (existingValue != null
+                && (
+                entry.getValue() == MetadataDirective.PRESERVE && !existingValue.equals(newValue)
+                    || entry.getValue() == MetadataDirective.KEEP && newValue == null)) {
+              existingPropertiesToKeep.put(property, existingValue);
+            }
+          }
+        });
+    // compute the new tags and properties
+    Set<ScopedName> newTags =
+        existingTagsToKeep.isEmpty() ? meta.getTags()
+            : Sets.union(meta.getTags(), existingTagsToKeep);
+    Map<ScopedName, String> newProperties = meta.getProperties();
+    if (!existingPropertiesToKeep.isEmpty()) {
+      newProperties = new HashMap<>(newProperties);
+      newProperties.putAll(existingPropertiesToKeep);
+    }
+    return new Metadata(newTags, newProperties);
+  }
+
+  /**
+   * Computes the metadata after adding tags and properties to the metadata of an entity.
+   */
+  private static Metadata update(Metadata before, Metadata updates) {
+    Set<ScopedName> tags = new HashSet<>(before.getTags());
+    tags.addAll(updates.getTags());
+    Map<ScopedName, String> properties = new HashMap<>(before.getProperties());
+    properties.putAll(updates.getProperties());
+    return new Metadata(tags, properties);
+  }
+
+  /**
+   * Reads the existing metadata for a document from the index.
+   *
+   * @return the existing metadata, or null if the document does not exist
+   */
+  @Nullable
+  private Metadata readFromIndex(String id) {
+    for (LiveSegment segment : index.getSegments()) {
+      int doc = segment.findDocument(id);
+      if (doc >= 0) {
+        return segment.getSegment().getMetadata(doc);
+      }
+    }
+    return null;
+  }
+
+  private static SearchRequest createRequestFromCursor(SearchRequest request, Cursor cursor) {
+    SearchRequest.Builder builder = SearchRequest.of(cursor.getQuery())
+        .setOffset(cursor.getOffset())
+        .setLimit(cursor.getLimit())
+        .setShowHidden(cursor.isShowHidden())
+        .setScope(cursor.getScope())
+        .setCursorRequested(request.isCursorRequested());
+    if (cursor.getSorting() != null) {
+      builder.setSorting(Sorting.of(cursor.getSorting()));
+    }
+    if (cursor.getNamespaces() != null) {
+      cursor.getNamespaces().forEach(builder::addNamespace);
+    }
+    if (cursor.getTypes() != null) {
+      cursor.getTypes().forEach(builder::addType);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Performs a search.
+   *
+   * @param original the request as given by the caller
+   * @param request the effective request, which is derived from the cursor if there is one
+   * @param cursor the cursor of the original request, if it has one
+   * @param offset the offset of the first result to return
+   * @param limit the maximum number of results to return
+   */
+  private SearchResponse doSearch(SearchRequest original, SearchRequest request,
+      @Nullable Cursor cursor, int offset, int limit) throws IOException {
+    Comparator<Hit> comparator = createComparator(request.getSorting());
+    Hit after = cursor == null ? null : Hit.fromCursor(cursor.getActualCursor());
+    // with a cursor, the offset is given by the position of the last result of the previous page
+    int skip = cursor == null ? offset : 0;
+    long numResults = Math.min((long) skip + limit, Integer.MAX_VALUE);
+
+    IndexQuery query = createQuery(request);
+    List<LiveSegment> segments = index.getSegments();
+    IndexQuery.Stats stats = new IndexQuery.Stats(segments);
+    // keep the top results in a heap with the lowest ranked result at the top
+    PriorityQueue<Hit> top = new PriorityQueue<>(comparator.reversed());
+    int totalHits = 0;
+    for (LiveSegment segment : segments) {
+      IndexQuery.Hits hits = query.evaluate(segment, stats);
+      totalHits += hits.getDocs().cardinality();
+      if (numResults == 0) {
+        continue;
+      }
+      for (int doc = hits.getDocs().nextSetBit(0); doc >= 0;
+          doc = hits.getDocs().nextSetBit(doc + 1)) {
+        Hit hit = new Hit(segment.getSegment(), doc, hits.getScore(doc), request.getSorting());
+        if (after != null && comparator.compare(hit, after) <= 0) {
+          continue;
+        }
+        if (top.size() < numResults) {
+          top.add(hit);
+        } else if (comparator.compare(hit, top.peek()) < 0) {
+          top.poll();
+          top.add(hit);
+        }
+      }
+    }
+    List<Hit> sorted = new ArrayList<>(top);
+    sorted.sort(comparator);
+    List<Hit> page = sorted.subList(Math.min(skip, sorted.size()), sorted.size());
+    List<MetadataRecord> results = page.stream()
+        .map(hit -> new MetadataRecord(IndexDocument.toMetadataEntity(hit.id),
+            hit.segment.getMetadata(hit.doc)))
+        .collect(Collectors.toList());
+
+    String nextCursor = null;
+    int newOffset = offset + results.size();
+    if (request.isCursorRequested() && !results.isEmpty() && newOffset < totalHits) {
+      String actual = page.get(page.size() - 1).toCursor();
+      nextCursor = cursor != null ? new Cursor(cursor, newOffset, actual).toString()
+          : new Cursor(newOffset, limit, request.isShowHidden(), request.getScope(),
+              request.getNamespaces(), request.getTypes(),
+              request.getSorting() == null ? null : request.getSorting().toString(),
+              actual, request.getQuery()).toString();
+    }
+    return new SearchResponse(original, nextCursor, offset, limit, totalHits, results);
+  }
+
+  /**
+   * Creates the comparator that ranks the search results: by relevance if the request has no
+   * sorting, otherwise by the sort key. Ties are broken by the document id, so that the order of
+   * results is always well-defined, which is required for pagination.
+   */
+  private static Comparator<Hit> createComparator(@Nullable Sorting sorting) {
+    Comparator<Hit> comparator;
+    if (sorting == null) {
+      comparator = Comparator.comparingDouble((Hit hit) -> hit.score).reversed();
+    } else {
+      String key = sorting.getKey().toLowerCase();
+      if (MetadataConstants.ENTITY_NAME_KEY.equals(key)) {
+        comparator = Comparator.comparing((Hit hit) -> hit.name);
+      } else if (MetadataConstants.CREATION_TIME_KEY.equals(key)) {
+        comparator = Comparator.comparingLong((Hit hit) -> hit.created);
+      } else {
+        throw new IllegalArgumentException(String.format(
+            "Field '%s' cannot be used as a sort key. Only the following are supported: %s.",
+            key, SUPPORTED_SORT_KEYS));
+      }
+      if (sorting.getOrder() == Sorting.Order.DESC) {
+        comparator = comparator.reversed();
+      }
+      if (MetadataConstants.CREATION_TIME_KEY.equals(key)) {
+        // documents without creation time come last, regardless of the sort order
+        comparator = Comparator.comparing((Hit hit) -> hit.created == Segment.MISSING)
+            .thenComparing(comparator);
+      }
+    }
+    return comparator.thenComparing(hit -> hit.id);
+  }
+
+  /**
+   * Creates a query from a search request. In essence, this returns
+   *
+   * <pre>
+   *   (field1:term1 OR ... OR props(name):term ...)
+   * [ AND (namespace:ns1 OR ... OR namespace:nsK) ]
+   * [ AND (type:type1 OR ... OR type:typeM) ]
+   * [ AND hidden:false ]
+   * </pre>
+   *
+   * See {@link IndexDocument} for details about the indexed fields.
+   */
+  private IndexQuery createQuery(SearchRequest request) {
+    List<IndexQuery> conditions = new ArrayList<>();
+    conditions.add(createMainQuery(request));
+    if (request.getTypes() != null && !request.getTypes().isEmpty()) {
+      conditions.add(IndexQuery.filter(IndexQuery.or(request.getTypes().stream()
+          .map(type -> IndexQuery.term(IndexDocument.TYPE_FIELD, type.toLowerCase()))
+          .collect(Collectors.toList()))));
+    }
+    if (request.getNamespaces() != null && !request.getNamespaces().isEmpty()) {
+      conditions.add(IndexQuery.filter(IndexQuery.or(request.getNamespaces().stream()
+          .map(ns -> IndexQuery.term(IndexDocument.NAMESPACE_FIELD, ns.toLowerCase()))
+          .collect(Collectors.toList()))));
+    }
+    if (!request.isShowHidden()) {
+      conditions.add(IndexQuery.filter(
+          IndexQuery.term(IndexDocument.HIDDEN_FIELD, String.valueOf(false))));
+    }
+    return IndexQuery.and(conditions);
+  }
+
+  /**
+   * Creates the query from the terms in the query string.
+   */
+  private IndexQuery createMainQuery(SearchRequest request) {
+    if (request.getQuery().equals("*")) {
+      return IndexQuery.matchAll();
+    }
+    // all terms must occur in the text fields as selected by the scope in the search request
+    List<String> textFields = request.getScope() == null
+        ? ImmutableList.of(IndexDocument.USER_FIELD, IndexDocument.SYSTEM_FIELD)
+        : ImmutableList.of(MetadataScope.USER == request.getScope()
+            ? IndexDocument.USER_FIELD : IndexDocument.SYSTEM_FIELD);
+
+    List<IndexQuery> termQueries = new ArrayList<>();
+    for (String term : Splitter.on(SPACE_SEPARATOR_PATTERN)
+        .omitEmptyStrings().trimResults().split(request.getQuery())) {
+      termQueries.add(createTermQuery(term, textFields, request));
+    }
+    return termQueries.isEmpty() ? IndexQuery.matchAll() : IndexQuery.or(termQueries);
+  }
+
+  /**
+   * Create a sub-query for a single term in the query string.
+   *
+   * @param term the term as it appears in the query, possibly with a field qualifier
+   * @param textFields the text fields to search if the term does not have a field
+   */
+  private IndexQuery createTermQuery(String term, List<String> textFields,
+      SearchRequest request) {
+    term = term.trim().toLowerCase();
+    // Create a query on the term as is. This includes a field: prefix if the term has one,
+    // which is needed to find schema fields: for a field f of type t, "f:t" is indexed as text.
+    IndexQuery plainQuery = createTermQuery(textFields, term);
+    if (!term.contains(MetadataConstants.KEYVALUE_SEPARATOR)) {
+      return plainQuery;
+    }
+    // split the search term in two parts on first occurrence of KEYVALUE_SEPARATOR
+    String[] split = term.split(MetadataConstants.KEYVALUE_SEPARATOR, 2);
+    String field = split[0].trim();
+    String value = split[1].trim();
+    if (MetadataConstants.TTL_KEY.equals(field)
+        && (request.getScope() == null || MetadataScope.SYSTEM == request.getScope())) {
+      try {
+        return IndexQuery.ttl(Double.parseDouble(value));
+      } catch (NumberFormatException e) {
+        // ignore - the follow-on code will create a regular term query for this
+      }
+    }
+    // the value must occur in a single property, in the scope of the request if it has one
+    Set<MetadataScope> scopes = request.getScope() == null
+        ? MetadataScope.ALL : Collections.singleton(request.getScope());
+    List<IndexQuery> queries = new ArrayList<>();
+    queries.add(plainQuery);
+    for (MetadataScope scope : scopes) {
+      queries.add(createTermQuery(
+          Collections.singletonList(IndexDocument.propertyField(scope, field)), value));
+    }
+    return IndexQuery.or(queries);
+  }
+
+  /**
+   * Create a query for a single term in a list of fields.
+   *
+   * @return a wildcard query is the term contains * or ?, or a match query for all tokens in the
+   *     term otherwise
+   */
+  private IndexQuery createTermQuery(List<String> fields, String term) {
+    return term.contains("*") || term.contains("?")
+        ? IndexQuery.wildcard(fields, term)
+        : IndexQuery.match(fields, IndexDocument.tokenize(term));
+  }
+
+  /**
+   * Filter the metadata based on the given scopes, kinds, and selection. Based on the value of
+   * {@param keep}, this can be used to keep or to discard the matching tags and properties.
+   *
+   * @param keep if true, only matching metadata elements are kept; otherwise only non-matching
+   *     elements are kept.
+   */
+  @SuppressWarnings("ConstantConditions")
+  private static Metadata filterMetadata(Metadata metadata, boolean keep, Set<MetadataKind> kinds,
+      Set<MetadataScope> scopes, Set<ScopedNameOfKind> selection) {
+    if (selection != null) {
+      return new Metadata(
+          Sets.filter(metadata.getTags(), tag ->
+              keep == selection.contains(
+                  new ScopedNameOfKind(MetadataKind.TAG, tag.getScope(), tag.getName()))),
+          Maps.filterKeys(metadata.getProperties(), key ->
+              keep == selection.contains(
+                  new ScopedNameOfKind(MetadataKind.PROPERTY, key.getScope(), key.getName())))
+      );
+    }
+    return new Metadata(
+        Sets.filter(metadata.getTags(), tag ->
+            keep == (kinds.contains(MetadataKind.TAG) && scopes.contains(tag.getScope()))),
+        Maps.filterKeys(metadata.getProperties(), key ->
+            keep == (kinds.contains(MetadataKind.PROPERTY) && scopes.contains(key.getScope()))));
+  }
+
+  /**
+   * A search result along with its sort keys.
+   */
+  private static final class Hit {
+
+    private final Segment segment;
+    private final int doc;
+    private final String id;
+    private final float score;
+    private final String name;
+    private final long created;
+
+    private Hit(Segment segment, int doc, float score, @Nullable Sorting sorting) {
+      this.segment = segment;
+      this.doc = doc;
+      this.id = segment.getId(doc);
+      this.score = score;
+      // only read the sort keys that are needed
+      String key = sorting == null ? null : sorting.getKey().toLowerCase();
+      this.name = MetadataConstants.ENTITY_NAME_KEY.equals(key) ? segment.getName(doc) : "";
+      this.created = MetadataConstants.CREATION_TIME_KEY.equals(key)
+          ? segment.getCreated(doc) : Segment.MISSING;
+    }
+
+    private Hit(String id, float score, String name, long created) {
+      this.segment = null;
+      this.doc = -1;
+      this.id = id;
+      this.score = score;
+      this.name = name;
+      this.created = created;
+    }
+
+    /**
+     * @return the sort keys of this hit, encoded so that it can be used in a {@link Cursor}
+     */
+    String toCursor() {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+        output.writeFloat(score);
+        output.writeLong(created);
+        output.writeUTF(name);
+        output.writeUTF(id);
+      } catch (IOException e) {
+        // cannot happen when writing to a byte array
+        throw new IllegalStateException(e);
+      }
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static Hit fromCursor(String cursor) {
+      try {
+        DataInputStream input = new DataInputStream(
+            new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+        float score = input.readFloat();
+        long created = input.readLong();
+        String name = input.readUTF();
+        return new Hit(input.readUTF(), score, name, created);
+      } catch (IllegalArgumentException | IOException e) {
+        throw new IllegalArgumentException("Invalid cursor '" + cursor + "'", e);
+      }
+    }
+  }
+}
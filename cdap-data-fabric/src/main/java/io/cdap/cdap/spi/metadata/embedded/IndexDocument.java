@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.metadata.embedded;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.data.schema.SchemaWalker;
+import io.cdap.cdap.api.metadata.MetadataEntity;
+import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.common.metadata.MetadataUtil;
+import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.MetadataConstants;
+import io.cdap.cdap.spi.metadata.ScopedName;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The document that is indexed for an entity by the {@link EmbeddedMetadataStorage}. It follows the
+ * structure of the document indexed in Elasticsearch, so that both implementations match the same
+ * queries:
+ * <ul>
+ *   <li>the keyword fields {@link #ID_FIELD}, {@link #NAMESPACE_FIELD}, {@link #TYPE_FIELD} and
+ *   {@link #HIDDEN_FIELD} hold a single, untokenized term;</li>
+ *   <li>the text fields {@link #USER_FIELD} and {@link #SYSTEM_FIELD} hold the tokens of all tags
+ *   and property values in the respective scope;</li>
+ *   <li>every property is indexed in a field of its own, see {@link #propertyField}, which also
+ *   holds the synthetic "tags" and "properties" properties.</li>
+ * </ul>
+ */
+final class IndexDocument {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IndexDocument.class);
+
+  // this reflects the tokenization performed by MetadataDataset and the Elasticsearch analyzer
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[-_,;.\\s]+");
+
+  private static final ScopedName SCHEMA_KEY = new ScopedName(MetadataScope.SYSTEM,
+      MetadataConstants.SCHEMA_KEY);
+  private static final ScopedName TTL_KEY = new ScopedName(MetadataScope.SYSTEM,
+      MetadataConstants.TTL_KEY);
+  private static final ScopedName CREATION_TIME_KEY = new ScopedName(MetadataScope.SYSTEM,
+      MetadataConstants.CREATION_TIME_KEY);
+
+  static final char FIELD_SEPARATOR = '\u0000';
+  static final String ID_FIELD = "id";
+  static final String NAMESPACE_FIELD = "namespace";
+  static final String TYPE_FIELD = "type";
+  static final String HIDDEN_FIELD = "hidden";
+  static final String USER_FIELD = "user";
+  static final String SYSTEM_FIELD = "system";
+
+  private final String id;
+  private final String name;
+  private final Metadata metadata;
+  private final Long created;
+  private final Long ttl;
+  private final Map<String, List<String>> fields;
+
+  private IndexDocument(String id, String name, Metadata metadata, @Nullable Long created,
+      @Nullable Long ttl, Map<String, List<String>> fields) {
+    this.id = id;
+    this.name = name;
+    this.metadata = metadata;
+    this.created = created;
+    this.ttl = ttl;
+    this.fields = fields;
+  }
+
+  /**
+   * Creates the document to index for an entity and its metadata.
+   */
+  static IndexDocument of(MetadataEntity entity, Metadata metadata) {
+    return new Builder(entity).addMetadata(metadata).build();
+  }
+
+  String getId() {
+    return id;
+  }
+
+  /**
+   * @return the lower-cased entity name, used for sorting by entity name
+   */
+  String getName() {
+    return name;
+  }
+
+  Metadata getMetadata() {
+    return metadata;
+  }
+
+  @Nullable
+  Long getCreated() {
+    return created;
+  }
+
+  @Nullable
+  Long getTtl() {
+    return ttl;
+  }
+
+  /**
+   * @return the tokens indexed for every field. A token occurs as many times as it occurs in the
+   *     field.
+   */
+  Map<String, List<String>> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return the name of the field that holds the value of a property in the given scope
+   */
+  static String propertyField(MetadataScope scope, String name) {
+    return "props." + scope.name() + "." + name;
+  }
+
+  /**
+   * @return the term as it appears in the term dictionary for a token in a field
+   */
+  static String term(String field, String token) {
+    return field + FIELD_SEPARATOR + token;
+  }
+
+  /**
+   * Splits a text into lower-cased tokens.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    for (String token : TOKEN_SEPARATOR.split(text.toLowerCase())) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Translate a metadata entity into a document id in the index.
+   */
+  static String toDocumentId(MetadataEntity entity) {
+    StringBuilder builder = new StringBuilder(entity.getType());
+    char sep = ':';
+    for (MetadataEntity.KeyValue kv : entity) {
+      // if it is a versioned entity then ignore the version
+      if (MetadataUtil.isVersionedEntityType(entity.getType())
+          && MetadataEntity.VERSION.equalsIgnoreCase(kv.getKey())) {
+        continue;
+      }
+      builder.append(sep).append(kv.getKey()).append('=').append(kv.getValue());
+      sep = ',';
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Translate a document id in the index into a metadata entity.
+   */
+  static MetadataEntity toMetadataEntity(String documentId) {
+    int index = documentId.indexOf(':');
+    if (index < 0) {
+      throw new IllegalArgumentException(
+          "Document Id must be of the form 'type:k=v,...' but is " + documentId);
+    }
+    String type = documentId.substring(0, index);
+    MetadataEntity.Builder builder = MetadataEntity.builder();
+    for (String part : documentId.substring(index + 1).split(",")) {
+      String[] parts = part.split("=", 2);
+      if (parts[0].equals(type)) {
+        builder.appendAsType(parts[0], parts[1]);
+      } else {
+        builder.append(parts[0], parts[1]);
+      }
+    }
+    // if it is a versioned entity then add the default version
+    return MetadataUtil.addVersionIfNeeded(builder.build());
+  }
+
+  @VisibleForTesting
+  static String parseSchema(MetadataEntity entity, String schemaStr) {
+    try {
+      Schema schema = Schema.parseJson(schemaStr);
+      StringBuilder builder = new StringBuilder();
+      SchemaWalker.walk(schema, (field, subSchema) -> {
+        if (field != null) {
+          String type = (subSchema.isNullable() ? subSchema.getNonNullable()
+              : subSchema).getType().toString();
+          builder.append(field).append(' ')
+              .append(field).append(MetadataConstants.KEYVALUE_SEPARATOR).append(type)
+              .append(' ');
+        }
+      });
+      return builder.toString();
+    } catch (Exception e) {
+      LOG.warn("Unable to parse schema '{}' for entity {}. Indexing as plain text.", schemaStr,
+          entity);
+      return schemaStr;
+    }
+  }
+
+  /**
+   * A builder for IndexDocuments.
+   */
+  private static final class Builder {
+
+    private final MetadataEntity entity;
+    private final String id;
+    private final String name;
+    private Metadata metadata = Metadata.EMPTY;
+    private Long created;
+    private Long ttl;
+    private final List<String> userTags = new ArrayList<>();
+    private final List<String> systemTags = new ArrayList<>();
+    private final List<String> userPropertyNames = new ArrayList<>();
+    private final List<String> systemPropertyNames = new ArrayList<>();
+    private final Map<String, List<String>> fields = new HashMap<>();
+
+    private Builder(MetadataEntity entity) {
+      this.entity = entity;
+      this.id = toDocumentId(entity);
+      String type = entity.getType().toLowerCase();
+      //noinspection ConstantConditions
+      this.name = entity.getValue(entity.getType()).toLowerCase();
+      addKeyword(ID_FIELD, id);
+      if (entity.containsKey(MetadataEntity.NAMESPACE)) {
+        //noinspection ConstantConditions
+        addKeyword(NAMESPACE_FIELD, entity.getValue(MetadataEntity.NAMESPACE).toLowerCase());
+      }
+      addKeyword(TYPE_FIELD, type);
+      addKeyword(HIDDEN_FIELD, String.valueOf(name.startsWith("_")));
+      addText(SYSTEM_FIELD, type);
+      addText(SYSTEM_FIELD, name);
+      addProperty(new ScopedName(MetadataScope.SYSTEM, type), name);
+    }
+
+    private void addKeyword(String field, String value) {
+      fields.computeIfAbsent(field, f -> new ArrayList<>()).add(value);
+    }
+
+    private void addText(String field, String text) {
+      List<String> tokens = tokenize(text);
+      if (!tokens.isEmpty()) {
+        fields.computeIfAbsent(field, f -> new ArrayList<>()).addAll(tokens);
+      }
+    }
+
+    private static String textField(MetadataScope scope) {
+      return MetadataScope.USER == scope ? USER_FIELD : SYSTEM_FIELD;
+    }
+
+    private void addTag(ScopedName tag) {
+      String name = tag.getName().toLowerCase();
+      addText(textField(tag.getScope()), name);
+      (MetadataScope.USER == tag.getScope() ? userTags : systemTags).add(name);
+    }
+
+    private void addProperty(ScopedName key, String value) {
+      String name = key.getName().toLowerCase();
+      value = value.toLowerCase();
+      if (SCHEMA_KEY.equals(key)) {
+        value = parseSchema(entity, value);
+      }
+      addText(textField(key.getScope()), value);
+      addText(propertyField(key.getScope(), name), value);
+      (MetadataScope.USER == key.getScope() ? userPropertyNames : systemPropertyNames).add(name);
+      if (CREATION_TIME_KEY.equals(key)) {
+        created = parseLong(key, value);
+      } else if (TTL_KEY.equals(key)) {
+        ttl = parseLong(key, value);
+      }
+    }
+
+    @Nullable
+    private Long parseLong(ScopedName key, String value) {
+      try {
+        return Long.parseLong(value);
+      } catch (NumberFormatException e) {
+        LOG.warn("Unable to parse property {} as long. Skipping indexing of {} for entity {}.",
+            key, key.getName(), entity, e);
+        return null;
+      }
+    }
+
+    private Builder addMetadata(Metadata metadata) {
+      this.metadata = metadata;
+      metadata.getTags().forEach(this::addTag);
+      metadata.getProperties().forEach(this::addProperty);
+      return this;
+    }
+
+    private IndexDocument build() {
+      addText(propertyField(MetadataScope.USER, MetadataConstants.TAGS_KEY),
+          String.join(" ", userTags));
+      addText(propertyField(MetadataScope.SYSTEM, MetadataConstants.TAGS_KEY),
+          String.join(" ", systemTags));
+      addText(propertyField(MetadataScope.USER, MetadataConstants.PROPERTIES_KEY),
+          String.join(" ", userPropertyNames));
+      addText(propertyField(MetadataScope.SYSTEM, MetadataConstants.PROPERTIES_KEY),
+          String.join(" ", systemPropertyNames));
+      return new IndexDocument(id, name, metadata, created, ttl, fields);
+    }
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.metadata.embedded;
+
+import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.spi.metadata.embedded.InvertedIndex.LiveSegment;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A query against the {@link InvertedIndex}. A query is evaluated one segment at a time, and
+ * returns the live documents of the segment that match along with their relevance scores.
+ *
+ * Terms are scored with BM25. Wildcard and numeric queries have a constant score, and filters do
+ * not contribute to the score.
+ */
+abstract class IndexQuery {
+
+  private static final float K1 = 1.2f;
+  private static final float B = 0.75f;
+
+  /**
+   * Evaluates this query on a segment.
+   */
+  abstract Hits evaluate(LiveSegment segment, Stats stats);
+
+  /**
+   * @return a query that matches all documents
+   */
+  static IndexQuery matchAll() {
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Hits hits = new Hits(segment.getSegment().getNumDocs());
+        for (int doc = 0; doc < segment.getSegment().getNumDocs(); doc++) {
+          if (!segment.isDeleted(doc)) {
+            hits.add(doc, 1.0f);
+          }
+        }
+        return hits;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches documents that have all the given tokens in any of the given
+   *     fields. The fields are treated as a single field.
+   */
+  static IndexQuery match(List<String> fields, List<String> tokens) {
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Hits result = null;
+        for (String token : tokens) {
+          Hits hits = new Hits(segment.getSegment().getNumDocs());
+          for (String field : fields) {
+            addTermHits(segment, stats, field, token, hits);
+          }
+          result = result == null ? hits : result.and(hits);
+        }
+        return result == null ? new Hits(segment.getSegment().getNumDocs()) : result;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches a single term in a field, such as a keyword
+   */
+  static IndexQuery term(String field, String value) {
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Hits hits = new Hits(segment.getSegment().getNumDocs());
+        addTermHits(segment, stats, field, value, hits);
+        return hits;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches documents with a token in any of the given fields that matches a
+   *     pattern, where '*' matches any sequence of characters and '?' matches any character
+   */
+  static IndexQuery wildcard(List<String> fields, String pattern) {
+    int firstWildcard = 0;
+    while (firstWildcard < pattern.length() && pattern.charAt(firstWildcard) != '*'
+        && pattern.charAt(firstWildcard) != '?') {
+      firstWildcard++;
+    }
+    String prefix = pattern.substring(0, firstWildcard);
+    StringBuilder regex = new StringBuilder();
+    for (String part : pattern.split("((?<=[*?])|(?=[*?]))")) {
+      regex.append("*".equals(part) ? ".*" : "?".equals(part) ? "." : Pattern.quote(part));
+    }
+    Pattern compiled = Pattern.compile(regex.toString(), Pattern.DOTALL);
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Segment seg = segment.getSegment();
+        Hits hits = new Hits(seg.getNumDocs());
+        for (String field : fields) {
+          String from = IndexDocument.term(field, prefix);
+          int tokenStart = from.length() - prefix.length();
+          for (Segment.TermInfo term : seg.getTerms(from, from + Character.MAX_VALUE,
+              Integer.MAX_VALUE)) {
+            if (compiled.matcher(term.getTerm().substring(tokenStart)).matches()) {
+              seg.readPostings(term, (doc, freq) -> {
+                if (!segment.isDeleted(doc)) {
+                  hits.set(doc, 1.0f);
+                }
+              });
+            }
+          }
+        }
+        return hits;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches documents with a given TTL
+   */
+  static IndexQuery ttl(double value) {
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Segment seg = segment.getSegment();
+        Hits hits = new Hits(seg.getNumDocs());
+        for (int doc = 0; doc < seg.getNumDocs(); doc++) {
+          long ttl = seg.getTtl(doc);
+          if (ttl != Segment.MISSING && ttl == value && !segment.isDeleted(doc)) {
+            hits.add(doc, 1.0f);
+          }
+        }
+        return hits;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches documents that match any of the given queries. The score is the
+   *     sum of the scores of all matching queries.
+   */
+  static IndexQuery or(List<IndexQuery> queries) {
+    if (queries.size() == 1) {
+      return queries.get(0);
+    }
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Hits result = new Hits(segment.getSegment().getNumDocs());
+        for (IndexQuery query : queries) {
+          result.or(query.evaluate(segment, stats));
+        }
+        return result;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches documents that match all of the given queries. The score is the
+   *     sum of the scores of all queries.
+   */
+  static IndexQuery and(List<IndexQuery> queries) {
+    if (queries.size() == 1) {
+      return queries.get(0);
+    }
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Hits result = null;
+        for (IndexQuery query : queries) {
+          Hits hits = query.evaluate(segment, stats);
+          result = result == null ? hits : result.and(hits);
+          if (result.docs.isEmpty()) {
+            break;
+          }
+        }
+        return result;
+      }
+    };
+  }
+
+  /**
+   * @return a query that matches the same documents as the given query, without contributing to
+   *     the score
+   */
+  static IndexQuery filter(IndexQuery query) {
+    return new IndexQuery() {
+      @Override
+      Hits evaluate(LiveSegment segment, Stats stats) {
+        Hits hits = query.evaluate(segment, stats);
+        Arrays.fill(hits.scores, 0.0f);
+        return hits;
+      }
+    };
+  }
+
+  private static void addTermHits(LiveSegment segment, Stats stats, String field, String token,
+      Hits hits) {
+    String term = IndexDocument.term(field, token);
+    Segment seg = segment.getSegment();
+    Segment.TermInfo info = seg.getTerm(term);
+    if (info == null) {
+      return;
+    }
+    // only the text fields have length norms, all other fields are short
+    MetadataScope scope = IndexDocument.USER_FIELD.equals(field) ? MetadataScope.USER
+        : IndexDocument.SYSTEM_FIELD.equals(field) ? MetadataScope.SYSTEM : null;
+    float idf = stats.getIdf(term);
+    float avgLength = scope == null ? 1.0f : stats.getAverageFieldLength(scope);
+    seg.readPostings(info, (doc, freq) -> {
+      if (segment.isDeleted(doc)) {
+        return;
+      }
+      float norm = scope == null ? 1.0f
+          : 1 - B + B * seg.getFieldLength(doc, scope) / Math.max(avgLength, 1.0f);
+      hits.add(doc, idf * freq * (K1 + 1) / (freq + K1 * norm));
+    });
+  }
+
+  /**
+   * Index-wide statistics used for scoring. Statistics include deleted documents.
+   */
+  static final class Stats {
+
+    private final List<LiveSegment> segments;
+    private final Map<String, Float> idfs = new HashMap<>();
+    private final long numDocs;
+    private final float userLength;
+    private final float systemLength;
+
+    Stats(List<LiveSegment> segments) {
+      this.segments = segments;
+      long numDocs = 0;
+      long userLength = 0;
+      long systemLength = 0;
+      for (LiveSegment segment : segments) {
+        numDocs += segment.getSegment().getNumDocs();
+        userLength += segment.getSegment().getTotalFieldLength(MetadataScope.USER);
+        systemLength += segment.getSegment().getTotalFieldLength(MetadataScope.SYSTEM);
+      }
+      this.numDocs = numDocs;
+      this.userLength = numDocs == 0 ? 0.0f : (float) userLength / numDocs;
+      this.systemLength = numDocs == 0 ? 0.0f : (float) systemLength / numDocs;
+    }
+
+    float getAverageFieldLength(MetadataScope scope) {
+      return MetadataScope.USER == scope ? userLength : systemLength;
+    }
+
+    float getIdf(String term) {
+      return idfs.computeIfAbsent(term, t -> {
+        long docFreq = 0;
+        for (LiveSegment segment : segments) {
+          Segment.TermInfo info = segment.getSegment().getTerm(t);
+          docFreq += info == null ? 0 : info.getDocFreq();
+        }
+        return (float) Math.log(1 + (numDocs - docFreq + 0.5) / (docFreq + 0.5));
+      });
+    }
+  }
+
+  /**
+   * The documents of a segment that match a query, with their scores.
+   */
+  static final class Hits {
+
+    private final BitSet docs = new BitSet();
+    private final float[] scores;
+
+    Hits(int numDocs) {
+      this.scores = new float[numDocs];
+    }
+
+    BitSet getDocs() {
+      return docs;
+    }
+
+    float getScore(int doc) {
+      return scores[doc];
+    }
+
+    private void add(int doc, float score) {
+      docs.set(doc);
+      scores[doc] += score;
+    }
+
+    private void set(int doc, float score) {
+      docs.set(doc);
+      scores[doc] = score;
+    }
+
+    private void or(Hits other) {
+      for (int doc = other.docs.nextSetBit(0); doc >= 0; doc = other.docs.nextSetBit(doc + 1)) {
+        add(doc, other.scores[doc]);
+      }
+    }
+
+    private Hits and(Hits other) {
+      docs.and(other.docs);
+      for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+        scores[doc] += other.scores[doc];
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.metadata.embedded;
+
+import io.cdap.cdap.common.utils.DirUtils;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local inverted index made of immutable {@link Segment}s.
+ *
+ * Every update creates a new segment in memory for the added documents, and marks the previous
+ * versions of the documents as deleted in the segments that contain them. The segments are
+ * copy-on-write: an update publishes a new list of segments, so that searches can run on the list
+ * obtained from {@link #getSegments()} without any locking.
+ *
+ * Every update is appended to a write-ahead log and synced to disk before it is applied, so that
+ * updates that are not committed yet survive a crash. Opening the index replays the log of the
+ * last commit.
+ *
+ * A commit merges all in-memory segments into a single segment and writes it to disk, along with
+ * the deleted documents of all segments on disk. If there are more than a configured number of
+ * segments on disk, the smallest segments are merged into one. Finally, the list of segments is
+ * written atomically to the commit file along with the generation of a new, empty log, and all
+ * files that are no longer referenced are removed. If the process fails before the commit file is
+ * written, the index is restored to the previous commit and the updates in its log.
+ */
+@ThreadSafe
+final class InvertedIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InvertedIndex.class);
+
+  private static final String COMMIT_FILE = "segments";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String DELETES_SUFFIX = ".del";
+  private static final String LOG_SUFFIX = ".log";
+  private static final int COMMIT_MAGIC = 0x43444d43;
+  private static final int COMMIT_VERSION = 1;
+  // the length and the CRC32 checksum of a log record
+  private static final int LOG_RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+  private final File dir;
+  private final int mergeFactor;
+  private final int flushSize;
+  private volatile List<LiveSegment> segments = Collections.emptyList();
+  private boolean opened;
+  private long nextSegmentId;
+  private long logGeneration;
+  private FileChannel log;
+  private int uncommittedDocs;
+
+  /**
+   * Creates an index.
+   *
+   * @param dir the directory for the index files
+   * @param mergeFactor the maximum number of segments on disk after a commit
+   * @param flushSize the number of documents that can be kept in memory and in the log before a
+   *     commit is forced
+   */
+  InvertedIndex(File dir, int mergeFactor, int flushSize) {
+    this.dir = dir;
+    this.mergeFactor = Math.max(2, mergeFactor);
+    this.flushSize = flushSize;
+  }
+
+  /**
+   * Opens the index from the last commit and replays the updates in its log, if it is not open
+   * yet. Creates the index directory if it does not exist.
+   */
+  synchronized void open() throws IOException {
+    if (opened) {
+      return;
+    }
+    if (!DirUtils.mkdirs(dir)) {
+      throw new IOException("Failed to create metadata index directory " + dir);
+    }
+    File commitFile = new File(dir, COMMIT_FILE);
+    List<LiveSegment> committed = new ArrayList<>();
+    if (commitFile.exists()) {
+      try (DataInputStream input = new DataInputStream(new FileInputStream(commitFile))) {
+        if (input.readInt() != COMMIT_MAGIC || input.readInt() != COMMIT_VERSION) {
+          throw new IOException("Invalid metadata index commit file " + commitFile);
+        }
+        nextSegmentId = input.readLong();
+        logGeneration = input.readLong();
+        for (int i = input.readInt(); i > 0; i--) {
+          long id = input.readLong();
+          int deletesGeneration = input.readInt();
+          Segment segment = new Segment(map(segmentFile(id)));
+          BitSet deleted = deletesGeneration == 0
+              ? new BitSet() : readDeletes(deletesFile(id, deletesGeneration));
+          committed.add(new LiveSegment(id, segment, deleted, deletesGeneration, true, true));
+        }
+      }
+    }
+    segments = Collections.unmodifiableList(committed);
+    uncommittedDocs = 0;
+    log = openLog(logFile(logGeneration));
+    opened = true;
+    deleteUnreferencedFiles();
+    LOG.debug("Opened metadata index in {} with {} segments and {} uncommitted documents",
+        dir, committed.size(), uncommittedDocs);
+  }
+
+  /**
+   * Commits all changes and closes the log. The index can be opened again afterwards.
+   */
+  synchronized void close() throws IOException {
+    if (!opened) {
+      return;
+    }
+    try {
+      commit();
+    } finally {
+      opened = false;
+      log.close();
+      log = null;
+    }
+  }
+
+  /**
+   * @return the current segments of the index. The returned list and its segments never change.
+   */
+  List<LiveSegment> getSegments() {
+    return segments;
+  }
+
+  /**
+   * Deletes and adds documents. Deletes are applied first, so that an updated document can be
+   * passed as a delete of its id and an add of its new version.
+   *
+   * @param deletes the ids of the documents to delete
+   * @param documents the documents to add. Each id must occur at most once.
+   * @param commit whether to commit the index after the update. Otherwise the changes are only
+   *     committed once the number of uncommitted documents exceeds the flush size. In both cases
+   *     the update is durable once this method returns, since it is written to the log first.
+   */
+  synchronized void update(Collection<String> deletes, Collection<IndexDocument> documents,
+      boolean commit) throws IOException {
+    if (!opened) {
+      throw new IOException("Metadata index in " + dir + " is not open");
+    }
+    byte[] segmentBytes = null;
+    if (!documents.isEmpty()) {
+      Segment.Writer writer = new Segment.Writer();
+      for (IndexDocument document : documents) {
+        writer.addDocument(document);
+      }
+      segmentBytes = writer.toBytes();
+    }
+    appendToLog(deletes, segmentBytes);
+    apply(deletes, segmentBytes);
+    if (commit || uncommittedDocs >= flushSize) {
+      commit();
+    }
+  }
+
+  /**
+   * Applies an update to the in-memory segments.
+   *
+   * @param deletes the ids of the documents to delete
+   * @param segmentBytes the segment with the documents to add, or null if there are none
+   */
+  private void apply(Collection<String> deletes, @Nullable byte[] segmentBytes)
+      throws IOException {
+    List<LiveSegment> current = segments;
+    BitSet[] deleted = new BitSet[current.size()];
+    for (String id : deletes) {
+      for (int i = 0; i < current.size(); i++) {
+        int doc = current.get(i).findDocument(id);
+        if (doc >= 0 && (deleted[i] == null || !deleted[i].get(doc))) {
+          if (deleted[i] == null) {
+            deleted[i] = (BitSet) current.get(i).deleted.clone();
+          }
+          deleted[i].set(doc);
+        }
+      }
+    }
+    List<LiveSegment> updated = new ArrayList<>(current.size() + 1);
+    for (int i = 0; i < current.size(); i++) {
+      LiveSegment segment = current.get(i);
+      updated.add(deleted[i] == null ? segment : new LiveSegment(segment.id, segment.segment,
+          deleted[i], segment.deletesGeneration, segment.onDisk, false));
+    }
+    if (segmentBytes != null) {
+      Segment segment = new Segment(ByteBuffer.wrap(segmentBytes));
+      updated.add(new LiveSegment(nextSegmentId++, segment, new BitSet(), 0, false, false));
+      uncommittedDocs += segment.getNumDocs();
+    }
+    segments = Collections.unmodifiableList(updated);
+  }
+
+  /**
+   * Writes all changes to disk.
+   */
+  synchronized void commit() throws IOException {
+    if (!opened || segments.stream().allMatch(segment -> segment.deletesCommitted)) {
+      // nothing has changed since the last commit
+      return;
+    }
+    List<LiveSegment> onDisk = new ArrayList<>();
+    List<LiveSegment> inMemory = new ArrayList<>();
+    for (LiveSegment segment : segments) {
+      if (segment.getLiveDocs() == 0) {
+        // drop segments without any live documents
+        continue;
+      }
+      (segment.onDisk ? onDisk : inMemory).add(segment);
+    }
+    if (!inMemory.isEmpty()) {
+      onDisk.add(merge(inMemory));
+    }
+    while (onDisk.size() > mergeFactor) {
+      onDisk.sort(Comparator.comparingInt(LiveSegment::getLiveDocs));
+      List<LiveSegment> smallest = new ArrayList<>(onDisk.subList(0, mergeFactor));
+      onDisk.removeAll(smallest);
+      onDisk.add(merge(smallest));
+    }
+
+    List<LiveSegment> committed = new ArrayList<>(onDisk.size());
+    for (LiveSegment segment : onDisk) {
+      if (!segment.deletesCommitted) {
+        int generation = segment.deletesGeneration + 1;
+        writeDeletes(deletesFile(segment.id, generation), segment.deleted);
+        segment = new LiveSegment(segment.id, segment.segment, segment.deleted, generation,
+            true, true);
+      }
+      committed.add(segment);
+    }
+    // the updates up to now are in the commit, subsequent ones go to a new log
+    long newLogGeneration = logGeneration + 1;
+    FileChannel newLog = openLog(logFile(newLogGeneration));
+    try {
+      writeCommit(committed, newLogGeneration);
+    } catch (IOException e) {
+      newLog.close();
+      throw e;
+    }
+    log.close();
+    log = newLog;
+    logGeneration = newLogGeneration;
+    segments = Collections.unmodifiableList(committed);
+    uncommittedDocs = 0;
+    deleteUnreferencedFiles();
+  }
+
+  /**
+   * Removes all documents and deletes all index files. The index can be opened again afterwards.
+   */
+  synchronized void drop() throws IOException {
+    segments = Collections.emptyList();
+    uncommittedDocs = 0;
+    nextSegmentId = 0;
+    logGeneration = 0;
+    opened = false;
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+    if (dir.exists()) {
+      DirUtils.deleteDirectoryContents(dir, true);
+    }
+  }
+
+  /**
+   * Merges the live documents of a list of segments into a new segment on disk.
+   */
+  private LiveSegment merge(List<LiveSegment> toMerge) throws IOException {
+    Segment.Writer writer = new Segment.Writer();
+    for (LiveSegment segment : toMerge) {
+      writer.addSegment(segment.segment, segment.deleted);
+    }
+    long id = nextSegmentId++;
+    File file = segmentFile(id);
+    writeFile(file, writer.toBytes());
+    LOG.trace("Merged {} segments into segment {} with {} documents",
+        toMerge.size(), id, writer.getNumDocs());
+    return new LiveSegment(id, new Segment(map(file)), new BitSet(), 0, true, true);
+  }
+
+  /**
+   * Opens a log for appending, after replaying the updates it contains. A record that was not
+   * completely written when the process failed is truncated.
+   */
+  private FileChannel openLog(File file) throws IOException {
+    long valid = 0;
+    if (file.exists()) {
+      try (DataInputStream input = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(file)))) {
+        byte[] record;
+        while ((record = readLogRecord(input, file.length() - valid)) != null) {
+          DataInputStream recordInput = new DataInputStream(new ByteArrayInputStream(record));
+          List<String> deletes = new ArrayList<>();
+          for (int i = recordInput.readInt(); i > 0; i--) {
+            deletes.add(recordInput.readUTF());
+          }
+          byte[] segmentBytes = null;
+          int length = recordInput.readInt();
+          if (length >= 0) {
+            segmentBytes = new byte[length];
+            recordInput.readFully(segmentBytes);
+          }
+          apply(deletes, segmentBytes);
+          valid += LOG_RECORD_HEADER_SIZE + record.length;
+        }
+      }
+      if (valid < file.length()) {
+        LOG.warn("Discarding {} bytes of incomplete updates at the end of metadata index log {}",
+            file.length() - valid, file);
+      }
+    }
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE);
+    try {
+      channel.truncate(valid);
+      channel.position(valid);
+      channel.force(true);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return channel;
+  }
+
+  /**
+   * Reads the next record of a log.
+   *
+   * @param remaining the number of bytes that are left in the log
+   * @return the record, or null if the end of the log is reached or the record is incomplete
+   */
+  @Nullable
+  private static byte[] readLogRecord(DataInputStream input, long remaining) throws IOException {
+    if (remaining < LOG_RECORD_HEADER_SIZE) {
+      return null;
+    }
+    int length = input.readInt();
+    long checksum = input.readLong();
+    if (length < 0 || length > remaining - LOG_RECORD_HEADER_SIZE) {
+      return null;
+    }
+    byte[] record = new byte[length];
+    input.readFully(record);
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    return crc.getValue() == checksum ? record : null;
+  }
+
+  /**
+   * Appends an update to the log and syncs it to disk.
+   */
+  private void appendToLog(Collection<String> deletes, @Nullable byte[] segmentBytes)
+      throws IOException {
+    ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    DataOutputStream record = new DataOutputStream(recordBytes);
+    record.writeInt(deletes.size());
+    for (String id : deletes) {
+      record.writeUTF(id);
+    }
+    if (segmentBytes == null) {
+      record.writeInt(-1);
+    } else {
+      record.writeInt(segmentBytes.length);
+      record.write(segmentBytes);
+    }
+    record.flush();
+
+    CRC32 crc = new CRC32();
+    crc.update(recordBytes.toByteArray());
+    ByteBuffer buffer = ByteBuffer.allocate(LOG_RECORD_HEADER_SIZE + recordBytes.size());
+    buffer.putInt(recordBytes.size()).putLong(crc.getValue()).put(recordBytes.toByteArray());
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      log.write(buffer);
+    }
+    log.force(false);
+  }
+
+  private void writeCommit(List<LiveSegment> committed, long logGeneration) throws IOException {
+    File tmpFile = new File(dir, COMMIT_FILE + ".tmp");
+    try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+      DataOutputStream output = new DataOutputStream(fos);
+      output.writeInt(COMMIT_MAGIC);
+      output.writeInt(COMMIT_VERSION);
+      output.writeLong(nextSegmentId);
+      output.writeLong(logGeneration);
+      output.writeInt(committed.size());
+      for (LiveSegment segment : committed) {
+        output.writeLong(segment.id);
+        output.writeInt(segment.deletesGeneration);
+      }
+      output.flush();
+      fos.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), new File(dir, COMMIT_FILE).toPath(),
+        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private void deleteUnreferencedFiles() {
+    Set<String> referenced = new HashSet<>();
+    referenced.add(COMMIT_FILE);
+    referenced.add(logFile(logGeneration).getName());
+    for (LiveSegment segment : segments) {
+      referenced.add(segmentFile(segment.id).getName());
+      referenced.add(deletesFile(segment.id, segment.deletesGeneration).getName());
+    }
+    for (File file : DirUtils.listFiles(dir)) {
+      if (!referenced.contains(file.getName()) && !file.delete()) {
+        LOG.debug("Failed to delete unreferenced metadata index file {}", file);
+      }
+    }
+  }
+
+  private File segmentFile(long id) {
+    return new File(dir, "_" + id + SEGMENT_SUFFIX);
+  }
+
+  private File deletesFile(long id, int generation) {
+    return new File(dir, "_" + id + "_" + generation + DELETES_SUFFIX);
+  }
+
+  private File logFile(long generation) {
+    return new File(dir, "_" + generation + LOG_SUFFIX);
+  }
+
+  private static ByteBuffer map(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static BitSet readDeletes(File file) throws IOException {
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      long[] words = new long[input.readInt()];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = input.readLong();
+      }
+      return BitSet.valueOf(words);
+    }
+  }
+
+  private static void writeDeletes(File file, BitSet deleted) throws IOException {
+    long[] words = deleted.toLongArray();
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      DataOutputStream output = new DataOutputStream(fos);
+      output.writeInt(words.length);
+      for (long word : words) {
+        output.writeLong(word);
+      }
+      output.flush();
+      fos.getFD().sync();
+    }
+  }
+
+  private static void writeFile(File file, byte[] bytes) throws IOException {
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      fos.write(bytes);
+      fos.getFD().sync();
+    }
+  }
+
+  /**
+   * A segment along with the set of its documents that are deleted. Instances never change once
+   * they are published by the index.
+   */
+  static final class LiveSegment {
+
+    private final long id;
+    private final Segment segment;
+    private final BitSet deleted;
+    private final int deletesGeneration;
+    private final boolean onDisk;
+    private final boolean deletesCommitted;
+    private final int liveDocs;
+
+    private LiveSegment(long id, Segment segment, BitSet deleted, int deletesGeneration,
+        boolean onDisk, boolean deletesCommitted) {
+      this.id = id;
+      this.segment = segment;
+      this.deleted = deleted;
+      this.deletesGeneration = deletesGeneration;
+      this.onDisk = onDisk;
+      this.deletesCommitted = deletesCommitted;
+      this.liveDocs = segment.getNumDocs() - deleted.cardinality();
+    }
+
+    Segment getSegment() {
+      return segment;
+    }
+
+    boolean isDeleted(int doc) {
+      return deleted.get(doc);
+    }
+
+    int getLiveDocs() {
+      return liveDocs;
+    }
+
+    /**
+     * @return the ordinal of the live document with the given id in this segment, or -1
+     */
+    int findDocument(String id) {
+      Segment.TermInfo term = segment.getTerm(IndexDocument.term(IndexDocument.ID_FIELD, id));
+      if (term == null) {
+        return -1;
+      }
+      int[] found = {-1};
+      segment.readPostings(term, (doc, freq) -> {
+        if (!deleted.get(doc)) {
+          found[0] = doc;
+        }
+      });
+      return found[0];
+    }
+  }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.metadata.embedded;
+
+import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.ScopedName;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable segment of the inverted index. A segment holds a number of documents, identified by
+ * their ordinal within the segment, and has the following sections:
+ * <ul>
+ *   <li>a fixed-width column for every document, with the creation time, the TTL and the
+ *   length of the user and system text fields;</li>
+ *   <li>the stored documents, which are the document id, the entity name and the metadata,
+ *   along with an index of their offsets;</li>
+ *   <li>the posting lists of all terms. A posting list is the sequence of documents that contain
+ *   the term, each with the frequency of the term in the document. Document ordinals are delta
+ *   encoded as variable-length integers, and the lowest bit of each delta tells whether the
+ *   frequency is 1 and is therefore omitted;</li>
+ *   <li>the sorted term dictionary, with the document frequency and the offset of the posting
+ *   list for each term. The dictionary is split into blocks of {@link #TERMS_PER_BLOCK} terms.
+ *   Within a block, every term only stores the suffix that it does not share with the previous
+ *   term. Only the first term of every block is kept in memory.</li>
+ * </ul>
+ *
+ * The same format is used for the segments in memory and on disk. Segments are created with a
+ * {@link Writer}, either from new documents or by merging the live documents of other segments.
+ */
+final class Segment {
+
+  private static final int MAGIC = 0x43444d49;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 11 * Integer.BYTES;
+  private static final int COLUMN_SIZE = 2 * Long.BYTES + 2 * Integer.BYTES;
+  private static final int TERMS_PER_BLOCK = 32;
+
+  /**
+   * The value of a numeric column if the document does not have it.
+   */
+  static final long MISSING = Long.MIN_VALUE;
+
+  private final ByteBuffer buffer;
+  private final int numDocs;
+  private final int numTerms;
+  private final int columnsOffset;
+  private final int storedIndexOffset;
+  private final int storedOffset;
+  private final int postingsOffset;
+  private final String[] blockTerms;
+  private final int[] blockOffsets;
+  private final long userLength;
+  private final long systemLength;
+
+  /**
+   * Opens a segment from its serialized form.
+   */
+  Segment(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Invalid metadata index segment with magic " + buffer.getInt(0)
+          + " and version " + buffer.getInt(4));
+    }
+    this.numDocs = buffer.getInt(8);
+    this.numTerms = buffer.getInt(12);
+    this.columnsOffset = buffer.getInt(16);
+    this.storedIndexOffset = buffer.getInt(20);
+    this.storedOffset = buffer.getInt(24);
+    this.postingsOffset = buffer.getInt(28);
+    int blockIndexOffset = buffer.getInt(36);
+    int numBlocks = buffer.getInt(40);
+    this.blockTerms = new String[numBlocks];
+    this.blockOffsets = new int[numBlocks];
+    for (int i = 0; i < numBlocks; i++) {
+      blockOffsets[i] = buffer.getInt(blockIndexOffset + i * Integer.BYTES);
+      Input input = new Input(buffer, blockOffsets[i]);
+      // the first term in each block has no shared prefix
+      input.readVarInt();
+      blockTerms[i] = input.readString();
+    }
+    long userLength = 0;
+    long systemLength = 0;
+    for (int doc = 0; doc < numDocs; doc++) {
+      userLength += getFieldLength(doc, MetadataScope.USER);
+      systemLength += getFieldLength(doc, MetadataScope.SYSTEM);
+    }
+    this.userLength = userLength;
+    this.systemLength = systemLength;
+  }
+
+  int getNumDocs() {
+    return numDocs;
+  }
+
+  /**
+   * @return the total number of tokens in the user or system text field of all documents
+   */
+  long getTotalFieldLength(MetadataScope scope) {
+    return MetadataScope.USER == scope ? userLength : systemLength;
+  }
+
+  /**
+   * @return the creation time of a document, or {@link #MISSING}
+   */
+  long getCreated(int doc) {
+    return buffer.getLong(columnsOffset + doc * COLUMN_SIZE);
+  }
+
+  /**
+   * @return the TTL of a document, or {@link #MISSING}
+   */
+  long getTtl(int doc) {
+    return buffer.getLong(columnsOffset + doc * COLUMN_SIZE + Long.BYTES);
+  }
+
+  /**
+   * @return the number of tokens in the user or system text field of a document
+   */
+  int getFieldLength(int doc, MetadataScope scope) {
+    return buffer.getInt(columnsOffset + doc * COLUMN_SIZE + 2 * Long.BYTES
+        + (MetadataScope.USER == scope ? 0 : Integer.BYTES));
+  }
+
+  String getId(int doc) {
+    return storedInput(doc).readString();
+  }
+
+  String getName(int doc) {
+    Input input = storedInput(doc);
+    input.skipString();
+    return input.readString();
+  }
+
+  Metadata getMetadata(int doc) {
+    Input input = storedInput(doc);
+    input.skipString();
+    input.skipString();
+    Set<ScopedName> tags = new HashSet<>();
+    for (int i = input.readVarInt(); i > 0; i--) {
+      MetadataScope scope = MetadataScope.values()[input.readVarInt()];
+      tags.add(new ScopedName(scope, input.readString()));
+    }
+    Map<ScopedName, String> properties = new HashMap<>();
+    for (int i = input.readVarInt(); i > 0; i--) {
+      MetadataScope scope = MetadataScope.values()[input.readVarInt()];
+      properties.put(new ScopedName(scope, input.readString()), input.readString());
+    }
+    return new Metadata(tags, properties);
+  }
+
+  private Input storedInput(int doc) {
+    return new Input(buffer, storedOffset + buffer.getInt(storedIndexOffset + doc * Integer.BYTES));
+  }
+
+  /**
+   * Looks up a term in the term dictionary.
+   *
+   * @return the term and its posting list, or null if the term is not in this segment
+   */
+  @Nullable
+  TermInfo getTerm(String term) {
+    List<TermInfo> terms = getTerms(term, term + '\u0000', 1);
+    return terms.isEmpty() || !terms.get(0).getTerm().equals(term) ? null : terms.get(0);
+  }
+
+  /**
+   * Returns the terms in a range of the term dictionary, in sorted order.
+   *
+   * @param from the first term to return, inclusive
+   * @param to the end of the range, exclusive, or null for the end of the dictionary
+   * @param maxTerms the maximum number of terms to return
+   */
+  List<TermInfo> getTerms(String from, @Nullable String to, int maxTerms) {
+    List<TermInfo> terms = new ArrayList<>();
+    if (blockTerms.length == 0) {
+      return terms;
+    }
+    // find the last block that starts at or before the first term
+    int block = Arrays.binarySearch(blockTerms, from);
+    if (block < 0) {
+      block = Math.max(0, -block - 2);
+    }
+    Input input = new Input(buffer, blockOffsets[block]);
+    String term = "";
+    int postings = 0;
+    for (int i = block * TERMS_PER_BLOCK; i < numTerms && terms.size() < maxTerms; i++) {
+      if (i % TERMS_PER_BLOCK == 0) {
+        // each block starts with a full term and an absolute posting list offset
+        input = new Input(buffer, blockOffsets[i / TERMS_PER_BLOCK]);
+        postings = 0;
+      }
+      int prefix = input.readVarInt();
+      term = term.substring(0, prefix) + input.readString();
+      int docFreq = input.readVarInt();
+      postings += input.readVarInt();
+      if (to != null && term.compareTo(to) >= 0) {
+        break;
+      }
+      if (term.compareTo(from) >= 0) {
+        terms.add(new TermInfo(term, docFreq, postingsOffset + postings));
+      }
+    }
+    return terms;
+  }
+
+  /**
+   * Reads the posting list of a term and passes every document to a visitor, in increasing order
+   * of document ordinals.
+   */
+  void readPostings(TermInfo term, PostingsVisitor visitor) {
+    Input input = new Input(buffer, term.offset);
+    int doc = 0;
+    for (int i = 0; i < term.getDocFreq(); i++) {
+      int code = input.readVarInt();
+      doc += code >>> 1;
+      visitor.visit(doc, (code & 1) != 0 ? 1 : input.readVarInt());
+    }
+  }
+
+  /**
+   * A term in the term dictionary along with its document frequency and the location of its
+   * posting list.
+   */
+  static final class TermInfo {
+
+    private final String term;
+    private final int docFreq;
+    private final int offset;
+
+    private TermInfo(String term, int docFreq, int offset) {
+      this.term = term;
+      this.docFreq = docFreq;
+      this.offset = offset;
+    }
+
+    String getTerm() {
+      return term;
+    }
+
+    int getDocFreq() {
+      return docFreq;
+    }
+  }
+
+  /**
+   * Receives the documents of a posting list.
+   */
+  interface PostingsVisitor {
+
+    void visit(int doc, int freq);
+  }
+
+  /**
+   * Reads variable-length integers and strings from a buffer, starting at a given position.
+   */
+  private static final class Input {
+
+    private final ByteBuffer buffer;
+    private int position;
+
+    Input(ByteBuffer buffer, int position) {
+      this.buffer = buffer;
+      this.position = position;
+    }
+
+    int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get(position++);
+        value |= (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    String readString() {
+      int length = readVarInt();
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(position++);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void skipString() {
+      int length = readVarInt();
+      position += length;
+    }
+  }
+
+  private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+    while ((value & ~0x7f) != 0) {
+      output.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte(value);
+  }
+
+  private static void writeString(DataOutputStream output, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(output, bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Builds a new segment from documents and from the live documents of existing segments. Documents
+   * are assigned consecutive ordinals in the order they are added.
+   */
+  static final class Writer {
+
+    private final ByteArrayOutputStream columnBytes = new ByteArrayOutputStream();
+    private final DataOutputStream columns = new DataOutputStream(columnBytes);
+    private final ByteArrayOutputStream storedBytes = new ByteArrayOutputStream();
+    private final DataOutputStream stored = new DataOutputStream(storedBytes);
+    private final List<Integer> storedOffsets = new ArrayList<>();
+    private final TreeMap<String, PostingsBuilder> postings = new TreeMap<>();
+    private int numDocs;
+
+    int getNumDocs() {
+      return numDocs;
+    }
+
+    /**
+     * Adds a new document to the segment.
+     */
+    void addDocument(IndexDocument document) throws IOException {
+      int doc = numDocs++;
+      storedOffsets.add(stored.size());
+      writeString(stored, document.getId());
+      writeString(stored, document.getName());
+      Metadata metadata = document.getMetadata();
+      writeVarInt(stored, metadata.getTags().size());
+      for (ScopedName tag : metadata.getTags()) {
+        writeVarInt(stored, tag.getScope().ordinal());
+        writeString(stored, tag.getName());
+      }
+      writeVarInt(stored, metadata.getProperties().size());
+      for (Map.Entry<ScopedName, String> property : metadata.getProperties().entrySet()) {
+        writeVarInt(stored, property.getKey().getScope().ordinal());
+        writeString(stored, property.getKey().getName());
+        writeString(stored, property.getValue());
+      }
+
+      Map<String, List<String>> fields = document.getFields();
+      List<String> none = Collections.emptyList();
+      columns.writeLong(document.getCreated() == null ? MISSING : document.getCreated());
+      columns.writeLong(document.getTtl() == null ? MISSING : document.getTtl());
+      columns.writeInt(fields.getOrDefault(IndexDocument.USER_FIELD, none).size());
+      columns.writeInt(fields.getOrDefault(IndexDocument.SYSTEM_FIELD, none).size());
+
+      for (Map.Entry<String, List<String>> field : fields.entrySet()) {
+        Map<String, Integer> freqs = new HashMap<>();
+        field.getValue().forEach(token -> freqs.merge(token, 1, Integer::sum));
+        for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+          postings.computeIfAbsent(IndexDocument.term(field.getKey(), entry.getKey()),
+              t -> new PostingsBuilder()).add(doc, entry.getValue());
+        }
+      }
+    }
+
+    /**
+     * Adds all documents of an existing segment that are not deleted. This copies the stored
+     * documents and merges the posting lists without decoding the documents.
+     */
+    void addSegment(Segment segment, BitSet deleted) throws IOException {
+      int[] docMap = new int[segment.numDocs];
+      for (int doc = 0; doc < segment.numDocs; doc++) {
+        if (deleted.get(doc)) {
+          docMap[doc] = -1;
+          continue;
+        }
+        docMap[doc] = numDocs++;
+        int start = segment.buffer.getInt(segment.storedIndexOffset + doc * Integer.BYTES);
+        int end = segment.buffer.getInt(segment.storedIndexOffset + (doc + 1) * Integer.BYTES);
+        storedOffsets.add(stored.size());
+        copy(segment.buffer, segment.storedOffset + start, end - start, stored);
+        copy(segment.buffer, segment.columnsOffset + doc * COLUMN_SIZE, COLUMN_SIZE, columns);
+      }
+      for (TermInfo term : segment.getTerms("", null, Integer.MAX_VALUE)) {
+        segment.readPostings(term, (doc, freq) -> {
+          if (docMap[doc] >= 0) {
+            postings.computeIfAbsent(term.getTerm(), t -> new PostingsBuilder())
+                .add(docMap[doc], freq);
+          }
+        });
+      }
+    }
+
+    private static void copy(ByteBuffer buffer, int position, int length,
+        DataOutputStream output) throws IOException {
+      for (int i = 0; i < length; i++) {
+        output.writeByte(buffer.get(position + i));
+      }
+    }
+
+    /**
+     * @return the serialized segment
+     */
+    byte[] toBytes() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+          HEADER_SIZE + columns.size() + stored.size());
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.write(new byte[HEADER_SIZE]);
+
+      int columnsOffset = output.size();
+      columnBytes.writeTo(output);
+
+      int storedIndexOffset = output.size();
+      for (int offset : storedOffsets) {
+        output.writeInt(offset);
+      }
+      output.writeInt(stored.size());
+
+      int storedOffset = output.size();
+      storedBytes.writeTo(output);
+
+      int postingsOffset = output.size();
+      int[] termPostings = new int[postings.size()];
+      int i = 0;
+      for (PostingsBuilder builder : postings.values()) {
+        termPostings[i++] = output.size() - postingsOffset;
+        builder.bytes.writeTo(output);
+      }
+
+      int dictionaryOffset = output.size();
+      List<Integer> blockOffsets = new ArrayList<>();
+      String previous = "";
+      i = 0;
+      for (Map.Entry<String, PostingsBuilder> entry : postings.entrySet()) {
+        String term = entry.getKey();
+        int prefix = 0;
+        int postingsDelta = termPostings[i];
+        if (i % TERMS_PER_BLOCK == 0) {
+          blockOffsets.add(output.size());
+        } else {
+          int max = Math.min(previous.length(), term.length());
+          while (prefix < max && previous.charAt(prefix) == term.charAt(prefix)) {
+            prefix++;
+          }
+          // do not split surrogate pairs between the prefix and the suffix
+          if (prefix > 0 && Character.isHighSurrogate(term.charAt(prefix - 1))) {
+            prefix--;
+          }
+          postingsDelta -= termPostings[i - 1];
+        }
+        writeVarInt(output, prefix);
+        writeString(output, term.substring(prefix));
+        writeVarInt(output, entry.getValue().docFreq);
+        writeVarInt(output, postingsDelta);
+        previous = term;
+        i++;
+      }
+
+      int blockIndexOffset = output.size();
+      for (int offset : blockOffsets) {
+        output.writeInt(offset);
+      }
+      output.close();
+
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, numDocs);
+      buffer.putInt(12, postings.size());
+      buffer.putInt(16, columnsOffset);
+      buffer.putInt(20, storedIndexOffset);
+      buffer.putInt(24, storedOffset);
+      buffer.putInt(28, postingsOffset);
+      buffer.putInt(32, dictionaryOffset);
+      buffer.putInt(36, blockIndexOffset);
+      buffer.putInt(40, blockOffsets.size());
+      return buffer.array();
+    }
+  }
+
+  /**
+   * Accumulates the compressed posting list of a term.
+   */
+  private static final class PostingsBuilder {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream output = new DataOutputStream(bytes);
+    private int lastDoc;
+    private int docFreq;
+
+    void add(int doc, int freq) {
+      try {
+        int delta = doc - lastDoc;
+        writeVarInt(output, delta << 1 | (freq == 1 ? 1 : 0));
+        if (freq != 1) {
+          writeVarInt(output, freq);
+        }
+      } catch (IOException e) {
+        // cannot happen when writing to a byte array
+        throw new IllegalStateException(e);
+      }
+      lastDoc = doc;
+      docFreq++;
+    }
+  }
+}
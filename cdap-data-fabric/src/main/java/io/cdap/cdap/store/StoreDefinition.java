@@ -1059,6 +1059,10 @@ public final class StoreDefinition {
         "destination_fields_table");
     public static final StructuredTableId SUMMARY_FIELDS_TABLE = new StructuredTableId(
         "summary_fields_table");
+    public static final StructuredTableId SUMMARY_ROLLUP_TABLE = new StructuredTableId(
+        "summary_rollup_table");
+    public static final StructuredTableId SUMMARY_ROLLUP_START_TABLE = new StructuredTableId(
+        "summary_rollup_start_table");
 
     public static final String DIRECTION_FIELD = "direction";
     public static final String ENDPOINT_NAMESPACE_FIELD = "endpoint_namespace";
@@ -1070,6 +1074,9 @@ public final class StoreDefinition {
     public static final String OPERATIONS_FIELD = "operations";
     public static final String DESTINATION_DATA_FIELD = "destination_data";
     public static final String ENDPOINT_FIELD = "endpoint_field";
+    public static final String GRANULARITY_FIELD = "granularity";
+    public static final String BUCKET_START_FIELD = "bucket_start";
+    public static final String ROLLUP_START_FIELD = "rollup_start";
 
     public static final StructuredTableSpecification ENDPOINT_CHECKSUM_SPEC =
         new StructuredTableSpecification.Builder()
@@ -1114,6 +1121,35 @@ public final class StoreDefinition {
                 ENDPOINT_FIELD)
             .build();
 
+    /**
+     * Day, week and month rollups of the incoming and outgoing summaries of endpoint fields, with
+     * one row per summary entry in a bucket. The start time is that of the last run that added
+     * the entry.
+     */
+    public static final StructuredTableSpecification SUMMARY_ROLLUP_SPEC =
+        new StructuredTableSpecification.Builder()
+            .withId(SUMMARY_ROLLUP_TABLE)
+            .withFields(Fields.stringType(DIRECTION_FIELD),
+                Fields.stringType(ENDPOINT_NAMESPACE_FIELD),
+                Fields.stringType(ENDPOINT_NAME_FIELD),
+                Fields.stringType(GRANULARITY_FIELD),
+                Fields.longType(BUCKET_START_FIELD),
+                Fields.stringType(ENDPOINT_FIELD),
+                Fields.stringType(DESTINATION_DATA_FIELD),
+                Fields.longType(START_TIME_FIELD))
+            .withPrimaryKeys(DIRECTION_FIELD, ENDPOINT_NAMESPACE_FIELD, ENDPOINT_NAME_FIELD,
+                GRANULARITY_FIELD, BUCKET_START_FIELD, ENDPOINT_FIELD, DESTINATION_DATA_FIELD)
+            .build();
+    public static final StructuredTableSpecification SUMMARY_ROLLUP_START_SPEC =
+        new StructuredTableSpecification.Builder()
+            .withId(SUMMARY_ROLLUP_START_TABLE)
+            .withFields(Fields.stringType(DIRECTION_FIELD),
+                Fields.stringType(ENDPOINT_NAMESPACE_FIELD),
+                Fields.stringType(ENDPOINT_NAME_FIELD),
+                Fields.longType(ROLLUP_START_FIELD))
+            .withPrimaryKeys(DIRECTION_FIELD, ENDPOINT_NAMESPACE_FIELD, ENDPOINT_NAME_FIELD)
+            .build();
+
     /**
      * Creates field lineage store tables.
      *
@@ -1125,6 +1161,8 @@ public final class StoreDefinition {
       createIfNotExists(tableAdmin, OPERATIONS_SPEC);
       createIfNotExists(tableAdmin, DESTINATION_FIELDS_SPEC);
       createIfNotExists(tableAdmin, SUMMARY_FIELDS_SPEC);
+      createIfNotExists(tableAdmin, SUMMARY_ROLLUP_SPEC);
+      createIfNotExists(tableAdmin, SUMMARY_ROLLUP_START_SPEC);
     }
   }
 
@@ -35,8 +35,16 @@ import io.cdap.cdap.security.authorization.AuthorizationTestModule;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -275,6 +283,72 @@ public class LevelDBTableCoreTest {
     }
   }
 
+  @Test
+  public void testConcurrentIncrementAndSwap() throws Exception {
+    String tableName = "testConcurrentIncrementTable";
+    service.ensureTableExists(tableName);
+
+    int numThreads = 8;
+    int numIterations = 500;
+    int numRows = 4;
+    byte[] col = colName.getBytes(StandardCharsets.UTF_8);
+    byte[] swapCol = "swapCol".getBytes(StandardCharsets.UTF_8);
+    byte[] swapRow = "swapRow".getBytes(StandardCharsets.UTF_8);
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      CyclicBarrier barrier = new CyclicBarrier(numThreads);
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        futures.add(executor.submit(() -> {
+          // Each thread uses its own table core, to verify that locking is shared across instances
+          LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+          barrier.await();
+          int swapped = 0;
+          for (int i = 0; i < numIterations; i++) {
+            byte[] row = getRowName(rowNamePrefix, i % numRows).getBytes(StandardCharsets.UTF_8);
+            table.increment(row, Collections.singletonMap(col, 1L));
+
+            // Increment all rows in one call
+            NavigableMap<byte[], NavigableMap<byte[], Long>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+            for (int r = 0; r < numRows; r++) {
+              NavigableMap<byte[], Long> increment = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+              increment.put(col, 1L);
+              updates.put(getRowName(rowNamePrefix, r).getBytes(StandardCharsets.UTF_8), increment);
+            }
+            table.increment(updates);
+
+            // Read-modify-write with swap, which only succeeds if no one else swapped in between
+            byte[] oldValue = table.getRow(swapRow, new byte[][] { swapCol }, null, null, -1, null).get(swapCol);
+            long current = oldValue == null ? 0L : Bytes.toLong(oldValue);
+            if (table.swap(swapRow, swapCol, oldValue, Bytes.toBytes(current + 1))) {
+              swapped++;
+            }
+          }
+          return swapped;
+        }));
+      }
+
+      int totalSwapped = 0;
+      for (Future<Integer> future : futures) {
+        totalSwapped += future.get(60, TimeUnit.SECONDS);
+      }
+
+      LevelDBTableCore table = new LevelDBTableCore(tableName, service);
+      for (int r = 0; r < numRows; r++) {
+        byte[] row = getRowName(rowNamePrefix, r).getBytes(StandardCharsets.UTF_8);
+        long expected = (long) numThreads * numIterations / numRows + (long) numThreads * numIterations;
+        Assert.assertEquals(expected, Bytes.toLong(table.getRow(row, new byte[][] { col }, null, null, -1, null)
+                                                     .get(col)));
+      }
+      Assert.assertEquals(totalSwapped, Bytes.toLong(table.getRow(swapRow, new byte[][] { swapCol }, null, null,
+                                                                  -1, null).get(swapCol)));
+    } finally {
+      executor.shutdownNow();
+      service.dropTable(tableName);
+    }
+  }
+
   /**
    * Write the given value as the latest at the target row and col.
    */
@@ -968,6 +968,27 @@ public class MetadataDatasetTest {
     });
   }
 
+  @Test
+  public void testScoreByDefaultIndex() throws Exception {
+    MetadataEntity ns1App = new NamespaceId("ns1").app("a").toMetadataEntity();
+    MetadataEntity ns1Other = new NamespaceId("ns1").app("b").toMetadataEntity();
+    txnl.execute(() -> {
+      dataset.addProperty(ns1App, "k1", "v1");
+      dataset.addProperty(ns1App, "k2", "v2");
+      dataset.addProperty(ns1Other, "k1", "v1");
+      dataset.addProperty(ns1Other, "k3", "v3");
+    });
+    txnl.execute(() -> dataset.removeProperties(ns1Other, "k1"));
+
+    SearchRequest request = new SearchRequest(new NamespaceId("ns1"), "v1 v2 v3", ALL_TYPES,
+                                              SortInfo.DEFAULT, 0, 10, 0, null, false,
+                                              EnumSet.allOf(EntityScope.class));
+    Map<MetadataEntity, Integer> scores = new HashMap<>();
+    txnl.execute(() -> dataset.scoreByDefaultIndex(request, scores));
+    // the removed metadata is not scored
+    Assert.assertEquals(ImmutableMap.of(ns1App, 2, ns1Other, 1), scores);
+  }
+
   @Test
   public void testCrossNamespaceDefaultSearch() throws Exception {
     MetadataEntity ns1App = new NamespaceId("ns1").app("a").toMetadataEntity();
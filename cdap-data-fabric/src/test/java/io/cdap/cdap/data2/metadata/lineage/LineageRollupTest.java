@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.metadata.lineage;
+
+import io.cdap.cdap.data2.metadata.lineage.LineageRollup.Granularity;
+import io.cdap.cdap.data2.metadata.lineage.LineageRollup.Span;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LineageRollup}.
+ */
+public class LineageRollupTest {
+
+  @Test
+  public void testBuckets() {
+    // 2023-03-15 is a Wednesday
+    long time = toMillis(2023, 3, 15) + TimeUnit.HOURS.toMillis(5);
+    Assert.assertEquals(toMillis(2023, 3, 15), Granularity.DAY.getStart(time));
+    Assert.assertEquals(toMillis(2023, 3, 13), Granularity.WEEK.getStart(time));
+    Assert.assertEquals(toMillis(2023, 3, 1), Granularity.MONTH.getStart(time));
+    Assert.assertEquals(toMillis(2023, 3, 16), Granularity.DAY.getEnd(toMillis(2023, 3, 15)));
+    Assert.assertEquals(toMillis(2023, 3, 20), Granularity.WEEK.getEnd(toMillis(2023, 3, 13)));
+    Assert.assertEquals(toMillis(2023, 4, 1), Granularity.MONTH.getEnd(toMillis(2023, 3, 1)));
+    Assert.assertEquals(toMillis(2024, 1, 1), Granularity.MONTH.getEnd(toMillis(2023, 12, 1)));
+  }
+
+  @Test
+  public void testCover() {
+    long now = toMillis(2023, 12, 20);
+    long start = toMillis(2022, 12, 20) + 1234;
+    long end = toMillis(2023, 12, 19) + 5678;
+    List<Span> spans = LineageRollup.cover(start, end, 0, now);
+    assertContiguous(spans, start, end);
+
+    // a year is covered by the partial days at either end, 11 months, and at most 6 days and
+    // 4 weeks on either side of the months
+    Assert.assertTrue(spans.size() <= 2 + 11 + 2 * (6 + 4));
+    Assert.assertNull(spans.get(0).getGranularity());
+    Assert.assertNull(spans.get(spans.size() - 1).getGranularity());
+    Assert.assertEquals(11, spans.stream().filter(s -> s.getGranularity() == Granularity.MONTH)
+        .count());
+
+    // buckets before the rollup start time are not used
+    long rollupStart = toMillis(2023, 6, 10);
+    spans = LineageRollup.cover(start, end, rollupStart, now);
+    assertContiguous(spans, start, end);
+    Assert.assertEquals(start, spans.get(0).getStart());
+    Assert.assertEquals(rollupStart, spans.get(0).getEnd());
+    Assert.assertNull(spans.get(0).getGranularity());
+    Assert.assertEquals(5, spans.stream().filter(s -> s.getGranularity() == Granularity.MONTH)
+        .count());
+
+    // no buckets after the current day
+    spans = LineageRollup.cover(start, Long.MAX_VALUE, 0, now);
+    assertContiguous(spans, start, Long.MAX_VALUE);
+    Assert.assertEquals(toMillis(2023, 12, 21), spans.get(spans.size() - 1).getStart());
+
+    // no rollups at all
+    spans = LineageRollup.cover(start, end, Long.MAX_VALUE, now);
+    assertContiguous(spans, start, end);
+    Assert.assertEquals(1, spans.size());
+
+    // a range that is within a single day
+    spans = LineageRollup.cover(start, start + 1000, 0, now);
+    assertContiguous(spans, start, start + 1000);
+    Assert.assertEquals(1, spans.size());
+  }
+
+  @Test
+  public void testRollupStart() {
+    long time = toMillis(2023, 3, 15) + 1000;
+    // no records before
+    Assert.assertEquals(toMillis(2023, 3, 15), LineageRollup.getRollupStart(time, null, null));
+    // records from before the rollups in a later day
+    Assert.assertEquals(toMillis(2023, 3, 18),
+        LineageRollup.getRollupStart(time, null, toMillis(2023, 3, 17) + 10));
+    // records from before the rollups in an earlier day
+    Assert.assertEquals(toMillis(2023, 3, 15),
+        LineageRollup.getRollupStart(time, null, toMillis(2023, 3, 10)));
+    // moves back, but never forward
+    Assert.assertEquals(toMillis(2023, 3, 15),
+        LineageRollup.getRollupStart(time, toMillis(2023, 4, 1), null));
+    Assert.assertEquals(toMillis(2023, 3, 12),
+        LineageRollup.getRollupStart(time, toMillis(2023, 3, 12), toMillis(2023, 3, 11)));
+  }
+
+  private static void assertContiguous(List<Span> spans, long start, long end) {
+    long time = start;
+    for (Span span : spans) {
+      Assert.assertEquals(time, span.getStart());
+      Assert.assertTrue(span.getEnd() > span.getStart());
+      if (span.getGranularity() != null) {
+        Assert.assertEquals(span.getStart(), span.getGranularity().getStart(span.getStart()));
+        Assert.assertEquals(span.getEnd(), span.getGranularity().getEnd(span.getStart()));
+      }
+      time = span.getEnd();
+    }
+    Assert.assertEquals(end, time);
+  }
+
+  private static long toMillis(int year, int month, int day) {
+    return LocalDate.of(year, month, day).atStartOfDay(ZoneOffset.UTC).toEpochSecond() * 1000;
+  }
+}
@@ -26,7 +26,12 @@ import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -135,6 +140,62 @@ public abstract class LineageTableTest {
     });
   }
 
+  @Test
+  public void testBatchedRelations() {
+    // program i reads dataset i and writes dataset i + 1, with runs over 60 days
+    long day = TimeUnit.DAYS.toMillis(1);
+    long base = System.currentTimeMillis() - 60 * day;
+    List<DatasetId> datasets = new ArrayList<>();
+    List<ProgramId> programs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      datasets.add(NamespaceId.DEFAULT.dataset("batchDataset" + i));
+      programs.add(NamespaceId.DEFAULT.app("batchApp").spark("program" + i));
+    }
+    datasets.add(NamespaceId.DEFAULT.dataset("batchDataset10"));
+
+    TransactionRunners.run(transactionRunner, context -> {
+      LineageTable lineageTable = LineageTable.create(context);
+      for (int i = 0; i < 10; i++) {
+        for (int d = 0; d < 60; d += i + 1) {
+          ProgramRunId run = programs.get(i).run(RunIds.generate(base + d * day + i * 1000));
+          lineageTable.addAccess(run, datasets.get(i), AccessType.READ, base + d * day);
+          lineageTable.addAccess(run, datasets.get(i + 1), AccessType.WRITE, base + d * day);
+        }
+      }
+    });
+
+    DatasetId unknownDataset = NamespaceId.DEFAULT.dataset("unknown");
+    Set<DatasetId> datasetSet = new HashSet<>(datasets);
+    datasetSet.add(unknownDataset);
+    Set<ProgramId> programSet = new HashSet<>(programs);
+    TransactionRunners.run(transactionRunner, context -> {
+      LineageTable lineageTable = LineageTable.create(context);
+      for (long[] range : ImmutableList.of(new long[] { 0, Long.MAX_VALUE },
+                                           new long[] { base + 5 * day + 10, base + 50 * day })) {
+        Map<DatasetId, Set<Relation>> datasetRelations =
+          lineageTable.getDatasetRelations(datasetSet, range[0], range[1], x -> true);
+        Assert.assertEquals(datasetSet, datasetRelations.keySet());
+        Assert.assertTrue(datasetRelations.get(unknownDataset).isEmpty());
+        for (DatasetId dataset : datasets) {
+          Set<Relation> expected = lineageTable.getRelations(dataset, range[0], range[1], x -> true);
+          Assert.assertFalse(expected.isEmpty());
+          Assert.assertEquals(expected, datasetRelations.get(dataset));
+        }
+
+        Map<ProgramId, Set<Relation>> programRelations =
+          lineageTable.getProgramRelations(programSet, range[0], range[1],
+                                           x -> x.getAccess() == AccessType.WRITE);
+        Assert.assertEquals(programSet, programRelations.keySet());
+        for (ProgramId program : programs) {
+          Set<Relation> expected = lineageTable.getRelations(program, range[0], range[1],
+                                                             x -> x.getAccess() == AccessType.WRITE);
+          Assert.assertFalse(expected.isEmpty());
+          Assert.assertEquals(expected, programRelations.get(program));
+        }
+      }
+    });
+  }
+
   @SafeVarargs
   private static <T> Set<T> toSet(T... elements) {
     return ImmutableSet.copyOf(elements);
@@ -23,6 +23,7 @@ import io.cdap.cdap.api.lineage.field.ReadOperation;
 import io.cdap.cdap.api.lineage.field.TransformOperation;
 import io.cdap.cdap.api.lineage.field.WriteOperation;
 import io.cdap.cdap.common.app.RunIds;
+import io.cdap.cdap.data2.metadata.lineage.LineageRollup;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
@@ -35,6 +36,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -224,6 +226,62 @@ public abstract class FieldLineageTableTest {
     });
   }
 
+  @Test
+  public void testSummaryRollups() {
+    // a run per day over 120 days, where two of the runs also write the file_name field
+    long day = TimeUnit.DAYS.toMillis(1);
+    long hour = TimeUnit.HOURS.toMillis(1);
+    long base = LineageRollup.Granularity.DAY.getStart(System.currentTimeMillis()) - 120 * day;
+    ProgramId program = new ProgramId("default", "app1", ProgramType.WORKFLOW, "workflow1");
+    FieldLineageInfo info1 = new FieldLineageInfo(generateOperations(false));
+    FieldLineageInfo info2 = new FieldLineageInfo(generateOperations(true));
+    List<Long> fileNameTimes = Arrays.asList(base + 40 * day + 6 * hour, base + 100 * day + 6 * hour);
+
+    TransactionRunners.run(transactionRunner, context -> {
+      FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
+      // add the later runs first, so that the rollup start time has to move back
+      for (int i = 0; i < 120; i++) {
+        long time = base + ((i + 60) % 120) * day + 6 * hour;
+        ProgramRunId programRun = program.run(RunIds.generate(time).getId());
+        fieldLineageTable.addFieldLineageInfo(programRun, fileNameTimes.contains(time) ? info2 : info1);
+      }
+    });
+
+    EndPoint source = EndPoint.of("ns1", "endpoint1");
+    EndPoint destination = EndPoint.of("myns", "another_file");
+    List<long[]> ranges = Arrays.asList(
+      new long[] { 0, Long.MAX_VALUE },
+      new long[] { base + 3 * day + 2 * hour, base + 90 * day + 5 * hour },
+      new long[] { base + 41 * day, base + 99 * day },
+      new long[] { base + 10 * day + 7 * hour, base + 10 * day + 9 * hour },
+      new long[] { base + 45 * day + 12 * hour, System.currentTimeMillis() }
+    );
+    TransactionRunners.run(transactionRunner, context -> {
+      FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
+      for (long[] range : ranges) {
+        boolean hasRun = false;
+        for (int i = 0; i < 120; i++) {
+          long time = base + i * day + 6 * hour;
+          hasRun |= time >= range[0] && time < range[1];
+        }
+        boolean hasFileName = fileNameTimes.stream().anyMatch(t -> t >= range[0] && t < range[1]);
+
+        Assert.assertEquals(hasRun ? Collections.singleton(new EndPointField(source, "offset"))
+                              : Collections.emptySet(),
+                            fieldLineageTable.getIncomingSummary(new EndPointField(destination, "offset"),
+                                                                 range[0], range[1]));
+        Assert.assertEquals(hasFileName ? Collections.singleton(new EndPointField(source, "file_name"))
+                              : Collections.emptySet(),
+                            fieldLineageTable.getIncomingSummary(new EndPointField(destination, "file_name"),
+                                                                 range[0], range[1]));
+        Assert.assertEquals(hasFileName ? Collections.singleton(new EndPointField(destination, "file_name"))
+                              : Collections.emptySet(),
+                            fieldLineageTable.getOutgoingSummary(new EndPointField(source, "file_name"),
+                                                                 range[0], range[1]));
+      }
+    });
+  }
+
   private List<Operation> generateOperations(boolean addAditionalField) {
     // read: file -> (offset, body)
     // parse: (body) -> (first_name, last_name)
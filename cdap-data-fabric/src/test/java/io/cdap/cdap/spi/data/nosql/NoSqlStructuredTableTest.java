@@ -17,6 +17,7 @@
 package io.cdap.cdap.spi.data.nosql;
 
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.dataset.table.Result;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
@@ -24,18 +25,25 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.data2.dataset2.DatasetFrameworkTestUtil;
 import io.cdap.cdap.data2.dataset2.lib.table.MDSKey;
+import io.cdap.cdap.spi.data.StructuredRow;
+import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.StructuredTableAdmin;
 import io.cdap.cdap.spi.data.StructuredTableTest;
+import io.cdap.cdap.spi.data.table.StructuredTableId;
 import io.cdap.cdap.spi.data.table.StructuredTableSchema;
+import io.cdap.cdap.spi.data.table.StructuredTableSpecification;
 import io.cdap.cdap.spi.data.table.field.Field;
 import io.cdap.cdap.spi.data.table.field.Fields;
+import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.annotation.Nullable;
@@ -202,6 +210,63 @@ public class NoSqlStructuredTableTest extends StructuredTableTest {
     Assert.assertEquals(actual.get(2), filterIndex.getValue());
   }
 
+  @Test
+  public void testKeysOnlyScans() throws Exception {
+    // The primary keys are only stored in the row keys. Scans that only need the keys must still
+    // see every row.
+    StructuredTableId tableId = new StructuredTableId("keysOnlyTable");
+    StructuredTableSpecification spec = new StructuredTableSpecification.Builder()
+      .withId(tableId)
+      .withFields(Fields.intType("k1"), Fields.stringType("k2"), Fields.stringType("v1"), Fields.longType("v2"))
+      .withPrimaryKeys("k1", "k2")
+      .build();
+    noSqlTableAdmin.createOrUpdate(spec);
+    try {
+      transactionRunner.run(context -> {
+        StructuredTable table = context.getTable(tableId);
+        for (int i = 0; i < 5; i++) {
+          table.upsert(Arrays.asList(Fields.intField("k1", i), Fields.stringField("k2", "k" + i),
+                                     Fields.stringField("v1", "v" + i)));
+        }
+      });
+
+      transactionRunner.run(context -> {
+        StructuredTable table = context.getTable(tableId);
+        Assert.assertEquals(5, table.count(Collections.singleton(Range.all())));
+        Assert.assertEquals(2, table.count(
+          Arrays.asList(Range.singleton(Collections.singleton(Fields.intField("k1", 1))),
+                        Range.singleton(Collections.singleton(Fields.intField("k1", 3))))));
+
+        // Rows without any of the projected value columns are returned as well
+        for (Collection<String> columns : Arrays.asList(Collections.<String>emptyList(), Arrays.asList("k1", "k2"),
+                                                        Arrays.asList("k1", "v2"))) {
+          try (CloseableIterator<StructuredRow> iterator =
+                 table.multiScan(Collections.singleton(Range.all()), Integer.MAX_VALUE, columns)) {
+            List<Integer> keys = new ArrayList<>();
+            iterator.forEachRemaining(row -> keys.add(row.getInteger("k1")));
+            Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), keys);
+          }
+        }
+      });
+
+      transactionRunner.run(context -> {
+        StructuredTable table = context.getTable(tableId);
+        table.updateAll(Range.singleton(Collections.singleton(Fields.intField("k1", 2))),
+                        Collections.singleton(Fields.longField("v2", 2L)));
+        Optional<StructuredRow> row = table.read(Arrays.asList(Fields.intField("k1", 2),
+                                                               Fields.stringField("k2", "k2")));
+        Assert.assertTrue(row.isPresent());
+        Assert.assertEquals("v2", row.get().getString("v1"));
+        Assert.assertEquals(Long.valueOf(2L), row.get().getLong("v2"));
+
+        table.deleteAll(Range.to(Collections.singleton(Fields.intField("k1", 2)), Range.Bound.INCLUSIVE));
+        Assert.assertEquals(2, table.count(Collections.singleton(Range.all())));
+      });
+    } finally {
+      noSqlTableAdmin.drop(tableId);
+    }
+  }
+
   private static class MockScanner implements Scanner {
     private final Iterator<Integer> iterator;
     private boolean closed;
@@ -58,6 +58,7 @@ import io.cdap.cdap.spi.metadata.ScopedNameOfKind;
 import io.cdap.cdap.spi.metadata.SearchRequest;
 import io.cdap.cdap.spi.metadata.SearchResponse;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
@@ -184,6 +185,46 @@ public class DatasetMetadataStorageTest extends MetadataStorageTest {
     mds.batch(ImmutableList.of(new Drop(service1), new Drop(dataset1), new Drop(dataset2)), MutationOptions.DEFAULT);
   }
 
+  @Test
+  public void testSearchWeightWithCursor() throws IOException {
+    MetadataStorage mds = getMetadataStorage();
+
+    NamespaceId nsId = new NamespaceId("ns1");
+    List<MetadataEntity> entities = new ArrayList<>();
+    List<Update> updates = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      MetadataEntity entity = nsId.app("app" + i).toMetadataEntity();
+      entities.add(entity);
+      // the first three apps also match the second term, hence have higher scores
+      Set<String> tags = i < 3 ? tags("weight", "heavy") : tags("weight");
+      updates.add(new Update(entity, new Metadata(USER, tags)));
+    }
+    mds.batch(updates, MutationOptions.DEFAULT);
+
+    // page through the results with cursors
+    List<MetadataEntity> found = new ArrayList<>();
+    SearchResponse response = mds.search(
+      SearchRequest.of("weight heavy").addNamespace("ns1").setLimit(2).setCursorRequested(true).build());
+    while (true) {
+      Assert.assertEquals(7, response.getTotalResults());
+      response.getResults().forEach(record -> found.add(record.getEntity()));
+      if (response.getCursor() == null) {
+        break;
+      }
+      validateCursor(response.getCursor(), found.size(), 2);
+      response = mds.search(SearchRequest.of("weight heavy").addNamespace("ns1")
+                              .setCursor(response.getCursor()).setCursorRequested(true).build());
+    }
+
+    // all apps are returned exactly once, with the higher scored ones first
+    Assert.assertEquals(7, found.size());
+    Assert.assertEquals(ImmutableSet.copyOf(entities), ImmutableSet.copyOf(found));
+    Assert.assertEquals(ImmutableSet.copyOf(entities.subList(0, 3)), ImmutableSet.copyOf(found.subList(0, 3)));
+
+    // clean up
+    mds.batch(entities.stream().map(Drop::new).collect(Collectors.toList()), MutationOptions.DEFAULT);
+  }
+
   // this test is specific to teh DatasetMetadataStorage, because of the specific way it tests pagination:
   // it requests offsets that are not a multiple of the page size, which is not supported in all implementations.
   @Test
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.metadata.embedded;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.metadata.MetadataEntity;
+import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.common.metadata.Cursor;
+import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.MetadataMutation.Drop;
+import io.cdap.cdap.spi.metadata.MetadataMutation.Update;
+import io.cdap.cdap.spi.metadata.MetadataRecord;
+import io.cdap.cdap.spi.metadata.MetadataStorage;
+import io.cdap.cdap.spi.metadata.MetadataStorageTest;
+import io.cdap.cdap.spi.metadata.MutationOptions;
+import io.cdap.cdap.spi.metadata.Read;
+import io.cdap.cdap.spi.metadata.SearchRequest;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link EmbeddedMetadataStorage}.
+ */
+public class EmbeddedMetadataStorageTest extends MetadataStorageTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static EmbeddedMetadataStorage storage;
+
+  @BeforeClass
+  public static void setup() throws IOException {
+    // use a small merge factor and flush size so that segments get merged frequently
+    storage = new EmbeddedMetadataStorage(TMP_FOLDER.newFolder(), 3, 10);
+    storage.createIndex();
+  }
+
+  @AfterClass
+  public static void teardown() throws IOException {
+    storage.dropIndex();
+    storage.close();
+  }
+
+  @Override
+  protected MetadataStorage getMetadataStorage() {
+    return storage;
+  }
+
+  @Override
+  protected List<String> getAdditionalTTLQueries() {
+    return ImmutableList.of("ttl:0003600", "TtL:03600", "TtL:03600.00");
+  }
+
+  @Override
+  protected void validateCursor(String cursor, int expectedOffset, int expectedPageSize) {
+    Cursor c = Cursor.fromString(cursor);
+    Assert.assertEquals(expectedOffset, c.getOffset());
+    Assert.assertEquals(expectedPageSize, c.getLimit());
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    File dir = TMP_FOLDER.newFolder();
+    List<MetadataRecord> records = IntStream.range(0, 50).mapToObj(i -> new MetadataRecord(
+        MetadataEntity.ofDataset("ns", "ds" + i),
+        new Metadata(MetadataScope.USER, tags("tag", "t" + i), props("p", "v" + i))))
+        .collect(Collectors.toList());
+
+    EmbeddedMetadataStorage mds = new EmbeddedMetadataStorage(dir, 3, 10);
+    // apply the mutations one by one, so that many segments are written and merged
+    for (MetadataRecord record : records) {
+      mds.apply(new Update(record.getEntity(), record.getMetadata()), MutationOptions.DEFAULT);
+    }
+    // drop some of the entities, and update others asynchronously
+    for (int i = 0; i < 10; i++) {
+      mds.apply(new Drop(records.get(i).getEntity()), MutationOptions.DEFAULT);
+    }
+    MutationOptions async = MutationOptions.builder().setAsynchronous(true).build();
+    Metadata extra = new Metadata(MetadataScope.USER, tags("extra"));
+    for (int i = 10; i < 15; i++) {
+      mds.apply(new Update(records.get(i).getEntity(), extra), async);
+    }
+    Assert.assertEquals(5, mds.search(SearchRequest.of("extra").build()).getTotalResults());
+    mds.close();
+
+    // reopen the index and validate that all changes were persisted
+    mds = new EmbeddedMetadataStorage(dir, 3, 10);
+    Assert.assertEquals(40, mds.search(SearchRequest.of("tag").build()).getTotalResults());
+    Assert.assertEquals(5, mds.search(SearchRequest.of("extra").build()).getTotalResults());
+    Assert.assertEquals(Metadata.EMPTY, mds.read(new Read(records.get(0).getEntity())));
+    Assert.assertEquals(records.get(20).getMetadata(),
+        mds.read(new Read(records.get(20).getEntity())));
+    assertResults(mds, SearchRequest.of("p:v30").build(), records.get(30));
+    assertResults(mds, SearchRequest.of("t4*").build(), records.get(40), records.get(41),
+        records.get(42), records.get(43), records.get(44), records.get(45), records.get(46),
+        records.get(47), records.get(48), records.get(49));
+
+    // the merge factor bounds the number of segments
+    File[] segments = dir.listFiles((d, name) -> name.endsWith(".seg"));
+    Assert.assertNotNull(segments);
+    Assert.assertTrue(segments.length <= 3);
+    mds.dropIndex();
+    mds.close();
+  }
+
+  @Test
+  public void testReopenWithoutClose() throws IOException {
+    File dir = TMP_FOLDER.newFolder();
+    MetadataEntity ds1 = MetadataEntity.ofDataset("ns", "ds1");
+    MetadataEntity ds2 = MetadataEntity.ofDataset("ns", "ds2");
+    Metadata meta1 = new Metadata(MetadataScope.USER, tags("t1"), props("p", "v1"));
+    Metadata meta2 = new Metadata(MetadataScope.USER, tags("t2"));
+    MutationOptions async = MutationOptions.builder().setAsynchronous(true).build();
+
+    // apply fewer asynchronous mutations than the flush size, and do not close the storage
+    EmbeddedMetadataStorage crashed = new EmbeddedMetadataStorage(dir, 3, 100);
+    crashed.batch(ImmutableList.of(new Update(ds1, meta1), new Update(ds2, meta2)), async);
+    crashed.apply(new Update(ds1, new Metadata(MetadataScope.USER, tags("t3"))), async);
+    crashed.apply(new Drop(ds2), async);
+
+    // a partially written update at the end of the log must be ignored
+    File[] logs = dir.listFiles((d, name) -> name.endsWith(".log"));
+    Assert.assertNotNull(logs);
+    Assert.assertEquals(1, logs.length);
+    try (FileOutputStream os = new FileOutputStream(logs[0], true)) {
+      os.write(new byte[] {0, 0, 1, 0, 1, 2, 3});
+    }
+
+    EmbeddedMetadataStorage mds = new EmbeddedMetadataStorage(dir, 3, 100);
+    Metadata expected = new Metadata(MetadataScope.USER, tags("t1", "t3"), props("p", "v1"));
+    Assert.assertEquals(expected, mds.read(new Read(ds1)));
+    Assert.assertEquals(Metadata.EMPTY, mds.read(new Read(ds2)));
+    assertResults(mds, SearchRequest.of("t3").build(), new MetadataRecord(ds1, expected));
+    Assert.assertEquals(0, mds.search(SearchRequest.of("t2").build()).getTotalResults());
+
+    // new mutations are appended after the updates that were replayed
+    mds.apply(new Update(ds2, meta2), async);
+    EmbeddedMetadataStorage reopened = new EmbeddedMetadataStorage(dir, 3, 100);
+    Assert.assertEquals(expected, reopened.read(new Read(ds1)));
+    Assert.assertEquals(meta2, reopened.read(new Read(ds2)));
+
+    for (EmbeddedMetadataStorage storage : ImmutableList.of(reopened, mds, crashed)) {
+      storage.dropIndex();
+      storage.close();
+    }
+  }
+}
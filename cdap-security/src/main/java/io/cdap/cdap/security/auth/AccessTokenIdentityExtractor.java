@@ -38,14 +38,17 @@ public class AccessTokenIdentityExtractor implements UserIdentityExtractor {
   private final TokenValidator tokenValidator;
   private final Codec<AccessToken> accessTokenCodec;
   private final Codec<UserIdentity> userIdentityCodec;
+  private final ValidatedTokenCache validatedTokenCache;
 
   @Inject
   public AccessTokenIdentityExtractor(TokenValidator tokenValidator,
       Codec<AccessToken> accessTokenCodec,
-      Codec<UserIdentity> userIdentityCodec) {
+      Codec<UserIdentity> userIdentityCodec,
+      ValidatedTokenCache validatedTokenCache) {
     this.tokenValidator = tokenValidator;
     this.accessTokenCodec = accessTokenCodec;
     this.userIdentityCodec = userIdentityCodec;
+    this.validatedTokenCache = validatedTokenCache;
   }
 
   /**
@@ -85,9 +88,12 @@ public class AccessTokenIdentityExtractor implements UserIdentityExtractor {
               state));
     }
 
-    byte[] decodedAccessToken = Base64.getDecoder().decode(accessToken);
     try {
-      AccessToken accessTokenObj = accessTokenCodec.decode(decodedAccessToken);
+      // The validator keeps the decoded form of tokens it validated
+      AccessToken accessTokenObj = validatedTokenCache.getIfPresent(accessToken);
+      if (accessTokenObj == null) {
+        accessTokenObj = accessTokenCodec.decode(Base64.getDecoder().decode(accessToken));
+      }
       UserIdentity userIdentityObj = accessTokenObj.getIdentifier();
       byte[] encodedAccessTokenIdentifier = userIdentityCodec.encode(userIdentityObj);
       UserIdentityPair pair = new UserIdentityPair(accessToken, userIdentityObj);
@@ -32,11 +32,14 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
   private static final Logger LOG = LoggerFactory.getLogger(AccessTokenValidator.class);
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  private final ValidatedTokenCache validatedTokenCache;
 
   @Inject
-  public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+  public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec,
+      ValidatedTokenCache validatedTokenCache) {
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.validatedTokenCache = validatedTokenCache;
   }
 
   @Override
@@ -59,11 +62,15 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
       LOG.debug("Token is missing");
       return TokenState.MISSING;
     }
+    if (validatedTokenCache.getIfValidated(token) != null) {
+      return state;
+    }
     byte[] decodedToken = Base64.getDecoder().decode(token);
 
     try {
       accessToken = accessTokenCodec.decode(decodedToken);
       tokenManager.validateSecret(accessToken);
+      validatedTokenCache.putValidated(token, accessToken);
     } catch (IOException ioe) {
       state = TokenState.INVALID;
       LOG.debug("Unknown Schema version for Access Token. {}", ioe);
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.auth;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of the serialized access tokens whose digest was verified by the {@link
+ * TokenManager}, so that a token presented repeatedly is only verified once in a while.
+ *
+ * <p>The cache is keyed by the whole serialized token, hence a token only hits the cache if both
+ * its identity and its digest are the same as a verified one. An entry expires after the
+ * configured time, which bounds how long a token signed with a retired key is still accepted, and
+ * is never used past the expiration of the token itself.</p>
+ */
+public class ValidatedTokenCache {
+
+  @Nullable
+  private final Cache<String, AccessToken> cache;
+  private volatile MetricsContext metricsContext = new NoopMetricsContext();
+
+  @Inject
+  public ValidatedTokenCache(CConfiguration cConf) {
+    this(cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE, 0L),
+        cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_EXPIRATION_SECS, 0L));
+  }
+
+  @VisibleForTesting
+  ValidatedTokenCache(long maxSize, long expirationSecs) {
+    this.cache = maxSize <= 0 || expirationSecs <= 0 ? null : CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(expirationSecs, TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(Collections.emptyMap());
+  }
+
+  /**
+   * Returns the decoded access token of the given serialized token if it was validated before.
+   *
+   * @param token the base64 serialized access token
+   * @return the decoded token, or {@code null} if the token needs to be validated
+   */
+  @Nullable
+  public AccessToken getIfValidated(String token) {
+    if (cache == null) {
+      return null;
+    }
+    AccessToken accessToken = cache.getIfPresent(token);
+    if (accessToken != null
+        && accessToken.getIdentifier().getExpireTimestamp() < System.currentTimeMillis()) {
+      cache.invalidate(token);
+      accessToken = null;
+    }
+    if (accessToken == null) {
+      metricsContext.increment(
+          Constants.Metrics.Authentication.TOKEN_VALIDATION_CACHE_MISS_COUNT, 1);
+    } else {
+      metricsContext.increment(
+          Constants.Metrics.Authentication.TOKEN_VALIDATION_CACHE_HIT_COUNT, 1);
+    }
+    return accessToken;
+  }
+
+  /**
+   * Returns the decoded access token of the given serialized token if it is in the cache, without
+   * counting the lookup. This is for callers that need the decoded form of a token that was just
+   * validated.
+   *
+   * @param token the base64 serialized access token
+   * @return the decoded token, or {@code null} if the token is not in the cache
+   */
+  @Nullable
+  public AccessToken getIfPresent(String token) {
+    if (cache == null) {
+      return null;
+    }
+    AccessToken accessToken = cache.getIfPresent(token);
+    if (accessToken == null
+        || accessToken.getIdentifier().getExpireTimestamp() < System.currentTimeMillis()) {
+      return null;
+    }
+    return accessToken;
+  }
+
+  /**
+   * Remembers a serialized token that passed {@link TokenManager#validateSecret(AccessToken)}.
+   *
+   * @param token the base64 serialized access token
+   * @param accessToken the decoded access token
+   */
+  public void putValidated(String token, AccessToken accessToken) {
+    if (cache != null) {
+      cache.put(token, accessToken);
+    }
+  }
+}
@@ -29,6 +29,7 @@ import io.cdap.cdap.security.auth.AccessToken;
 import io.cdap.cdap.security.auth.InvalidTokenException;
 import io.cdap.cdap.security.auth.TokenManager;
 import io.cdap.cdap.security.auth.UserIdentity;
+import io.cdap.cdap.security.auth.ValidatedTokenCache;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.Collections;
@@ -42,13 +43,15 @@ public class InternalAccessEnforcer extends AbstractAccessEnforcer {
 
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  private final ValidatedTokenCache validatedTokenCache;
 
   @Inject
   InternalAccessEnforcer(CConfiguration cConf, TokenManager tokenManager,
-      Codec<AccessToken> accessTokenCodec) {
+      Codec<AccessToken> accessTokenCodec, ValidatedTokenCache validatedTokenCache) {
     super(cConf);
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.validatedTokenCache = validatedTokenCache;
   }
 
   @Override
@@ -83,16 +86,19 @@ public class InternalAccessEnforcer extends AbstractAccessEnforcer {
       throw new IllegalStateException(
           "Attempted to internally enforce access on non-internal credential type");
     }
-    AccessToken accessToken;
-    try {
-      accessToken = accessTokenCodec.decode(Base64.getDecoder().decode(credential.getValue()));
-    } catch (IOException e) {
-      throw new AccessException("Failed to deserialize access token", e);
-    }
-    try {
-      tokenManager.validateSecret(accessToken);
-    } catch (InvalidTokenException e) {
-      throw new AccessException("Failed to validate access token", e);
+    AccessToken accessToken = validatedTokenCache.getIfValidated(credential.getValue());
+    if (accessToken == null) {
+      try {
+        accessToken = accessTokenCodec.decode(Base64.getDecoder().decode(credential.getValue()));
+      } catch (IOException e) {
+        throw new AccessException("Failed to deserialize access token", e);
+      }
+      try {
+        tokenManager.validateSecret(accessToken);
+      } catch (InvalidTokenException e) {
+        throw new AccessException("Failed to validate access token", e);
+      }
+      validatedTokenCache.putValidated(credential.getValue(), accessToken);
     }
     UserIdentity userIdentity = accessToken.getIdentifier();
     if (!userIdentity.getUsername().equals(principalName)) {
@@ -30,6 +30,7 @@ import io.cdap.cdap.security.auth.TokenManager;
 import io.cdap.cdap.security.auth.TokenValidator;
 import io.cdap.cdap.security.auth.UserIdentity;
 import io.cdap.cdap.security.auth.UserIdentityCodec;
+import io.cdap.cdap.security.auth.ValidatedTokenCache;
 
 /**
  * Guice bindings for core security related functionality including token and key management. This
@@ -52,9 +53,11 @@ public abstract class CoreSecurityModule extends PrivateModule {
 
     bindKeyManager(binder());
     bind(TokenManager.class).in(Scopes.SINGLETON);
+    bind(ValidatedTokenCache.class).in(Scopes.SINGLETON);
     bind(TokenValidator.class).to(AccessTokenValidator.class);
 
     expose(TokenValidator.class);
+    expose(ValidatedTokenCache.class);
     expose(TokenManager.class);
     expose(new TypeLiteral<Codec<AccessToken>>() {
     });
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.security.auth;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.IOModule;
+import io.cdap.cdap.common.guice.InMemoryDiscoveryModule;
+import io.cdap.cdap.common.io.Codec;
+import io.cdap.cdap.security.guice.CoreSecurityRuntimeModule;
+import java.util.Base64;
+import java.util.Collections;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ValidatedTokenCache}.
+ */
+public class ValidatedTokenCacheTest {
+
+  private static TokenManager tokenManager;
+  private static Codec<AccessToken> tokenCodec;
+  private static ValidatedTokenCache cache;
+  private static TokenValidator tokenValidator;
+
+  @BeforeClass
+  public static void setup() {
+    Injector injector = Guice.createInjector(new IOModule(),
+        new CoreSecurityRuntimeModule().getStandaloneModules(),
+        new ConfigModule(), new InMemoryDiscoveryModule());
+    tokenManager = injector.getInstance(TokenManager.class);
+    tokenManager.startAndWait();
+    tokenCodec = injector.getInstance(AccessTokenCodec.class);
+    cache = injector.getInstance(ValidatedTokenCache.class);
+    tokenValidator = injector.getInstance(TokenValidator.class);
+  }
+
+  @AfterClass
+  public static void teardown() {
+    tokenManager.stopAndWait();
+  }
+
+  @Test
+  public void testValidatedToken() throws Exception {
+    long now = System.currentTimeMillis();
+    String token = encode(tokenManager.signIdentifier(createIdentity(now, now + 3600000L)));
+
+    Assert.assertNull(cache.getIfValidated(token));
+    Assert.assertNull(cache.getIfPresent(token));
+    Assert.assertEquals(TokenState.VALID, tokenValidator.validate(token));
+    Assert.assertNotNull(cache.getIfValidated(token));
+    Assert.assertNotNull(cache.getIfPresent(token));
+    Assert.assertEquals(TokenState.VALID, tokenValidator.validate(token));
+  }
+
+  @Test
+  public void testInvalidTokenNotCached() throws Exception {
+    long now = System.currentTimeMillis();
+    AccessToken accessToken = tokenManager.signIdentifier(createIdentity(now, now + 3600000L));
+    byte[] digest = accessToken.getDigestBytes().clone();
+    digest[0]++;
+    String token = encode(new AccessToken(accessToken.getIdentifier(), accessToken.getKeyId(),
+        digest));
+
+    Assert.assertEquals(TokenState.INVALID, tokenValidator.validate(token));
+    Assert.assertNull(cache.getIfValidated(token));
+    Assert.assertEquals(TokenState.INVALID, tokenValidator.validate(token));
+  }
+
+  @Test
+  public void testExpiredToken() throws Exception {
+    ValidatedTokenCache cache = new ValidatedTokenCache(10, 3600);
+    long now = System.currentTimeMillis();
+    AccessToken accessToken = tokenManager.signIdentifier(createIdentity(now - 1000, now - 1));
+    String token = encode(accessToken);
+
+    // a cached token is not used past its own expiration
+    cache.putValidated(token, accessToken);
+    Assert.assertNull(cache.getIfValidated(token));
+    Assert.assertNull(cache.getIfPresent(token));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE, 0);
+    ValidatedTokenCache cache = new ValidatedTokenCache(cConf);
+    long now = System.currentTimeMillis();
+    AccessToken accessToken = tokenManager.signIdentifier(createIdentity(now, now + 3600000L));
+    String token = encode(accessToken);
+
+    cache.putValidated(token, accessToken);
+    Assert.assertNull(cache.getIfValidated(token));
+  }
+
+  private static UserIdentity createIdentity(long issueTime, long expireTime) {
+    return new UserIdentity("testuser", UserIdentity.IdentifierType.EXTERNAL,
+        Collections.singletonList("users"), issueTime, expireTime);
+  }
+
+  private static String encode(AccessToken accessToken) throws Exception {
+    return Base64.getEncoder().encodeToString(tokenCodec.encode(accessToken));
+  }
+}
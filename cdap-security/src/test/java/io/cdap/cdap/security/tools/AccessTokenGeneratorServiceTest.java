@@ -20,6 +20,7 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.http.DefaultHttpRequestConfig;
 import io.cdap.cdap.security.auth.AccessTokenValidator;
 import io.cdap.cdap.security.auth.TokenState;
+import io.cdap.cdap.security.auth.ValidatedTokenCache;
 import io.cdap.common.http.HttpMethod;
 import io.cdap.common.http.HttpRequest;
 import io.cdap.common.http.HttpRequests;
@@ -62,7 +63,9 @@ public class AccessTokenGeneratorServiceTest {
     HttpResponse response = HttpRequests.execute(request, new DefaultHttpRequestConfig(false));
     Assert.assertEquals(200, response.getResponseCode());
     AccessTokenValidator validator = new AccessTokenValidator(tokenGenerator.getTokenManager(),
-                                                              tokenGenerator.getTokenCodec());
+                                                              tokenGenerator.getTokenCodec(),
+                                                              new ValidatedTokenCache(
+                                                                CConfiguration.create()));
     String token = response.getResponseBodyAsString(StandardCharsets.UTF_8);
     TokenState tokenState = validator.validate(token);
     Assert.assertEquals(io.cdap.cdap.security.auth.TokenState.VALID, tokenState);
@@ -16,6 +16,8 @@
 
 package io.cdap.cdap.app.runtime.spark;
 
+import io.cdap.cdap.api.metrics.Counter;
+import io.cdap.cdap.api.metrics.Gauge;
 import io.cdap.cdap.api.metrics.Metrics;
 
 import java.io.Externalizable;
@@ -62,6 +64,16 @@ public final class SparkUserMetrics implements Metrics, Externalizable {
     delegate.gauge(metricName, value);
   }
 
+  @Override
+  public Counter counter(String metricName) {
+    return delegate.counter(metricName);
+  }
+
+  @Override
+  public Gauge gauge(String metricName) {
+    return delegate.gauge(metricName);
+  }
+
   @Override
   public Metrics child(Map<String, String> tags) {
     return delegate.child(tags);
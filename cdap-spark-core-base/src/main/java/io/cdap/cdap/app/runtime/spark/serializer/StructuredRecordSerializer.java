@@ -21,47 +21,146 @@ import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.gson.Gson;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.SchemaCache;
+import io.cdap.cdap.api.data.schema.SchemaHash;
 import io.cdap.cdap.format.io.StructuredRecordDatumReader;
 import io.cdap.cdap.format.io.StructuredRecordDatumWriter;
+import org.apache.spark.SparkEnv;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A Kryo {@link Serializer} for {@link StructuredRecord}.
+ *
+ * <p>Schemas that are registered in the {@link #SCHEMAS_CONF_KEY} Spark configuration are written
+ * as a small id, which is the position of the schema in the registered list without duplicates. The registry is
+ * read once when the serializer is created, so the driver and all executors of a Spark application share the same
+ * ids. Any other schema is written in full, as the schema hash followed by the schema json.</p>
+ *
+ * <p>Records written before the registry existed carry no version marker and are still readable.</p>
  */
 public class StructuredRecordSerializer extends Serializer<StructuredRecord> {
 
+  /**
+   * Spark configuration that holds a json array of the schema json strings to register.
+   */
+  public static final String SCHEMAS_CONF_KEY = "spark.cdap.structured.record.schemas";
+
+  private static final Gson GSON = new Gson();
   private static final StructuredRecordDatumWriter DATUM_WRITER = new StructuredRecordDatumWriter();
   private static final StructuredRecordDatumReader DATUM_READER = new StructuredRecordDatumReader();
 
+  // Marks the current encoding. The unversioned encoding starts with either the Kryo NOT_NULL marker (1)
+  // or the first hex character of the schema hash, so it can never start with this byte.
+  private static final byte VERSION_2 = 2;
+
+  // Written in place of a schema id when the full schema follows
+  private static final int UNREGISTERED_SCHEMA = 0;
+
+  private final List<Schema> schemas;
+  private final Map<SchemaHash, Integer> schemaIds;
+
+  public StructuredRecordSerializer() {
+    this(getRegisteredSchemas());
+  }
+
+  StructuredRecordSerializer(List<Schema> schemas) {
+    this.schemas = new ArrayList<>();
+    this.schemaIds = new HashMap<>();
+    // ids are positions in the list without duplicates, so that a registered duplicate doesn't shift them
+    for (Schema schema : schemas) {
+      if (schemaIds.putIfAbsent(schema.getSchemaHash(), this.schemas.size() + 1) == null) {
+        this.schemas.add(schema);
+      }
+    }
+  }
+
   @Override
   public void write(Kryo kryo, Output output, StructuredRecord record) {
-    // First write out the schema as two fields: hash and json representation
-    // Later with the cache we may skip deserializing JSON if schema is present in cache
-    kryo.writeObject(output, record.getSchema().getSchemaHash().toString());
-    kryo.writeObject(output, record.getSchema().toString());
+    Schema schema = record.getSchema();
+
+    output.writeByte(VERSION_2);
+    Integer schemaId = schemaIds.get(schema.getSchemaHash());
+    if (schemaId != null) {
+      output.writeVarInt(schemaId, true);
+    } else {
+      output.writeVarInt(UNREGISTERED_SCHEMA, true);
+      // Write out the schema as two fields: hash and json representation
+      // With the cache we may skip deserializing JSON if schema is present in cache
+      output.writeString(schema.getSchemaHash().toString());
+      output.writeString(schema.toString());
+    }
 
     // Then write out the data
     try {
       DATUM_WRITER.encode(record, new KryoEncoder(output));
     } catch (IOException e) {
-      throw new KryoException("Failed to encode StructuredRecord " + record.getSchema().getRecordName(), e);
+      throw new KryoException("Failed to encode StructuredRecord " + schema.getRecordName(), e);
     }
   }
 
   @Override
   public StructuredRecord read(Kryo kryo, Input input, Class<StructuredRecord> type) {
-    // Read the schema
-    String schemaHashStr = kryo.readObject(input, String.class);
-    String schemaJson = kryo.readObject(input, String.class);
-    Schema schema = SchemaCache.fromJson(schemaHashStr, schemaJson);
+    Schema schema = input.readByte() == VERSION_2 ? readSchema(input) : readUnversionedSchema(kryo, input);
     try {
       return DATUM_READER.read(new KryoDecoder(input), schema);
     } catch (IOException e) {
       throw new KryoException("Failed to decode StructuredRecord " + schema.getRecordName(), e);
     }
   }
+
+  private Schema readSchema(Input input) {
+    int schemaId = input.readVarInt(true);
+    if (schemaId == UNREGISTERED_SCHEMA) {
+      String schemaHashStr = input.readString();
+      String schemaJson = input.readString();
+      return SchemaCache.fromJson(schemaHashStr, schemaJson);
+    }
+    if (schemaId > schemas.size()) {
+      throw new KryoException("Unknown schema id " + schemaId + " for StructuredRecord. "
+                                + "The schemas registered in " + SCHEMAS_CONF_KEY + " differ from the writer's.");
+    }
+    return schemas.get(schemaId - 1);
+  }
+
+  /**
+   * Reads the schema of a record written without a version marker, which starts with the schema hash and json
+   * written as Kryo objects.
+   */
+  private Schema readUnversionedSchema(Kryo kryo, Input input) {
+    input.setPosition(input.position() - 1);
+    String schemaHashStr = kryo.readObject(input, String.class);
+    String schemaJson = kryo.readObject(input, String.class);
+    return SchemaCache.fromJson(schemaHashStr, schemaJson);
+  }
+
+  /**
+   * Returns the schemas registered in the configuration of the current {@link SparkEnv}, or an empty list if
+   * there is no {@link SparkEnv} or no registered schema.
+   */
+  private static List<Schema> getRegisteredSchemas() {
+    SparkEnv env = SparkEnv.get();
+    String schemasJson = env == null ? null : env.conf().get(SCHEMAS_CONF_KEY, null);
+    if (schemasJson == null) {
+      return Collections.emptyList();
+    }
+
+    List<Schema> schemas = new ArrayList<>();
+    for (String schemaJson : GSON.fromJson(schemasJson, String[].class)) {
+      try {
+        schemas.add(Schema.parseJson(schemaJson));
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Invalid schema in " + SCHEMAS_CONF_KEY + ": " + schemaJson, e);
+      }
+    }
+    return schemas;
+  }
 }
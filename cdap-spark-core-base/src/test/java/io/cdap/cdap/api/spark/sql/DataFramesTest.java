@@ -32,6 +32,7 @@ import scala.collection.JavaConversions;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -246,4 +247,42 @@ public class DataFramesTest {
     Assert.assertEquals(Arrays.asList("a", "b", "c", null),
                         record.<StructuredRecord>get("recordField").<Collection<String>>get("array"));
   }
+
+  @Test
+  public void testRepeatedConversions() {
+    Schema innerSchema = Schema.recordOf("Inner", Schema.Field.of("value", Schema.of(Schema.Type.INT)));
+    Schema schema = Schema.recordOf(
+      "Outer",
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("inners", Schema.arrayOf(Schema.nullableOf(innerSchema))));
+    Schema otherSchema = Schema.recordOf("Other", Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+    StructType dataType = DataFrames.toDataType(schema);
+    StructType otherDataType = DataFrames.toDataType(otherSchema);
+
+    // Converters are reused across records and types
+    for (int i = 0; i < 10; i++) {
+      StructuredRecord record = StructuredRecord.builder(schema)
+        .set("id", (long) i)
+        .set("inners", Arrays.asList(StructuredRecord.builder(innerSchema).set("value", i).build(), null))
+        .build();
+      StructuredRecord newRecord = DataFrames.fromRow(DataFrames.toRow(record, dataType), schema);
+      Assert.assertEquals(i, newRecord.<Long>get("id").longValue());
+      List<StructuredRecord> inners = newRecord.get("inners");
+      Assert.assertEquals(i, inners.get(0).<Integer>get("value").intValue());
+      Assert.assertNull(inners.get(1));
+
+      StructuredRecord otherRecord = StructuredRecord.builder(otherSchema).set("name", "name" + i).build();
+      Assert.assertEquals("name" + i,
+                          DataFrames.fromRow(DataFrames.toRow(otherRecord, otherDataType), otherSchema).get("name"));
+    }
+
+    // Errors still report the path of the field
+    try {
+      DataFrames.fromRow(RowFactory.create(1L, JavaConversions.asScalaBuffer(Arrays.asList(RowFactory.create(
+        new Object[] { null })))), schema);
+      Assert.fail("Expected failure for null value in non-nullable field");
+    } catch (NullPointerException e) {
+      Assert.assertTrue(e.getMessage().contains("/inners[]/value"));
+    }
+  }
 }
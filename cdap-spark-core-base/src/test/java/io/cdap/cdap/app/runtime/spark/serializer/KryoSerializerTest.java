@@ -17,12 +17,15 @@
 package io.cdap.cdap.app.runtime.spark.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.format.StructuredRecordStringConverter;
+import io.cdap.cdap.format.io.StructuredRecordDatumWriter;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -34,6 +37,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -251,6 +255,104 @@ public class KryoSerializerTest {
     Assert.assertSame(newRecord.getSchema(), newRecord2.getSchema());
   }
 
+  @Test
+  public void testStructuredRecordRegisteredSchemas() throws IOException {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+    Schema otherSchema = Schema.recordOf("other", Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      records.add(StructuredRecord.builder(schema).set("id", i).set("name", "name" + i).build());
+    }
+    StructuredRecord otherRecord = StructuredRecord.builder(otherSchema).set("id", 1L).build();
+
+    // Records of a registered schema only carry the schema id, even when written as separate top level objects
+    byte[] registeredBytes = writeRecords(createKryo(Collections.singletonList(schema)), records);
+    byte[] unregisteredBytes = writeRecords(createKryo(Collections.emptyList()), records);
+    Assert.assertTrue(registeredBytes.length * 4 < unregisteredBytes.length);
+
+    // Ids are assigned by position in the registry, so a separate serializer with the same registry can read them.
+    // Schemas that are not registered are written in full.
+    List<StructuredRecord> allRecords = new ArrayList<>(records);
+    allRecords.add(otherRecord);
+    byte[] bytes = writeRecords(createKryo(Arrays.asList(schema, otherSchema)), allRecords);
+    assertRecords(allRecords, createKryo(Arrays.asList(schema, otherSchema)), bytes);
+    bytes = writeRecords(createKryo(Collections.singletonList(schema)), allRecords);
+    assertRecords(allRecords, createKryo(Collections.singletonList(schema)), bytes);
+
+    // A schema registered more than once doesn't shift the ids of the schemas after it
+    List<Schema> duplicates = Arrays.asList(schema, schema, otherSchema);
+    bytes = writeRecords(createKryo(duplicates), allRecords);
+    assertRecords(allRecords, createKryo(duplicates), bytes);
+  }
+
+  @Test
+  public void testStructuredRecordUnversionedFormat() throws IOException {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      records.add(StructuredRecord.builder(schema).set("id", i).set("name", "name" + i).build());
+    }
+
+    for (boolean references : Arrays.asList(true, false)) {
+      // Write the records the way the serializer did before it had a version marker
+      Kryo unversionedKryo = new Kryo();
+      unversionedKryo.setReferences(references);
+      unversionedKryo.addDefaultSerializer(StructuredRecord.class, new Serializer<StructuredRecord>() {
+        @Override
+        public void write(Kryo kryo, Output output, StructuredRecord record) {
+          kryo.writeObject(output, record.getSchema().getSchemaHash().toString());
+          kryo.writeObject(output, record.getSchema().toString());
+          try {
+            new StructuredRecordDatumWriter().encode(record, new KryoEncoder(output));
+          } catch (IOException e) {
+            throw new KryoException(e);
+          }
+        }
+
+        @Override
+        public StructuredRecord read(Kryo kryo, Input input, Class<StructuredRecord> type) {
+          throw new UnsupportedOperationException();
+        }
+      });
+      byte[] bytes = writeRecords(unversionedKryo, records);
+
+      Kryo kryo = createKryo(Collections.singletonList(schema));
+      kryo.setReferences(references);
+      assertRecords(records, kryo, bytes);
+    }
+  }
+
+  private Kryo createKryo(List<Schema> registeredSchemas) {
+    Kryo kryo = new Kryo();
+    kryo.addDefaultSerializer(Schema.class, SchemaSerializer.class);
+    kryo.addDefaultSerializer(StructuredRecord.class, new StructuredRecordSerializer(registeredSchemas));
+    return kryo;
+  }
+
+  private byte[] writeRecords(Kryo kryo, List<StructuredRecord> records) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (Output output = new Output(bos)) {
+      for (StructuredRecord record : records) {
+        kryo.writeObject(output, record);
+      }
+    }
+    return bos.toByteArray();
+  }
+
+  private void assertRecords(List<StructuredRecord> expected, Kryo kryo, byte[] bytes) throws IOException {
+    Input input = new Input(bytes);
+    for (StructuredRecord record : expected) {
+      Assert.assertEquals(StructuredRecordStringConverter.toJsonString(record),
+                          StructuredRecordStringConverter.toJsonString(
+                            kryo.readObject(input, StructuredRecord.class)));
+    }
+    Assert.assertTrue(input.eof());
+  }
+
   @Test
   public void testAllTypesChecked() {
     Schema schema = createSchema();
@@ -73,18 +73,7 @@ public class SpannerStructuredTable implements StructuredTable {
 
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException {
-    Map<String, Field<?>> fieldMap = fields.stream()
-        .collect(Collectors.toMap(Field::getName, Function.identity()));
-    List<Field<?>> primaryKeyFields = new ArrayList<>();
-
-    for (String key : schema.getPrimaryKeys()) {
-      Field<?> field = fieldMap.get(key);
-      if (field == null) {
-        throw new InvalidFieldException(schema.getTableId(), key,
-            "Missing primary key field " + key);
-      }
-      primaryKeyFields.add(field);
-    }
+    List<Field<?>> primaryKeyFields = getPrimaryKeyFields(fields);
 
     // Cloud Spanner doesn't support upsert. The best we can do is to read the existing row and update it if it exists
     // in the same transaction.
@@ -97,8 +86,53 @@ public class SpannerStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException {
+    if (multiFields.isEmpty()) {
+      return;
+    }
+
+    // Read all the existing rows with one read, then perform all the inserts and updates with one batch DML.
+    // Batch DML is used instead of mutations so that the writes are visible to later reads in the same transaction.
+    KeySet.Builder keySetBuilder = KeySet.newBuilder();
+    for (Collection<Field<?>> fields : multiFields) {
+      keySetBuilder.addKey(getKey(getPrimaryKeyFields(fields)));
+    }
+
+    Set<Key> existingKeys = new HashSet<>();
+    try (ResultSet resultSet = transactionContext.read(schema.getTableId().getName(),
+        keySetBuilder.build(), schema.getPrimaryKeys())) {
+      while (resultSet.next()) {
+        existingKeys.add(getKey(
+            new SpannerStructuredRow(schema, resultSet.getCurrentRowAsStruct()).getPrimaryKeys()));
+      }
+    }
+
+    List<Statement> statements = new ArrayList<>(multiFields.size());
+    for (Collection<Field<?>> fields : multiFields) {
+      Key key = getKey(getPrimaryKeyFields(fields));
+      if (existingKeys.contains(key)) {
+        statements.add(createUpdateStatement(fields));
+      } else {
+        statements.add(createInsertStatement(fields));
+        // Subsequent upsert of the same row in this batch becomes an update
+        existingKeys.add(key);
+      }
+    }
+    transactionContext.batchUpdate(statements);
+  }
+
   @Override
   public void update(Collection<Field<?>> fields) throws InvalidFieldException {
+    transactionContext.executeUpdate(createUpdateStatement(fields));
+  }
+
+  /**
+   * Creates a DML {@link Statement} for updating a row with the given fields.
+   */
+  private Statement createUpdateStatement(Collection<Field<?>> fields)
+      throws InvalidFieldException {
     List<Field<?>> primaryKeyFields = new ArrayList<>();
     List<Field<?>> updateFields = new ArrayList<>();
     Set<String> fieldNames = new HashSet<>();
@@ -126,13 +160,11 @@ public class SpannerStructuredTable implements StructuredTable {
 
     LOG.trace("Updating row: {}", sql);
 
-    Statement statement = fields.stream()
+    return fields.stream()
         .reduce(Statement.newBuilder(sql),
             (builder, field) -> builder.bind(field.getName()).to(getValue(field)),
             (builder1, builder2) -> builder1)
         .build();
-
-    transactionContext.executeUpdate(statement);
   }
 
   @Override
@@ -360,18 +392,36 @@ public class SpannerStructuredTable implements StructuredTable {
 
   @Override
   public void delete(Collection<Field<?>> keys) throws InvalidFieldException {
+    transactionContext.executeUpdate(createDeleteStatement(keys));
+  }
+
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException {
+    if (multiKeys.isEmpty()) {
+      return;
+    }
+    List<Statement> statements = new ArrayList<>(multiKeys.size());
+    for (Collection<Field<?>> keys : multiKeys) {
+      statements.add(createDeleteStatement(keys));
+    }
+    transactionContext.batchUpdate(statements);
+  }
+
+  /**
+   * Creates a DML {@link Statement} for deleting the row with the given primary keys.
+   */
+  private Statement createDeleteStatement(Collection<Field<?>> keys) throws InvalidFieldException {
     fieldValidator.validatePrimaryKeys(keys, false);
     String sql = "DELETE FROM " + escapeName(schema.getTableId().getName()) + " WHERE "
         + keys.stream().map(f -> escapeName(f.getName()) + " = @" + f.getName())
         .collect(Collectors.joining(" AND "));
 
-    Statement statement = keys.stream()
+    return keys.stream()
         .reduce(Statement.newBuilder(sql),
             (builder, field) -> builder.bind(field.getName()).to(getValue(field)),
             (builder1, builder2) -> builder1)
         .build();
-
-    transactionContext.executeUpdate(statement);
   }
 
   @Override
@@ -568,6 +618,14 @@ public class SpannerStructuredTable implements StructuredTable {
   }
 
   private void insert(Collection<Field<?>> fields) throws InvalidFieldException {
+    transactionContext.executeUpdate(createInsertStatement(fields));
+  }
+
+  /**
+   * Creates a DML {@link Statement} for inserting a row with the given fields.
+   */
+  private Statement createInsertStatement(Collection<Field<?>> fields)
+      throws InvalidFieldException {
     List<Field<?>> insertFields = new ArrayList<>();
     for (Field<?> field : fields) {
       fieldValidator.validateField(field);
@@ -582,13 +640,33 @@ public class SpannerStructuredTable implements StructuredTable {
 
     LOG.trace("Inserting row: {}", sql);
 
-    Statement statement = fields.stream()
+    return fields.stream()
         .reduce(Statement.newBuilder(sql),
             (builder, field) -> builder.bind(field.getName()).to(getValue(field)),
             (builder1, builder2) -> builder1)
         .build();
+  }
 
-    transactionContext.executeUpdate(statement);
+  /**
+   * Returns the primary key fields from the given fields, in the primary key order of the schema.
+   *
+   * @throws InvalidFieldException if any of the primary keys is missing
+   */
+  private List<Field<?>> getPrimaryKeyFields(Collection<Field<?>> fields)
+      throws InvalidFieldException {
+    Map<String, Field<?>> fieldMap = fields.stream()
+        .collect(Collectors.toMap(Field::getName, Function.identity()));
+    List<Field<?>> primaryKeyFields = new ArrayList<>();
+
+    for (String key : schema.getPrimaryKeys()) {
+      Field<?> field = fieldMap.get(key);
+      if (field == null) {
+        throw new InvalidFieldException(schema.getTableId(), key,
+            "Missing primary key field " + key);
+      }
+      primaryKeyFields.add(field);
+    }
+    return primaryKeyFields;
   }
 
   private Key createKey(Collection<Field<?>> fields) {
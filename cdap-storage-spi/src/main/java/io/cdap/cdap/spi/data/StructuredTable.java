@@ -47,6 +47,24 @@ public interface StructuredTable extends Closeable {
    */
   void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException;
 
+  /**
+   * Insert or replace multiple rows in the table. Each element of the given collection contains the
+   * fields of one row to write, as in {@link #upsert(Collection)}. The default implementation is to
+   * call {@link #upsert(Collection)} one by one. Implementations of this interface can provide an
+   * optimized version.
+   *
+   * @param multiFields a collection of fields of the rows to write
+   * @throws InvalidFieldException if any of the fields are not part of the table schema, or the
+   *     types of the value do not match
+   * @throws IOException if there is an error writing to the table
+   */
+  default void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+      throws InvalidFieldException, IOException {
+    for (Collection<Field<?>> fields : multiFields) {
+      upsert(fields);
+    }
+  }
+
   /**
    * Update the collection of fields to the table. The fields contain the primary key and other
    * columns to update.
@@ -227,6 +245,26 @@ public interface StructuredTable extends Closeable {
   CloseableIterator<StructuredRow> multiScan(Collection<Range> keyRanges,
       int limit) throws InvalidFieldException, IOException;
 
+  /**
+   * Read a set of rows from the table matching the set of key ranges, only reading the given
+   * columns. The primary keys are always read. Rows returned may contain other columns as well,
+   * depending on the implementation. Passing an empty collection of columns reads only the primary
+   * keys. Every row in the key ranges is returned, including the rows that have no value for any of
+   * the given columns. The rows returned will be sorted on the primary key order.
+   *
+   * @param keyRanges collection of key ranges for the scan
+   * @param limit maximum number of rows to return
+   * @param columns the columns to read in addition to the primary keys
+   * @return a {@link CloseableIterator} of rows
+   * @throws InvalidFieldException if any of the keys or columns are not part of the table
+   *     schema, or the types of the value do not match
+   * @throws IOException if there is an error scanning the table
+   */
+  default CloseableIterator<StructuredRow> multiScan(Collection<Range> keyRanges, int limit,
+      Collection<String> columns) throws InvalidFieldException, IOException {
+    return multiScan(keyRanges, limit);
+  }
+
   /**
    * Atomically compare and swap the value of a column in a row if the expected value matches. To
    * match a non-existent value, the value of the expected field should be null.
@@ -269,6 +307,23 @@ public interface StructuredTable extends Closeable {
    */
   void delete(Collection<Field<?>> keys) throws InvalidFieldException, IOException;
 
+  /**
+   * Delete multiple rows from the table. The default implementation is to call {@link
+   * #delete(Collection)} one by one. Implementations of this interface can provide an optimized
+   * version.
+   *
+   * @param multiKeys a collection of primary keys of the rows to delete
+   * @throws InvalidFieldException if any of the keys are not part of the table schema, or the
+   *     types of the value do not match
+   * @throws IOException if there is an error deleting from the table
+   */
+  default void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+      throws InvalidFieldException, IOException {
+    for (Collection<Field<?>> keys : multiKeys) {
+      delete(keys);
+    }
+  }
+
   /**
    * Delete a range of rows from the table.
    *
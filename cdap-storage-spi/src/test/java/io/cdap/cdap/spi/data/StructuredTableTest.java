@@ -156,6 +156,60 @@ public abstract class StructuredTableTest {
     Assert.assertEquals(Collections.emptyList(), actual);
   }
 
+  @Test
+  public void testMultiUpsertDelete() throws Exception {
+    int max = 10;
+
+    // Write all rows in one call, including an existing row and a row written twice
+    writeSimpleStructuredRows(1, "");
+    List<Collection<Field<?>>> rows = new ArrayList<>();
+    for (int i = 0; i < max; i++) {
+      rows.add(Arrays.asList(Fields.intField(KEY, i),
+                             Fields.longField(KEY2, (long) i),
+                             Fields.stringField(KEY3, "key3"),
+                             Fields.stringField(STRING_COL, VAL + i + "multi"),
+                             Fields.doubleField(DOUBLE_COL, (double) i),
+                             Fields.floatField(FLOAT_COL, (float) i),
+                             Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i))));
+    }
+    List<Collection<Field<?>>> expected = new ArrayList<>(rows);
+    rows.add(rows.get(0));
+
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(rows);
+    });
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Delete the even rows in one call
+    List<Collection<Field<?>>> keys = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      keys.add(Arrays.asList(Fields.intField(KEY, i),
+                             Fields.longField(KEY2, (long) i),
+                             Fields.stringField(KEY3, "key3")));
+    }
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiDelete(keys);
+    });
+
+    List<Collection<Field<?>>> odd = new ArrayList<>();
+    for (int i = 1; i < max; i += 2) {
+      odd.add(expected.get(i));
+    }
+    Assert.assertEquals(odd, readSimpleStructuredRows(max));
+
+    // Empty batches are no-op
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(Collections.emptyList());
+      table.multiDelete(Collections.emptyList());
+    });
+    Assert.assertEquals(odd, readSimpleStructuredRows(max));
+
+    deleteSimpleStructuredRows(max);
+  }
+
   @Test
   public void testMultiRead() throws Exception {
     int max = 100;
@@ -1536,6 +1590,59 @@ public abstract class StructuredTableTest {
     });
   }
 
+  @Test
+  public void testMultiScanColumns() throws Exception {
+    int max = 5;
+    List<Collection<Field<?>>> fields = writeSimpleStructuredRows(max, "");
+    List<String> keyColumns = Arrays.asList(KEY, KEY2, KEY3);
+    List<String> columns = Arrays.asList(KEY, KEY2, KEY3, STRING_COL);
+    List<Collection<Field<?>>> expected = fields.stream()
+      .map(row -> row.stream().filter(f -> columns.contains(f.getName())).collect(Collectors.toList()))
+      .collect(Collectors.toList());
+
+    Collection<Range> ranges = Arrays.asList(Range.to(Collections.singletonList(Fields.intField(KEY, 1)),
+                                                      Range.Bound.INCLUSIVE),
+                                             Range.from(Collections.singletonList(Fields.intField(KEY, 3)),
+                                                        Range.Bound.INCLUSIVE));
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      try (CloseableIterator<StructuredRow> iterator =
+             table.multiScan(ranges, max, Collections.singleton(STRING_COL))) {
+        Assert.assertEquals(Arrays.asList(expected.get(0), expected.get(1), expected.get(3), expected.get(4)),
+                            convertRowsToFields(iterator, columns));
+      }
+
+      // Only read the primary keys, including a row written in the same transaction
+      table.upsert(Arrays.asList(Fields.intField(KEY, max), Fields.longField(KEY2, (long) max),
+                                 Fields.stringField(KEY3, "key3"), Fields.stringField(STRING_COL, VAL)));
+      List<Collection<Field<?>>> expectedKeys;
+      try (CloseableIterator<StructuredRow> iterator = table.multiScan(Collections.singleton(Range.all()), max + 1)) {
+        expectedKeys = convertRowsToFields(iterator, keyColumns);
+      }
+      try (CloseableIterator<StructuredRow> iterator =
+             table.multiScan(Collections.singleton(Range.all()), max + 1, Collections.emptyList())) {
+        List<Collection<Field<?>>> keys = new ArrayList<>();
+        iterator.forEachRemaining(row -> keys.add(new ArrayList<>(row.getPrimaryKeys())));
+        Assert.assertEquals(max + 1, keys.size());
+        Assert.assertEquals(expectedKeys, keys);
+      }
+
+      // A row without any of the given columns is returned as well
+      table.upsert(Arrays.asList(Fields.intField(KEY, max + 1), Fields.longField(KEY2, (long) max + 1),
+                                 Fields.stringField(KEY3, "key3"), Fields.longField(LONG_COL, 1L)));
+      Range range = Range.singleton(Collections.singleton(Fields.intField(KEY, max + 1)));
+      try (CloseableIterator<StructuredRow> iterator =
+             table.multiScan(Collections.singleton(range), max, Collections.singleton(STRING_COL))) {
+        Assert.assertTrue(iterator.hasNext());
+        StructuredRow row = iterator.next();
+        Assert.assertEquals(Integer.valueOf(max + 1), row.getInteger(KEY));
+        Assert.assertNull(row.getString(STRING_COL));
+        Assert.assertFalse(iterator.hasNext());
+      }
+    });
+    deleteSimpleStructuredRows(max + 2);
+  }
+
   @Test
   public void testUpdate() throws Exception {
     List<Field<?>> fields = Arrays.asList(Fields.intField(KEY, 1),
@@ -20,6 +20,7 @@ import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.messaging.TopicNotFoundException;
 import io.cdap.cdap.messaging.data.RawMessage;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.tephra.Transaction;
 
@@ -37,6 +38,8 @@ public abstract class MessageFetcher {
 
   // by default there is virtually no limit
   private int limit = Integer.MAX_VALUE;
+  // by default the fetch returns immediately
+  private long waitTimeMillis;
 
   /**
    * Setup the message fetching starting point based on the given message id. Calling this method
@@ -98,6 +101,22 @@ public abstract class MessageFetcher {
     return this;
   }
 
+  /**
+   * Sets the maximum time to wait for new messages if there is no message available when the fetch
+   * is performed. By default, this is set to {@code 0}, meaning the fetch returns immediately.
+   *
+   * @param waitTime maximum time to wait for new messages
+   * @param unit the unit of the wait time
+   * @return this instance
+   */
+  public MessageFetcher setWaitTime(long waitTime, TimeUnit unit) {
+    if (waitTime < 0) {
+      throw new IllegalArgumentException("Invalid message fetching wait time. Wait time must be >= 0");
+    }
+    this.waitTimeMillis = unit.toMillis(waitTime);
+    return this;
+  }
+
   @Nullable
   protected byte[] getStartOffset() {
     return startOffset;
@@ -121,6 +140,10 @@ public abstract class MessageFetcher {
     return limit;
   }
 
+  protected long getWaitTimeMillis() {
+    return waitTimeMillis;
+  }
+
   /**
    * Returns a {@link CloseableIterator} that iterates over messages fetched from the messaging
    * system.
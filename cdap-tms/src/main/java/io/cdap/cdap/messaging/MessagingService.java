@@ -16,14 +16,20 @@
 
 package io.cdap.cdap.messaging;
 
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.messaging.TopicAlreadyExistsException;
 import io.cdap.cdap.api.messaging.TopicNotFoundException;
 import io.cdap.cdap.common.ServiceUnavailableException;
+import io.cdap.cdap.messaging.data.RawMessage;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.cdap.security.spi.authorization.UnauthorizedException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -100,6 +106,62 @@ public interface MessagingService {
    */
   MessageFetcher prepareFetch(TopicId topicId) throws TopicNotFoundException, IOException;
 
+  /**
+   * Fetches messages from multiple topics. Implementations may perform all fetches in one round
+   * trip to the messaging system. There can be at most one request per topic.
+   *
+   * @param requests the {@link TopicFetchRequest} for each topic to fetch from
+   * @return a {@link Map} from topic to the list of messages fetched from it, in the same order as
+   *     the requests
+   * @throws TopicNotFoundException if any of the topics doesn't exist
+   * @throws IOException if failed to fetch messages
+   * @throws ServiceUnavailableException if the messaging service is not available
+   */
+  default Map<TopicId, List<RawMessage>> batchFetch(Collection<TopicFetchRequest> requests)
+      throws TopicNotFoundException, IOException {
+    Map<TopicId, List<RawMessage>> result = new LinkedHashMap<>();
+    for (TopicFetchRequest request : requests) {
+      TopicId topicId = request.getTopicId();
+      if (result.containsKey(topicId)) {
+        throw new IllegalArgumentException("Only one fetch request per topic is allowed: " + topicId);
+      }
+      MessageFetcher fetcher = prepareFetch(topicId).setLimit(request.getLimit());
+      if (request.getStartMessageId() != null) {
+        fetcher.setStartMessage(request.getStartMessageId(), request.isInclusive());
+      }
+      List<RawMessage> messages = new ArrayList<>();
+      try (CloseableIterator<RawMessage> iterator = fetcher.fetch()) {
+        iterator.forEachRemaining(messages::add);
+      }
+      result.put(topicId, messages);
+    }
+    return result;
+  }
+
+  /**
+   * Publishes messages to multiple topics. Implementations may perform all publishes in one round
+   * trip to the messaging system. Only non-transactional {@link StoreRequest} is supported.
+   * Publishing is not atomic across requests. If it fails, the messages of some of the requests
+   * may already be published.
+   *
+   * @param requests the {@link StoreRequest}s containing messages to be published
+   * @throws TopicNotFoundException if any of the topics doesn't exist
+   * @throws IOException if failed to publish messages
+   * @throws ServiceUnavailableException if the messaging service is not available
+   */
+  default void batchPublish(Collection<? extends StoreRequest> requests)
+      throws TopicNotFoundException, IOException, UnauthorizedException {
+    for (StoreRequest request : requests) {
+      if (request.isTransactional()) {
+        throw new IllegalArgumentException(
+            "Transactional publish is not supported in batch publish. Topic: " + request.getTopicId());
+      }
+    }
+    for (StoreRequest request : requests) {
+      publish(request);
+    }
+  }
+
   /**
    * Publishes a list of messages to the messaging system.
    *
@@ -67,6 +67,30 @@ public final class Schemas {
 
       public static final Schema SCHEMA = loadSchema(ConsumeResponse.class);
     }
+
+    /**
+     * Contains schema for multi-topic consume request.
+     */
+    public static final class BatchConsumeRequest {
+
+      public static final Schema SCHEMA = loadSchema(BatchConsumeRequest.class);
+    }
+
+    /**
+     * Contains schema for multi-topic consume response.
+     */
+    public static final class BatchConsumeResponse {
+
+      public static final Schema SCHEMA = loadSchema(BatchConsumeResponse.class);
+    }
+
+    /**
+     * Contains schema for multi-topic publish request.
+     */
+    public static final class BatchPublishRequest {
+
+      public static final Schema SCHEMA = loadSchema(BatchPublishRequest.class);
+    }
   }
 
   private Schemas() {
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging;
+
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.Arrays;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a request to fetch messages from one topic as part of a
+ * {@link MessagingService#batchFetch(java.util.Collection) multi-topic fetch}.
+ */
+public final class TopicFetchRequest {
+
+  private final TopicId topicId;
+  private final byte[] startMessageId;
+  private final boolean inclusive;
+  private final int limit;
+
+  /**
+   * Creates a request to fetch from the first available message in the topic.
+   *
+   * @param topicId the topic to fetch from
+   * @param limit maximum number of messages to fetch
+   */
+  public TopicFetchRequest(TopicId topicId, int limit) {
+    this(topicId, null, true, limit);
+  }
+
+  /**
+   * Creates a request to fetch from the given message id.
+   *
+   * @param topicId the topic to fetch from
+   * @param startMessageId the message id to start fetching from or {@code null} to fetch from
+   *     the first available message
+   * @param inclusive if {@code true}, the message identified by the start message id will be
+   *     included in the result
+   * @param limit maximum number of messages to fetch
+   */
+  public TopicFetchRequest(TopicId topicId, @Nullable byte[] startMessageId, boolean inclusive,
+      int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid message fetching limit. Limit must be > 0");
+    }
+    this.topicId = topicId;
+    this.startMessageId = startMessageId;
+    this.inclusive = inclusive;
+    this.limit = limit;
+  }
+
+  public TopicId getTopicId() {
+    return topicId;
+  }
+
+  @Nullable
+  public byte[] getStartMessageId() {
+    return startMessageId;
+  }
+
+  public boolean isInclusive() {
+    return inclusive;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TopicFetchRequest that = (TopicFetchRequest) o;
+    return inclusive == that.inclusive
+        && limit == that.limit
+        && topicId.equals(that.topicId)
+        && Arrays.equals(startMessageId, that.startMessageId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(topicId, Arrays.hashCode(startMessageId), inclusive, limit);
+  }
+
+  @Override
+  public String toString() {
+    return "TopicFetchRequest{"
+        + "topicId=" + topicId
+        + ", inclusive=" + inclusive
+        + ", limit=" + limit
+        + '}';
+  }
+}
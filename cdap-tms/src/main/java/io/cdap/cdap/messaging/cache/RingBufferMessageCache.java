@@ -0,0 +1,394 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MessageCache} that keeps the tail of a topic in a pre-sized ring buffer. Since TMS has a
+ * single writer per topic and entries are always appended in increasing order, entries are stored
+ * in a circular array addressed by a monotonically increasing sequence number. Entries between the
+ * {@code head} and the {@code tail} sequence numbers are valid.
+ *
+ * Readers never take a lock. A scan uses binary search to seek to the start entry and then iterates
+ * the ring sequentially, without copying entries. After reading a slot, a reader verifies that the
+ * slot hasn't been evicted by the writer. If it has, the seek is retried or the iteration ends with
+ * {@link Scanner#isEvicted()} returning {@code true}, so that the caller can read the remaining
+ * entries from the table.
+ *
+ * Eviction is done inline by the writer. The oldest entries are removed when the ring is full or
+ * when adding an entry would go over the hard limit. This means the reduce trigger is not used, and
+ * fetchers never have to reduce the cache weight.
+ *
+ * @param <T> type of entry stored in the cache
+ */
+public class RingBufferMessageCache<T> implements MessageCache<T> {
+
+  private static final String METRICS_WEIGHT = "cache.weight";
+  private static final String METRICS_ENTRIES_ADDED = "cache.entries.added";
+  private static final String METRICS_ENTRIES_REMOVED = "cache.entries.removed";
+  private static final String METRICS_ADD_REQUESTS = "cache.add.requests";
+  private static final String METRICS_SCAN_REQUESTS = "cache.scan.requests";
+
+  private final Comparator<T> comparator;
+  private final Weigher<T> weigher;
+  private final AtomicReference<Limits> limits;
+  private final MetricsContext metricsContext;
+  private final AtomicReferenceArray<T> ring;
+  private final int[] weights;
+  private final int mask;
+  private final AtomicBoolean adding;
+  private final Lock writeLock;
+
+  // Sequence number of the first valid entry
+  private volatile long head;
+  // Sequence number of the next entry to be added
+  private volatile long tail;
+  private volatile long currentWeight;
+
+  /**
+   * Creates a new instance of the cache.
+   *
+   * @param comparator a {@link Comparator} for ordering cache entries
+   * @param weigher a {@link Weigher} for computing the weight of each cache entry
+   * @param limits the limits for maintaining cache weight. Only the hard limit and the min
+   *     retain are used.
+   * @param capacity maximum number of entries in the cache. It is rounded up to a power of two.
+   * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache.
+   */
+  public RingBufferMessageCache(Comparator<T> comparator, Weigher<T> weigher, Limits limits,
+      int capacity, MetricsContext metricsContext) {
+    Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30,
+        "Capacity must be between 1 and 2^30");
+
+    int size = Integer.highestOneBit(capacity);
+    size = size == capacity ? size : size << 1;
+
+    this.comparator = comparator;
+    this.weigher = weigher;
+    this.limits = new AtomicReference<>(limits);
+    this.metricsContext = metricsContext;
+    this.ring = new AtomicReferenceArray<>(size);
+    this.weights = new int[size];
+    this.mask = size - 1;
+    this.adding = new AtomicBoolean();
+    this.writeLock = new ReentrantLock();
+  }
+
+  /**
+   * Returns the number of entries the ring buffer can hold.
+   */
+  public int getCapacity() {
+    return ring.length();
+  }
+
+  @Override
+  public void addAll(Iterator<T> entries) {
+    if (!adding.compareAndSet(false, true)) {
+      // This is to guard against bug, otherwise this shouldn't happen
+      throw new ConcurrentModificationException(
+          "The MessageCache.addAll method shouldn't be called concurrently by multiple threads.");
+    }
+
+    int entriesAdded = 0;
+    int entriesRemoved = 0;
+    writeLock.lock();
+    try {
+      long hardLimit = limits.get().getHardLimit();
+      long weight = currentWeight;
+      long first = head;
+      long next = tail;
+      T largest = first < next ? ring.get(index(next - 1)) : null;
+
+      while (entries.hasNext()) {
+        T entry = entries.next();
+        if (largest != null && comparator.compare(largest, entry) >= 0) {
+          // Entries must be in strictly increasing order. Clear the cache to reset state.
+          // This shouldn't happen, unless there is bug in the TMS system (from the caller side).
+          currentWeight = weight;
+          tail = next;
+          clear();
+          throw new IllegalArgumentException("Cache entry must be in strictly increasing order. "
+              + "Entry " + entry + " is smaller than or equal to " + largest);
+        }
+        largest = entry;
+
+        int entryWeight = weigher.weight(entry);
+        // Evict from the head until the new entry fits.
+        // The head must be moved before the slot is reused, so that readers can detect the eviction.
+        while (first < next && (next - first > mask || weight + entryWeight > hardLimit)) {
+          weight -= weights[index(first)];
+          ring.set(index(first), null);
+          head = ++first;
+          entriesRemoved++;
+        }
+
+        // If the entry alone is heavier than the hard limit, don't cache it.
+        // The cache is empty at this point, hence there won't be a gap in the cached entries.
+        if (entryWeight > hardLimit) {
+          continue;
+        }
+
+        int idx = index(next);
+        weights[idx] = entryWeight;
+        ring.set(idx, entry);
+        weight += entryWeight;
+        tail = ++next;
+        entriesAdded++;
+      }
+
+      currentWeight = weight;
+    } finally {
+      writeLock.unlock();
+      adding.set(false);
+    }
+
+    metricsContext.increment(METRICS_ADD_REQUESTS, 1L);
+    metricsContext.increment(METRICS_ENTRIES_ADDED, entriesAdded);
+    metricsContext.increment(METRICS_ENTRIES_REMOVED, entriesRemoved);
+    metricsContext.gauge(METRICS_WEIGHT, currentWeight);
+  }
+
+  @Override
+  public Scanner<T> scan(T startEntry, boolean includeStart, int limit, MessageFilter<T> filter) {
+    metricsContext.increment(METRICS_SCAN_REQUESTS, 1L);
+    return new RingScanner(startEntry, includeStart, limit, filter);
+  }
+
+  @Override
+  public void updateEntries(T startEntry, T endEntry, EntryUpdater<T> updater) {
+    writeLock.lock();
+    try {
+      long first = head;
+      long next = tail;
+      long seq = seek(startEntry, true, first, next);
+      T lower = seq > first ? ring.get(index(seq - 1)) : null;
+
+      for (; seq < next; seq++) {
+        T entry = ring.get(index(seq));
+        if (comparator.compare(entry, endEntry) > 0) {
+          break;
+        }
+        T higher = seq + 1 < next ? ring.get(index(seq + 1)) : null;
+
+        try {
+          updater.updateEntry(entry);
+        } catch (RuntimeException e) {
+          clear();
+          throw e;
+        }
+        // Set the slot again, so that scanners reading it see the updated entry
+        ring.set(index(seq), entry);
+
+        // A quick check that the ordering hasn't been altered.
+        if ((lower != null && comparator.compare(lower, entry) >= 0)
+            || (higher != null && comparator.compare(higher, entry) <= 0)) {
+          // This shouldn't happen, unless there is bug in the caller.
+          clear();
+          throw new IllegalStateException("Entry order should not be altered after update.");
+        }
+        lower = entry;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      evict(0L);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void resize(Limits limits) {
+    writeLock.lock();
+    try {
+      this.limits.set(limits);
+      if (currentWeight > limits.getHardLimit()) {
+        evict(limits.getMinRetain());
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Comparator<T> getComparator() {
+    return comparator;
+  }
+
+  @Override
+  public Limits getLimits() {
+    return limits.get();
+  }
+
+  /**
+   * Returns the current cache weight.
+   */
+  @VisibleForTesting
+  long getCurrentWeight() {
+    return currentWeight;
+  }
+
+  /**
+   * Removes entries from the head until the cache weight is not larger than the given weight. Must
+   * be called with the write lock held.
+   */
+  private void evict(long retainWeight) {
+    int entriesRemoved = 0;
+    long weight = currentWeight;
+    long first = head;
+    long next = tail;
+    while (first < next && weight > retainWeight) {
+      weight -= weights[index(first)];
+      ring.set(index(first), null);
+      head = ++first;
+      entriesRemoved++;
+    }
+    currentWeight = weight;
+    metricsContext.increment(METRICS_ENTRIES_REMOVED, entriesRemoved);
+  }
+
+  /**
+   * Finds the sequence number of the first entry that is larger than, or equal to if {@code
+   * inclusive} is {@code true}, the given entry.
+   *
+   * @return the sequence number of the entry, which is in the range {@code [first, next]}, or
+   *     {@code -1} if an entry being examined was evicted concurrently
+   */
+  private long seek(T entry, boolean inclusive, long first, long next) {
+    long low = first;
+    long high = next;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      T midEntry = ring.get(index(mid));
+      if (midEntry == null || head > mid) {
+        return -1L;
+      }
+      int cmp = comparator.compare(midEntry, entry);
+      if (cmp < 0 || (cmp == 0 && !inclusive)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int index(long seq) {
+    return (int) (seq & mask);
+  }
+
+  /**
+   * A {@link Scanner} that iterates the ring buffer directly.
+   */
+  private final class RingScanner extends AbstractIterator<T> implements Scanner<T> {
+
+    private final int limit;
+    private final MessageFilter<T> filter;
+    private final T firstInCache;
+    private long position;
+    private int count;
+    private boolean evicted;
+    private boolean closed;
+
+    private RingScanner(T startEntry, boolean includeStart, int limit, MessageFilter<T> filter) {
+      this.limit = limit;
+      this.filter = filter;
+
+      // Retry the seek until it completes without racing with eviction
+      while (true) {
+        long first = head;
+        long next = tail;
+        T firstEntry = first < next ? ring.get(index(first)) : null;
+        if (firstEntry == null) {
+          if (first >= next) {
+            this.firstInCache = null;
+            this.position = next;
+            break;
+          }
+          continue;
+        }
+        long seq = seek(startEntry, includeStart, first, next);
+        if (seq >= 0 && head == first) {
+          this.firstInCache = firstEntry;
+          this.position = seq;
+          break;
+        }
+      }
+    }
+
+    @Override
+    protected T computeNext() {
+      while (!closed && count < limit && position < tail) {
+        T entry = ring.get(index(position));
+        if (entry == null || head > position) {
+          // The entry was evicted. End the scan, so that the caller continues with the table.
+          evicted = true;
+          break;
+        }
+        position++;
+
+        MessageFilter.Result result = filter.apply(entry);
+        if (result == MessageFilter.Result.ACCEPT) {
+          count++;
+          return entry;
+        }
+        if (result == MessageFilter.Result.HOLD) {
+          // Hold means not to scan more, so just break
+          break;
+        }
+      }
+      close();
+      return endOfData();
+    }
+
+    @Nullable
+    @Override
+    public T getFirstInCache() {
+      return firstInCache;
+    }
+
+    @Override
+    public boolean isEvicted() {
+      return evicted;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -42,6 +42,7 @@ import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.Schemas;
 import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.messaging.TopicFetchRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
 import io.cdap.cdap.messaging.data.RawMessage;
 import io.cdap.cdap.proto.id.NamespaceId;
@@ -63,6 +64,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -96,6 +98,8 @@ public final class ClientMessagingService implements MessagingService {
   private static final HttpRequestConfig HTTP_REQUEST_CONFIG = new DefaultHttpRequestConfig(false);
   private static final TransactionCodec TRANSACTION_CODEC = new TransactionCodec();
   private static final Gson GSON = new Gson();
+  // Extra time on top of the long poll wait time to wait for the server response
+  private static final long LONG_POLL_READ_TIMEOUT_MARGIN_MS = 10000L;
   // These types for only for Gson to use, hence using the gson TypeToken instead of guava one
   private static final Type TOPIC_PROPERTY_TYPE = new TypeToken<Map<String, String>>() {
   }.getType();
@@ -103,6 +107,7 @@ public final class ClientMessagingService implements MessagingService {
   }.getType();
 
   private final RemoteClient remoteClient;
+  private final RemoteClient batchRemoteClient;
   private final boolean compressPayload;
 
   @Inject
@@ -114,6 +119,8 @@ public final class ClientMessagingService implements MessagingService {
   public ClientMessagingService(RemoteClientFactory remoteClientFactory, boolean compressPayload) {
     this.remoteClient = remoteClientFactory.createRemoteClient(
         Constants.Service.MESSAGING_SERVICE, HTTP_REQUEST_CONFIG, "/v1/namespaces/");
+    this.batchRemoteClient = remoteClientFactory.createRemoteClient(
+        Constants.Service.MESSAGING_SERVICE, HTTP_REQUEST_CONFIG, "/v1/batch/");
     this.compressPayload = compressPayload;
   }
 
@@ -202,6 +209,99 @@ public final class ClientMessagingService implements MessagingService {
     return new ClientMessageFetcher(topicId);
   }
 
+  @Override
+  public Map<TopicId, List<RawMessage>> batchFetch(Collection<TopicFetchRequest> requests)
+      throws TopicNotFoundException, IOException {
+    Schema requestSchema = Schemas.V1.BatchConsumeRequest.SCHEMA;
+    List<GenericRecord> records = new ArrayList<>(requests.size());
+    for (TopicFetchRequest request : requests) {
+      GenericRecord record = new GenericData.Record(requestSchema.getElementType());
+      record.put("namespace", request.getTopicId().getNamespace());
+      record.put("topic", request.getTopicId().getTopic());
+      if (request.getStartMessageId() != null) {
+        record.put("startFrom", ByteBuffer.wrap(request.getStartMessageId()));
+      }
+      record.put("inclusive", request.isInclusive());
+      record.put("limit", request.getLimit());
+      records.add(record);
+    }
+
+    ExposedByteArrayOutputStream os = new ExposedByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().directBinaryEncoder(os, null);
+    DatumWriter<List<GenericRecord>> datumWriter = new GenericDatumWriter<>(requestSchema);
+    datumWriter.write(records, encoder);
+
+    HttpRequest httpRequest = batchRemoteClient.requestBuilder(HttpMethod.POST, "poll")
+        .addHeader(HttpHeaders.CONTENT_TYPE, "avro/binary")
+        .withBody(os.toByteBuffer())
+        .build();
+
+    HttpResponse response = batchRemoteClient.execute(httpRequest);
+    handleBatchError(response, "Failed to fetch messages from topics");
+    verifyContentType(response.getHeaders().asMap(), "avro/binary");
+
+    Decoder decoder = DecoderFactory.get().binaryDecoder(response.getResponseBody(), null);
+    DatumReader<List<GenericRecord>> datumReader = new GenericDatumReader<>(
+        Schemas.V1.BatchConsumeResponse.SCHEMA);
+
+    Map<TopicId, List<RawMessage>> result = new LinkedHashMap<>();
+    for (GenericRecord topicRecord : datumReader.read(null, decoder)) {
+      TopicId topicId = new NamespaceId(topicRecord.get("namespace").toString())
+          .topic(topicRecord.get("topic").toString());
+
+      @SuppressWarnings("unchecked")
+      List<GenericRecord> messageRecords = (List<GenericRecord>) topicRecord.get("messages");
+      List<RawMessage> messages = new ArrayList<>(messageRecords.size());
+      for (GenericRecord messageRecord : messageRecords) {
+        messages.add(new RawMessage(Bytes.toBytes((ByteBuffer) messageRecord.get("id")),
+            Bytes.toBytes((ByteBuffer) messageRecord.get("payload"))));
+      }
+      result.put(topicId, messages);
+    }
+    return result;
+  }
+
+  @Override
+  public void batchPublish(Collection<? extends StoreRequest> requests)
+      throws TopicNotFoundException, IOException, UnauthorizedException {
+    Schema requestSchema = Schemas.V1.BatchPublishRequest.SCHEMA;
+    List<GenericRecord> records = new ArrayList<>(requests.size());
+    for (StoreRequest request : requests) {
+      if (request.isTransactional()) {
+        throw new IllegalArgumentException(
+            "Transactional publish is not supported in batch publish. Topic: " + request.getTopicId());
+      }
+      GenericRecord record = new GenericData.Record(requestSchema.getElementType());
+      record.put("namespace", request.getTopicId().getNamespace());
+      record.put("topic", request.getTopicId().getTopic());
+      record.put("messages", convertPayloads(request));
+      records.add(record);
+    }
+
+    // Encode the request as avro
+    ExposedByteArrayOutputStream os = new ExposedByteArrayOutputStream();
+    try (OutputStream encoderOutput = compressOutputStream(os)) {
+      Encoder encoder = EncoderFactory.get().directBinaryEncoder(encoderOutput, null);
+      DatumWriter<List<GenericRecord>> datumWriter = new GenericDatumWriter<>(requestSchema);
+      datumWriter.write(records, encoder);
+      encoder.flush();
+    }
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put(HttpHeaders.CONTENT_TYPE, "avro/binary");
+    if (compressPayload) {
+      headers.put(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+
+    HttpRequest httpRequest = batchRemoteClient.requestBuilder(HttpMethod.POST, "publish")
+        .addHeaders(headers)
+        .withBody(os.toByteBuffer())
+        .build();
+
+    HttpResponse response = batchRemoteClient.execute(httpRequest);
+    handleBatchError(response, "Failed to publish messages to topics");
+  }
+
   @Nullable
   @Override
   public RollbackDetail publish(StoreRequest request)
@@ -313,6 +413,20 @@ public final class ClientMessagingService implements MessagingService {
     return topicId.getNamespace() + "/topics/" + topicId.getTopic();
   }
 
+  /**
+   * Handles error response from a multi-topic request. The server responds with 404 and the
+   * missing topic in the body if any of the topics doesn't exist.
+   */
+  private void handleBatchError(HttpResponse response, String errorPrefix)
+      throws IOException, TopicNotFoundException {
+    if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+      Map<String, String> topic = GSON.fromJson(response.getResponseBodyAsString(),
+          TOPIC_PROPERTY_TYPE);
+      throw new TopicNotFoundException(topic.get("namespace"), topic.get("topic"));
+    }
+    handleError(response, errorPrefix);
+  }
+
   /**
    * Handles error response from the given {@link HttpResponse}.
    */
@@ -439,8 +553,18 @@ public final class ClientMessagingService implements MessagingService {
 
       // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
       // in memory, hence we use the HttpURLConnection directly instead.
-      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST,
-          createTopicPath(topicId) + "/poll");
+      // If wait time is set, the server holds the request until there are new messages or the wait time passed.
+      long waitTimeMillis = getWaitTimeMillis();
+      String path = createTopicPath(topicId) + "/poll";
+      if (waitTimeMillis > 0) {
+        path += "?waitMillis=" + waitTimeMillis;
+      }
+      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, path);
+      if (waitTimeMillis > 0 && urlConn.getReadTimeout() > 0) {
+        // Make sure the read won't time out before the server responds
+        urlConn.setReadTimeout((int) Math.min(Integer.MAX_VALUE,
+            Math.max(urlConn.getReadTimeout(), waitTimeMillis + LONG_POLL_READ_TIMEOUT_MARGIN_MS)));
+      }
       urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
       if (compressPayload) {
         urlConn.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
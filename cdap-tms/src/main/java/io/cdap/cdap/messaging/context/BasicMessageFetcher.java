@@ -26,6 +26,7 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionAware;
@@ -35,7 +36,7 @@ import org.apache.tephra.TransactionAware;
  * transaction will be used for fetching messages if there is one. Otherwise messages will be
  * fetched without transaction.
  */
-final class BasicMessageFetcher implements MessageFetcher, TransactionAware {
+final class BasicMessageFetcher implements LongPollingMessageFetcher, TransactionAware {
 
   private final MessagingService messagingService;
   private final String name;
@@ -64,6 +65,13 @@ final class BasicMessageFetcher implements MessageFetcher, TransactionAware {
   @Override
   public CloseableIterator<Message> fetch(String namespace, String topic, int limit,
       @Nullable String afterMessageId) throws IOException, TopicNotFoundException {
+    return fetch(namespace, topic, limit, afterMessageId, 0L);
+  }
+
+  @Override
+  public CloseableIterator<Message> fetch(String namespace, String topic, int limit,
+      @Nullable String afterMessageId, long waitMillis)
+      throws IOException, TopicNotFoundException {
     io.cdap.cdap.messaging.MessageFetcher fetcher = messagingService
         .prepareFetch(new NamespaceId(namespace).topic(topic))
         .setLimit(limit);
@@ -74,6 +82,10 @@ final class BasicMessageFetcher implements MessageFetcher, TransactionAware {
 
     if (transaction != null) {
       fetcher.setTransaction(transaction);
+    } else if (waitMillis > 0) {
+      // Messages published after the transaction started are not visible to it,
+      // so only wait without one
+      fetcher.setWaitTime(waitMillis, TimeUnit.MILLISECONDS);
     }
 
     return new MessageIterator(fetcher.fetch());
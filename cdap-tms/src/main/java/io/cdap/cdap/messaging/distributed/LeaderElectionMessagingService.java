@@ -28,7 +28,9 @@ import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.messaging.TopicFetchRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
+import io.cdap.cdap.messaging.data.RawMessage;
 import io.cdap.cdap.messaging.server.MessagingHttpService;
 import io.cdap.cdap.messaging.service.CoreMessagingService;
 import io.cdap.cdap.messaging.store.ForwardingTableFactory;
@@ -39,7 +41,9 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.cdap.security.spi.authorization.UnauthorizedException;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -169,6 +173,12 @@ public class LeaderElectionMessagingService extends AbstractIdleService implemen
     return getMessagingService().prepareFetch(topicId);
   }
 
+  @Override
+  public Map<TopicId, List<RawMessage>> batchFetch(Collection<TopicFetchRequest> requests)
+      throws TopicNotFoundException, IOException {
+    return getMessagingService().batchFetch(requests);
+  }
+
   @Override
   @Nullable
   public RollbackDetail publish(StoreRequest request)
@@ -176,6 +186,12 @@ public class LeaderElectionMessagingService extends AbstractIdleService implemen
     return getMessagingService().publish(request);
   }
 
+  @Override
+  public void batchPublish(Collection<? extends StoreRequest> requests)
+      throws TopicNotFoundException, IOException, UnauthorizedException {
+    getMessagingService().batchPublish(requests);
+  }
+
   @Override
   public void storePayload(StoreRequest request)
       throws TopicNotFoundException, IOException, UnauthorizedException {
@@ -34,6 +34,7 @@ import io.cdap.cdap.gateway.handlers.CommonHandlers;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.cache.MessageCache;
 import io.cdap.cdap.messaging.distributed.LeaderElectionMessagingService;
+import io.cdap.cdap.messaging.server.BatchHandler;
 import io.cdap.cdap.messaging.server.FetchHandler;
 import io.cdap.cdap.messaging.server.MessagingHttpService;
 import io.cdap.cdap.messaging.server.MetadataHandler;
@@ -97,6 +98,7 @@ public class MessagingServerRuntimeModule extends RuntimeModule {
     handlerBinder.addBinding().to(MetadataHandler.class);
     handlerBinder.addBinding().to(StoreHandler.class);
     handlerBinder.addBinding().to(FetchHandler.class);
+    handlerBinder.addBinding().to(BatchHandler.class);
     CommonHandlers.add(handlerBinder);
   }
 
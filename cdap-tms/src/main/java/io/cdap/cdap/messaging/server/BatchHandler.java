@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.server;
+
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.messaging.TopicNotFoundException;
+import io.cdap.cdap.common.BadRequestException;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.http.SpillableBodyConsumer;
+import io.cdap.cdap.common.io.ByteBuffers;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.messaging.MessagingService;
+import io.cdap.cdap.messaging.Schemas;
+import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.messaging.TopicFetchRequest;
+import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.TopicId;
+import io.cdap.http.AbstractHttpHandler;
+import io.cdap.http.BodyConsumer;
+import io.cdap.http.HttpResponder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * A netty http handler for fetching from and publishing to multiple topics in one request.
+ */
+@Path("/v1/batch")
+public final class BatchHandler extends AbstractHttpHandler {
+
+  private static final Gson GSON = new Gson();
+
+  private final java.nio.file.Path tempDir;
+  private final int bufferSize;
+  private final MessagingService messagingService;
+
+  @Inject
+  BatchHandler(CConfiguration cConf, MessagingService messagingService) {
+    this.tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+        cConf.get(Constants.AppFabric.TEMP_DIR)).toPath();
+    this.bufferSize =
+        cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_MAX_REQUEST_SIZE_MB) * 1024 * 1024;
+    this.messagingService = messagingService;
+
+    DirUtils.mkdirs(tempDir.toFile());
+  }
+
+  /**
+   * Polls messages from multiple topics. The request body is encoded with the
+   * {@link Schemas.V1.BatchConsumeRequest#SCHEMA} and the response body is encoded with the
+   * {@link Schemas.V1.BatchConsumeResponse#SCHEMA}. If any of the topics doesn't exist, a 404
+   * response is returned with the topic encoded as json in the response body.
+   */
+  @POST
+  @Path("/poll")
+  public void poll(FullHttpRequest request, HttpResponder responder) throws Exception {
+    verifyContentType(request);
+
+    Decoder decoder = DecoderFactory.get()
+        .directBinaryDecoder(new ByteBufInputStream(request.content()), null);
+    DatumReader<List<GenericRecord>> datumReader = new GenericDatumReader<>(
+        Schemas.V1.BatchConsumeRequest.SCHEMA);
+
+    List<TopicFetchRequest> fetchRequests = new ArrayList<>();
+    for (GenericRecord record : datumReader.read(null, decoder)) {
+      TopicId topicId = new NamespaceId(record.get("namespace").toString())
+          .topic(record.get("topic").toString());
+      Object startFrom = record.get("startFrom");
+      fetchRequests.add(new TopicFetchRequest(topicId,
+          startFrom == null ? null : Bytes.toBytes((ByteBuffer) startFrom),
+          (Boolean) record.get("inclusive"), (Integer) record.get("limit")));
+    }
+
+    Map<TopicId, List<RawMessage>> result;
+    try {
+      result = messagingService.batchFetch(fetchRequests);
+    } catch (TopicNotFoundException e) {
+      sendTopicNotFound(e, responder);
+      return;
+    }
+
+    responder.sendContent(HttpResponseStatus.OK, encodeMessages(result),
+        new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
+  }
+
+  /**
+   * Publishes messages to multiple topics non-transactionally. The request body is encoded with
+   * the {@link Schemas.V1.BatchPublishRequest#SCHEMA}. If any of the topics doesn't exist, a 404
+   * response is returned with the topic encoded as json in the response body.
+   */
+  @POST
+  @Path("/publish")
+  public BodyConsumer publish(HttpRequest request, HttpResponder responder) throws Exception {
+    verifyContentType(request);
+
+    return new SpillableBodyConsumer(Files.createTempFile(tempDir, "tms.batch.publish", ".tmp"),
+        bufferSize) {
+      @Override
+      protected void processInput(InputStream inputStream, HttpResponder responder)
+          throws Exception {
+        Decoder decoder = DecoderFactory.get().directBinaryDecoder(inputStream, null);
+        DatumReader<List<GenericRecord>> datumReader = new GenericDatumReader<>(
+            Schemas.V1.BatchPublishRequest.SCHEMA);
+
+        List<StoreRequest> storeRequests = new ArrayList<>();
+        for (GenericRecord record : datumReader.read(null, decoder)) {
+          TopicId topicId = new NamespaceId(record.get("namespace").toString())
+              .topic(record.get("topic").toString());
+          StoreRequest storeRequest = new PayloadStoreRequest(topicId, record);
+          if (!storeRequest.hasPayload()) {
+            throw new BadRequestException(
+                "Empty payload is only allowed for publishing transactional message. Topic: "
+                    + topicId);
+          }
+          storeRequests.add(storeRequest);
+        }
+
+        try {
+          messagingService.batchPublish(storeRequests);
+        } catch (TopicNotFoundException e) {
+          sendTopicNotFound(e, responder);
+          return;
+        }
+        responder.sendStatus(HttpResponseStatus.OK);
+      }
+    };
+  }
+
+  private void verifyContentType(HttpRequest request) throws BadRequestException {
+    // Currently only support avro
+    if (!"avro/binary".equals(request.headers().get(HttpHeaderNames.CONTENT_TYPE))) {
+      throw new BadRequestException("Only avro/binary content type is supported.");
+    }
+  }
+
+  /**
+   * Responds with 404 and the missing topic, so that the client can tell which topic is missing.
+   */
+  private void sendTopicNotFound(TopicNotFoundException e, HttpResponder responder) {
+    Map<String, String> topic = new HashMap<>();
+    topic.put("namespace", e.getNamespace());
+    topic.put("topic", e.getTopic());
+    responder.sendString(HttpResponseStatus.NOT_FOUND, GSON.toJson(topic),
+        new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "application/json"));
+  }
+
+  /**
+   * Encodes the fetched messages based on the {@link Schemas.V1.BatchConsumeResponse#SCHEMA}.
+   */
+  private ByteBuf encodeMessages(Map<TopicId, List<RawMessage>> messages) throws Exception {
+    Schema schema = Schemas.V1.BatchConsumeResponse.SCHEMA;
+    Schema topicSchema = schema.getElementType();
+    Schema messageSchema = topicSchema.getField("messages").schema().getElementType();
+
+    int size = 0;
+    List<GenericRecord> topicRecords = new ArrayList<>(messages.size());
+    for (Map.Entry<TopicId, List<RawMessage>> entry : messages.entrySet()) {
+      List<GenericRecord> messageRecords = new ArrayList<>(entry.getValue().size());
+      for (RawMessage message : entry.getValue()) {
+        GenericRecord messageRecord = new GenericData.Record(messageSchema);
+        messageRecord.put("id", ByteBuffer.wrap(message.getId()));
+        messageRecord.put("payload", ByteBuffer.wrap(message.getPayload()));
+        messageRecords.add(messageRecord);
+        // Each bytes field is prefixed with a length of at most 5 bytes
+        size += message.getId().length + message.getPayload().length + 10;
+      }
+
+      GenericRecord topicRecord = new GenericData.Record(topicSchema);
+      topicRecord.put("namespace", entry.getKey().getNamespace());
+      topicRecord.put("topic", entry.getKey().getTopic());
+      topicRecord.put("messages", messageRecords);
+      topicRecords.add(topicRecord);
+    }
+
+    ByteBuf buffer = Unpooled.buffer(size + 64);
+    Encoder encoder = EncoderFactory.get()
+        .directBinaryEncoder(new ByteBufOutputStream(buffer), null);
+    DatumWriter<List<GenericRecord>> datumWriter = new GenericDatumWriter<>(schema);
+    datumWriter.write(topicRecords, encoder);
+    return buffer;
+  }
+
+  /**
+   * A non-transactional {@link StoreRequest} that gets the payloads from a {@link GenericRecord}
+   * of the {@link Schemas.V1.BatchPublishRequest#SCHEMA} element type.
+   */
+  private static final class PayloadStoreRequest extends StoreRequest {
+
+    private final List<ByteBuffer> payloads;
+
+    @SuppressWarnings("unchecked")
+    PayloadStoreRequest(TopicId topicId, GenericRecord record) {
+      super(topicId, false, -1L);
+      Object payloads = record.get("messages");
+      this.payloads = payloads == null ? Collections.emptyList() : (List<ByteBuffer>) payloads;
+    }
+
+    @Override
+    public boolean hasPayload() {
+      return !payloads.isEmpty();
+    }
+
+    @Override
+    public Iterator<byte[]> iterator() {
+      return payloads.stream().map(ByteBuffers::getByteArray).iterator();
+    }
+  }
+}
@@ -35,10 +35,12 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.http.AbstractHttpHandler;
 import io.cdap.http.BodyProducer;
+import io.cdap.http.HandlerContext;
 import io.cdap.http.HttpResponder;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -51,21 +53,25 @@ import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
-import org.apache.avro.generic.GenericData;
+import javax.ws.rs.QueryParam;
+import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.Encoder;
-import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -85,19 +91,56 @@ public final class FetchHandler extends AbstractHttpHandler {
   );
 
   private final MessagingService messagingService;
-  private int messageChunkSize;
+  private final int messageChunkSize;
+  private final long maxWaitMillis;
+  private final int waitThreads;
+  private ExecutorService longPollExecutor;
 
   @Inject
   FetchHandler(CConfiguration cConf, MessagingService messagingService) {
     this.messagingService = messagingService;
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    this.maxWaitMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_CONSUME_MAX_WAIT_MS);
+    this.waitThreads = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_WAIT_THREADS);
   }
 
+  @Override
+  public void init(HandlerContext context) {
+    super.init(context);
+
+    // Make sure the schema is what we expected, since the MessagesBodyProducer encodes messages directly.
+    Schema schema = Schemas.V1.ConsumeResponse.SCHEMA;
+    if (schema == null || schema.getType() != Schema.Type.ARRAY
+        || !isBytesFields(schema.getElementType(), "id", "payload")) {
+      throw new IllegalStateException("ConsumeResponse schema should be an array of records with "
+          + "bytes fields 'id' and 'payload'");
+    }
+
+    // Use a SynchronousQueue so that long poll requests are rejected instead of queued when all threads are busy
+    longPollExecutor = new ThreadPoolExecutor(0, Math.max(1, waitThreads), 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), Threads.createDaemonThreadFactory("messaging-long-poll-%d"));
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    super.destroy(context);
+    longPollExecutor.shutdownNow();
+  }
+
+  /**
+   * Polls messages from a topic.
+   *
+   * @param waitMillis if larger than zero and there is no message available, the request is held
+   *     until new messages are published to the topic or the given number of milliseconds has
+   *     passed, whichever comes first. The value is capped by the
+   *     {@link Constants.MessagingSystem#HTTP_SERVER_CONSUME_MAX_WAIT_MS} setting.
+   */
   @POST
   @Path("poll")
   public void poll(FullHttpRequest request, HttpResponder responder,
       @PathParam("namespace") String namespace,
-      @PathParam("topic") String topic) throws Exception {
+      @PathParam("topic") String topic,
+      @QueryParam("waitMillis") @DefaultValue("0") long waitMillis) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
 
@@ -112,9 +155,55 @@ public final class FetchHandler extends AbstractHttpHandler {
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(
         Schemas.V1.ConsumeRequest.SCHEMA);
 
-    // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder),
-        topicId);
+    MessageFetcher fetcher = createFetcher(datumReader.read(null, decoder), topicId);
+
+    long waitTime = Math.min(waitMillis, maxWaitMillis);
+    if (waitTime > 0) {
+      // Long polling. The fetch is blocking until there are messages or it times out, hence perform it
+      // in a separate thread to not block the http server threads.
+      fetcher.setWaitTime(waitTime, TimeUnit.MILLISECONDS);
+      try {
+        longPollExecutor.execute(() -> longPoll(fetcher, topicId, responder));
+        return;
+      } catch (RejectedExecutionException e) {
+        // Too many outstanding long poll requests. Fallback to fetch without waiting.
+        SAMPLING_LOG.debug("Too many long poll requests. Fetch from {} without waiting.", topicId);
+        fetcher.setWaitTime(0, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    sendMessages(fetcher.fetch(), responder);
+  }
+
+  /**
+   * Performs a fetch that waits for new messages and sends the result to the given
+   * {@link HttpResponder}. This method is called from the long poll executor thread.
+   */
+  private void longPoll(MessageFetcher fetcher, TopicId topicId, HttpResponder responder) {
+    CloseableIterator<RawMessage> iterator;
+    try {
+      iterator = fetcher.fetch();
+    } catch (TopicNotFoundException e) {
+      responder.sendString(HttpResponseStatus.NOT_FOUND, e.getMessage());
+      return;
+    } catch (Exception e) {
+      LOG.debug("Failed to fetch messages from topic {}", topicId, e);
+      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR,
+          "Failed to fetch messages from topic " + topicId + ": " + e.getMessage());
+      return;
+    }
+
+    try {
+      sendMessages(iterator, responder);
+    } catch (Throwable t) {
+      SAMPLING_LOG.warn("Exception raised when sending messages back to client", t);
+    }
+  }
+
+  /**
+   * Streams messages provided by the given {@link CloseableIterator} back to the client.
+   */
+  private void sendMessages(CloseableIterator<RawMessage> iterator, HttpResponder responder) {
     try {
       responder.sendContent(HttpResponseStatus.OK,
           new MessagesBodyProducer(iterator, messageChunkSize),
@@ -126,9 +215,9 @@ public final class FetchHandler extends AbstractHttpHandler {
   }
 
   /**
-   * Creates a {@link CloseableIterator} of {@link RawMessage} based on the given fetch request.
+   * Creates a {@link MessageFetcher} based on the given fetch request.
    */
-  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest,
+  private MessageFetcher createFetcher(GenericRecord fetchRequest,
       TopicId topicId) throws IOException, TopicNotFoundException {
     MessageFetcher fetcher = messagingService.prepareFetch(topicId);
 
@@ -158,47 +247,51 @@ public final class FetchHandler extends AbstractHttpHandler {
       fetcher.setTransaction(TRANSACTION_CODEC.decode(ByteBuffers.getByteArray(encodedTx)));
     }
 
-    return fetcher.fetch();
+    return fetcher;
+  }
+
+  /**
+   * Returns {@code true} if the given {@link Schema} is a record schema with exactly the given
+   * bytes fields in order.
+   */
+  private static boolean isBytesFields(Schema schema, String... fieldNames) {
+    if (schema.getType() != Schema.Type.RECORD || schema.getFields().size() != fieldNames.length) {
+      return false;
+    }
+    for (int i = 0; i < fieldNames.length; i++) {
+      Schema.Field field = schema.getFields().get(i);
+      if (!fieldNames[i].equals(field.name()) || field.schema().getType() != Schema.Type.BYTES) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
    * A {@link BodyProducer} to encode and send back messages. Instead of using GenericDatumWriter,
    * we perform the array encoding manually so that we don't have to buffer all messages in memory
    * before sending out.
+   *
+   * Each message is encoded directly in the binary form of the {@code Messages} record in the
+   * {@link Schemas.V1.ConsumeResponse} schema. Large payloads are not copied, but are added to the
+   * response chunk as wrapped {@link ByteBuf} components.
    */
   private static class MessagesBodyProducer extends BodyProducer {
 
+    // Payloads smaller than this size are copied into the framing buffer instead of being wrapped
+    private static final int MIN_WRAP_PAYLOAD_SIZE = 1024;
+    // Maximum size of an Avro encoded long
+    private static final int MAX_LONG_SIZE = 10;
+
     private final CloseableIterator<RawMessage> iterator;
     private final List<RawMessage> messages;
     private final int messageChunkSize;
-    private final ByteBuf chunk;
-    private final Encoder encoder;
-    private final GenericRecord messageRecord;
-    private final DatumWriter<GenericRecord> messageWriter;
-    private boolean arrayStarted;
     private boolean arrayEnded;
 
     MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
       this.iterator = iterator;
       this.messages = new ArrayList<>();
       this.messageChunkSize = messageChunkSize;
-      this.chunk = Unpooled.buffer(messageChunkSize);
-      this.encoder = EncoderFactory.get().directBinaryEncoder(new ByteBufOutputStream(chunk), null);
-
-      // These are for writing individual message (response is an array of messages)
-      this.messageRecord = new GenericData.Record(
-          Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
-      this.messageWriter = new GenericDatumWriter<GenericRecord>(
-          Schemas.V1.ConsumeResponse.SCHEMA.getElementType()) {
-        @Override
-        protected void writeBytes(Object datum, Encoder out) throws IOException {
-          if (datum instanceof byte[]) {
-            out.writeBytes((byte[]) datum);
-          } else {
-            super.writeBytes(datum, out);
-          }
-        }
-      };
     }
 
     @Override
@@ -208,15 +301,9 @@ public final class FetchHandler extends AbstractHttpHandler {
         return Unpooled.EMPTY_BUFFER;
       }
 
-      chunk.clear();
-
-      if (!arrayStarted) {
-        arrayStarted = true;
-        encoder.writeArrayStart();
-      }
-
       // Try to buffer up to buffer size
       int size = 0;
+      int frameSize = MAX_LONG_SIZE * 2;
       messages.clear();
       while (iterator.hasNext() && size < messageChunkSize) {
         RawMessage message = iterator.next();
@@ -226,32 +313,74 @@ public final class FetchHandler extends AbstractHttpHandler {
         // Straightly speaking it can be up to 9 bytes each (hence 18 bytes),
         // but we don't expect id and payload of such size
         size += message.getId().length + message.getPayload().length + 8;
+        frameSize += message.getId().length + MAX_LONG_SIZE * 2;
+        if (message.getPayload().length < MIN_WRAP_PAYLOAD_SIZE) {
+          frameSize += message.getPayload().length;
+        }
       }
 
-      encoder.setItemCount(messages.size());
-      for (RawMessage message : messages) {
-        encoder.startItem();
+      // The frame buffer holds everything other than the wrapped payloads.
+      // Slices of it are added to the chunk between the wrapped payloads.
+      ByteBuf frame = ByteBufAllocator.DEFAULT.buffer(frameSize);
+      CompositeByteBuf chunk = ByteBufAllocator.DEFAULT.compositeBuffer(messages.size() * 2 + 1);
+      try {
+        int sliceStart = 0;
 
-        // Write individual message (array element) with DatumWrite.
-        // This provides greater flexibility on schema evolution.
-        // The response will likely always be an array, but the element schema can evolve.
-        messageRecord.put("id", message.getId());
-        messageRecord.put("payload", message.getPayload());
-        messageWriter.write(messageRecord, encoder);
-      }
+        // An array is encoded as blocks of (item count + items), ended with a zero item count.
+        if (!messages.isEmpty()) {
+          writeLong(frame, messages.size());
+        }
+        for (RawMessage message : messages) {
+          byte[] id = message.getId();
+          byte[] payload = message.getPayload();
+
+          writeLong(frame, id.length);
+          frame.writeBytes(id);
+          writeLong(frame, payload.length);
 
-      if (!iterator.hasNext()) {
-        arrayEnded = true;
-        encoder.writeArrayEnd();
+          if (payload.length < MIN_WRAP_PAYLOAD_SIZE) {
+            frame.writeBytes(payload);
+          } else {
+            chunk.addComponent(true, frame.retainedSlice(sliceStart, frame.writerIndex() - sliceStart));
+            chunk.addComponent(true, Unpooled.wrappedBuffer(payload));
+            sliceStart = frame.writerIndex();
+          }
+        }
+
+        if (!iterator.hasNext()) {
+          arrayEnded = true;
+          writeLong(frame, 0L);
+        }
+
+        if (frame.writerIndex() > sliceStart) {
+          chunk.addComponent(true, frame.retainedSlice(sliceStart, frame.writerIndex() - sliceStart));
+        }
+        return chunk;
+      } catch (Throwable t) {
+        chunk.release();
+        throw t;
+      } finally {
+        // The chunk retains slices of the frame buffer
+        frame.release();
       }
+    }
 
-      return chunk.copy();
+    /**
+     * Writes a long value in Avro binary encoding, which is a zig-zag encoded variable length
+     * integer.
+     */
+    private static void writeLong(ByteBuf buf, long value) {
+      long n = (value << 1) ^ (value >> 63);
+      while ((n & ~0x7FL) != 0) {
+        buf.writeByte((int) ((n & 0x7F) | 0x80));
+        n >>>= 7;
+      }
+      buf.writeByte((int) n);
     }
 
     @Override
     public void finished() throws Exception {
       iterator.close();
-      chunk.release();
     }
 
     @Override
@@ -18,7 +18,7 @@ package io.cdap.cdap.messaging.service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
-import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.StoreRequest;
@@ -30,7 +30,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -57,12 +60,22 @@ import javax.annotation.concurrent.ThreadSafe;
  *
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all
  * threads would eventually get written and flushed.
+ *
+ * When group commit is enabled, step 8 parks the thread instead of yielding. The writer unparks
+ * the owner of each request it completes, and after releasing the writer flag it unparks the owner
+ * of the request at the head of the queue, so that it can become the next writer. Each write also
+ * only takes up to a bounded number of requests from the queue, so that a writer doesn't hold the
+ * flag for an unbounded amount of time.
  */
 @ThreadSafe
 final class ConcurrentMessageWriter implements Closeable {
 
+  // Upper bound on how long a thread parks in group commit mode before it re-checks the writer flag.
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
   private final StoreRequestWriter<?> messagesWriter;
-  private final MetricsCollector metricsCollector;
+  private final MetricsContext metricsContext;
+  private final boolean groupCommit;
   private final PendingStoreQueue pendingStoreQueue;
   private final AtomicBoolean writerFlag;
   private final AtomicBoolean closed;
@@ -80,13 +93,34 @@ final class ConcurrentMessageWriter implements Closeable {
    * Constructor.
    *
    * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
-   * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this
+   * @param metricsContext the {@link MetricsContext} for collecting metrics emitted by this
+   *     class.
+   */
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsContext metricsContext) {
+    this(messagesWriter, metricsContext, false, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
+   * @param metricsContext the {@link MetricsContext} for collecting metrics emitted by this
    *     class.
+   * @param groupCommit {@code true} to park threads waiting for their requests to be written;
+   *     {@code false} to spin
+   * @param maxBatchSize maximum number of {@link StoreRequest} to be written in one batch when
+   *     {@code groupCommit} is {@code true}; batches are not bounded otherwise
    */
-  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsContext metricsContext,
+      boolean groupCommit, int maxBatchSize) {
+    if (groupCommit && maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+    }
     this.messagesWriter = messagesWriter;
-    this.metricsCollector = metricsCollector;
-    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
+    this.metricsContext = metricsContext;
+    this.groupCommit = groupCommit;
+    this.pendingStoreQueue = new PendingStoreQueue(metricsContext, groupCommit,
+        groupCommit ? maxBatchSize : Integer.MAX_VALUE);
     this.writerFlag = new AtomicBoolean();
     this.closed = new AtomicBoolean();
   }
@@ -108,18 +142,26 @@ final class ConcurrentMessageWriter implements Closeable {
     }
 
     PendingStoreRequest pendingStoreRequest = new PendingStoreRequest(storeRequest, metadata);
+    long startNanos = System.nanoTime();
     pendingStoreQueue.enqueue(pendingStoreRequest);
 
-    metricsCollector.increment("persist.requested", 1L);
+    metricsContext.increment("persist.requested", 1L);
 
     while (!pendingStoreRequest.isCompleted()) {
       if (!tryWrite()) {
-        Thread.yield();
+        if (groupCommit) {
+          LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        } else {
+          Thread.yield();
+        }
       }
     }
 
+    metricsContext.event("persist.wait.time.us",
+        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+
     if (pendingStoreRequest.isSuccess()) {
-      metricsCollector.increment("persist.success", 1L);
+      metricsContext.increment("persist.success", 1L);
       if (!pendingStoreRequest.isTransactional()) {
         return null;
       }
@@ -127,7 +169,7 @@ final class ConcurrentMessageWriter implements Closeable {
           pendingStoreRequest.getStartTimestamp(), pendingStoreRequest.getStartSequenceId(),
           pendingStoreRequest.getEndTimestamp(), pendingStoreRequest.getEndSequenceId());
     } else {
-      metricsCollector.increment("persist.failure", 1L);
+      metricsContext.increment("persist.failure", 1L);
       Throwables.propagateIfInstanceOf(pendingStoreRequest.getFailureCause(), IOException.class);
       throw new IOException("Unable to write message to " + storeRequest.getTopicId(),
           pendingStoreRequest.getFailureCause());
@@ -149,6 +191,11 @@ final class ConcurrentMessageWriter implements Closeable {
     } finally {
       writerFlag.set(false);
     }
+    if (groupCommit) {
+      // Wake up the owner of the next pending request to become the writer. This must happen after releasing the
+      // writer flag, otherwise a request enqueued after the persist call could be left with no writer.
+      pendingStoreQueue.signalHead();
+    }
     return true;
   }
 
@@ -158,9 +205,9 @@ final class ConcurrentMessageWriter implements Closeable {
       return;
     }
     // Flush everything in the queue.
-    // When this thread can grab the writer flag, all pending write requests must be completed since the closed
-    // flag was already set to false.
-    while (!tryWrite()) {
+    // When this thread can grab the writer flag and the queue is empty, all pending write requests must be completed
+    // since the closed flag was already set to true.
+    while (!tryWrite() || !pendingStoreQueue.isEmpty()) {
       Thread.yield();
     }
     messagesWriter.close();
@@ -173,13 +220,19 @@ final class ConcurrentMessageWriter implements Closeable {
    */
   private static final class PendingStoreQueue {
 
-    private final MetricsCollector metricsCollector;
+    private final MetricsContext metricsContext;
+    private final boolean groupCommit;
+    private final int maxBatchSize;
     private final Queue<PendingStoreRequest> writeQueue;
+    private final AtomicInteger queueSize;
     private final List<PendingStoreRequest> inflightRequests;
 
-    private PendingStoreQueue(MetricsCollector metricsCollector) {
-      this.metricsCollector = metricsCollector;
+    private PendingStoreQueue(MetricsContext metricsContext, boolean groupCommit, int maxBatchSize) {
+      this.metricsContext = metricsContext;
+      this.groupCommit = groupCommit;
+      this.maxBatchSize = maxBatchSize;
       this.writeQueue = new ConcurrentLinkedQueue<>();
+      this.queueSize = new AtomicInteger();
       this.inflightRequests = new ArrayList<>(100);
     }
 
@@ -188,6 +241,24 @@ final class ConcurrentMessageWriter implements Closeable {
      */
     void enqueue(PendingStoreRequest storeRequest) {
       writeQueue.add(storeRequest);
+      queueSize.incrementAndGet();
+    }
+
+    /**
+     * Returns {@code true} if there is no pending request in the queue.
+     */
+    boolean isEmpty() {
+      return writeQueue.isEmpty();
+    }
+
+    /**
+     * Unparks the thread that owns the request at the head of the queue, if there is one.
+     */
+    void signalHead() {
+      PendingStoreRequest head = writeQueue.peek();
+      if (head != null) {
+        LockSupport.unpark(head.getOwner());
+      }
     }
 
     /**
@@ -201,13 +272,17 @@ final class ConcurrentMessageWriter implements Closeable {
       // Since this method is expected to be called (indirectly) from a http handler thread, that is bounded by
       // the thread pool size used by the http service.
       inflightRequests.clear();
-      PendingStoreRequest request = writeQueue.poll();
+      metricsContext.event("persist.queue.depth", queueSize.get());
+
+      PendingStoreRequest request = inflightRequests.size() < maxBatchSize ? writeQueue.poll() : null;
       while (request != null) {
         inflightRequests.add(request);
-        request = writeQueue.poll();
+        request = inflightRequests.size() < maxBatchSize ? writeQueue.poll() : null;
       }
+      queueSize.addAndGet(-inflightRequests.size());
 
-      metricsCollector.gauge("persist.queue.size", inflightRequests.size());
+      metricsContext.gauge("persist.queue.size", inflightRequests.size());
+      metricsContext.event("persist.batch.size", inflightRequests.size());
 
       try {
         writer.write(inflightRequests.iterator());
@@ -224,7 +299,11 @@ final class ConcurrentMessageWriter implements Closeable {
     void completeAll(@Nullable Throwable failureCause) {
       Iterator<PendingStoreRequest> iterator = inflightRequests.iterator();
       while (iterator.hasNext()) {
-        iterator.next().completed(failureCause);
+        PendingStoreRequest request = iterator.next();
+        request.completed(failureCause);
+        if (groupCommit) {
+          LockSupport.unpark(request.getOwner());
+        }
         iterator.remove();
       }
     }
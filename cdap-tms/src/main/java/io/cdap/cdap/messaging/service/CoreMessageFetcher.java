@@ -43,17 +43,51 @@ final class CoreMessageFetcher extends MessageFetcher {
   private final TopicMetadata topicMetadata;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
+  private final TopicPublishNotifier publishNotifier;
 
   CoreMessageFetcher(TopicMetadata topicMetadata,
       TableProvider<MessageTable> messageTableProvider,
-      TableProvider<PayloadTable> payloadTableProvider) {
+      TableProvider<PayloadTable> payloadTableProvider,
+      TopicPublishNotifier publishNotifier) {
     this.topicMetadata = topicMetadata;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
+    this.publishNotifier = publishNotifier;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long waitNanos = TimeUnit.MILLISECONDS.toNanos(getWaitTimeMillis());
+    if (waitNanos <= 0) {
+      return fetchMessages();
+    }
+
+    // Long polling. The signal version must be captured before the fetch, so that any publish happened after
+    // the fetch will wake up the wait.
+    long deadline = System.nanoTime() + waitNanos;
+    TopicPublishNotifier.Signal signal = publishNotifier.getSignal(topicMetadata.getTopicId());
+    while (true) {
+      long version = signal.getVersion();
+      CloseableIterator<RawMessage> iterator = fetchMessages();
+      long remainingNanos = deadline - System.nanoTime();
+      if (remainingNanos <= 0 || iterator.hasNext()) {
+        return iterator;
+      }
+      iterator.close();
+
+      try {
+        signal.await(version, remainingNanos, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return fetchMessages();
+      }
+    }
+  }
+
+  /**
+   * Creates a {@link CloseableIterator} to fetch messages currently available in the topic.
+   */
+  private CloseableIterator<RawMessage> fetchMessages() throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
       return new MessageCloseableIterator(messageTable);
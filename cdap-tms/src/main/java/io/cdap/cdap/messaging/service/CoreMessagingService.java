@@ -83,6 +83,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final LoadingCache<TopicId, ConcurrentMessageWriter> messageTableWriterCache;
   private final LoadingCache<TopicId, ConcurrentMessageWriter> payloadTableWriterCache;
   private final TimeProvider timeProvider;
+  private final TopicPublishNotifier publishNotifier;
   private final MetricsCollectionService metricsCollectionService;
   private final long txMaxLifeTimeInMillis;
 
@@ -101,6 +102,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     this.messageTableWriterCache = createTableWriterCache(true, cConf);
     this.payloadTableWriterCache = createTableWriterCache(false, cConf);
     this.timeProvider = timeProvider;
+    this.publishNotifier = new TopicPublishNotifier();
 
     // Due to circular dependency in our class hierarchy (which is bad), we cannot use metricsCollectionService
     // to construct metricsContext in here. The circular dependency is
@@ -171,7 +173,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     final TopicMetadata metadata = getTopic(topicId);
     return new CoreMessageFetcher(metadata,
         () -> createMessageTable(metadata),
-        () -> createPayloadTable(metadata));
+        () -> createPayloadTable(metadata),
+        publishNotifier);
   }
 
   @Nullable
@@ -182,7 +185,10 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      RollbackDetail rollbackDetail = messageTableWriterCache.get(request.getTopicId())
+          .persist(request, metadata);
+      publishNotifier.published(request.getTopicId());
+      return rollbackDetail;
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -376,7 +382,9 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
                 Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
             ));
 
-            return new ConcurrentMessageWriter(messagesWriter, metricsContext);
+            return new ConcurrentMessageWriter(messagesWriter, metricsContext,
+                cConf.getBoolean(Constants.MessagingSystem.WRITE_GROUP_COMMIT_ENABLED),
+                cConf.getInt(Constants.MessagingSystem.WRITE_GROUP_COMMIT_MAX_BATCH_SIZE));
           }
         });
   }
@@ -28,8 +28,9 @@ final class PendingStoreRequest extends StoreRequest {
 
   private final StoreRequest originalRequest;
   private final TopicMetadata metadata;
+  private final Thread owner;
 
-  private boolean completed;
+  private volatile boolean completed;
   private long startTimestamp;
   private long endTimestamp;
   private int startSequenceId;
@@ -41,12 +42,20 @@ final class PendingStoreRequest extends StoreRequest {
         originalRequest.getTransactionWritePointer());
     this.originalRequest = originalRequest;
     this.metadata = topicMetadata;
+    this.owner = Thread.currentThread();
   }
 
   TopicMetadata getTopicMetadata() {
     return metadata;
   }
 
+  /**
+   * Returns the {@link Thread} that created this request and is waiting for its completion.
+   */
+  Thread getOwner() {
+    return owner;
+  }
+
   boolean isCompleted() {
     return completed;
   }
@@ -64,8 +73,9 @@ final class PendingStoreRequest extends StoreRequest {
   }
 
   void completed(@Nullable Throwable failureCause) {
-    completed = true;
+    // Set the failure cause before the volatile write of the completed flag to have it visible to the owner thread
     this.failureCause = failureCause;
+    completed = true;
   }
 
   void setStartTimestamp(long startTimestamp) {
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.cdap.cdap.proto.id.TopicId;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Notifies threads that are waiting for new messages to be published to a topic. It is used to
+ * support long-polling fetches, which block until new messages are available instead of returning
+ * an empty result.
+ */
+@ThreadSafe
+final class TopicPublishNotifier {
+
+  // Only keep the signal objects that are referenced by waiting threads.
+  private final LoadingCache<TopicId, Signal> signals = CacheBuilder.newBuilder()
+      .weakValues()
+      .build(new CacheLoader<TopicId, Signal>() {
+        @Override
+        public Signal load(TopicId topicId) {
+          return new Signal();
+        }
+      });
+
+  /**
+   * Returns the {@link Signal} for the given topic. Callers must acquire the signal and record its
+   * {@link Signal#getVersion() version} before reading from the topic, so that publishes happening
+   * after the read are not missed.
+   */
+  Signal getSignal(TopicId topicId) {
+    return signals.getUnchecked(topicId);
+  }
+
+  /**
+   * Wakes up all threads waiting for new messages in the given topic.
+   */
+  void published(TopicId topicId) {
+    Signal signal = signals.getIfPresent(topicId);
+    if (signal != null) {
+      signal.signal();
+    }
+  }
+
+  /**
+   * A versioned monitor that gets signaled whenever new messages are published to a topic.
+   */
+  static final class Signal {
+
+    private long version;
+
+    synchronized long getVersion() {
+      return version;
+    }
+
+    synchronized void signal() {
+      version++;
+      notifyAll();
+    }
+
+    /**
+     * Waits until the version is changed from the given one or the timeout is reached.
+     *
+     * @param version the version that was observed before reading from the topic
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if the version changed; {@code false} if the timeout was reached
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    synchronized boolean await(long version, long timeout,
+        TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      long remaining = unit.toNanos(timeout);
+      while (this.version == version && remaining > 0) {
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        remaining = deadline - System.nanoTime();
+      }
+      return this.version != version;
+    }
+  }
+}
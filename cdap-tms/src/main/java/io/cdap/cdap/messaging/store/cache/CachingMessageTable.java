@@ -17,6 +17,7 @@
 package io.cdap.cdap.messaging.store.cache;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
@@ -86,18 +87,21 @@ final class CachingMessageTable implements MessageTable {
         transaction == null ? lookupEntry : adjustLookupEntry(metadata, lookupEntry);
     MessageCache.Scanner<Entry> scanner = messageCache.scan(adjustedEntry, true,
         limit, createFilter(metadata, transaction));
+    TableFetcher tableFetcher = (lastEntry, fetchLimit) -> lastEntry == null
+        ? messageTable.fetch(metadata, startTime, fetchLimit, transaction)
+        : messageTable.fetch(metadata, createMessageId(lastEntry), false, fetchLimit, transaction);
 
     // No need to scan the table if there is no adjustment on the start time and the cache has everything needed
     if (lookupEntry == adjustedEntry && cacheHasAllEntries(lookupEntry, scanner,
         messageCache.getComparator())) {
-      return scanner;
+      return new CombineMessageEntryIterator(null, scanner, messageCache.getComparator(), limit,
+          tableFetcher);
     }
 
     // Otherwise scan the table and return a combine result.
-    CloseableIterator<Entry> tableIterator = messageTable.fetch(metadata, startTime, limit,
-        transaction);
+    CloseableIterator<Entry> tableIterator = tableFetcher.fetch(null, limit);
     return new CombineMessageEntryIterator(tableIterator, scanner, messageCache.getComparator(),
-        limit);
+        limit, tableFetcher);
   }
 
   @Override
@@ -120,18 +124,21 @@ final class CachingMessageTable implements MessageTable {
         transaction == null ? lookupEntry : adjustLookupEntry(metadata, lookupEntry);
     MessageCache.Scanner<Entry> scanner = messageCache.scan(adjustedEntry, inclusive,
         limit, createFilter(metadata, transaction));
+    TableFetcher tableFetcher = (lastEntry, fetchLimit) -> lastEntry == null
+        ? messageTable.fetch(metadata, messageId, inclusive, fetchLimit, transaction)
+        : messageTable.fetch(metadata, createMessageId(lastEntry), false, fetchLimit, transaction);
 
     // No need to scan the table if there is no adjustment on the start messageId and the cache has everything needed
     if (lookupEntry == adjustedEntry && cacheHasAllEntries(lookupEntry, scanner,
         messageCache.getComparator())) {
-      return scanner;
+      return new CombineMessageEntryIterator(null, scanner, messageCache.getComparator(), limit,
+          tableFetcher);
     }
 
     // Otherwise scan the table and return a combine result.
-    CloseableIterator<Entry> tableIterator = messageTable.fetch(metadata, messageId, inclusive,
-        limit, transaction);
+    CloseableIterator<Entry> tableIterator = tableFetcher.fetch(null, limit);
     return new CombineMessageEntryIterator(tableIterator, scanner, messageCache.getComparator(),
-        limit);
+        limit, tableFetcher);
   }
 
   @Override
@@ -211,6 +218,16 @@ final class CachingMessageTable implements MessageTable {
     return firstInCache != null && comparator.compare(firstInCache, startEntry) <= 0;
   }
 
+  /**
+   * Creates a {@link MessageId} for fetching from the {@link MessageTable} by copying the publish
+   * timestamp and sequence id of the given {@link Entry}.
+   */
+  private static MessageId createMessageId(Entry entry) {
+    byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
+    MessageId.putRawId(entry.getPublishTimestamp(), entry.getSequenceId(), 0L, (short) 0, rawId, 0);
+    return new MessageId(rawId);
+  }
+
   /**
    * Creates a {@link MessageFilter} for scanning entries from the {@link MessageCache}.
    */
@@ -244,27 +261,52 @@ final class CachingMessageTable implements MessageTable {
     };
   }
 
+  /**
+   * Fetches entries from the {@link MessageTable} for a fetch request.
+   */
+  private interface TableFetcher {
+
+    /**
+     * Fetches entries from the {@link MessageTable}.
+     *
+     * @param lastEntry fetches entries after this entry, or from the start of the fetch request
+     *     if it is {@code null}
+     * @param limit maximum number of entries to fetch
+     */
+    CloseableIterator<Entry> fetch(@Nullable Entry lastEntry, int limit) throws IOException;
+  }
+
   /**
    * A {@link CloseableIterator} of {@link Entry} by combine entries scanned from {@link
-   * MessageTable} and from {@link MessageCache}.
+   * MessageTable} and from {@link MessageCache}. If the cache scan ends because entries were
+   * evicted before they were read, the remaining entries are fetched from the {@link
+   * MessageTable}.
    */
   private static final class CombineMessageEntryIterator extends AbstractCloseableIterator<Entry> {
 
-    private final CloseableIterator<Entry> tableIterator;
     private final MessageCache.Scanner<Entry> scanner;
     private final Comparator<Entry> comparator;
+    private final TableFetcher tableFetcher;
+    private CloseableIterator<Entry> tableIterator;
     private boolean iterateCache;
     private Entry firstCachedEntry;
+    private Entry lastEntry;
     private int count;
 
-    private CombineMessageEntryIterator(CloseableIterator<Entry> tableIterator,
+    /**
+     * Creates an instance. If {@code tableIterator} is {@code null}, the cache has all entries
+     * needed and the table is only read if entries are evicted while scanning the cache.
+     */
+    private CombineMessageEntryIterator(@Nullable CloseableIterator<Entry> tableIterator,
         MessageCache.Scanner<Entry> scanner,
         Comparator<Entry> comparator,
-        int limit) {
+        int limit, TableFetcher tableFetcher) {
       this.tableIterator = tableIterator;
       this.scanner = scanner;
       this.comparator = comparator;
-      this.firstCachedEntry = scanner.hasNext() ? scanner.next() : null;
+      this.tableFetcher = tableFetcher;
+      this.iterateCache = tableIterator == null;
+      this.firstCachedEntry = !iterateCache && scanner.hasNext() ? scanner.next() : null;
       this.count = limit;
     }
 
@@ -274,16 +316,26 @@ final class CachingMessageTable implements MessageTable {
       if (count <= 0) {
         return endOfData();
       }
-      count--;
 
       if (iterateCache) {
-        return scanner.hasNext() ? scanner.next() : endOfData();
+        if (scanner.hasNext()) {
+          count--;
+          lastEntry = scanner.next();
+          return lastEntry;
+        }
+        if (!scanner.isEvicted()) {
+          return endOfData();
+        }
+        // Entries were evicted before the cache scanner read them, continue from the table
+        iterateCache = false;
+        fetchFromTable();
       }
 
       // If the table iterator is exhausted, doesn't matter what's in the cache, as the table is the source of truth
       if (!tableIterator.hasNext()) {
         return endOfData();
       }
+      count--;
 
       // If the table iterator return the same entry as the first one in the cache,
       // switch to scan from the cache onward.
@@ -294,17 +346,36 @@ final class CachingMessageTable implements MessageTable {
         iterateCache = true;
       }
 
+      lastEntry = entry;
       return entry;
     }
 
     @Override
     public void close() {
       try {
-        tableIterator.close();
+        if (tableIterator != null) {
+          tableIterator.close();
+        }
       } finally {
         scanner.close();
       }
     }
+
+    /**
+     * Replaces the table iterator with one that fetches the remaining entries after the last
+     * entry returned.
+     */
+    private void fetchFromTable() {
+      try {
+        if (tableIterator != null) {
+          tableIterator.close();
+          tableIterator = null;
+        }
+        tableIterator = tableFetcher.fetch(lastEntry, count);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
   }
 
   /**
@@ -24,6 +24,8 @@ import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.messaging.MessagingServiceUtils;
 import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.cache.RingBufferMessageCache;
+import io.cdap.cdap.messaging.cache.SkipListMessageCache;
 import io.cdap.cdap.messaging.store.MessageTable;
 import io.cdap.cdap.proto.id.TopicId;
 import java.util.Collection;
@@ -76,9 +78,14 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
               // In future, it can be adjusted dynamically based on metrics
               MessageCache.Limits limits = new MessageCache.Limits(hardLimit / 2,
                   hardLimit * 7 / 10, hardLimit);
+              boolean ringBuffer = cConf.getBoolean(Constants.MessagingSystem.CACHE_RING_BUFFER_ENABLED);
+              int capacity = cConf.getInt(Constants.MessagingSystem.CACHE_RING_BUFFER_CAPACITY);
               for (TopicId topic : systemTopics) {
-                caches.put(topic, new MessageCache<>(comparator, weigher, limits,
-                    createMetricsContext(cConf, topic, metricsCollectionService)));
+                MetricsContext metricsContext = createMetricsContext(cConf, topic,
+                    metricsCollectionService);
+                caches.put(topic, ringBuffer
+                    ? new RingBufferMessageCache<>(comparator, weigher, limits, capacity, metricsContext)
+                    : new SkipListMessageCache<>(comparator, weigher, limits, metricsContext));
               }
             }
           }
@@ -30,6 +30,7 @@ import io.cdap.cdap.common.logging.Loggers;
 import io.cdap.cdap.common.service.AbstractRetryableScheduledService;
 import io.cdap.cdap.common.service.RetryStrategy;
 import io.cdap.cdap.common.utils.ImmutablePair;
+import io.cdap.cdap.messaging.context.LongPollingMessageFetcher;
 import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.proto.id.TopicId;
 import java.io.IOException;
@@ -166,15 +167,19 @@ public abstract class AbstractMessagingPollingService<T> extends AbstractRetryab
   }
 
   /**
-   * Fetching messages from TMS.
+   * Fetching messages from TMS. If the fetcher supports long polling, the fetch waits for new
+   * messages for up to the empty fetch delay, instead of sleeping after an empty fetch.
    */
   protected List<Message> fetchMessages(@Nullable String messageId)
       throws TopicNotFoundException, IOException {
     List<Message> messages = new ArrayList<>();
     LOG.trace("Fetching from topic '{}' with messageId '{}'", topicId, messageId);
     MessageFetcher messageFetcher = getMessagingContext().getMessageFetcher();
-    try (CloseableIterator<Message> iterator = messageFetcher.fetch(getTopicId().getNamespace(),
-        getTopicId().getTopic(), fetchSize, messageId)) {
+    try (CloseableIterator<Message> iterator = messageFetcher instanceof LongPollingMessageFetcher
+        ? ((LongPollingMessageFetcher) messageFetcher).fetch(getTopicId().getNamespace(),
+            getTopicId().getTopic(), fetchSize, messageId, emptyFetchDelayMillis)
+        : messageFetcher.fetch(getTopicId().getNamespace(), getTopicId().getTopic(), fetchSize,
+            messageId)) {
       while (iterator.hasNext() && state() == State.RUNNING) {
         messages.add(iterator.next());
       }
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.cache;
+
+import com.google.common.collect.Lists;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.messaging.store.MessageFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RingBufferMessageCache}.
+ */
+public class RingBufferMessageCacheTest {
+
+  private static final MetricsContext NOOP_METRICS = new NoopMetricsContext();
+  private static final Comparator<Integer> INT_COMPARATOR = Integer::compare;
+  private static final MessageCache.Weigher<Integer> UNIT_WEIGHER = entry -> 1;
+
+  @Test
+  public void testBasic() {
+    RingBufferMessageCache<Integer> cache = new RingBufferMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                         new MessageCache.Limits(10, 14, 20),
+                                                                         16, NOOP_METRICS);
+    Assert.assertEquals(16, cache.getCapacity());
+
+    // Scanning an empty cache
+    MessageFilter<Integer> filter = MessageFilter.alwaysAccept();
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertNull(scanner.getFirstInCache());
+      Assert.assertFalse(scanner.hasNext());
+    }
+
+    cache.addAll(Arrays.asList(1, 2, 3, 4, 5, 11, 12, 13, 14, 15).iterator());
+    Assert.assertEquals(10, cache.getCurrentWeight());
+
+    // Scan with a start key that is not in cache
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertEquals(Integer.valueOf(1), scanner.getFirstInCache());
+      Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 11, 12, 13, 14, 15), Lists.newArrayList(scanner));
+    }
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(6, true, 10, filter)) {
+      Assert.assertEquals(Arrays.asList(11, 12, 13, 14, 15), Lists.newArrayList(scanner));
+    }
+
+    // Scan with inclusive and exclusive start key
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(11, true, 10, filter)) {
+      Assert.assertEquals(Arrays.asList(11, 12, 13, 14, 15), Lists.newArrayList(scanner));
+    }
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(11, false, 10, filter)) {
+      Assert.assertEquals(Arrays.asList(12, 13, 14, 15), Lists.newArrayList(scanner));
+    }
+
+    // Scan with limit and scan past the end
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(2, true, 3, filter)) {
+      Assert.assertEquals(Arrays.asList(2, 3, 4), Lists.newArrayList(scanner));
+    }
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(15, false, 10, filter)) {
+      Assert.assertFalse(scanner.hasNext());
+    }
+
+    // Scan with filters that skip and hold
+    MessageFilter<Integer> filterOdd = new MessageFilter<Integer>() {
+      @Override
+      public Result apply(Integer entry) {
+        if (entry == 13) {
+          return Result.HOLD;
+        }
+        return entry % 2 == 1 ? Result.ACCEPT : Result.SKIP;
+      }
+    };
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filterOdd)) {
+      Assert.assertEquals(Arrays.asList(1, 3, 5, 11), Lists.newArrayList(scanner));
+    }
+  }
+
+  @Test
+  public void testEviction() {
+    MessageFilter<Integer> filter = MessageFilter.alwaysAccept();
+
+    // Evict when the ring is full
+    RingBufferMessageCache<Integer> cache = new RingBufferMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                         new MessageCache.Limits(50, 70, 100),
+                                                                         4, NOOP_METRICS);
+    cache.addAll(Arrays.asList(1, 2, 3, 4, 5, 6).iterator());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertEquals(Integer.valueOf(3), scanner.getFirstInCache());
+      Assert.assertEquals(Arrays.asList(3, 4, 5, 6), Lists.newArrayList(scanner));
+    }
+    Assert.assertEquals(4, cache.getCurrentWeight());
+
+    // Evict when going over the hard limit
+    cache = new RingBufferMessageCache<>(INT_COMPARATOR, entry -> entry, new MessageCache.Limits(5, 7, 10),
+                                         16, NOOP_METRICS);
+    cache.addAll(Arrays.asList(1, 2, 3, 4).iterator());
+    Assert.assertEquals(10, cache.getCurrentWeight());
+    cache.addAll(Collections.singletonList(5).iterator());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertEquals(Arrays.asList(4, 5), Lists.newArrayList(scanner));
+    }
+
+    // An entry heavier than the hard limit is not cached and clears the cache
+    cache.addAll(Arrays.asList(11, 1 + 5 * 4).iterator());
+    Assert.assertEquals(0, cache.getCurrentWeight());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertNull(scanner.getFirstInCache());
+      Assert.assertFalse(scanner.hasNext());
+    }
+
+    // Resize should reduce the weight to the min retain
+    cache.resize(new MessageCache.Limits(30, 40, 50));
+    cache.addAll(Arrays.asList(22, 23).iterator());
+    cache.resize(new MessageCache.Limits(25, 30, 40));
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertEquals(Arrays.asList(23), Lists.newArrayList(scanner));
+    }
+
+    cache.clear();
+    Assert.assertEquals(0, cache.getCurrentWeight());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, filter)) {
+      Assert.assertFalse(scanner.hasNext());
+    }
+  }
+
+  @Test
+  public void testEvictionDuringScan() {
+    RingBufferMessageCache<Integer> cache = new RingBufferMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                         new MessageCache.Limits(50, 70, 100),
+                                                                         4, NOOP_METRICS);
+    cache.addAll(Arrays.asList(1, 2, 3, 4).iterator());
+
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, MessageFilter.alwaysAccept())) {
+      Assert.assertEquals(Integer.valueOf(1), scanner.next());
+
+      // Adding entries evicts 1 and 2, which overtakes the scanner
+      cache.addAll(Arrays.asList(5, 6).iterator());
+      Assert.assertFalse(scanner.hasNext());
+      Assert.assertTrue(scanner.isEvicted());
+    }
+
+    // A scan that is not overtaken ends normally
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, MessageFilter.alwaysAccept())) {
+      Assert.assertEquals(Arrays.asList(3, 4, 5, 6), Lists.newArrayList(scanner));
+      Assert.assertFalse(scanner.isEvicted());
+    }
+  }
+
+  @Test
+  public void testAddError() {
+    RingBufferMessageCache<Integer> cache = new RingBufferMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                         new MessageCache.Limits(5, 7, 10),
+                                                                         16, NOOP_METRICS);
+    try {
+      cache.addAll(Arrays.asList(5, 2, 3, 4).iterator());
+      Assert.fail("Expected failure for adding out of order");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(0, cache.getCurrentWeight());
+    }
+
+    cache.addAll(Arrays.asList(5, 6, 7, 8).iterator());
+    try {
+      cache.addAll(Arrays.asList(8, 9).iterator());
+      Assert.fail("Expected failure for adding existing entry");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals(0, cache.getCurrentWeight());
+    }
+
+    // The cache should be usable after the failure
+    cache.addAll(Arrays.asList(1, 2).iterator());
+    try (MessageCache.Scanner<Integer> scanner = cache.scan(0, true, 10, MessageFilter.alwaysAccept())) {
+      Assert.assertEquals(Arrays.asList(1, 2), Lists.newArrayList(scanner));
+    }
+  }
+
+  @Test
+  public void testUpdate() {
+    RingBufferMessageCache<int[]> cache = new RingBufferMessageCache<>(
+      Comparator.comparingInt(entry -> entry[0]), entry -> 1, new MessageCache.Limits(10, 14, 20), 16, NOOP_METRICS);
+    cache.addAll(IntStream.range(0, 6).mapToObj(i -> new int[] { i, 0 }).iterator());
+
+    // Update entries in the middle
+    cache.updateEntries(new int[] { 2, 0 }, new int[] { 4, 0 }, new MessageCache.EntryUpdater<int[]>() {
+      @Override
+      public void updateEntry(int[] entry) {
+        entry[1] = 1;
+      }
+    });
+
+    try (MessageCache.Scanner<int[]> scanner = cache.scan(new int[] { 0, 0 }, true, 10,
+                                                          MessageFilter.alwaysAccept())) {
+      List<Integer> updated = new ArrayList<>();
+      scanner.forEachRemaining(entry -> updated.add(entry[1]));
+      Assert.assertEquals(Arrays.asList(0, 0, 1, 1, 1, 0), updated);
+    }
+
+    // Update that alters the order should fail and clear the cache
+    try {
+      cache.updateEntries(new int[] { 1, 0 }, new int[] { 1, 0 }, new MessageCache.EntryUpdater<int[]>() {
+        @Override
+        public void updateEntry(int[] entry) {
+          entry[0] = 10;
+        }
+      });
+      Assert.fail("Expected exception of out of order update");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals(0, cache.getCurrentWeight());
+    }
+  }
+
+  @Test
+  public void testConcurrentScan() throws Exception {
+    // A small ring with a writer that keeps wrapping around, while readers keep scanning.
+    // Each scan must return a contiguous sequence starting from the requested entry if it is cached.
+    RingBufferMessageCache<Integer> cache = new RingBufferMessageCache<>(INT_COMPARATOR, UNIT_WEIGHER,
+                                                                         new MessageCache.Limits(50, 70, 100),
+                                                                         64, NOOP_METRICS);
+    int total = 200000;
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        readers.add(executor.submit(() -> {
+          MessageFilter<Integer> filter = MessageFilter.alwaysAccept();
+          int start = 0;
+          while (!done.get()) {
+            try (MessageCache.Scanner<Integer> scanner = cache.scan(start, true, 20, filter)) {
+              Integer first = scanner.getFirstInCache();
+              List<Integer> entries = Lists.newArrayList(scanner);
+              if (first != null && first <= start && !entries.isEmpty()) {
+                Assert.assertEquals(Integer.valueOf(start), entries.get(0));
+              }
+              for (int j = 1; j < entries.size(); j++) {
+                Assert.assertEquals(entries.get(j - 1) + 1, (int) entries.get(j));
+              }
+              start = entries.isEmpty() ? start : entries.get(entries.size() - 1) + 1;
+              if (first != null && first > start) {
+                start = first;
+              }
+            }
+          }
+        }));
+      }
+
+      for (int i = 0; i < total; i += 10) {
+        cache.addAll(IntStream.range(i, i + 10).boxed().collect(Collectors.toList()).iterator());
+      }
+      done.set(true);
+
+      for (Future<?> reader : readers) {
+        reader.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -38,16 +38,16 @@ import org.junit.Assert;
 import org.junit.Test;
 
 /**
- * Unit test for {@link MessageCache}.
+ * Unit test for {@link SkipListMessageCache}.
  */
-public class MessageCacheTest {
+public class SkipListMessageCacheTest {
 
   private static final MetricsContext NOOP_METRICS = new NoopMetricsContext();
 
   @Test
   public void testNoCache() {
     // Create a cache with zero limits
-    MessageCache<String> cache = new MessageCache<>(String.CASE_INSENSITIVE_ORDER, new MessageCache.Weigher<String>() {
+    SkipListMessageCache<String> cache = new SkipListMessageCache<>(String.CASE_INSENSITIVE_ORDER, new MessageCache.Weigher<String>() {
       @Override
       public int weight(String entry) {
         return entry.length();
@@ -65,8 +65,8 @@ public class MessageCacheTest {
   @Test
   public void testBasic() {
     // Test basic operations for the cache from single thread
-    MessageCache<Integer> cache = new MessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
-                                                     new MessageCache.Limits(10, 14, 20), NOOP_METRICS);
+    SkipListMessageCache<Integer> cache = new SkipListMessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
+                                                                     new MessageCache.Limits(10, 14, 20), NOOP_METRICS);
 
     cache.addAll(Arrays.asList(1, 2, 3, 4, 5, 11, 12, 13, 14, 15).iterator());
     Assert.assertEquals(10, cache.getCurrentWeight());
@@ -136,8 +136,8 @@ public class MessageCacheTest {
 
   @Test
   public void testUpdate() {
-    MessageCache<Entry> cache = new MessageCache<>(new EntryComparator(), new UnitWeigher<Entry>(),
-                                                   new MessageCache.Limits(10, 14, 20), NOOP_METRICS);
+    SkipListMessageCache<Entry> cache = new SkipListMessageCache<>(new EntryComparator(), new UnitWeigher<Entry>(),
+                                                                   new MessageCache.Limits(10, 14, 20), NOOP_METRICS);
 
     // Try update that alter order at different element. Exception should be raised in all cases.
     for (int i = 0; i < 3; i++) {
@@ -189,8 +189,8 @@ public class MessageCacheTest {
   @Test
   public void testCacheReduction() {
     // Test the cache reduction logic in single thread case.
-    MessageCache<Integer> cache = new MessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
-                                                     new MessageCache.Limits(5, 7, 10), NOOP_METRICS);
+    SkipListMessageCache<Integer> cache = new SkipListMessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
+                                                                     new MessageCache.Limits(5, 7, 10), NOOP_METRICS);
 
     MessageFilter<Integer> filter = MessageFilter.alwaysAccept();
 
@@ -238,8 +238,8 @@ public class MessageCacheTest {
   @Test
   public void testCacheResize() {
     // Test resize the cache
-    MessageCache<Integer> cache = new MessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
-                                                     new MessageCache.Limits(2, 3, 4), NOOP_METRICS);
+    SkipListMessageCache<Integer> cache = new SkipListMessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
+                                                                     new MessageCache.Limits(2, 3, 4), NOOP_METRICS);
 
     MessageFilter<Integer> filter = MessageFilter.alwaysAccept();
 
@@ -268,8 +268,8 @@ public class MessageCacheTest {
   @Test
   public void testAddError() throws Exception {
     // Test to verify various error situations are being safeguarded
-    final MessageCache<Integer> cache = new MessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
-                                                           new MessageCache.Limits(5, 7, 10), NOOP_METRICS);
+    final SkipListMessageCache<Integer> cache = new SkipListMessageCache<>(new IntComparator(), new UnitWeigher<Integer>(),
+                                                                           new MessageCache.Limits(5, 7, 10), NOOP_METRICS);
 
     // 1. Adding out of order should result in error
     try {
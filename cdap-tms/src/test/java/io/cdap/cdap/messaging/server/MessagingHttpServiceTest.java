@@ -37,6 +37,7 @@ import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.messaging.TopicFetchRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
 import io.cdap.cdap.messaging.client.ClientMessagingService;
 import io.cdap.cdap.messaging.client.StoreRequestBuilder;
@@ -56,7 +57,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TxConstants;
@@ -469,6 +475,104 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testLongPoll() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testLongPoll");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Fetching from an empty topic should wait until the wait time passed
+    long startTime = System.currentTimeMillis();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setWaitTime(500, TimeUnit.MILLISECONDS).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 500);
+
+    // Fetch with a long wait time in the background, it should return as soon as a message is published
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<RawMessage>> future = executor.submit(() -> {
+        List<RawMessage> messages = new ArrayList<>();
+        try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+          .setWaitTime(1, TimeUnit.HOURS).fetch()) {
+          Iterators.addAll(messages, iterator);
+        }
+        return messages;
+      });
+
+      client.publish(StoreRequestBuilder.of(topicId).addPayload("m1").build());
+      List<RawMessage> messages = future.get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(Collections.singletonList("m1"),
+                          messages.stream()
+                            .map(RawMessage::getPayload)
+                            .map(Bytes::toString).collect(Collectors.toList()));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testBatchPublishFetch() throws Exception {
+    NamespaceId nsId = new NamespaceId("ns1");
+    TopicId topic1 = nsId.topic("testBatch1");
+    TopicId topic2 = nsId.topic("testBatch2");
+    client.createTopic(new TopicMetadata(topic1));
+    client.createTopic(new TopicMetadata(topic2));
+
+    client.batchPublish(Arrays.asList(
+      StoreRequestBuilder.of(topic1).addPayload("a1").addPayload("a2").addPayload("a3").build(),
+      StoreRequestBuilder.of(topic2).addPayload("b1").build()));
+
+    // Fetch from both topics in one call, with different limits
+    Map<TopicId, List<RawMessage>> result = client.batchFetch(Arrays.asList(
+      new TopicFetchRequest(topic1, 2), new TopicFetchRequest(topic2, 10)));
+    Assert.assertEquals(Arrays.asList(topic1, topic2), new ArrayList<>(result.keySet()));
+    Assert.assertEquals(Arrays.asList("a1", "a2"), toPayloads(result.get(topic1)));
+    Assert.assertEquals(Collections.singletonList("b1"), toPayloads(result.get(topic2)));
+
+    // Continue fetching from the last message id
+    byte[] lastId = result.get(topic1).get(1).getId();
+    result = client.batchFetch(Arrays.asList(
+      new TopicFetchRequest(topic1, lastId, false, 10),
+      new TopicFetchRequest(topic2, result.get(topic2).get(0).getId(), false, 10)));
+    Assert.assertEquals(Collections.singletonList("a3"), toPayloads(result.get(topic1)));
+    Assert.assertTrue(result.get(topic2).isEmpty());
+
+    // Fetching or publishing to a non-existing topic should fail with the missing topic
+    TopicId missing = nsId.topic("testBatchMissing");
+    try {
+      client.batchFetch(Arrays.asList(new TopicFetchRequest(topic1, 10), new TopicFetchRequest(missing, 10)));
+      Assert.fail("Expected TopicNotFoundException");
+    } catch (TopicNotFoundException e) {
+      Assert.assertEquals(missing.getNamespace(), e.getNamespace());
+      Assert.assertEquals(missing.getTopic(), e.getTopic());
+    }
+    try {
+      client.batchPublish(Collections.singletonList(StoreRequestBuilder.of(missing).addPayload("m").build()));
+      Assert.fail("Expected TopicNotFoundException");
+    } catch (TopicNotFoundException e) {
+      Assert.assertEquals(missing.getTopic(), e.getTopic());
+    }
+
+    // Transactional publish is not supported
+    try {
+      client.batchPublish(Collections.singletonList(
+        StoreRequestBuilder.of(topic1).setTransaction(1L).addPayload("m").build()));
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    client.deleteTopic(topic1);
+    client.deleteTopic(topic2);
+  }
+
+  private List<String> toPayloads(List<RawMessage> messages) {
+    return messages.stream().map(RawMessage::getPayload).map(Bytes::toString).collect(Collectors.toList());
+  }
+
   @Test
   public void testPayloadTable() throws Exception {
     // This test is to verify storing transaction messages to the payload table
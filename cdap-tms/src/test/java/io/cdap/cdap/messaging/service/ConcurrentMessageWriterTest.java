@@ -21,7 +21,8 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.api.common.Bytes;
-import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -35,6 +36,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -153,7 +155,7 @@ public class ConcurrentMessageWriterTest {
     // before flushing.
     // This will make all requests batched together
     final CountDownLatch latch = new CountDownLatch(requestCount);
-    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsCollector() {
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsContext() {
       @Override
       public void increment(String metricName, long value) {
         if ("persist.requested".equals(metricName)) {
@@ -166,6 +168,26 @@ public class ConcurrentMessageWriterTest {
       public void gauge(String metricName, long value) {
         LOG.info("MetricsContext.gauge: {} = {}", metricName, value);
       }
+
+      @Override
+      public void event(String metricName, long value) {
+        LOG.info("MetricsContext.event: {} = {}", metricName, value);
+      }
+
+      @Override
+      public MetricsContext childContext(Map<String, String> tags) {
+        return this;
+      }
+
+      @Override
+      public MetricsContext childContext(String tagName, String tagValue) {
+        return this;
+      }
+
+      @Override
+      public Map<String, String> getTags() {
+        return new HashMap<>();
+      }
     });
 
     ExecutorService executor = Executors.newFixedThreadPool(3);
@@ -206,6 +228,23 @@ public class ConcurrentMessageWriterTest {
 
   @Test
   public void testConcurrentWrites() throws InterruptedException, BrokenBarrierException {
+    testConcurrentWrites(false, Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testSpinConcurrentWritesIgnoreMaxBatchSize() throws InterruptedException, BrokenBarrierException {
+    // The max batch size only applies to group commit
+    testConcurrentWrites(false, 0);
+  }
+
+  @Test
+  public void testGroupCommitConcurrentWrites() throws InterruptedException, BrokenBarrierException {
+    // Use a small batch size so that the writer role has to be handed over between threads
+    testConcurrentWrites(true, 3);
+  }
+
+  private void testConcurrentWrites(boolean groupCommit,
+                                    int maxBatchSize) throws InterruptedException, BrokenBarrierException {
     int payloadsPerRequest = 200;
     int threadCount = 20;
     final int requestPerThread = 20;
@@ -215,7 +254,8 @@ public class ConcurrentMessageWriterTest {
     final TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
     TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider(),
                                                                    writeLatencyMillis);
-    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter);
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new NoopMetricsContext(),
+                                                                       groupCommit, maxBatchSize);
 
     final List<String> payload = new ArrayList<>(payloadsPerRequest);
     for (int i = 0; i < payloadsPerRequest; i++) {
@@ -30,16 +30,21 @@ import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.MessagingUtils;
 import io.cdap.cdap.messaging.TopicMetadata;
 import io.cdap.cdap.messaging.cache.MessageCache;
+import io.cdap.cdap.messaging.cache.RingBufferMessageCache;
+import io.cdap.cdap.messaging.cache.SkipListMessageCache;
 import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.messaging.store.ImmutableMessageTableEntry;
 import io.cdap.cdap.messaging.store.MessageTable;
 import io.cdap.cdap.messaging.store.leveldb.LevelDBMessageTableTest;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import org.apache.tephra.Transaction;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -68,8 +73,8 @@ public class CachingMessageTableTest extends LevelDBMessageTableTest {
       .build(new CacheLoader<TopicId, MessageCache<MessageTable.Entry>>() {
         @Override
         public MessageCache<MessageTable.Entry> load(TopicId key) throws Exception {
-          return new MessageCache<>(new MessageTableEntryComparator(), new MessageTableEntryWeigher(),
-                                    new MessageCache.Limits(500, 700, 1000), new NoopMetricsContext());
+          return new SkipListMessageCache<>(new MessageTableEntryComparator(), new MessageTableEntryWeigher(),
+                                            new MessageCache.Limits(500, 700, 1000), new NoopMetricsContext());
         }
       });
 
@@ -171,4 +176,61 @@ public class CachingMessageTableTest extends LevelDBMessageTableTest {
       Assert.assertTrue(iterator.next() instanceof CachingMessageTable.CacheMessageTableEntry);
     }
   }
+
+  @Test
+  public void testEvictionDuringFetch() throws Exception {
+    TopicMetadata metadata = new TopicMetadata(NamespaceId.DEFAULT.topic("eviction"),
+                                               TopicMetadata.GENERATION_KEY, 1,
+                                               TopicMetadata.TTL_KEY, 86400);
+
+    // Use a ring buffer cache that can only hold four entries
+    MessageCache<MessageTable.Entry> cache = new RingBufferMessageCache<>(
+      new MessageTableEntryComparator(), new MessageTableEntryWeigher(),
+      new MessageCache.Limits(500, 700, 1000), 4, new NoopMetricsContext());
+    MessageTable messageTable = new CachingMessageTable(cConf, super.getMessageTable(metadata),
+                                                        new MessageTableCacheProvider() {
+      @Nullable
+      @Override
+      public MessageCache<MessageTable.Entry> getMessageCache(TopicId topicId) {
+        return cache;
+      }
+
+      @Override
+      public void clear() {
+        cache.clear();
+      }
+    });
+
+    for (int i = 0; i < 4; i++) {
+      storeEntry(messageTable, metadata, i);
+    }
+
+    try (CloseableIterator<MessageTable.Entry> iter = messageTable.fetch(metadata, 0, 100, null)) {
+      // The first entry comes from the cache
+      MessageTable.Entry entry = iter.next();
+      Assert.assertEquals(0L, entry.getPublishTimestamp());
+      Assert.assertTrue(entry instanceof CachingMessageTable.CacheMessageTableEntry);
+
+      // Storing two more entries evicts entries that are not read yet
+      storeEntry(messageTable, metadata, 4);
+      storeEntry(messageTable, metadata, 5);
+
+      // The rest should be fetched from the table without missing any entry
+      List<Long> timestamps = new ArrayList<>();
+      while (iter.hasNext()) {
+        entry = iter.next();
+        Assert.assertFalse(entry instanceof CachingMessageTable.CacheMessageTableEntry);
+        timestamps.add(entry.getPublishTimestamp());
+      }
+      Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), timestamps);
+    }
+  }
+
+  private void storeEntry(MessageTable messageTable, TopicMetadata metadata, long publishTime) throws Exception {
+    // Key is (topic, generation, publish time, sequence id)
+    byte[] key = Bytes.concat(MessagingUtils.toDataKeyPrefix(metadata.getTopicId(), metadata.getGeneration()),
+                              Bytes.toBytes(publishTime), Bytes.toBytes((short) 0));
+    messageTable.store(Collections.singleton(
+      new ImmutableMessageTableEntry(key, Bytes.toBytes("Payload " + publishTime), null)).iterator());
+  }
 }
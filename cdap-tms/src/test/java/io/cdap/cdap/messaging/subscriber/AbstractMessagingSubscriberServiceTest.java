@@ -26,6 +26,7 @@ import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.service.RetryStrategies;
 import io.cdap.cdap.common.service.RetryStrategy;
 import io.cdap.cdap.common.utils.ImmutablePair;
+import io.cdap.cdap.messaging.context.LongPollingMessageFetcher;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.cdap.spi.data.StructuredTableContext;
@@ -190,6 +191,39 @@ public class AbstractMessagingSubscriberServiceTest {
     service.stopAndWait();
   }
 
+  @Test
+  public void testLongPolling()
+    throws TopicNotFoundException, IOException, TransactionException, InterruptedException {
+    Iterator<Message> messages = Arrays.asList(message0, message1).iterator();
+    LongPollingMessageFetcher longPollingFetcher = Mockito.mock(LongPollingMessageFetcher.class);
+    Mockito.when(messagingContext.getMessageFetcher()).thenReturn(longPollingFetcher);
+    // The fetch waits for new messages for up to the empty fetch delay
+    Mockito.when(longPollingFetcher.fetch(NamespaceId.DEFAULT.getNamespace(), "test", 100, "start", 5000L))
+      .thenReturn(new AbstractCloseableIterator<Message>() {
+        @Override
+        protected Message computeNext() {
+          return messages.hasNext() ? messages.next() : endOfData();
+        }
+
+        @Override
+        public void close() {
+
+        }
+      });
+    Mockito.doAnswer(c -> {
+      c.getArgumentAt(0, TxRunnable.class).run(structuredTableContext);
+      return null;
+    }).when(transactionRunner).run(Mockito.any());
+
+    TestMessagingSubscriberService service = new TestMessagingSubscriberService(
+      NamespaceId.DEFAULT.topic("test"), 100, 100, 5000,
+      RetryStrategies.noRetry(), metricsContext, 100);
+    service.startAndWait();
+    Assert.assertEquals(Arrays.asList(ImmutablePair.of(null, 0), ImmutablePair.of(null, 1)),
+                        processedMessages.poll(10, TimeUnit.SECONDS));
+    service.stopAndWait();
+  }
+
   class TestMessagingSubscriberService extends AbstractMessagingSubscriberService<Integer> {
     private int counter;
 
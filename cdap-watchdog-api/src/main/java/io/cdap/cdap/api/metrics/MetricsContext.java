@@ -48,4 +48,28 @@ public interface MetricsContext extends MetricsCollector {
    * @param value corresponding value
    */
   void event(String metricName, long value);
+
+  /**
+   * Returns a {@link Counter} for the given metric in this context. Updating through the returned
+   * {@link Counter} is the same as calling {@link #increment(String, long)}, but implementations
+   * may resolve the metric once, which is cheaper for metrics that are updated frequently.
+   *
+   * @param metricName name of the metric
+   * @return a {@link Counter} bound to the metric
+   */
+  default Counter counter(String metricName) {
+    return delta -> increment(metricName, delta);
+  }
+
+  /**
+   * Returns a {@link Gauge} for the given metric in this context. Updating through the returned
+   * {@link Gauge} is the same as calling {@link #gauge(String, long)}, but implementations may
+   * resolve the metric once, which is cheaper for metrics that are updated frequently.
+   *
+   * @param metricName name of the metric
+   * @return a {@link Gauge} bound to the metric
+   */
+  default Gauge gauge(String metricName) {
+    return value -> gauge(metricName, value);
+  }
 }
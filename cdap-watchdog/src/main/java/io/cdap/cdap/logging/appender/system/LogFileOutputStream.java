@@ -20,6 +20,7 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.io.Closeables;
 import io.cdap.cdap.common.io.ByteBuffers;
 import io.cdap.cdap.common.io.Syncable;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
 import java.io.Closeable;
@@ -40,6 +41,10 @@ import org.slf4j.LoggerFactory;
  *
  * Since there is no way to check the state of the underlying file on an exception, all methods of
  * this class assume that the file state is bad on any exception and close the file.
+ *
+ * Avro blocks are ended by this class instead of by the {@link DataFileWriter}, so that the time
+ * range of each block is known. A {@link LogFileIndex} of the blocks is written when the file is
+ * closed.
  */
 
 class LogFileOutputStream implements Closeable, Flushable, Syncable {
@@ -50,16 +55,22 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   private final long createTime;
   private final Closeable closeable;
   private final LoggingEventSerializer serializer;
+  private final String filePermissions;
+  private final int syncIntervalBytes;
 
   private OutputStream outputStream;
   private DataFileWriter<GenericRecord> dataFileWriter;
   private long fileSize;
+  private LogFileIndex.Builder indexBuilder;
+  private long blockBytes;
 
   LogFileOutputStream(Location location, String filePermissions,
       int syncIntervalBytes, long createTime, Closeable closeable) throws IOException {
     this.location = location;
     this.closeable = closeable;
     this.serializer = new LoggingEventSerializer();
+    this.filePermissions = filePermissions;
+    this.syncIntervalBytes = syncIntervalBytes;
 
     Schema schema = serializer.getAvroSchema();
     try {
@@ -68,9 +79,11 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
               : location.getOutputStream(filePermissions);
       this.dataFileWriter = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema));
       this.dataFileWriter.create(schema, outputStream);
-      this.dataFileWriter.setSyncInterval(syncIntervalBytes);
+      // Blocks are ended in the append method based on the syncIntervalBytes
+      this.dataFileWriter.setSyncInterval(1 << 30);
       this.createTime = createTime;
       this.fileSize = 0;
+      this.indexBuilder = new LogFileIndex.Builder(dataFileWriter.sync());
     } catch (IOException e) {
       Closeables.closeQuietly(outputStream);
       Closeables.closeQuietly(dataFileWriter);
@@ -83,18 +96,54 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   }
 
   void append(ILoggingEvent event) throws IOException {
+    ByteBuffer encoded = null;
     // If the event is already a LoggingEvent, we don't need to re-encode.
     if (event instanceof LoggingEvent) {
-      ByteBuffer encoded = ((LoggingEvent) event).getEncoded();
-      if (encoded != null) {
-        // TODO: CDAP-8735 Remove the copying after upgraded to Avro 1.7.4+
-        dataFileWriter.appendEncoded(ByteBuffers.copy(encoded));
-      } else {
-        dataFileWriter.append(((LoggingEvent) event).getRecord());
-      }
-      return;
+      encoded = ((LoggingEvent) event).getEncoded();
+    }
+    if (encoded == null) {
+      encoded = ByteBuffer.wrap(serializer.toBytes(event));
+    } else {
+      // TODO: CDAP-8735 Remove the copying after upgraded to Avro 1.7.4+
+      encoded = ByteBuffers.copy(encoded);
+    }
+
+    int size = encoded.remaining();
+    try {
+      dataFileWriter.appendEncoded(encoded);
+    } catch (IOException e) {
+      // The file state is unknown, hence don't write the index
+      indexBuilder = null;
+      throw e;
+    }
+    if (indexBuilder != null) {
+      indexBuilder.add(event.getTimeStamp(), event.getLevel());
+    }
+
+    blockBytes += size;
+    if (blockBytes >= syncIntervalBytes) {
+      endBlock();
     }
-    dataFileWriter.append(serializer.toGenericRecord(event));
+  }
+
+  /**
+   * Writes the current block to the file.
+   *
+   * @return the position in the file after the block
+   */
+  private long endBlock() throws IOException {
+    long position;
+    try {
+      position = dataFileWriter.sync();
+    } catch (IOException e) {
+      indexBuilder = null;
+      throw e;
+    }
+    if (indexBuilder != null) {
+      indexBuilder.endBlock(position);
+    }
+    blockBytes = 0;
+    return position;
   }
 
   /**
@@ -117,7 +166,7 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
 
   @Override
   public void flush() throws IOException {
-    fileSize = dataFileWriter.sync();
+    fileSize = endBlock();
   }
 
   @Override
@@ -134,9 +183,28 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   public void close() throws IOException {
     LOG.trace("Closing file {}", location);
     try {
+      endBlock();
       dataFileWriter.close();
+      writeIndex();
     } finally {
       closeable.close();
     }
   }
+
+  /**
+   * Writes the {@link LogFileIndex} of the log file. Failure is only logged, since readers can
+   * still read the log file without the index.
+   */
+  private void writeIndex() {
+    LogFileIndex.Builder builder = indexBuilder;
+    indexBuilder = null;
+    if (builder == null) {
+      return;
+    }
+    try {
+      builder.write(location, filePermissions);
+    } catch (IOException e) {
+      LOG.warn("Failed to write log file index for {}", location, e);
+    }
+  }
 }
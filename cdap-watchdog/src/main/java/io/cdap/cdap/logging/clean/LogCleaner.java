@@ -17,6 +17,7 @@
 package io.cdap.cdap.logging.clean;
 
 import io.cdap.cdap.common.io.Locations;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -69,14 +70,16 @@ public class LogCleaner {
     int failureCount = 0;
     for (FileMetadataCleaner.DeletedEntry deletedEntry : deleteEntries) {
       try {
-        boolean status = Locations.getLocationFromAbsolutePath(locationFactory,
-            deletedEntry.getPath()).delete();
+        Location logLocation = Locations.getLocationFromAbsolutePath(locationFactory,
+            deletedEntry.getPath());
+        boolean status = logLocation.delete();
         if (!status) {
           failureCount++;
           LOG.warn("File {} delete failed", deletedEntry.getPath());
         } else {
           deleteCount++;
           LOG.trace("File {} deleted by log cleanup", deletedEntry.getPath());
+          Locations.deleteQuietly(LogFileIndex.getIndexLocation(logLocation));
           deleteDirectoryIfEmpty(deletedEntry.getPath());
         }
       } catch (IOException e) {
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.serialize;
+
+import io.cdap.cdap.logging.filter.AndFilter;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.filter.MdcExpression;
+import io.cdap.cdap.logging.filter.OrFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+/**
+ * A {@link DatumReader} for {@link LogSchema.LoggingEvent} records that evaluates a {@link Filter}
+ * before decoding the whole record. The timestamp, level and MDC fields, which are the first fields
+ * in the schema, are decoded first. If the resulting event doesn't match the filter, the rest of
+ * the record, which includes the message, the throwable and the caller data, is skipped.
+ *
+ * For a skipped record, the returned {@link GenericRecord} only has the timestamp, level and MDC
+ * fields set. Since the filter only looks at those fields, matching the filter against the returned
+ * record gives the same result. Use {@link #isSupported(Filter)} to check if a filter can be
+ * evaluated this way.
+ *
+ * If the file is written with a different schema, records are decoded fully with schema
+ * resolution, the same as {@link GenericDatumReader}.
+ */
+@NotThreadSafe
+public final class FilteringLoggingEventReader implements DatumReader<GenericRecord> {
+
+  private static final Schema SCHEMA = LogSchema.LoggingEvent.SCHEMA;
+  // Number of fields decoded before evaluating the filter, which are timestamp, level and mdc
+  private static final int HEAD_FIELDS = 3;
+  private static final Schema TAIL_SCHEMA;
+
+  static {
+    // A record schema with all the fields after the head fields. Since Avro binary encoding of a
+    // record is just the encoding of its fields, it can be used to decode the rest of a record.
+    List<Schema.Field> tailFields = new ArrayList<>();
+    List<Schema.Field> fields = SCHEMA.getFields();
+    for (Schema.Field field : fields.subList(HEAD_FIELDS, fields.size())) {
+      tailFields.add(new Schema.Field(field.name(), field.schema(), field.doc(),
+          field.defaultVal()));
+    }
+    TAIL_SCHEMA = Schema.createRecord("LoggingEventTail", null, SCHEMA.getNamespace(), false,
+        tailFields);
+  }
+
+  private final Filter filter;
+  private final GenericDatumReader<GenericRecord> fullReader;
+  private final GenericDatumReader<GenericRecord> tailReader;
+  private boolean filtering;
+
+  /**
+   * Returns {@code true} if the given {@link Filter} can be evaluated before decoding the whole
+   * record, which is the case if it only looks at the event level and MDC.
+   */
+  public static boolean isSupported(Filter filter) {
+    if (filter instanceof LogLevelExpression || filter instanceof MdcExpression) {
+      return true;
+    }
+    List<? extends Filter> expressions;
+    if (filter instanceof AndFilter) {
+      expressions = ((AndFilter) filter).getExpressions();
+    } else if (filter instanceof OrFilter) {
+      expressions = ((OrFilter) filter).getExpressions();
+    } else {
+      return false;
+    }
+    for (Filter expression : expressions) {
+      if (!isSupported(expression)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param filter the {@link Filter} to evaluate. It must be supported as determined by
+   *     {@link #isSupported(Filter)}
+   */
+  public FilteringLoggingEventReader(Filter filter) {
+    if (!isSupported(filter)) {
+      throw new IllegalArgumentException("Filter " + filter + " only looking at level and MDC "
+          + "is supported");
+    }
+    this.filter = filter;
+    this.fullReader = new GenericDatumReader<>(SCHEMA);
+    this.tailReader = new GenericDatumReader<>(TAIL_SCHEMA);
+  }
+
+  @Override
+  public void setSchema(Schema schema) {
+    // Only decode field by field if the file is written with the same schema,
+    // otherwise the decoding needs schema resolution.
+    filtering = SCHEMA.equals(schema);
+    fullReader.setSchema(schema);
+  }
+
+  @Override
+  public GenericRecord read(GenericRecord reuse, Decoder in) throws IOException {
+    if (!filtering) {
+      return fullReader.read(reuse, in);
+    }
+
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("timestamp", in.readLong());
+    record.put("level", in.readInt());
+    record.put("mdc", readMdc(in));
+    record.put("hasCallerData", false);
+
+    if (!filter.match(new LoggingEvent(record))) {
+      GenericDatumReader.skip(TAIL_SCHEMA, in);
+      return record;
+    }
+
+    GenericRecord tail = tailReader.read(null, in);
+    for (Schema.Field field : TAIL_SCHEMA.getFields()) {
+      record.put(field.name(), tail.get(field.pos()));
+    }
+    return record;
+  }
+
+  private Map<String, String> readMdc(Decoder in) throws IOException {
+    // The mdc field is an union of null and map of union of null and string
+    if (in.readIndex() == 0) {
+      in.readNull();
+      return null;
+    }
+    Map<String, String> mdc = new HashMap<>();
+    for (long size = in.readMapStart(); size != 0; size = in.mapNext()) {
+      for (long i = 0; i < size; i++) {
+        String key = in.readString();
+        String value = null;
+        if (in.readIndex() == 0) {
+          in.readNull();
+        } else {
+          value = in.readString();
+        }
+        mdc.put(key, value);
+      }
+    }
+    return mdc;
+  }
+}
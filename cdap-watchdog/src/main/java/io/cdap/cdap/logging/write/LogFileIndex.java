@@ -0,0 +1,320 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import io.cdap.cdap.common.io.Locations;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.twill.filesystem.Location;
+
+/**
+ * A time index of the blocks in an Avro log file. It is written as a sidecar file next to the log
+ * file when the log file is closed. For each Avro block, it contains the position of the block,
+ * the minimum and maximum event timestamps and a bitmap of the event levels in the block. Log
+ * readers use it to seek to the blocks of a time range without decoding the log events before it.
+ *
+ * Log files written before the index was introduced, or that are still being written, don't have
+ * the index file. Readers should fall back to scanning the log file for those.
+ */
+public final class LogFileIndex {
+
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final int MAGIC = 0x4c494458;  // "LIDX"
+  private static final int VERSION = 1;
+
+  private final long[] positions;
+  private final long[] minTimes;
+  private final long[] maxTimes;
+  private final byte[] levels;
+  // Maximum of maxTimes up to each block, and minimum of minTimes from each block,
+  // so that binary search still works if events in the file are not strictly in time order
+  private final long[] prefixMaxTimes;
+  private final long[] suffixMinTimes;
+  private final long fileLength;
+
+  private LogFileIndex(long[] positions, long[] minTimes, long[] maxTimes, byte[] levels,
+      long fileLength) {
+    this.positions = positions;
+    this.minTimes = minTimes;
+    this.maxTimes = maxTimes;
+    this.levels = levels;
+    this.fileLength = fileLength;
+
+    int size = positions.length;
+    this.prefixMaxTimes = new long[size];
+    this.suffixMinTimes = new long[size];
+    for (int i = 0; i < size; i++) {
+      prefixMaxTimes[i] = i == 0 ? maxTimes[i] : Math.max(prefixMaxTimes[i - 1], maxTimes[i]);
+    }
+    for (int i = size - 1; i >= 0; i--) {
+      suffixMinTimes[i] = i == size - 1 ? minTimes[i]
+          : Math.min(suffixMinTimes[i + 1], minTimes[i]);
+    }
+  }
+
+  /**
+   * Returns the {@link Location} of the index file for the given log file.
+   */
+  public static Location getIndexLocation(Location logLocation) throws IOException {
+    Location parent = Locations.getParent(logLocation);
+    if (parent == null) {
+      throw new IOException("Log file " + logLocation + " doesn't have a parent directory");
+    }
+    return parent.append(logLocation.getName() + INDEX_SUFFIX);
+  }
+
+  /**
+   * Reads the index of the given log file.
+   *
+   * @param logLocation the location of the log file
+   * @return the {@link LogFileIndex} or {@code null} if the log file doesn't have an index, or the
+   *     index doesn't match the log file
+   * @throws IOException if failed to read the index
+   */
+  @Nullable
+  public static LogFileIndex read(Location logLocation) throws IOException {
+    Location indexLocation = getIndexLocation(logLocation);
+    if (!indexLocation.exists()) {
+      return null;
+    }
+    try (DataInputStream is = new DataInputStream(
+        new BufferedInputStream(indexLocation.getInputStream()))) {
+      if (is.readInt() != MAGIC || is.readInt() != VERSION) {
+        return null;
+      }
+      long fileLength = is.readLong();
+      // If the log file was modified after the index was written, the index cannot be used
+      if (fileLength != logLocation.length()) {
+        return null;
+      }
+      int size = is.readInt();
+      long[] positions = new long[size];
+      long[] minTimes = new long[size];
+      long[] maxTimes = new long[size];
+      byte[] levels = new byte[size];
+      for (int i = 0; i < size; i++) {
+        positions[i] = is.readLong();
+        minTimes[i] = is.readLong();
+        maxTimes[i] = is.readLong();
+        levels[i] = is.readByte();
+      }
+      return new LogFileIndex(positions, minTimes, maxTimes, levels, fileLength);
+    }
+  }
+
+  /**
+   * Returns the bit of the given level in the levels bitmap.
+   */
+  public static int getLevelBit(Level level) {
+    // TRACE, DEBUG, INFO, WARN and ERROR maps to bit 0 to 4
+    return 1 << Math.max(0, Math.min(level.toInt() / Level.DEBUG_INT, 7));
+  }
+
+  /**
+   * Returns the levels bitmap that contains all the levels greater than or equal to the given
+   * level.
+   */
+  public static int getLevelBits(Level minLevel) {
+    int bits = 0;
+    for (Level level : new Level[] {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR,
+        Level.OFF}) {
+      if (level.isGreaterOrEqual(minLevel)) {
+        bits |= getLevelBit(level);
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * Returns the number of blocks in the index.
+   */
+  public int size() {
+    return positions.length;
+  }
+
+  /**
+   * Returns the position of the given block that can be used for seeking in the log file.
+   */
+  public long getPosition(int block) {
+    return positions[block];
+  }
+
+  /**
+   * Returns the end position of the given block, which is the start of the next block or the end
+   * of the file.
+   */
+  public long getEndPosition(int block) {
+    return block + 1 < positions.length ? positions[block + 1] : fileLength;
+  }
+
+  /**
+   * Returns the minimum event timestamp of the given block.
+   */
+  public long getMinTime(int block) {
+    return minTimes[block];
+  }
+
+  /**
+   * Returns the maximum event timestamp of the given block.
+   */
+  public long getMaxTime(int block) {
+    return maxTimes[block];
+  }
+
+  /**
+   * Returns {@code true} if the given block has any event with a level in the given levels bitmap.
+   */
+  public boolean hasLevels(int block, int levelBits) {
+    return (levels[block] & levelBits) != 0;
+  }
+
+  /**
+   * Returns the first block that may contain events at or after the given time, or {@link #size()}
+   * if there is no such block. All blocks before it only contain events before the given time.
+   */
+  public int findFirstBlock(long timeMs) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (prefixMaxTimes[mid] < timeMs) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the last block that may contain events at or before the given time, or {@code -1} if
+   * there is no such block. All blocks after it only contain events after the given time.
+   */
+  public int findLastBlock(long timeMs) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (suffixMinTimes[mid] <= timeMs) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low - 1;
+  }
+
+  /**
+   * Builder for {@link LogFileIndex}. Log events should be added with {@link #add(long, Level)},
+   * and {@link #endBlock(long)} should be called whenever an Avro block is written.
+   */
+  public static final class Builder {
+
+    private long[] positions = new long[16];
+    private long[] minTimes = new long[16];
+    private long[] maxTimes = new long[16];
+    private byte[] levels = new byte[16];
+    private int size;
+
+    private long blockPosition;
+    private long blockMinTime = Long.MAX_VALUE;
+    private long blockMaxTime = Long.MIN_VALUE;
+    private int blockLevels;
+
+    /**
+     * Creates a builder.
+     *
+     * @param startPosition the position of the first block in the log file
+     */
+    public Builder(long startPosition) {
+      this.blockPosition = startPosition;
+    }
+
+    /**
+     * Adds a log event to the current block.
+     */
+    public Builder add(long timestamp, @Nullable Level level) {
+      blockMinTime = Math.min(blockMinTime, timestamp);
+      blockMaxTime = Math.max(blockMaxTime, timestamp);
+      // Treat unknown level as any level
+      blockLevels |= level == null ? 0xff : getLevelBit(level);
+      return this;
+    }
+
+    /**
+     * Ends the current block.
+     *
+     * @param nextPosition the position of the next block, which is returned from
+     *     {@link org.apache.avro.file.DataFileWriter#sync()}
+     */
+    public Builder endBlock(long nextPosition) {
+      if (blockMinTime <= blockMaxTime) {
+        if (size == positions.length) {
+          int newSize = size * 2;
+          positions = Arrays.copyOf(positions, newSize);
+          minTimes = Arrays.copyOf(minTimes, newSize);
+          maxTimes = Arrays.copyOf(maxTimes, newSize);
+          levels = Arrays.copyOf(levels, newSize);
+        }
+        positions[size] = blockPosition;
+        minTimes[size] = blockMinTime;
+        maxTimes[size] = blockMaxTime;
+        levels[size] = (byte) blockLevels;
+        size++;
+      }
+      blockPosition = nextPosition;
+      blockMinTime = Long.MAX_VALUE;
+      blockMaxTime = Long.MIN_VALUE;
+      blockLevels = 0;
+      return this;
+    }
+
+    /**
+     * Writes the index of the given log file. It should be called after the log file is closed.
+     *
+     * @param logLocation the location of the log file
+     * @param filePermissions the permissions of the index file or an empty string to use the
+     *     default permissions
+     * @throws IOException if failed to write the index
+     */
+    public void write(Location logLocation, String filePermissions) throws IOException {
+      Location indexLocation = getIndexLocation(logLocation);
+      long fileLength = logLocation.length();
+      OutputStream os = filePermissions.isEmpty() ? indexLocation.getOutputStream()
+          : indexLocation.getOutputStream(filePermissions);
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(os))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(fileLength);
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+          output.writeLong(positions[i]);
+          output.writeLong(minTimes[i]);
+          output.writeLong(maxTimes[i]);
+          output.writeByte(levels[i]);
+        }
+      }
+    }
+  }
+}
@@ -26,10 +26,14 @@ import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.io.SeekableInputStream;
 import io.cdap.cdap.common.logging.LogSamplers;
 import io.cdap.cdap.common.logging.Loggers;
+import io.cdap.cdap.logging.filter.AndFilter;
 import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.filter.OrFilter;
 import io.cdap.cdap.logging.read.Callback;
 import io.cdap.cdap.logging.read.LogEvent;
 import io.cdap.cdap.logging.read.LogOffset;
+import io.cdap.cdap.logging.serialize.FilteringLoggingEventReader;
 import io.cdap.cdap.logging.serialize.LogSchema;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.proto.id.NamespaceId;
@@ -42,10 +46,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.SeekableInput;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -161,12 +167,34 @@ public class LogLocation {
     Deque<Collection<LogEvent>> logSegments = new LinkedList<>();
     int count = 0;
     try {
-      try (DataFileReader<GenericRecord> dataFileReader = createReader()) {
+      LogFileIndex index = readIndex();
+      try (DataFileReader<GenericRecord> dataFileReader = createReader(logFilter)) {
 
         if (!dataFileReader.hasNext()) {
           return ImmutableList.of();
         }
 
+        if (index != null) {
+          // Read blocks backward, starting from the last block that may have events before fromTimeMs
+          int levelBits = getLevelBits(logFilter);
+          for (int block = index.findLastBlock(fromTimeMs); block >= 0 && count < maxEvents;
+              block--) {
+            if (!index.hasLevels(block, levelBits)) {
+              continue;
+            }
+            dataFileReader.seek(index.getPosition(block));
+            List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter,
+                fromTimeMs, index.getEndPosition(block));
+            if (!logSegment.isEmpty()) {
+              logSegments.addFirst(logSegment);
+              count = count + logSegment.size();
+            }
+          }
+          LOG.trace("Read log events {} from {} using index", count, location);
+          int skip = count >= maxEvents ? count - maxEvents : 0;
+          return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
+        }
+
         // Calculate skipLen based on fileLength
         long length = location.length();
         LOG.trace("File length {} {}", location, length);
@@ -216,6 +244,50 @@ public class LogLocation {
     return Lists.newArrayList(Iterables.skip(Iterables.concat(logSegments), skip));
   }
 
+  /**
+   * Reads the {@link LogFileIndex} of this log file.
+   *
+   * @return the {@link LogFileIndex} or {@code null} if the index is not available
+   */
+  @Nullable
+  private LogFileIndex readIndex() {
+    // Index is only written for the new version
+    if (!VERSION_1.equals(frameworkVersion)) {
+      return null;
+    }
+    try {
+      return LogFileIndex.read(location);
+    } catch (Exception e) {
+      // Reading can fall back to scanning the log file
+      READ_FAILURE_LOG.warn("Failed to read log file index for {}", location, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the levels bitmap of the events that may match the given filter.
+   */
+  private static int getLevelBits(Filter logFilter) {
+    if (logFilter instanceof LogLevelExpression) {
+      return LogFileIndex.getLevelBits(((LogLevelExpression) logFilter).getLevel());
+    }
+    if (logFilter instanceof AndFilter) {
+      int bits = 0xff;
+      for (Filter filter : ((AndFilter) logFilter).getExpressions()) {
+        bits &= getLevelBits(filter);
+      }
+      return bits;
+    }
+    if (logFilter instanceof OrFilter) {
+      int bits = 0;
+      for (Filter filter : ((OrFilter) logFilter).getExpressions()) {
+        bits |= getLevelBits(filter);
+      }
+      return bits;
+    }
+    return 0xff;
+  }
+
   /**
    * Read current block in Avro file from current block sync marker to next block sync marker
    */
@@ -288,8 +360,21 @@ public class LogLocation {
       this.maxEvents = maxEvents;
 
       try {
-        dataFileReader = createReader();
-        if (dataFileReader.hasNext()) {
+        LogFileIndex index = readIndex();
+        dataFileReader = createReader(logFilter);
+        if (index != null) {
+          // Seek to the first block that may have events at or after fromTimeMs
+          int levelBits = getLevelBits(logFilter);
+          int block = index.findFirstBlock(fromTimeMs);
+          while (block < index.size() && !index.hasLevels(block, levelBits)) {
+            block++;
+          }
+          if (block >= index.size()) {
+            return;
+          }
+          dataFileReader.seek(index.getPosition(block));
+          LOG.trace("Seek to pos {} using index", index.getPosition(block));
+        } else if (dataFileReader.hasNext()) {
           datum = dataFileReader.next();
           loggingEvent = new LoggingEvent(datum);
           loggingEvent.prepareForDeferredProcessing();
@@ -384,11 +469,15 @@ public class LogLocation {
     }
   }
 
-  private DataFileReader<GenericRecord> createReader() throws IOException {
+  private DataFileReader<GenericRecord> createReader(Filter logFilter) throws IOException {
     boolean shouldImpersonate = this.getFrameworkVersion().equals(VERSION_0);
+    // If the filter only looks at level and MDC, evaluate it before decoding the whole event
+    DatumReader<GenericRecord> datumReader = FilteringLoggingEventReader.isSupported(logFilter)
+        ? new FilteringLoggingEventReader(logFilter)
+        : new GenericDatumReader<GenericRecord>(LogSchema.LoggingEvent.SCHEMA);
     return new DataFileReader<>(
         new LocationSeekableInput(location, namespaceId, impersonator, shouldImpersonate),
-        new GenericDatumReader<GenericRecord>(LogSchema.LoggingEvent.SCHEMA));
+        datumReader);
   }
 
   /**
@@ -15,6 +15,7 @@
  */
 package io.cdap.cdap.metrics.collect;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -24,24 +25,37 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.Uninterruptibles;
+import io.cdap.cdap.api.metrics.Counter;
+import io.cdap.cdap.api.metrics.Gauge;
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.conf.Constants;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Base class for {@link MetricsCollectionService} which collect metrics through a set of cached
  * {@link AggregatedMetricsEmitter}.
+ *
+ * Emitters are grouped by tags. Each {@link MetricsContext} resolves its group once, and each
+ * {@link Counter} or {@link Gauge} handle resolves its emitter once, so that updating a metric
+ * through a handle doesn't need any lookup. Emitters that are idle for a while are retired by the
+ * publishing thread. A handle or context holding a retired emitter or group resolves a new one on
+ * the next update.
  */
 public abstract class AggregatedMetricsCollectionService extends AbstractExecutionThreadService
     implements MetricsCollectionService {
@@ -51,7 +65,9 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final ConcurrentMap<Map<String, String>, EmitterGroup> emitterGroups;
+  // Emitters retired in the last publish. They are drained one more time to catch racing updates.
+  private final List<Emitter> retiredEmitters;
   // maximum number of milliseconds to sleep between each publish
   private final long publishIntervalInMillis;
   private final CountDownLatch shutdownLatch;
@@ -64,28 +80,8 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     this.collectors = CacheBuilder.newBuilder()
         .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
         .build(createCollectorLoader());
-
-    this.emitters = CacheBuilder.newBuilder()
-        // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-        // emitters.get() is used to increment/gauge and that would reset the access time,
-        // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-        // there wont be any loss of emitter entries.
-        .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-        .build(
-            new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-              @Override
-              public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags)
-                  throws Exception {
-                return CacheBuilder.newBuilder()
-                    .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-                    build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-                      @Override
-                      public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                        return new AggregatedMetricsEmitter(metricName);
-                      }
-                    });
-              }
-            });
+    this.emitterGroups = new ConcurrentHashMap<>();
+    this.retiredEmitters = new ArrayList<>();
   }
 
   /**
@@ -107,6 +103,15 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     return publishIntervalInMillis;
   }
 
+  /**
+   * Returns the number of milliseconds that a metric can stay without update before its emitter
+   * is retired. By default this is one minute.
+   */
+  @VisibleForTesting
+  protected long getEmitterExpireMillis() {
+    return TimeUnit.MINUTES.toMillis(CACHE_EXPIRE_MINUTES);
+  }
+
   @Override
   protected void startUp() throws Exception {
     // No-op
@@ -133,7 +138,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     LOG.trace("Start log collection for timestamp {}", timestamp);
 
-    Iterator<MetricValues> metrics = getMetrics(timestamp);
+    Iterator<MetricValues> metrics = getMetrics(timestamp, currentTimeMillis);
     try {
       publish(metrics);
     } catch (Throwable t) {
@@ -176,32 +181,45 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     shutdownLatch.countDown();
   }
 
-  private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-        emitters.asMap().entrySet().iterator();
+  private Iterator<MetricValues> getMetrics(final long timestamp, final long currentTimeMillis) {
+    // Emitters retired in the previous round are drained first and then dropped.
+    // Updates that raced with the retirement are emitted with the current group.
+    Map<Map<String, String>, List<MetricValue>> retiredValues = new HashMap<>();
+    for (Emitter emitter : retiredEmitters) {
+      MetricValue metricValue = emitter.emit(currentTimeMillis);
+      if (metricValue != null) {
+        retiredValues.computeIfAbsent(emitter.getTags(), k -> new ArrayList<>()).add(metricValue);
+      }
+    }
+    retiredEmitters.clear();
+
+    long expireMillis = getEmitterExpireMillis();
+    final Iterator<EmitterGroup> iterator = emitterGroups.values().iterator();
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
+          EmitterGroup group = iterator.next();
+          Map<String, Emitter> metricEmitters = group.getEmitters();
+          List<MetricValue> retired = retiredValues.remove(group.getTags());
           // +1 because we add extra metric about how many metric values did we emit in this context (see below)
           List<MetricValue> metricValues = Lists.newArrayListWithCapacity(
-              metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
-            // skip increment by 0
-            if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
-              continue;
-            }
-            if (metricValue.getType() == MetricType.DISTRIBUTION
-                && metricValue.getBucketCounts().length == 0) {
-              continue;
+              metricEmitters.size() + 1 + (retired == null ? 0 : retired.size()));
+          if (retired != null) {
+            metricValues.addAll(retired);
+          }
+          for (Emitter emitter : metricEmitters.values()) {
+            MetricValue metricValue = emitter.emit(currentTimeMillis);
+            if (metricValue != null) {
+              metricValues.add(metricValue);
+            } else if (emitter.isExpired(currentTimeMillis, expireMillis)) {
+              emitter.retire();
+              metricEmitters.remove(emitter.getName(), emitter);
+              retiredEmitters.add(emitter);
             }
-
-            metricValues.add(metricValue);
+          }
+          if (metricEmitters.isEmpty() && group.retire()) {
+            emitterGroups.remove(group.getTags(), group);
           }
 
           if (metricValues.isEmpty()) {
@@ -214,13 +232,33 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
               metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(group.getTags(), timestamp, metricValues);
+        }
+
+        // Emit values of retired emitters whose group is also retired
+        Iterator<Map.Entry<Map<String, String>, List<MetricValue>>> retiredIterator =
+            retiredValues.entrySet().iterator();
+        if (retiredIterator.hasNext()) {
+          Map.Entry<Map<String, String>, List<MetricValue>> entry = retiredIterator.next();
+          retiredIterator.remove();
+          return new MetricValues(entry.getKey(), timestamp, entry.getValue());
         }
         return endOfData();
       }
     };
   }
 
+  /**
+   * Returns the {@link EmitterGroup} for the given tags, creating one if needed.
+   */
+  private EmitterGroup getEmitterGroup(Map<String, String> tags) {
+    EmitterGroup group = emitterGroups.get(tags);
+    if (group != null) {
+      return group;
+    }
+    return emitterGroups.computeIfAbsent(tags, EmitterGroup::new);
+  }
+
   private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
     return new CacheLoader<Map<String, String>, MetricsContext>() {
       @Override
@@ -233,6 +271,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    private volatile EmitterGroup group;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
@@ -240,12 +279,22 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      getEmitter(metricName).increment(value);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      getEmitter(metricName).gauge(value);
+    }
+
+    @Override
+    public Counter counter(String metricName) {
+      return new MetricHandle(this, metricName);
+    }
+
+    @Override
+    public Gauge gauge(String metricName) {
+      return new MetricHandle(this, metricName);
     }
 
     @Override
@@ -262,7 +311,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     @Override
     public void event(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).event(value);
+      getEmitter(metricName).event(value);
     }
 
     @Override
@@ -276,5 +325,180 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       allTags.putAll(tags);
       return collectors.getUnchecked(allTags);
     }
+
+    /**
+     * Returns the active {@link Emitter} of the given metric in this context.
+     */
+    Emitter getEmitter(String metricName) {
+      while (true) {
+        EmitterGroup group = this.group;
+        if (group == null || group.isRetired()) {
+          this.group = group = getEmitterGroup(tags);
+        }
+        Emitter emitter = group.getEmitter(metricName);
+        // If the group got retired concurrently, the emitter won't be published. Retry with a new group.
+        if (!group.isRetired()) {
+          return emitter;
+        }
+      }
+    }
+  }
+
+  /**
+   * A group of {@link Emitter} that share the same tags.
+   */
+  private static final class EmitterGroup {
+
+    private final Map<String, String> tags;
+    private final ConcurrentMap<String, Emitter> emitters;
+    private volatile boolean retired;
+
+    private EmitterGroup(Map<String, String> tags) {
+      this.tags = tags;
+      this.emitters = new ConcurrentHashMap<>();
+    }
+
+    Map<String, String> getTags() {
+      return tags;
+    }
+
+    ConcurrentMap<String, Emitter> getEmitters() {
+      return emitters;
+    }
+
+    boolean isRetired() {
+      return retired;
+    }
+
+    Emitter getEmitter(String metricName) {
+      Emitter emitter = emitters.get(metricName);
+      if (emitter == null || emitter.isRetired()) {
+        emitter = emitters.compute(metricName, (name, existing) ->
+            existing == null || existing.isRetired() ? new Emitter(tags, name) : existing);
+      }
+      return emitter;
+    }
+
+    /**
+     * Retires this group if it has no emitter. Must only be called from the publishing thread.
+     *
+     * @return {@code true} if the group is retired
+     */
+    boolean retire() {
+      // Set the flag before checking for emptiness. A concurrent getEmitter call will either
+      // see the flag and retry, or the emitter that it added will be seen here.
+      retired = true;
+      if (!emitters.isEmpty()) {
+        retired = false;
+      }
+      return retired;
+    }
+  }
+
+  /**
+   * An {@link AggregatedMetricsEmitter} with the states for retiring idle emitter.
+   */
+  private static final class Emitter {
+
+    private final Map<String, String> tags;
+    private final String name;
+    private final AggregatedMetricsEmitter emitter;
+    private volatile boolean retired;
+    // Only accessed by the publishing thread
+    private long lastActiveMillis;
+
+    private Emitter(Map<String, String> tags, String name) {
+      this.tags = tags;
+      this.name = name;
+      this.emitter = new AggregatedMetricsEmitter(name);
+      this.lastActiveMillis = System.currentTimeMillis();
+    }
+
+    Map<String, String> getTags() {
+      return tags;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    boolean isRetired() {
+      return retired;
+    }
+
+    void retire() {
+      retired = true;
+    }
+
+    boolean isExpired(long currentTimeMillis, long expireMillis) {
+      return currentTimeMillis - lastActiveMillis >= expireMillis;
+    }
+
+    void increment(long value) {
+      emitter.increment(value);
+    }
+
+    void gauge(long value) {
+      emitter.gauge(value);
+    }
+
+    void event(long value) {
+      emitter.event(value);
+    }
+
+    /**
+     * Emits the aggregated value.
+     *
+     * @return the {@link MetricValue} or {@code null} if there is no update since the last emit
+     */
+    @Nullable
+    MetricValue emit(long currentTimeMillis) {
+      MetricValue metricValue = emitter.emit();
+      // skip increment by 0
+      if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
+        return null;
+      }
+      if (metricValue.getType() == MetricType.DISTRIBUTION
+          && metricValue.getBucketCounts().length == 0) {
+        return null;
+      }
+      lastActiveMillis = currentTimeMillis;
+      return metricValue;
+    }
+  }
+
+  /**
+   * A {@link Counter} and {@link Gauge} that holds on to the {@link Emitter} of a metric. The
+   * emitter is only resolved again after it is retired.
+   */
+  private static final class MetricHandle implements Counter, Gauge {
+
+    private final MetricsContextImpl context;
+    private final String metricName;
+    private volatile Emitter emitter;
+
+    private MetricHandle(MetricsContextImpl context, String metricName) {
+      this.context = context;
+      this.metricName = metricName;
+      this.emitter = context.getEmitter(metricName);
+    }
+
+    @Override
+    public void increment(long delta) {
+      getEmitter().increment(delta);
+    }
+
+    @Override
+    public void set(long value) {
+      getEmitter().gauge(value);
+    }
+
+    private Emitter getEmitter() {
+      Emitter emitter = this.emitter;
+      if (emitter.isRetired()) {
+        this.emitter = emitter = context.getEmitter(metricName);
+      }
+      return emitter;
+    }
   }
 }
@@ -17,20 +17,26 @@ package io.cdap.cdap.metrics.collect;
 
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric during collection and emit the
  * aggregated value when emitted.
+ *
+ * Counter increments only update a {@link LongAdder}, so that concurrent updates of the same
+ * metric don't contend on a lock. If the same metric is updated with different types, the type of
+ * the last update is emitted.
  */
 public final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
   private final String name;
-  private long value;
-
-  private MetricType metricType = MetricType.COUNTER;
+  private final LongAdder value;
+  private final AtomicReference<MetricType> metricType;
+  private volatile long gaugeValue;
   private Distribution distribution;
 
   public AggregatedMetricsEmitter(String name) {
@@ -39,37 +45,47 @@ public final class AggregatedMetricsEmitter implements MetricsEmitter {
     }
 
     this.name = name;
+    this.value = new LongAdder();
+    this.metricType = new AtomicReference<>(MetricType.COUNTER);
   }
 
-  public synchronized void increment(long incrementValue) {
-    this.value += incrementValue;
-    this.metricType = MetricType.COUNTER;
+  public void increment(long incrementValue) {
+    value.add(incrementValue);
+    // Only write when the type changes, so that the common case is just a read
+    if (metricType.get() != MetricType.COUNTER) {
+      metricType.set(MetricType.COUNTER);
+    }
   }
 
   @Override
-  public synchronized MetricValue emit() {
-    if (metricType == MetricType.DISTRIBUTION) {
-      Distribution oldVal;
-      // TODO emit maybe made faster using CAS inside Distribution.
-      // https://cdap.atlassian.net/browse/CDAP-18792 has more context
-      oldVal = distribution;
-      distribution = null;
-      if (oldVal != null) {
-        LOG.trace("Emitting distribution metric: {}", oldVal.toString());
-        return oldVal.getMetricValue(name);
+  public MetricValue emit() {
+    if (metricType.get() == MetricType.DISTRIBUTION) {
+      synchronized (this) {
+        Distribution oldVal;
+        // TODO emit maybe made faster using CAS inside Distribution.
+        // https://cdap.atlassian.net/browse/CDAP-18792 has more context
+        oldVal = distribution;
+        distribution = null;
+        if (oldVal != null) {
+          LOG.trace("Emitting distribution metric: {}", oldVal.toString());
+          return oldVal.getMetricValue(name);
+        }
+        return new Distribution().getMetricValue(name);
       }
-      return new Distribution().getMetricValue(name);
     }
 
-    MetricValue returnVal = new MetricValue(name, metricType, this.value);
-    this.value = 0;
-    this.metricType = MetricType.COUNTER;
-    return returnVal;
+    // Reset the type to counter before reading the gauge value.
+    // If there is a concurrent gauge update, it will be emitted again in the next round.
+    if (metricType.compareAndSet(MetricType.GAUGE, MetricType.COUNTER)) {
+      value.reset();
+      return new MetricValue(name, MetricType.GAUGE, gaugeValue);
+    }
+    return new MetricValue(name, MetricType.COUNTER, value.sumThenReset());
   }
 
-  public synchronized void gauge(long value) {
-    this.value = value;
-    this.metricType = MetricType.GAUGE;
+  public void gauge(long value) {
+    this.gaugeValue = value;
+    this.metricType.set(MetricType.GAUGE);
   }
 
   public synchronized void event(long value) {
@@ -77,6 +93,6 @@ public final class AggregatedMetricsEmitter implements MetricsEmitter {
       distribution = new Distribution();
     }
     distribution.add(value);
-    this.metricType = MetricType.DISTRIBUTION;
+    this.metricType.set(MetricType.DISTRIBUTION);
   }
 }
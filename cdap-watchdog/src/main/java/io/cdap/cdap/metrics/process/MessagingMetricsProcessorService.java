@@ -373,8 +373,10 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
         // if no other thread is persisting
         tryPersist();
 
+        // Wait for new metrics instead of sleeping for the processing interval if there is none
         MessageFetcher fetcher = messagingService.prepareFetch(topic);
         fetcher.setLimit(fetcherLimit);
+        fetcher.setWaitTime(metricsProcessIntervalMillis, TimeUnit.MILLISECONDS);
         TopicProcessMeta persistMetaInfo = metadataHandler.getTopicProcessMeta(metricsMetaKey);
         byte[] lastMessageId = null;
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.appender.system;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.common.collect.Lists;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.read.LogEvent;
+import io.cdap.cdap.logging.write.LogFileIndex;
+import io.cdap.cdap.logging.write.LogLocation;
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for reading log files with the {@link LogFileIndex} written by {@link LogFileOutputStream}.
+ */
+public class LogFileIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final Logger LOGGER =
+      (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+
+  @Test
+  public void testReadWithIndex() throws Exception {
+    File dir = TMP_FOLDER.newFolder();
+    Location location = new LocalLocationFactory(dir).create("test.avro");
+
+    // Write 1000 events, with timestamps 1000 to 1999. Every 10th event is at WARN level.
+    LogFileOutputStream output = new LogFileOutputStream(location, "", 256, 0L, () -> { });
+    for (int i = 0; i < 1000; i++) {
+      LoggingEvent event = new LoggingEvent("fqcn", LOGGER, i % 10 == 0 ? Level.WARN : Level.INFO,
+          "Message " + i, null, null);
+      event.setTimeStamp(1000L + i);
+      output.append(event);
+      if (i % 333 == 0) {
+        output.flush();
+      }
+    }
+    output.close();
+
+    LogFileIndex index = LogFileIndex.read(location);
+    Assert.assertNotNull(index);
+    Assert.assertTrue(index.size() > 10);
+    Assert.assertEquals(0, index.findFirstBlock(0L));
+    Assert.assertEquals(index.size(), index.findFirstBlock(2000L));
+    Assert.assertEquals(-1, index.findLastBlock(999L));
+    Assert.assertEquals(index.size() - 1, index.findLastBlock(2000L));
+
+    LogLocation logLocation = new LogLocation(LogLocation.VERSION_1, 1000L, 0L, location,
+        "default", null);
+    Filter warnFilter = new LogLevelExpression("WARN");
+    List<Long> indexedForward = readLog(logLocation, Filter.EMPTY_FILTER, 1500L, 1600L, 1000);
+    List<Long> indexedForwardWarn = readLog(logLocation, warnFilter, 1500L, 2000L, 10);
+    List<Long> indexedPrev = readLogPrev(logLocation, Filter.EMPTY_FILTER, 1500L, 20);
+    List<Long> indexedPrevWarn = readLogPrev(logLocation, warnFilter, 1500L, 20);
+
+    Assert.assertEquals(100, indexedForward.size());
+    Assert.assertEquals(Long.valueOf(1500L), indexedForward.get(0));
+    Assert.assertEquals(Long.valueOf(1599L), indexedForward.get(99));
+    Assert.assertEquals(10, indexedForwardWarn.size());
+    Assert.assertEquals(Long.valueOf(1500L), indexedForwardWarn.get(0));
+    Assert.assertEquals(Long.valueOf(1590L), indexedForwardWarn.get(9));
+    Assert.assertEquals(20, indexedPrev.size());
+    Assert.assertEquals(Long.valueOf(1481L), indexedPrev.get(0));
+    Assert.assertEquals(Long.valueOf(1500L), indexedPrev.get(19));
+    Assert.assertEquals(20, indexedPrevWarn.size());
+    Assert.assertEquals(Long.valueOf(1310L), indexedPrevWarn.get(0));
+    Assert.assertEquals(Long.valueOf(1500L), indexedPrevWarn.get(19));
+
+    // Reading without the index should give the same result
+    Assert.assertTrue(LogFileIndex.getIndexLocation(location).delete());
+    Assert.assertNull(LogFileIndex.read(location));
+    Assert.assertEquals(indexedForward,
+        readLog(logLocation, Filter.EMPTY_FILTER, 1500L, 1600L, 1000));
+    Assert.assertEquals(indexedForwardWarn, readLog(logLocation, warnFilter, 1500L, 2000L, 10));
+    Assert.assertEquals(indexedPrev, readLogPrev(logLocation, Filter.EMPTY_FILTER, 1500L, 20));
+    Assert.assertEquals(indexedPrevWarn, readLogPrev(logLocation, warnFilter, 1500L, 20));
+  }
+
+  private List<Long> readLog(LogLocation logLocation, Filter filter, long fromTimeMs,
+      long toTimeMs, int maxEvents) {
+    try (CloseableIterator<LogEvent> iterator = logLocation.readLog(filter, fromTimeMs, toTimeMs,
+        maxEvents)) {
+      return Lists.newArrayList(iterator).stream()
+          .map(event -> event.getLoggingEvent().getTimeStamp())
+          .collect(Collectors.toList());
+    }
+  }
+
+  private List<Long> readLogPrev(LogLocation logLocation, Filter filter, long fromTimeMs,
+      int maxEvents) throws Exception {
+    return logLocation.readLogPrev(filter, fromTimeMs, maxEvents).stream()
+        .map(event -> event.getLoggingEvent().getTimeStamp())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2023 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.serialize;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.logging.filter.AndFilter;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.LogLevelExpression;
+import io.cdap.cdap.logging.filter.MdcExpression;
+import io.cdap.cdap.logging.filter.OrFilter;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FilteringLoggingEventReader}.
+ */
+public class FilteringLoggingEventReaderTest {
+
+  @Test
+  public void testIsSupported() {
+    Filter levelFilter = new LogLevelExpression("ERROR");
+    Filter mdcFilter = new MdcExpression("stage", "s1");
+    Assert.assertTrue(FilteringLoggingEventReader.isSupported(levelFilter));
+    Assert.assertTrue(FilteringLoggingEventReader.isSupported(mdcFilter));
+    Assert.assertTrue(FilteringLoggingEventReader.isSupported(
+        new AndFilter(ImmutableList.of(levelFilter, new OrFilter(ImmutableList.of(mdcFilter))))));
+    Assert.assertFalse(FilteringLoggingEventReader.isSupported(Filter.EMPTY_FILTER));
+    Assert.assertFalse(FilteringLoggingEventReader.isSupported(
+        new AndFilter(ImmutableList.of(levelFilter, Filter.EMPTY_FILTER))));
+  }
+
+  @Test
+  public void testFilteredRead() throws Exception {
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    List<ILoggingEvent> expectedEvents = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ch.qos.logback.classic.spi.LoggingEvent event = new ch.qos.logback.classic.spi.LoggingEvent();
+      event.setThreadName("thread" + i);
+      event.setLevel(i % 3 == 0 ? Level.ERROR : Level.INFO);
+      event.setMessage("Message " + i);
+      event.setArgumentArray(new Object[] {"arg" + i});
+      event.setLoggerName("logger");
+      event.setThrowableProxy(new ThrowableProxy(new Exception("Exception " + i)));
+      event.setCallerData(new StackTraceElement[] {
+          new StackTraceElement("com.Class", "method" + i, "file", i)
+      });
+      Map<String, String> mdc = new HashMap<>();
+      mdc.put("stage", "s" + (i % 2));
+      mdc.put("empty", null);
+      event.setMDCPropertyMap(mdc);
+      event.setTimeStamp(1000L + i);
+      byte[] encoded = serializer.toBytes(event);
+      expectedEvents.add(serializer.fromBytes(ByteBuffer.wrap(encoded)));
+      os.write(encoded);
+    }
+    byte[] bytes = os.toByteArray();
+
+    // Only ERROR events of stage s0, which are events 0 and 6
+    Filter filter = new AndFilter(ImmutableList.of(new LogLevelExpression("ERROR"),
+        new MdcExpression("stage", "s0")));
+    FilteringLoggingEventReader reader = new FilteringLoggingEventReader(filter);
+    reader.setSchema(LogSchema.LoggingEvent.SCHEMA);
+
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    for (int i = 0; i < 10; i++) {
+      ILoggingEvent event = new LoggingEvent(reader.read(null, decoder));
+      ILoggingEvent expected = expectedEvents.get(i);
+
+      Assert.assertEquals(expected.getTimeStamp(), event.getTimeStamp());
+      Assert.assertEquals(expected.getLevel(), event.getLevel());
+      Assert.assertEquals(expected.getMDCPropertyMap(), event.getMDCPropertyMap());
+      Assert.assertEquals(filter.match(expected), filter.match(event));
+
+      if (i == 0 || i == 6) {
+        Assert.assertEquals(expected.getThreadName(), event.getThreadName());
+        Assert.assertEquals(expected.getMessage(), event.getMessage());
+        Assert.assertArrayEquals(expected.getArgumentArray(), event.getArgumentArray());
+        Assert.assertArrayEquals(expected.getCallerData(), event.getCallerData());
+        Assert.assertEquals(expected.getThrowableProxy().getMessage(),
+            event.getThrowableProxy().getMessage());
+      } else {
+        // The rest of the event is not decoded
+        Assert.assertNull(event.getMessage());
+        Assert.assertNull(event.getThrowableProxy());
+      }
+      // Make sure the event can still be prepared for deferred processing
+      event.prepareForDeferredProcessing();
+    }
+    Assert.assertTrue(decoder.isEnd());
+  }
+}
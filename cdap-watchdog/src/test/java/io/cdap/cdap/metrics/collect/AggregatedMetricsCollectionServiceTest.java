@@ -17,6 +17,8 @@ package io.cdap.cdap.metrics.collect;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import io.cdap.cdap.api.metrics.Counter;
+import io.cdap.cdap.api.metrics.Gauge;
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
@@ -249,6 +251,64 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Category(SlowTests.class)
+  @Test
+  public void testMetricHandles() throws InterruptedException {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    // Expire emitters quickly to verify that handles keep working after the emitters are retired
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(100L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+
+      @Override
+      protected long getEmitterExpireMillis() {
+        return 0L;
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext metricsContext = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE,
+                                                                         NAMESPACE));
+      Counter counter = metricsContext.counter(METRIC);
+      Gauge gauge = metricsContext.gauge(GAUGE_METRIC);
+
+      counter.increment(3);
+      counter.increment(4);
+      metricsContext.increment(METRIC, 5);
+      verifyCounterMetricsValue(published, ImmutableMap.of(1, ImmutableMap.of(METRIC, 12L)));
+
+      // Wait for the emitters to be retired, then update through the handles again
+      Assert.assertNull(published.poll(1, TimeUnit.SECONDS));
+      counter.increment(10);
+      verifyCounterMetricsValue(published, ImmutableMap.of(1, ImmutableMap.of(METRIC, 10L)));
+
+      gauge.set(7);
+      gauge.set(8);
+      verifyGaugeMetricsValue(published, ImmutableMap.of(1, 8L));
+
+      // Concurrent updates through the same handle
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new Thread(() -> {
+          for (int j = 0; j < 10000; j++) {
+            counter.increment(1);
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      verifyCounterMetricsValue(published, ImmutableMap.of(1, ImmutableMap.of(METRIC, 40000L)));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
   private void verifyDistribtionMetricValues(BlockingQueue<MetricValues> published,
                                              int numMetrics, int numValuesInMetric) throws InterruptedException {
     long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);